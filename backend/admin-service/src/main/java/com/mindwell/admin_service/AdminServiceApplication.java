@@ -2,10 +2,10 @@ package com.mindwell.admin_service;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.cloud.netflix.eureka.EnableEurekaClient;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableEurekaClient // ⬅️ Enables registration with Eureka
+@EnableScheduling
 public class AdminServiceApplication {
 
 	public static void main(String[] args) {
@@ -1,22 +1,49 @@
 package com.mindwell.admin_service.controller;
+import com.mindwell.admin_service.dashboard.DashboardService;
+import com.mindwell.admin_service.dashboard.DashboardSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Collections;
+
 @RestController
 @RequestMapping("/api/admin")
 public class AdminController {
+
+    private static final Logger log = LoggerFactory.getLogger(AdminController.class);
+
+    private final DashboardService dashboardService;
+
+    public AdminController(DashboardService dashboardService) {
+        this.dashboardService = dashboardService;
+    }
+
+    /**
+     * Returns the latest precomputed snapshot; nothing is queried per request. Answers 503
+     * until the first background refresh has completed.
+     */
     @GetMapping("/dashboard")
-    public ResponseEntity<String> testAdminEndpoint(
+    public ResponseEntity<?> dashboard(
             // Reads the header injected by the API Gateway after JWT validation
             @RequestHeader("X-Auth-User-ID") String userId) {
 
-        System.out.println("LOG: Authenticated Admin Request from User ID: " + userId);
+        log.debug("Admin dashboard request from user {}", userId);
 
         // NOTE: In a real app, you would perform an additional check for ADMIN role here.
 
-        return ResponseEntity.ok("ACCESS GRANTED to Admin Dashboard for user: " + userId);
+        DashboardSnapshot snapshot = dashboardService.getSnapshot();
+        if (snapshot == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(Collections.singletonMap("error", "Dashboard is still being computed"));
+        }
+        return ResponseEntity.ok(snapshot);
     }
-}
\ No newline at end of file
+}
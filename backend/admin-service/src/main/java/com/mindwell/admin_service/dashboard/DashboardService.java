@@ -0,0 +1,263 @@
+package com.mindwell.admin_service.dashboard;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds the admin dashboard in the background and serves the latest snapshot, so a page
+ * load is a field read and never touches either database.
+ * <p>
+ * Each refresh reads the auth database's users and the mood database's moods. Days before
+ * the mood-service rollup high-water mark come from the daily mood_rollups; only moods
+ * after it are read raw, as MoodAnalyticsEngine does. Active users combine both sources
+ * with $unionWith (MongoDB 4.4+). If a refresh fails, the previous snapshot stays.
+ * <p>
+ * The mood total includes moods archived by mood-service (mood.archive.enabled): its run
+ * catalog in mood_archive_runs records how many moods each readable segment holds, less
+ * the ones since dropped from them (mood_archive_removed). The catalog lives in the mood
+ * database even when moods are sharded.
+ * <p>
+ * When mood-service shards moods (mood.sharding.uris), set admin.dashboard.mood-shard-uris
+ * to the same URIs: the mood figures are then read from every shard and added up. Each user
+ * lives on one shard, so distinct active users add up too (a user caught mid-move between
+ * shards may count twice). Sharded mood-service compacts rollups per shard, so each shard
+ * is read with its own rollups and high-water mark.
+ */
+@Service
+public class DashboardService {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardService.class);
+    private static final int[] ACTIVE_WINDOWS = {1, 7, 30};
+
+    private final MongoTemplate authDb;
+    private final List<MongoTemplate> moodDbs = new ArrayList<>();
+    private final MongoTemplate archiveDb;
+    private final List<MongoClient> shardClients = new ArrayList<>();
+    private final int days;
+    private volatile DashboardSnapshot snapshot;
+
+    @Autowired
+    public DashboardService(MongoClient mongoClient,
+                            @Value("${admin.dashboard.auth-database:mindwell_auth_db}") String authDatabase,
+                            @Value("${admin.dashboard.mood-database:mindwell_mood_db}") String moodDatabase,
+                            @Value("${admin.dashboard.mood-shard-uris:}") List<String> moodShardUris,
+                            @Value("${admin.dashboard.days:30}") int days) {
+        this.authDb = new MongoTemplate(mongoClient, authDatabase);
+        this.archiveDb = new MongoTemplate(mongoClient, moodDatabase);
+        for (String uri : moodShardUris) {
+            if (uri.isBlank()) continue;
+            ConnectionString connection = new ConnectionString(uri.trim());
+            if (connection.getDatabase() == null) {
+                throw new IllegalArgumentException("Mood shard URI has no database: " + connection.getHosts());
+            }
+            MongoClient client = MongoClients.create(connection);
+            shardClients.add(client);
+            moodDbs.add(new MongoTemplate(client, connection.getDatabase()));
+        }
+        if (moodDbs.isEmpty()) moodDbs.add(archiveDb);
+        this.days = Math.max(1, days);
+    }
+
+    DashboardService(MongoTemplate authDb, List<MongoTemplate> moodDbs, MongoTemplate archiveDb, int days) {
+        this.authDb = authDb;
+        this.moodDbs.addAll(moodDbs);
+        this.archiveDb = archiveDb;
+        this.days = Math.max(1, days);
+    }
+
+    @PreDestroy
+    public void close() {
+        shardClients.forEach(MongoClient::close);
+    }
+
+    /**
+     * The latest snapshot, or null until the first refresh has completed.
+     */
+    public DashboardSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Scheduled(initialDelayString = "${admin.dashboard.initial-delay-ms:0}",
+               fixedDelayString = "${admin.dashboard.refresh-ms:300000}")
+    public void refresh() {
+        try {
+            long start = System.nanoTime();
+            snapshot = compute(Instant.now());
+            log.debug("Dashboard refreshed in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("Dashboard refresh failed, keeping the previous snapshot: {}", e.getMessage());
+        }
+    }
+
+    DashboardSnapshot compute(Instant now) {
+        LocalDate today = LocalDate.ofInstant(now, ZoneOffset.UTC);
+        LocalDate first = today.minusDays(days - 1L);
+        Instant since = startOf(first);
+
+        // Users: role counts and signups per day.
+        Map<String, Long> byRole = new TreeMap<>();
+        for (Document row : authDb.aggregate(Aggregation.newAggregation(
+                Aggregation.unwind("roles"),
+                Aggregation.group("roles").count().as("n")), "users", Document.class)) {
+            Object role = row.get("_id");
+            if (role != null) byRole.merge(role.toString().toUpperCase(), number(row, "n"), Long::sum);
+        }
+        Map<LocalDate, long[]> signups = perDay(first, today, 1);
+        for (Document row : authDb.aggregate(Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("createdAt").gte(since)),
+                Aggregation.project().and(DateOperators.DateToString.dateOf("createdAt").toString("%Y-%m-%d")).as("day"),
+                Aggregation.group("day").count().as("n")), "users", Document.class)) {
+            add(signups, row.getString("_id"), number(row, "n"), 0);
+        }
+
+        // Moods: count and score sum per day, from rollups before the mark and raw moods after it.
+        Map<LocalDate, long[]> moods = perDay(first, today, 2);
+        Map<String, Long> active = new LinkedHashMap<>();
+        for (int window : ACTIVE_WINDOWS) {
+            active.put(window + "d", 0L);
+        }
+        long totalMoods = archivedMoods(archiveDb);
+        for (MongoTemplate moodDb : moodDbs) {
+            Instant mark = rollupHighWaterMark(moodDb);
+            addMoods(moodDb, moods, since, mark);
+            for (int window : ACTIVE_WINDOWS) {
+                active.merge(window + "d", activeUsers(moodDb, startOf(today.minusDays(window - 1L)), mark), Long::sum);
+            }
+            totalMoods += moodDb.getCollection("moods").estimatedDocumentCount();
+        }
+
+        List<DashboardSnapshot.DayCount> signupsByDay = new ArrayList<>();
+        signups.forEach((day, v) -> signupsByDay.add(new DashboardSnapshot.DayCount(day, v[0])));
+        List<DashboardSnapshot.DayMoods> moodsByDay = new ArrayList<>();
+        long moodCount = 0;
+        long scoreSum = 0;
+        for (Map.Entry<LocalDate, long[]> e : moods.entrySet()) {
+            long[] v = e.getValue();
+            moodsByDay.add(new DashboardSnapshot.DayMoods(e.getKey(), v[0], v[0] > 0 ? (double) v[1] / v[0] : 0));
+            moodCount += v[0];
+            scoreSum += v[1];
+        }
+        return new DashboardSnapshot(now,
+                authDb.getCollection("users").estimatedDocumentCount(), byRole, signupsByDay, active,
+                totalMoods, moodsByDay,
+                moodCount > 0 ? (double) scoreSum / moodCount : 0);
+    }
+
+    private static void addMoods(MongoTemplate moodDb, Map<LocalDate, long[]> moods, Instant since, Instant mark) {
+        if (mark.isAfter(since)) {
+            for (Document row : moodDb.aggregate(Aggregation.newAggregation(
+                    Aggregation.match(Criteria.where("granularity").is("DAY").and("periodStart").gte(since).lt(mark)),
+                    Aggregation.project("count", "sum")
+                            .and(DateOperators.DateToString.dateOf("periodStart").toString("%Y-%m-%d")).as("day"),
+                    Aggregation.group("day").sum("count").as("n").sum("sum").as("total")), "mood_rollups", Document.class)) {
+                add(moods, row.getString("_id"), number(row, "n"), number(row, "total"));
+            }
+        }
+        Instant rawFrom = mark.isAfter(since) ? mark : since;
+        for (Document row : moodDb.aggregate(Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("createdAt").gte(rawFrom)),
+                Aggregation.project("score").and(DateOperators.DateToString.dateOf("createdAt").toString("%Y-%m-%d")).as("day"),
+                Aggregation.group("day").count().as("n").sum("score").as("total")), "moods", Document.class)) {
+            add(moods, row.getString("_id"), number(row, "n"), number(row, "total"));
+        }
+    }
+
+    /**
+     * Moods held by the readable archive segments (a run still writing its segment has
+     * not removed any mood from the moods collection yet), less those dropped since.
+     */
+    private static long archivedMoods(MongoTemplate moodDb) {
+        Document runs = moodDb.aggregate(Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("state").ne("WRITING")),
+                Aggregation.group().sum("moods").as("n")), "mood_archive_runs", Document.class).getUniqueMappedResult();
+        long archived = countOf(runs);
+        if (archived == 0) return 0;
+        return Math.max(0, archived - moodDb.getCollection("mood_archive_removed").estimatedDocumentCount());
+    }
+
+    /**
+     * Distinct users with a mood since {@code from}: daily rollups up to the mark, raw moods after.
+     */
+    private static long activeUsers(MongoTemplate moodDb, Instant from, Instant mark) {
+        return countOf(moodDb.aggregate(activeUsersAggregation(from, mark), "moods", Document.class)
+                .getUniqueMappedResult());
+    }
+
+    /**
+     * The active-user count over the moods collection, with the rollups before the mark
+     * appended by $unionWith when the mark falls after {@code from}.
+     */
+    static Aggregation activeUsersAggregation(Instant from, Instant mark) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(Criteria.where("createdAt").gte(mark.isAfter(from) ? mark : from)));
+        stages.add(Aggregation.project("userId"));
+        if (mark.isAfter(from)) {
+            stages.add(UnionWithOperation.unionWith("mood_rollups").pipeline(
+                    Aggregation.match(Criteria.where("granularity").is("DAY").and("periodStart").gte(from).lt(mark)),
+                    Aggregation.project("userId")));
+        }
+        stages.add(Aggregation.group("userId"));
+        stages.add(Aggregation.count().as("n"));
+        return Aggregation.newAggregation(stages);
+    }
+
+    private static Instant rollupHighWaterMark(MongoTemplate moodDb) {
+        Document state = moodDb.getCollection("mood_rollup_state").find(new Document("_id", "moods")).first();
+        Date mark = state != null ? state.getDate("highWaterMark") : null;
+        return mark != null ? mark.toInstant() : Instant.EPOCH;
+    }
+
+    private static Map<LocalDate, long[]> perDay(LocalDate first, LocalDate last, int width) {
+        Map<LocalDate, long[]> days = new TreeMap<>();
+        for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+            days.put(day, new long[width]);
+        }
+        return days;
+    }
+
+    // Rows outside the window (e.g. moods stamped in the future) are ignored.
+    private static void add(Map<LocalDate, long[]> days, String day, long count, long sum) {
+        long[] v = day != null ? days.get(LocalDate.parse(day)) : null;
+        if (v == null) return;
+        v[0] += count;
+        if (v.length > 1) v[1] += sum;
+    }
+
+    private static long countOf(Document row) {
+        return row != null ? number(row, "n") : 0;
+    }
+
+    private static long number(Document row, String field) {
+        Object value = row.get(field);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    private static Instant startOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
@@ -0,0 +1,118 @@
+package com.mindwell.admin_service.dashboard;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed admin dashboard figures. Immutable; a new snapshot replaces the old one on
+ * every refresh. Days are UTC and cover the configured window, oldest first, including
+ * days without activity.
+ */
+public class DashboardSnapshot {
+
+    private final Instant generatedAt;
+    private final long totalUsers;
+    private final Map<String, Long> usersByRole;
+    private final List<DayCount> signupsByDay;
+    private final Map<String, Long> activeUsers;
+    private final long totalMoods;
+    private final List<DayMoods> moodsByDay;
+    private final double averageScore;
+
+    public DashboardSnapshot(Instant generatedAt, long totalUsers, Map<String, Long> usersByRole,
+                             List<DayCount> signupsByDay, Map<String, Long> activeUsers, long totalMoods,
+                             List<DayMoods> moodsByDay, double averageScore) {
+        this.generatedAt = generatedAt;
+        this.totalUsers = totalUsers;
+        this.usersByRole = Collections.unmodifiableMap(new LinkedHashMap<>(usersByRole));
+        this.signupsByDay = List.copyOf(signupsByDay);
+        this.activeUsers = Collections.unmodifiableMap(new LinkedHashMap<>(activeUsers));
+        this.totalMoods = totalMoods;
+        this.moodsByDay = List.copyOf(moodsByDay);
+        this.averageScore = averageScore;
+    }
+
+    public Instant getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public long getTotalUsers() {
+        return totalUsers;
+    }
+
+    public Map<String, Long> getUsersByRole() {
+        return usersByRole;
+    }
+
+    public List<DayCount> getSignupsByDay() {
+        return signupsByDay;
+    }
+
+    /**
+     * Distinct users who logged a mood, keyed by window: "1d" (today), "7d" and "30d".
+     */
+    public Map<String, Long> getActiveUsers() {
+        return activeUsers;
+    }
+
+    public long getTotalMoods() {
+        return totalMoods;
+    }
+
+    public List<DayMoods> getMoodsByDay() {
+        return moodsByDay;
+    }
+
+    /**
+     * Average score over the moods in {@link #getMoodsByDay()}; 0 when there are none.
+     */
+    public double getAverageScore() {
+        return averageScore;
+    }
+
+    public static class DayCount {
+        private final LocalDate day;
+        private final long count;
+
+        public DayCount(LocalDate day, long count) {
+            this.day = day;
+            this.count = count;
+        }
+
+        public String getDay() {
+            return day.toString();
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    public static class DayMoods {
+        private final LocalDate day;
+        private final long count;
+        private final double averageScore;
+
+        public DayMoods(LocalDate day, long count, double averageScore) {
+            this.day = day;
+            this.count = count;
+            this.averageScore = averageScore;
+        }
+
+        public String getDay() {
+            return day.toString();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getAverageScore() {
+            return averageScore;
+        }
+    }
+}
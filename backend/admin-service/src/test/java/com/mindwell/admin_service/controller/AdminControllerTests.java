@@ -0,0 +1,47 @@
+package com.mindwell.admin_service.controller;
+
+import com.mindwell.admin_service.dashboard.DashboardService;
+import com.mindwell.admin_service.dashboard.DashboardSnapshot;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AdminControllerTests {
+
+	@Test
+	void dashboardIsServedFromTheLatestSnapshot() throws Exception {
+		DashboardService dashboardService = mock(DashboardService.class);
+		MockMvc mvc = MockMvcBuilders.standaloneSetup(new AdminController(dashboardService)).build();
+
+		mvc.perform(get("/api/admin/dashboard").header("X-Auth-User-ID", "admin"))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(header().exists("Retry-After"));
+
+		LocalDate today = LocalDate.of(2024, 3, 1);
+		when(dashboardService.getSnapshot()).thenReturn(new DashboardSnapshot(Instant.parse("2024-03-01T12:00:00Z"),
+				3, Map.of("ADMIN", 1L, "USER", 2L),
+				List.of(new DashboardSnapshot.DayCount(today, 2)),
+				Map.of("1d", 1L, "7d", 2L, "30d", 2L),
+				10, List.of(new DashboardSnapshot.DayMoods(today, 4, 6.5)), 6.5));
+
+		mvc.perform(get("/api/admin/dashboard").header("X-Auth-User-ID", "admin"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.totalUsers").value(3))
+				.andExpect(jsonPath("$.usersByRole.USER").value(2))
+				.andExpect(jsonPath("$.signupsByDay[0].day").value("2024-03-01"))
+				.andExpect(jsonPath("$.activeUsers.7d").value(2))
+				.andExpect(jsonPath("$.moodsByDay[0].averageScore").value(6.5));
+	}
+}
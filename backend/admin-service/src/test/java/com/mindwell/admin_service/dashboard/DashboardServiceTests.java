@@ -0,0 +1,161 @@
+package com.mindwell.admin_service.dashboard;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DashboardServiceTests {
+
+	private MongoServer server;
+	private MongoClient client;
+	private MongoTemplate authDb;
+	private MongoTemplate moodDb;
+	private MongoTemplate shardDb;
+
+	@BeforeEach
+	void startMongo() {
+		server = new MongoServer(new MemoryBackend());
+		client = MongoClients.create(server.bindAndGetConnectionString());
+		authDb = new MongoTemplate(client, "auth");
+		moodDb = new MongoTemplate(client, "moods");
+		shardDb = new MongoTemplate(client, "moods_shard1");
+	}
+
+	@AfterEach
+	void stopMongo() {
+		client.close();
+		server.shutdown();
+	}
+
+	private static Date at(String instant) {
+		return Date.from(Instant.parse(instant));
+	}
+
+	private static void user(MongoTemplate db, String role, String createdAt) {
+		db.getCollection("users").insertOne(new Document("roles", List.of(role)).append("createdAt", at(createdAt)));
+	}
+
+	private static void mood(MongoTemplate db, String userId, int score, String createdAt) {
+		db.getCollection("moods").insertOne(new Document("userId", userId).append("score", score)
+				.append("createdAt", at(createdAt)));
+	}
+
+	private static void rollup(MongoTemplate db, String userId, String day, long count, long sum) {
+		db.getCollection("mood_rollups").insertOne(new Document("userId", userId).append("granularity", "DAY")
+				.append("periodStart", at(day + "T00:00:00Z")).append("count", count).append("sum", sum));
+	}
+
+	private static Map<String, Long> moodsByDay(DashboardSnapshot snapshot) {
+		Map<String, Long> counts = new LinkedHashMap<>();
+		snapshot.getMoodsByDay().stream().filter(d -> d.getCount() > 0).forEach(d -> counts.put(d.getDay(), d.getCount()));
+		return counts;
+	}
+
+	private static double averageOn(DashboardSnapshot snapshot, String day) {
+		return snapshot.getMoodsByDay().stream().filter(d -> d.getDay().equals(day)).findFirst().orElseThrow().getAverageScore();
+	}
+
+	@Test
+	void combinesRollupsBeforeTheMarkWithRawMoodsAfterItAcrossShards() {
+		user(authDb, "USER", "2024-03-09T10:00:00Z");
+		user(authDb, "admin", "2024-01-01T10:00:00Z");
+
+		// Rolled up until 2024-02-05: earlier days come from mood_rollups only. The mark lies
+		// before every active-user window, so those are counted from raw moods here; the
+		// $unionWith pipeline is covered below.
+		moodDb.getCollection("mood_rollup_state").insertOne(new Document("_id", "moods")
+				.append("highWaterMark", at("2024-02-05T00:00:00Z")));
+		rollup(moodDb, "u1", "2024-02-01", 2, 10);
+		rollup(moodDb, "u2", "2024-02-04", 1, 4);
+		rollup(moodDb, "u3", "2024-01-20", 5, 5);
+		rollup(moodDb, "u9", "2024-02-05", 100, 100);
+		mood(moodDb, "u2", 9, "2024-02-04T05:00:00Z");
+		mood(moodDb, "u1", 6, "2024-02-20T10:00:00Z");
+		mood(moodDb, "u4", 8, "2024-03-10T08:00:00Z");
+		mood(moodDb, "u4", 1, "2024-03-11T08:00:00Z");
+		// A shard without rollups is read raw.
+		mood(shardDb, "u5", 4, "2024-02-06T05:00:00Z");
+		mood(shardDb, "u5", 2, "2024-03-10T01:00:00Z");
+
+		DashboardSnapshot snapshot = new DashboardService(authDb, List.of(moodDb, shardDb), moodDb, 40)
+				.compute(Instant.parse("2024-03-10T12:00:00Z"));
+
+		assertEquals(2, snapshot.getTotalUsers());
+		assertEquals(Map.of("ADMIN", 1L, "USER", 1L), snapshot.getUsersByRole());
+		assertEquals(40, snapshot.getSignupsByDay().size());
+		assertEquals("2024-01-31", snapshot.getSignupsByDay().get(0).getDay());
+		assertEquals(1, snapshot.getSignupsByDay().stream().mapToLong(DashboardSnapshot.DayCount::getCount).sum());
+
+		Map<String, Long> expected = new LinkedHashMap<>();
+		expected.put("2024-02-01", 2L);
+		expected.put("2024-02-04", 1L);
+		expected.put("2024-02-06", 1L);
+		expected.put("2024-02-20", 1L);
+		expected.put("2024-03-10", 2L);
+		assertEquals(expected, moodsByDay(snapshot), "out-of-window days and rollups at or after the mark are left out");
+		assertEquals(40, snapshot.getMoodsByDay().size());
+		assertEquals(5.0, averageOn(snapshot, "2024-02-01"));
+		assertEquals(4.0, averageOn(snapshot, "2024-02-04"), "the raw mood under the mark is not counted again");
+		assertEquals(5.0, averageOn(snapshot, "2024-03-10"), "both shards add to the day");
+		assertEquals(34.0 / 7, snapshot.getAverageScore(), 1e-9);
+
+		assertEquals(Map.of("1d", 2L, "7d", 2L, "30d", 3L), snapshot.getActiveUsers());
+		assertEquals(6, snapshot.getTotalMoods());
+	}
+
+	@Test
+	void countsArchivedMoodsInTheTotal() {
+		mood(moodDb, "u1", 5, "2024-03-10T08:00:00Z");
+		mood(shardDb, "u2", 5, "2024-03-10T08:00:00Z");
+		MongoTemplate archiveDb = new MongoTemplate(client, "moods_default");
+		archiveDb.getCollection("mood_archive_runs").insertMany(List.of(
+				new Document("_id", "r1").append("state", "SETTLED").append("moods", 40L),
+				new Document("_id", "r2").append("state", "PENDING").append("moods", 10L),
+				new Document("_id", "r3").append("state", "WRITING").append("moods", 0L)));
+		archiveDb.getCollection("mood_archive_removed").insertMany(List.of(
+				new Document("_id", "r1:a").append("run", "r1"),
+				new Document("_id", "r2:b").append("run", "r2")));
+
+		DashboardSnapshot snapshot = new DashboardService(authDb, List.of(moodDb, shardDb), archiveDb, 30)
+				.compute(Instant.parse("2024-03-10T12:00:00Z"));
+		assertEquals(2 + 48, snapshot.getTotalMoods(), "hot moods of both shards plus the archive");
+	}
+
+	@Test
+	void countsActiveUsersFromRollupsBeforeTheMarkAndRawMoodsAfterIt() {
+		Instant from = Instant.parse("2024-02-10T00:00:00Z");
+		Instant mark = Instant.parse("2024-03-08T00:00:00Z");
+
+		List<Document> split = DashboardService.activeUsersAggregation(from, mark).toPipeline(Aggregation.DEFAULT_CONTEXT);
+		assertEquals(List.of(
+				new Document("$match", new Document("createdAt", new Document("$gte", mark))),
+				new Document("$project", new Document("userId", 1)),
+				new Document("$unionWith", new Document("coll", "mood_rollups").append("pipeline", List.of(
+						new Document("$match", new Document("granularity", "DAY")
+								.append("periodStart", new Document("$gte", from).append("$lt", mark))),
+						new Document("$project", new Document("userId", 1))))),
+				new Document("$group", new Document("_id", "$userId")),
+				new Document("$count", "n")), split);
+
+		List<Document> raw = DashboardService.activeUsersAggregation(mark, from).toPipeline(Aggregation.DEFAULT_CONTEXT);
+		assertEquals(new Document("$match", new Document("createdAt", new Document("$gte", mark))), raw.get(0));
+		assertTrue(raw.stream().noneMatch(stage -> stage.containsKey("$unionWith")),
+				"without rollups in the window the moods are read alone");
+	}
+}
@@ -2,12 +2,10 @@ package com.mindwell.api_gateway.filter;
 // File: AuthenticationFilter.java
 
 
-import java.nio.charset.StandardCharsets;
+import com.mindwell.api_gateway.security.JwtVerifier;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
-import org.springframework.beans.factory.annotation.Value;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.http.HttpHeaders;
@@ -18,10 +16,9 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.security.Key;
-
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class AuthenticationFilter extends AbstractGatewayFilterFactory<AuthenticationFilter.Config> {
@@ -31,11 +28,33 @@ public class AuthenticationFilter extends AbstractGatewayFilterFactory<Authentic
             "/api/auth/register",
             "/api/auth/login"
     );
-    private final String secretKey;
-
-    public AuthenticationFilter(@Value("${jwt.secret.key}") String secretKey) {
+    /**
+     * Exchange attribute holding the verified token subject, for filters later in the chain.
+     * Unlike the X-Auth-User-ID header, a client cannot supply it.
+     */
+    public static final String AUTH_SUBJECT_ATTR = AuthenticationFilter.class.getName() + ".subject";
+
+    private final JwtVerifier jwtVerifier;
+    // gateway.auth: time spent deciding, by outcome; downstream time is not included.
+    private final Timer openTimer;
+    private final Timer missingTimer;
+    private final Timer validTimer;
+    private final Timer invalidTimer;
+
+    public AuthenticationFilter(JwtVerifier jwtVerifier, MeterRegistry meterRegistry) {
         super(Config.class);
-        this.secretKey = secretKey;
+        this.jwtVerifier = jwtVerifier;
+        this.openTimer = authTimer(meterRegistry, "open");
+        this.missingTimer = authTimer(meterRegistry, "missing");
+        this.validTimer = authTimer(meterRegistry, "valid");
+        this.invalidTimer = authTimer(meterRegistry, "invalid");
+    }
+
+    private static Timer authTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("gateway.auth")
+                .description("Token checks in AuthenticationFilter")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
     public static class Config {}
@@ -43,21 +62,25 @@ public class AuthenticationFilter extends AbstractGatewayFilterFactory<Authentic
     @Override
     public GatewayFilter apply(Config config) {
         return (exchange, chain) -> {
+            long start = System.nanoTime();
             ServerHttpRequest request = exchange.getRequest();
             String path = request.getURI().getPath();
 
             // 1. Check if the path is an open endpoint (no JWT required)
             if (OPEN_API_ENDPOINTS.contains(path)) {
+                record(openTimer, start);
                 return chain.filter(exchange);
             }
 
             // 2. Check for Authorization header
             if (!request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)) {
+                record(missingTimer, start);
                 return this.onError(exchange, "Authorization header missing", HttpStatus.UNAUTHORIZED);
             }
 
             String authHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
             if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+                record(missingTimer, start);
                 return this.onError(exchange, "Bearer token missing or malformed", HttpStatus.UNAUTHORIZED);
             }
 
@@ -65,33 +88,30 @@ public class AuthenticationFilter extends AbstractGatewayFilterFactory<Authentic
 
             // 3. Validate Token and Extract Claims
             try {
-                Claims claims = this.validateToken(token);
+                Claims claims = jwtVerifier.verify(token);
 
                 // 4. Inject validated claims (User ID/Username) into the request header
                 ServerHttpRequest mutatedRequest = exchange.getRequest().mutate()
                         .header("X-Auth-User-ID", claims.getSubject())
                         .header(HttpHeaders.AUTHORIZATION, authHeader)
                         .build();
+                if (claims.getSubject() != null) {
+                    exchange.getAttributes().put(AUTH_SUBJECT_ATTR, claims.getSubject());
+                }
+                record(validTimer, start);
 
                 // Continue the chain with the modified request
                 return chain.filter(exchange.mutate().request(mutatedRequest).build());
             } catch (Exception e) {
                 // If validation fails (expired, invalid signature, etc.)
+                record(invalidTimer, start);
                 return this.onError(exchange, "Token validation failed", HttpStatus.UNAUTHORIZED);
             }
         };
     }
 
-    private Key getSignInKey() {
-        return Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
-    }
-
-    private Claims validateToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private static void record(Timer timer, long start) {
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
     }
 
     private Mono<Void> onError(ServerWebExchange exchange, String err, HttpStatus httpStatus) {
@@ -0,0 +1,177 @@
+package com.mindwell.api_gateway.filter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import jakarta.annotation.PreDestroy;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-route rate limiting with one token bucket per caller: the authenticated subject set by
+ * AuthenticationFilter, or the client IP when there is none (open endpoints, public routes).
+ * List it after AuthenticationFilter so the subject is known. Configure per route, e.g.
+ * {@code filters[1]=RateLimiter=60, 20} for a burst of 60 refilled at 20 requests/second.
+ * Rejected requests get 429 with Retry-After.
+ * <p>
+ * Buckets that have been full for rate-limit.idle-eviction-seconds are dropped by a
+ * background sweep, so memory follows the set of active callers. When rate-limit.max-buckets
+ * is reached anyway, a new caller takes the place of the oldest full bucket (dropping a full
+ * bucket changes nothing, since a new one starts full): a few of the oldest buckets are
+ * probed, and busy ones are moved to the back. If all probed buckets are busy the new caller
+ * is rejected like one over its limit, so a flood of new callers never resets the buckets of
+ * active ones.
+ */
+@Component
+public class RateLimiter extends AbstractGatewayFilterFactory<RateLimiter.Config> {
+
+    // Oldest buckets looked at for a full one before a new caller is turned away.
+    private static final int EVICTION_PROBES = 16;
+    private static final long RETRY_WHEN_FULL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    // Bucket keys, oldest first; may hold keys whose bucket is gone until the next sweep.
+    private final Queue<String> order = new ConcurrentLinkedQueue<>();
+    private final int maxBuckets;
+    private final long idleNanos;
+    private final LongAdder rejected = new LongAdder();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "rate-limiter-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public RateLimiter(@Value("${rate-limit.max-buckets:100000}") int maxBuckets,
+                       @Value("${rate-limit.idle-eviction-seconds:300}") long idleSeconds) {
+        super(Config.class);
+        this.maxBuckets = maxBuckets;
+        this.idleNanos = TimeUnit.SECONDS.toNanos(idleSeconds);
+        long period = Math.max(1, idleSeconds / 2);
+        sweeper.scheduleWithFixedDelay(() -> evictIdle(System.nanoTime()), period, period, TimeUnit.SECONDS);
+    }
+
+    public static class Config {
+        private int capacity;
+        private double refillPerSecond;
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public double getRefillPerSecond() {
+            return refillPerSecond;
+        }
+
+        public void setRefillPerSecond(double refillPerSecond) {
+            this.refillPerSecond = refillPerSecond;
+        }
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("capacity", "refillPerSecond");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        if (config.getCapacity() < 1 || config.getRefillPerSecond() <= 0) {
+            throw new IllegalArgumentException("RateLimiter needs capacity >= 1 and refillPerSecond > 0");
+        }
+        return (exchange, chain) -> {
+            long now = System.nanoTime();
+            String key = bucketKey(exchange);
+            TokenBucket bucket = buckets.get(key);
+            if (bucket == null) bucket = newBucket(key, config, now);
+            long waitNanos = bucket != null ? bucket.tryConsume(now) : RETRY_WHEN_FULL_NANOS;
+            if (waitNanos == 0) {
+                return chain.filter(exchange);
+            }
+            rejected.increment();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            long retryAfter = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+            return response.setComplete();
+        };
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * The caller's new bucket, or null when there is no room for it.
+     */
+    private TokenBucket newBucket(String key, Config config, long now) {
+        if (buckets.size() >= maxBuckets && !makeRoom(now)) return null;
+        TokenBucket bucket = new TokenBucket(config.getCapacity(), config.getRefillPerSecond(), now);
+        TokenBucket existing = buckets.putIfAbsent(key, bucket);
+        if (existing != null) return existing;
+        order.add(key);
+        return bucket;
+    }
+
+    private static String bucketKey(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "";
+        String subject = exchange.getAttribute(AuthenticationFilter.AUTH_SUBJECT_ATTR);
+        if (subject != null) return routeId + "|u:" + subject;
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        String ip = remote != null && remote.getAddress() != null ? remote.getAddress().getHostAddress() : "unknown";
+        return routeId + "|ip:" + ip;
+    }
+
+    void evictIdle(long now) {
+        buckets.values().removeIf(b -> b.isIdle(now, idleNanos));
+        order.removeIf(key -> !buckets.containsKey(key));
+    }
+
+    /**
+     * Second chance from the oldest bucket on: drops full ones, moves busy ones to the back,
+     * and gives up after {@link #EVICTION_PROBES}. True once there is room.
+     */
+    private boolean makeRoom(long now) {
+        for (int i = 0; i < EVICTION_PROBES && buckets.size() >= maxBuckets; i++) {
+            String key = order.poll();
+            if (key == null) break;
+            TokenBucket bucket = buckets.get(key);
+            if (bucket == null) continue;
+            if (bucket.isIdle(now, 0)) {
+                buckets.remove(key, bucket);
+            } else {
+                order.add(key);
+            }
+        }
+        return buckets.size() < maxBuckets;
+    }
+}
@@ -0,0 +1,30 @@
+package com.mindwell.api_gateway.filter;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes RateLimiter counters at /actuator/ratelimiter.
+ */
+@Component
+@Endpoint(id = "ratelimiter")
+public class RateLimiterEndpoint {
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimiterEndpoint(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rejected", rateLimiter.getRejected());
+        stats.put("buckets", rateLimiter.getBucketCount());
+        return stats;
+    }
+}
@@ -0,0 +1,306 @@
+package com.mindwell.api_gateway.filter;
+
+import com.mindwell.api_gateway.security.JwtVerifier;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collapses identical concurrent GETs (same route, path, query, Accept and If-None-Match
+ * headers and token subject) into one downstream call: the first request goes through, the others wait and
+ * receive a copy of its response. With {@code RequestCoalescing=<millis>} a completed 200
+ * response is also reused for that long.
+ * <p>
+ * Runs just inside NettyWriteResponseFilter, so it sees the response as written and,
+ * being ahead of AuthenticationFilter, derives the subject from the token itself (through
+ * the JwtVerifier cache). Requests with an invalid token are never coalesced. Responses larger
+ * than coalescing.max-body-bytes, or streamed ones, are not shared; waiters then go
+ * downstream on their own. Any other method drops the subject's entries for the route, both
+ * before and after it is forwarded, so a client never reads back its pre-write state.
+ */
+@Component
+public class RequestCoalescing extends AbstractGatewayFilterFactory<RequestCoalescing.Config> {
+
+    private static final Captured NOT_SHARED = new Captured(0, HttpHeaders.EMPTY, new byte[0]);
+
+    private final JwtVerifier jwtVerifier;
+    private final int maxBodyBytes;
+    // Entries by scope (route and subject), then by the rest of the key, so that a write drops
+    // its scope's entries in one step.
+    private final Map<String, Map<String, Entry>> entries = new ConcurrentHashMap<>();
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public RequestCoalescing(JwtVerifier jwtVerifier,
+                             @Value("${coalescing.max-body-bytes:262144}") int maxBodyBytes) {
+        super(Config.class);
+        this.jwtVerifier = jwtVerifier;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    public static class Config {
+        private long cacheMillis;
+
+        public long getCacheMillis() {
+            return cacheMillis;
+        }
+
+        public void setCacheMillis(long cacheMillis) {
+            this.cacheMillis = cacheMillis;
+        }
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Collections.singletonList("cacheMillis");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        GatewayFilter filter = (exchange, chain) -> {
+            if (exchange.getRequest().getMethod() != HttpMethod.GET) {
+                String scope = scopeOf(exchange);
+                if (scope == null) return chain.filter(exchange);
+                // A write may change what this subject reads back from the route; GETs that
+                // start while it runs are dropped again once it is done.
+                invalidate(scope);
+                return chain.filter(exchange).doFinally(signal -> invalidate(scope));
+            }
+            String scope = scopeOf(exchange);
+            if (scope == null) return chain.filter(exchange);
+            String key = keyOf(exchange);
+
+            Entry entry = new Entry();
+            Entry existing = join(scope, key, entry, System.nanoTime());
+            if (existing != null) {
+                coalesced.increment();
+                return existing.result.flatMap(c -> c == NOT_SHARED ? chain.filter(exchange) : write(exchange, c));
+            }
+
+            forwarded.increment();
+            CapturingResponse response = new CapturingResponse(exchange.getResponse(), () -> abandon(scope, key, entry));
+            return chain.filter(exchange.mutate().response(response).build())
+                    .doOnSuccess(v -> finish(scope, key, entry, response, config.getCacheMillis()))
+                    .doOnError(e -> abandon(scope, key, entry))
+                    .doOnCancel(() -> abandon(scope, key, entry));
+        };
+        return new OrderedGatewayFilter(filter, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    public long getForwarded() {
+        return forwarded.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public int getEntryCount() {
+        int count = 0;
+        for (Map<String, Entry> scoped : entries.values()) {
+            count += scoped.size();
+        }
+        return count;
+    }
+
+    /**
+     * The live entry for the key, or null after registering {@code entry} in place of a
+     * missing or expired one; atomic per scope, like removals and {@link #invalidate}.
+     */
+    private Entry join(String scope, String key, Entry entry, long now) {
+        Entry[] live = {null};
+        entries.compute(scope, (s, scoped) -> {
+            if (scoped == null) scoped = new ConcurrentHashMap<>();
+            Entry existing = scoped.get(key);
+            if (existing != null && !existing.isExpired(now)) {
+                live[0] = existing;
+            } else {
+                scoped.put(key, entry);
+            }
+            return scoped;
+        });
+        return live[0];
+    }
+
+    private void remove(String scope, String key, Entry entry) {
+        entries.computeIfPresent(scope, (s, scoped) -> {
+            scoped.remove(key, entry);
+            return scoped.isEmpty() ? null : scoped;
+        });
+    }
+
+    private void finish(String scope, String key, Entry entry, CapturingResponse response, long cacheMillis) {
+        if (!response.isShareable()) {
+            abandon(scope, key, entry);
+            return;
+        }
+        Captured captured = response.toCaptured();
+        if (cacheMillis > 0 && captured.status == 200) {
+            entry.expiresAt = System.nanoTime() + Duration.ofMillis(cacheMillis).toNanos();
+            entry.cached = true;
+            Mono.delay(Duration.ofMillis(cacheMillis)).subscribe(t -> remove(scope, key, entry));
+        } else {
+            remove(scope, key, entry);
+        }
+        entry.sink.tryEmitValue(captured);
+    }
+
+    private void abandon(String scope, String key, Entry entry) {
+        remove(scope, key, entry);
+        entry.sink.tryEmitValue(NOT_SHARED);
+    }
+
+    private void invalidate(String scope) {
+        entries.remove(scope);
+    }
+
+    /**
+     * The coalescing key within the request's scope.
+     */
+    private static String keyOf(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        String query = request.getURI().getRawQuery();
+        String accept = request.getHeaders().getFirst(HttpHeaders.ACCEPT);
+        // A 304 answers one validator only, so conditional requests share by validator.
+        String ifNoneMatch = request.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+        return request.getURI().getRawPath() + '?' + (query != null ? query : "")
+                + '\n' + (accept != null ? accept : "") + '\n' + (ifNoneMatch != null ? ifNoneMatch : "");
+    }
+
+    /**
+     * The route and subject that requests share responses within, or null when the token is
+     * invalid.
+     */
+    private String scopeOf(ServerWebExchange exchange) {
+        String subject = "";
+        String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authHeader != null) {
+            if (!authHeader.startsWith("Bearer ")) return null;
+            try {
+                subject = jwtVerifier.verify(authHeader.substring(7)).getSubject();
+            } catch (Exception e) {
+                return null;
+            }
+            if (subject == null) return null;
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return (route != null ? route.getId() : "") + '\n' + subject + '\n';
+    }
+
+    private static Mono<Void> write(ServerWebExchange exchange, Captured captured) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setRawStatusCode(captured.status);
+        // Fresh lists, so later header changes on one response never leak into another.
+        captured.headers.forEach((name, values) -> response.getHeaders().put(name, new ArrayList<>(values)));
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(captured.body)));
+    }
+
+    private static final class Entry {
+        final Sinks.One<Captured> sink = Sinks.one();
+        final Mono<Captured> result = sink.asMono();
+        // Set once a completed response is kept for the micro-cache window.
+        volatile boolean cached;
+        volatile long expiresAt;
+
+        boolean isExpired(long now) {
+            return cached && now - expiresAt >= 0;
+        }
+    }
+
+    private static final class Captured {
+        final int status;
+        final HttpHeaders headers;
+        final byte[] body;
+
+        Captured(int status, HttpHeaders headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Passes the response through unchanged while keeping a copy of the body, up to the limit.
+     */
+    private final class CapturingResponse extends ServerHttpResponseDecorator {
+        private final Runnable onNotShareable;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private volatile boolean shareable = true;
+
+        CapturingResponse(ServerHttpResponse delegate, Runnable onNotShareable) {
+            super(delegate);
+            this.onNotShareable = onNotShareable;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return super.writeWith(Flux.from(body).doOnNext(this::capture));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            notShareable();
+            return super.writeAndFlushWith(body);
+        }
+
+        boolean isShareable() {
+            return shareable;
+        }
+
+        Captured toCaptured() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(getDelegate().getHeaders());
+            headers.remove(HttpHeaders.TRANSFER_ENCODING);
+            headers.remove(HttpHeaders.CONNECTION);
+            HttpStatusCode status = getDelegate().getStatusCode();
+            return new Captured(status != null ? status.value() : 200, headers, body.toByteArray());
+        }
+
+        private void capture(DataBuffer buffer) {
+            if (!shareable) return;
+            int length = buffer.readableByteCount();
+            if (body.size() + length > maxBodyBytes) {
+                notShareable();
+                return;
+            }
+            // Copied without moving the read position: the buffer is still written downstream.
+            byte[] bytes = new byte[length];
+            buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(bytes), 0, length);
+            body.write(bytes, 0, length);
+        }
+
+        // Lets waiters go downstream now instead of after a large or streamed response.
+        private void notShareable() {
+            if (!shareable) return;
+            shareable = false;
+            onNotShareable.run();
+        }
+    }
+}
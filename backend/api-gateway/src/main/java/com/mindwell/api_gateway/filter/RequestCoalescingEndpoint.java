@@ -0,0 +1,34 @@
+package com.mindwell.api_gateway.filter;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes RequestCoalescing counters at /actuator/coalescing.
+ */
+@Component
+@Endpoint(id = "coalescing")
+public class RequestCoalescingEndpoint {
+
+    private final RequestCoalescing requestCoalescing;
+
+    public RequestCoalescingEndpoint(RequestCoalescing requestCoalescing) {
+        this.requestCoalescing = requestCoalescing;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        long forwarded = requestCoalescing.getForwarded();
+        long coalesced = requestCoalescing.getCoalesced();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("forwarded", forwarded);
+        stats.put("coalesced", coalesced);
+        stats.put("coalescedRatio", forwarded + coalesced == 0 ? 0.0 : (double) coalesced / (forwarded + coalesced));
+        stats.put("entries", requestCoalescing.getEntryCount());
+        return stats;
+    }
+}
@@ -0,0 +1,43 @@
+package com.mindwell.api_gateway.filter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket. The whole state is one long: the nanoTime at which the bucket
+ * will be full again (the "theoretical arrival time" of GCRA). Taking a token moves it one
+ * refill interval forward with a single CAS, so there is no refill bookkeeping.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    TokenBucket(int capacity, double refillPerSecond, long now) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / refillPerSecond));
+        this.burstNanos = intervalNanos * capacity;
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token if one is available. Returns 0 on success, otherwise the nanoseconds
+     * until the next token.
+     */
+    long tryConsume(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = (current - now > 0 ? current : now) + intervalNanos;
+            long debt = next - now;
+            if (debt > burstNanos) return debt - burstNanos;
+            if (fullAt.compareAndSet(current, next)) return 0;
+        }
+    }
+
+    /**
+     * True once the bucket has been full for at least {@code idleNanos}; dropping it then
+     * changes nothing, since a new bucket starts full.
+     */
+    boolean isIdle(long now, long idleNanos) {
+        return now - fullAt.get() >= idleNanos;
+    }
+}
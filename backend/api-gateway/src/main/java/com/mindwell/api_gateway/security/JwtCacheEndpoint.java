@@ -0,0 +1,35 @@
+package com.mindwell.api_gateway.security;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes the JwtVerifier cache counters at /actuator/jwtcache.
+ */
+@Component
+@Endpoint(id = "jwtcache")
+public class JwtCacheEndpoint {
+
+    private final JwtVerifier jwtVerifier;
+
+    public JwtCacheEndpoint(JwtVerifier jwtVerifier) {
+        this.jwtVerifier = jwtVerifier;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        long hits = jwtVerifier.getHits();
+        long misses = jwtVerifier.getMisses();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        stats.put("size", jwtVerifier.getSize());
+        stats.put("maxSize", jwtVerifier.getMaxSize());
+        return stats;
+    }
+}
@@ -0,0 +1,138 @@
+package com.mindwell.api_gateway.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verifies JWTs with a signing key and parser built once at startup, and remembers
+ * tokens that already passed verification until they expire. A repeated token costs
+ * one SHA-256 digest and a map lookup instead of a full parse and HMAC check.
+ * <p>
+ * Once jwt.cache.max-size tokens are held, each new one takes the place of the oldest that
+ * has expired or not been used since it was last looked at (second chance: a used token
+ * moves to the back). A few of the oldest are probed; if all of them are in use, the new
+ * token is verified without being cached.
+ */
+@Component
+public class JwtVerifier {
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    // Oldest tokens looked at for one to drop before a new token goes uncached.
+    private static final int EVICTION_PROBES = 16;
+
+    private final JwtParser parser;
+    private final int maxEntries;
+    private final Map<String, CachedToken> cache = new ConcurrentHashMap<>();
+    // The keys of the cache, oldest first.
+    private final Queue<String> order = new ConcurrentLinkedQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public JwtVerifier(@Value("${jwt.secret.key}") String secretKey,
+                       @Value("${jwt.cache.max-size:10000}") int maxEntries) {
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8)))
+                .build();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the verified claims of the token, or throws a JwtException
+     * (or IllegalArgumentException) when the token is invalid or expired.
+     */
+    public Claims verify(String token) {
+        String key = digest(token);
+        long now = System.currentTimeMillis();
+        CachedToken cached = cache.get(key);
+        // An expired token stays until it is evicted, first in line; it never verifies again.
+        if (cached != null && cached.expiresAt > now) {
+            cached.used = true;
+            hits.increment();
+            return cached.claims;
+        }
+        misses.increment();
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        Date exp = claims.getExpiration();
+        // Tokens without an expiry are never cached; they are re-verified every time.
+        if (exp != null && maxEntries > 0 && (cache.size() < maxEntries || makeRoom(now))
+                && cache.putIfAbsent(key, new CachedToken(claims, exp.getTime())) == null) {
+            order.add(key);
+        }
+        return claims;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int getSize() {
+        return cache.size();
+    }
+
+    public int getMaxSize() {
+        return maxEntries;
+    }
+
+    /**
+     * Drops the first expired or unused token from the oldest on, giving used ones a second
+     * chance at the back, for at most {@link #EVICTION_PROBES}. True once there is room.
+     */
+    private boolean makeRoom(long now) {
+        for (int i = 0; i < EVICTION_PROBES && cache.size() >= maxEntries; i++) {
+            String key = order.poll();
+            if (key == null) break;
+            CachedToken token = cache.get(key);
+            if (token == null) continue;
+            if (token.used && token.expiresAt > now) {
+                token.used = false;
+                order.add(key);
+            } else {
+                cache.remove(key, token);
+            }
+        }
+        return cache.size() < maxEntries;
+    }
+
+    private static String digest(String token) {
+        byte[] hash = SHA256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(hash);
+    }
+
+    private static final class CachedToken {
+        final Claims claims;
+        final long expiresAt;
+        // Set on every hit, cleared when the token gets its second chance.
+        volatile boolean used;
+
+        CachedToken(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.mindwell.api_gateway.filter;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTests {
+
+	private final RateLimiter rateLimiter = new RateLimiter(1000, 300);
+
+	@AfterEach
+	void stop() {
+		rateLimiter.shutdown();
+	}
+
+	private static MockServerWebExchange exchange(String subject, String ip) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/mood")
+				.remoteAddress(new InetSocketAddress(ip, 40000)));
+		if (subject != null) exchange.getAttributes().put(AuthenticationFilter.AUTH_SUBJECT_ATTR, subject);
+		return exchange;
+	}
+
+	private static HttpStatusCode call(GatewayFilter filter, MockServerWebExchange exchange) {
+		filter.filter(exchange, e -> Mono.empty()).block();
+		return exchange.getResponse().getStatusCode();
+	}
+
+	@Test
+	void bucketAllowsBurstThenRefills() {
+		long t = 0;
+		TokenBucket bucket = new TokenBucket(3, 10, t);
+		assertEquals(0, bucket.tryConsume(t));
+		assertEquals(0, bucket.tryConsume(t));
+		assertEquals(0, bucket.tryConsume(t));
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(100), bucket.tryConsume(t));
+
+		t += TimeUnit.MILLISECONDS.toNanos(100);
+		assertEquals(0, bucket.tryConsume(t));
+		assertTrue(bucket.tryConsume(t) > 0);
+
+		t += TimeUnit.SECONDS.toNanos(1);
+		assertTrue(bucket.isIdle(t, 0));
+	}
+
+	@Test
+	void rejectsWith429PerSubjectAndPerIp() {
+		RateLimiter.Config config = new RateLimiter.Config();
+		config.setCapacity(2);
+		config.setRefillPerSecond(0.01);
+		GatewayFilter filter = rateLimiter.apply(config);
+
+		assertNull(call(filter, exchange("alice", "10.0.0.1")));
+		assertNull(call(filter, exchange("alice", "10.0.0.2")));
+		MockServerWebExchange rejected = exchange("alice", "10.0.0.3");
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, call(filter, rejected));
+		assertTrue(Long.parseLong(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)) >= 1);
+
+		// Other users and anonymous callers have their own buckets.
+		assertNull(call(filter, exchange("bob", "10.0.0.1")));
+		assertNull(call(filter, exchange(null, "10.0.0.1")));
+		assertNull(call(filter, exchange(null, "10.0.0.1")));
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, call(filter, exchange(null, "10.0.0.1")));
+		assertEquals(2, rateLimiter.getRejected());
+	}
+
+	@Test
+	void replacesOnlyFullBucketsAndTurnsNewCallersAwayWhileAllAreBusy() {
+		RateLimiter small = new RateLimiter(2, 300);
+		try {
+			RateLimiter.Config slow = new RateLimiter.Config();
+			slow.setCapacity(1);
+			slow.setRefillPerSecond(0.01);
+			GatewayFilter busy = small.apply(slow);
+			assertNull(call(busy, exchange("alice", "10.0.0.1")));
+			assertNull(call(busy, exchange("bob", "10.0.0.1")));
+
+			// Both buckets are empty: a new caller must not reset them.
+			MockServerWebExchange turnedAway = exchange("carol", "10.0.0.1");
+			assertEquals(HttpStatus.TOO_MANY_REQUESTS, call(busy, turnedAway));
+			assertEquals("1", turnedAway.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+			assertEquals(HttpStatus.TOO_MANY_REQUESTS, call(busy, exchange("alice", "10.0.0.1")));
+			assertEquals(2, small.getBucketCount());
+
+			// A bucket that is full again makes way for the new caller.
+			RateLimiter.Config fast = new RateLimiter.Config();
+			fast.setCapacity(1);
+			fast.setRefillPerSecond(1e9);
+			GatewayFilter quick = small.apply(fast);
+			small.evictIdle(System.nanoTime() + TimeUnit.DAYS.toNanos(1));
+			assertEquals(0, small.getBucketCount());
+			assertNull(call(quick, exchange("dave", "10.0.0.1")));
+			assertNull(call(busy, exchange("alice", "10.0.0.1")));
+			assertNull(call(busy, exchange("carol", "10.0.0.1")));
+			assertEquals(2, small.getBucketCount());
+			assertEquals(HttpStatus.TOO_MANY_REQUESTS, call(busy, exchange("alice", "10.0.0.1")),
+					"alice kept her bucket; dave's full one was dropped");
+		} finally {
+			small.shutdown();
+		}
+	}
+}
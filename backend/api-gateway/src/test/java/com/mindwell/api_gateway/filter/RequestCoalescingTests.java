@@ -0,0 +1,124 @@
+package com.mindwell.api_gateway.filter;
+
+import com.mindwell.api_gateway.security.JwtVerifier;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestCoalescingTests {
+
+	private static final String SECRET = "This_Is_A_Test_Secret_Key_That_Is_Long_Enough_For_HS256";
+
+	private final AtomicInteger downstreamCalls = new AtomicInteger();
+
+	private static String token(String subject) {
+		return Jwts.builder()
+				.setSubject(subject)
+				.setExpiration(new Date(System.currentTimeMillis() + 60_000))
+				.signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+				.compact();
+	}
+
+	private static MockServerWebExchange get(String subject) {
+		return MockServerWebExchange.from(MockServerHttpRequest.get("/api/mood/analytics?range=7d")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token(subject)));
+	}
+
+	// Stands in for the routed call: answers after a delay, writing like NettyWriteResponseFilter.
+	private GatewayFilterChain slowDownstream() {
+		return exchange -> Mono.delay(Duration.ofMillis(100)).then(Mono.defer(() -> {
+			int call = downstreamCalls.incrementAndGet();
+			ServerHttpResponse response = exchange.getResponse();
+			response.setStatusCode(HttpStatus.OK);
+			byte[] body = ("{\"call\":" + call + "}").getBytes(StandardCharsets.UTF_8);
+			return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+		}));
+	}
+
+	private static GatewayFilter filter(RequestCoalescing coalescing, long cacheMillis) {
+		RequestCoalescing.Config config = new RequestCoalescing.Config();
+		config.setCacheMillis(cacheMillis);
+		return coalescing.apply(config);
+	}
+
+	@Test
+	void concurrentIdenticalGetsShareOneDownstreamCall() {
+		RequestCoalescing coalescing = new RequestCoalescing(new JwtVerifier(SECRET, 100), 1024);
+		GatewayFilter filter = filter(coalescing, 0);
+		MockServerWebExchange first = get("alice");
+		MockServerWebExchange second = get("alice");
+		MockServerWebExchange otherUser = get("bob");
+
+		Mono.when(filter.filter(first, slowDownstream()),
+				filter.filter(second, slowDownstream()),
+				filter.filter(otherUser, slowDownstream())).block();
+
+		assertEquals(2, downstreamCalls.get());
+		assertEquals(first.getResponse().getBodyAsString().block(), second.getResponse().getBodyAsString().block());
+		assertEquals(HttpStatus.OK, second.getResponse().getStatusCode());
+		assertEquals(1, coalescing.getCoalesced());
+		assertEquals(0, coalescing.getEntryCount());
+
+		// Nothing is kept once the call is done, without a cache window.
+		filter.filter(get("alice"), slowDownstream()).block();
+		assertEquals(3, downstreamCalls.get());
+	}
+
+	@Test
+	void microCacheServesCompletedResponse() {
+		RequestCoalescing coalescing = new RequestCoalescing(new JwtVerifier(SECRET, 100), 1024);
+		GatewayFilter filter = filter(coalescing, 60_000);
+		filter.filter(get("alice"), slowDownstream()).block();
+		MockServerWebExchange later = get("alice");
+		filter.filter(later, slowDownstream()).block();
+
+		assertEquals(1, downstreamCalls.get());
+		assertEquals("{\"call\":1}", later.getResponse().getBodyAsString().block());
+	}
+
+	@Test
+	void writesDropTheSubjectsCachedResponses() {
+		RequestCoalescing coalescing = new RequestCoalescing(new JwtVerifier(SECRET, 100), 1024);
+		GatewayFilter filter = filter(coalescing, 60_000);
+		filter.filter(get("alice"), slowDownstream()).block();
+		filter.filter(get("bob"), slowDownstream()).block();
+		assertEquals(2, coalescing.getEntryCount());
+
+		MockServerWebExchange post = MockServerWebExchange.from(MockServerHttpRequest.post("/api/mood")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token("alice")));
+		filter.filter(post, slowDownstream()).block();
+		assertEquals(3, downstreamCalls.get());
+		assertEquals(1, coalescing.getEntryCount(), "only bob's response is kept");
+
+		MockServerWebExchange afterWrite = get("alice");
+		filter.filter(afterWrite, slowDownstream()).block();
+		assertEquals("{\"call\":4}", afterWrite.getResponse().getBodyAsString().block());
+		filter.filter(get("bob"), slowDownstream()).block();
+		assertEquals(4, downstreamCalls.get());
+	}
+
+	@Test
+	void oversizedResponsesAreNotShared() {
+		RequestCoalescing coalescing = new RequestCoalescing(new JwtVerifier(SECRET, 100), 4);
+		GatewayFilter filter = filter(coalescing, 60_000);
+		Mono.when(filter.filter(get("alice"), slowDownstream()),
+				filter.filter(get("alice"), slowDownstream())).block();
+
+		assertEquals(2, downstreamCalls.get());
+	}
+}
@@ -0,0 +1,71 @@
+package com.mindwell.api_gateway.security;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtVerifierTests {
+
+	private static final String SECRET = "This_Is_A_Test_Secret_Key_That_Is_Long_Enough_For_HS256";
+
+	private static String token(String subject, long ttlMillis) {
+		return Jwts.builder()
+				.setSubject(subject)
+				.setExpiration(new Date(System.currentTimeMillis() + ttlMillis))
+				.signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+				.compact();
+	}
+
+	@Test
+	void repeatedTokenIsServedFromCache() {
+		JwtVerifier verifier = new JwtVerifier(SECRET, 100);
+		String jwt = token("alice@example.com", 60_000);
+
+		assertEquals("alice@example.com", verifier.verify(jwt).getSubject());
+		assertEquals("alice@example.com", verifier.verify(jwt).getSubject());
+
+		assertEquals(1, verifier.getMisses());
+		assertEquals(1, verifier.getHits());
+		assertEquals(1, verifier.getSize());
+	}
+
+	@Test
+	void expiredAndTamperedTokensAreRejected() {
+		JwtVerifier verifier = new JwtVerifier(SECRET, 100);
+		assertThrows(JwtException.class, () -> verifier.verify(token("bob@example.com", -1_000)));
+
+		String jwt = token("bob@example.com", 60_000);
+		assertThrows(JwtException.class, () -> verifier.verify(jwt.substring(0, jwt.length() - 2) + "xx"));
+		assertEquals(0, verifier.getSize());
+	}
+
+	@Test
+	void cacheStaysBounded() {
+		JwtVerifier verifier = new JwtVerifier(SECRET, 2);
+		for (int i = 0; i < 5; i++) {
+			verifier.verify(token("user" + i, 60_000));
+		}
+		assertEquals(2, verifier.getSize());
+	}
+
+	@Test
+	void evictsUnusedTokensBeforeUsedOnes() {
+		JwtVerifier verifier = new JwtVerifier(SECRET, 2);
+		String used = token("alice", 60_000);
+		verifier.verify(used);
+		verifier.verify(used);
+		verifier.verify(token("bob", 60_000));
+		verifier.verify(token("carol", 60_000));
+
+		assertEquals(2, verifier.getSize());
+		verifier.verify(used);
+		assertEquals(2, verifier.getHits(), "the older but used token got a second chance");
+	}
+}
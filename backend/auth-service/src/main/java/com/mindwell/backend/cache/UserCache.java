@@ -0,0 +1,157 @@
+package com.mindwell.backend.cache;
+
+import com.mindwell.backend.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, TTL-based read-through cache of users, indexed by email and by id.
+ * <p>
+ * Writers call {@link #evict(User)} (or {@link #put(User)}) after saving, so readers never see
+ * a user older than the last write. Cached instances are shared: callers must not mutate them
+ * (AuthService loads from the repository before modifying a user).
+ */
+@Component
+public class UserCache {
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final int maxSize;
+    private final Clock clock;
+
+    private final Map<String, Entry> byEmail = new ConcurrentHashMap<>();
+    private final Map<String, Entry> byId = new ConcurrentHashMap<>();
+    // Bumped on every eviction; a load that raced with an eviction is not cached. Evictions
+    // and the stores that check it hold this lock, so no eviction can fall between the check
+    // and the store.
+    private final Object evictions = new Object();
+    private long generation;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public UserCache(@Value("${auth.user-cache.enabled:true}") boolean enabled,
+                     @Value("${auth.user-cache.ttl-seconds:300}") long ttlSeconds,
+                     @Value("${auth.user-cache.max-size:10000}") int maxSize) {
+        this(enabled, ttlSeconds, maxSize, Clock.systemUTC());
+    }
+
+    UserCache(boolean enabled, long ttlSeconds, int maxSize, Clock clock) {
+        this.enabled = enabled;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxSize = maxSize;
+        this.clock = clock;
+    }
+
+    public Optional<User> getByEmail(String email, Supplier<Optional<User>> loader) {
+        return get(byEmail, email, loader);
+    }
+
+    public Optional<User> getById(String id, Supplier<Optional<User>> loader) {
+        return get(byId, id, loader);
+    }
+
+    /**
+     * Write-through: stores a freshly saved user.
+     */
+    public void put(User user) {
+        if (!enabled || user == null) return;
+        synchronized (evictions) {
+            store(user);
+        }
+    }
+
+    public void evict(User user) {
+        if (user == null) return;
+        synchronized (evictions) {
+            generation++;
+            if (user.getId() != null) remove(byId.get(user.getId()));
+            if (user.getEmail() != null) remove(byEmail.get(user.getEmail()));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int getSize() {
+        return byId.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private Optional<User> get(Map<String, Entry> index, String key, Supplier<Optional<User>> loader) {
+        if (!enabled || key == null) return loader.get();
+        Entry entry = index.get(key);
+        if (entry != null && entry.expiresAt > clock.millis()) {
+            hits.increment();
+            return Optional.of(entry.user);
+        }
+        if (entry != null) remove(entry);
+        misses.increment();
+        long before;
+        synchronized (evictions) {
+            before = generation;
+        }
+        Optional<User> loaded = loader.get();
+        if (loaded.isPresent()) {
+            synchronized (evictions) {
+                if (generation == before) store(loaded.get());
+            }
+        }
+        return loaded;
+    }
+
+    private void store(User user) {
+        if (user.getId() == null || user.getEmail() == null) return;
+        if (byId.size() >= maxSize) makeRoom();
+        Entry entry = new Entry(user, clock.millis() + ttlMillis);
+        // Drop a stale email key if the user's email changed.
+        remove(byId.put(user.getId(), entry));
+        byEmail.put(user.getEmail(), entry);
+    }
+
+    private void remove(Entry entry) {
+        if (entry == null) return;
+        byId.remove(entry.user.getId(), entry);
+        byEmail.remove(entry.user.getEmail(), entry);
+    }
+
+    private void makeRoom() {
+        long now = clock.millis();
+        byId.values().stream().filter(e -> e.expiresAt <= now).forEach(this::remove);
+        Iterator<Entry> it = byId.values().iterator();
+        while (byId.size() >= maxSize && it.hasNext()) {
+            remove(it.next());
+        }
+    }
+
+    private static final class Entry {
+        final User user;
+        final long expiresAt;
+
+        Entry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
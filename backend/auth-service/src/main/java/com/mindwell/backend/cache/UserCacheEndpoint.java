@@ -0,0 +1,34 @@
+package com.mindwell.backend.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes UserCache hit ratio and size at /actuator/usercache.
+ */
+@Component
+@Endpoint(id = "usercache")
+@RequiredArgsConstructor
+public class UserCacheEndpoint {
+
+    private final UserCache userCache;
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        long hits = userCache.getHits();
+        long misses = userCache.getMisses();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", userCache.isEnabled());
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        stats.put("size", userCache.getSize());
+        stats.put("maxSize", userCache.getMaxSize());
+        return stats;
+    }
+}
@@ -0,0 +1,43 @@
+package com.mindwell.backend.config;
+
+import com.mindwell.backend.model.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Ensures the indexes declared on {@link User} exist (Spring Boot no longer creates them
+ * automatically). Runs off the startup thread so the service still boots when Mongo is not
+ * reachable yet; an index that cannot be built, e.g. the unique email index over existing
+ * duplicates, is logged and does not stop the others.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MongoIndexInitializer {
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        CompletableFuture.runAsync(() -> {
+            IndexOperations ops = mongoTemplate.indexOps(User.class);
+            new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                    .resolveIndexFor(User.class)
+                    .forEach(index -> {
+                        try {
+                            ops.ensureIndex(index);
+                        } catch (RuntimeException e) {
+                            log.warn("Could not ensure index {} on users: {}", index.getIndexOptions(), e.getMessage());
+                        }
+                    });
+        });
+    }
+}
@@ -2,6 +2,7 @@ package com.mindwell.backend.controller;
 
 import com.mindwell.backend.dto.LoginRequest;
 import com.mindwell.backend.dto.RegisterRequest;
+import com.mindwell.backend.dto.UserPage;
 import com.mindwell.backend.model.User;
 import com.mindwell.backend.service.AuthService;
 
@@ -12,7 +13,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import javax.validation.Valid;
+import jakarta.validation.Valid;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -25,11 +26,18 @@ public class AuthController {
     private final AuthService authService;
 
     /**
-     * ADMIN: Get all users (dashboard)
-     * Only accessible to users with 'ADMIN' role
+     * ADMIN: List users (dashboard), one page at a time.
+     * Only accessible to users with 'ADMIN' role. The body stays a plain array; the
+     * cursor for the next page, if any, is returned in the X-Next-Cursor header.
+     * Optional filters: role, q (email or name prefix) and fields (comma-separated projection).
      */
     @GetMapping("/users")
-    public ResponseEntity<?> getAllUsers(Authentication authentication) {
+    public ResponseEntity<?> getAllUsers(@RequestParam(required = false) String role,
+                                         @RequestParam(required = false) String q,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer limit,
+                                         @RequestParam(required = false) String fields,
+                                         Authentication authentication) {
         if (authentication == null || !authentication.isAuthenticated()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Not authenticated");
         }
@@ -39,9 +47,12 @@ public class AuthController {
         if (!isAdmin) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access denied");
         }
-        // Return all users
-        java.util.List<User> users = authService.getAllUsers();
-        return ResponseEntity.ok(users);
+        UserPage page = authService.listUsers(role, q, cursor, limit, fields);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header("X-Next-Cursor", page.getNextCursor());
+        }
+        return response.body(page.getItems());
     }
 
     /**
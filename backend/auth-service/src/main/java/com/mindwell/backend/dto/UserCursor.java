@@ -0,0 +1,62 @@
+package com.mindwell.backend.dto;
+
+import com.mindwell.backend.model.User;
+import lombok.Value;
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for the admin user listing: the id of the last user served and, for
+ * a prefix search, the field it matched on ("email" or "name") and that field's value, as
+ * such a search is ordered by (field, _id); see UserRepositoryImpl.
+ */
+@Value
+public class UserCursor {
+    public static final String EMAIL = "email";
+    public static final String NAME = "name";
+
+    String field;
+    String value;
+    ObjectId id;
+
+    /**
+     * The cursor after {@code last}, a user of a page listed with {@code prefix} (null when
+     * listed in id order). Users whose email starts with the prefix are listed first.
+     */
+    public static UserCursor after(User last, String prefix) {
+        ObjectId id = new ObjectId(last.getId());
+        if (prefix == null) {
+            return new UserCursor(null, null, id);
+        }
+        String email = last.getEmail();
+        if (email != null && email.startsWith(prefix.toLowerCase())) {
+            return new UserCursor(EMAIL, email, id);
+        }
+        return new UserCursor(NAME, last.getName(), id);
+    }
+
+    public String encode() {
+        String raw = field == null ? id.toHexString() : field + ":" + id.toHexString() + ":" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static UserCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            if (sep < 0) {
+                return new UserCursor(null, null, new ObjectId(raw));
+            }
+            String field = raw.substring(0, sep);
+            int end = raw.indexOf(':', sep + 1);
+            if (!EMAIL.equals(field) && !NAME.equals(field) || end < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new UserCursor(field, raw.substring(end + 1), new ObjectId(raw.substring(sep + 1, end)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
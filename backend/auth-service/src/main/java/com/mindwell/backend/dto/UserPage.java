@@ -0,0 +1,17 @@
+package com.mindwell.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of the admin user listing plus the cursor for the next page (null on the last
+ * page). Items are users, or maps holding only the requested fields.
+ */
+@Getter
+@AllArgsConstructor
+public class UserPage {
+    private final List<?> items;
+    private final String nextCursor;
+}
@@ -0,0 +1,19 @@
+package com.mindwell.backend.exception;
+
+/**
+ * Signals that a bounded resource (e.g. the password hashing pool) is saturated and the
+ * request was shed. Maps to HTTP 503 with a Retry-After header.
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
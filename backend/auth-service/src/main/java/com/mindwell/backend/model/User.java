@@ -7,6 +7,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.index.Indexed;
 
@@ -17,6 +19,12 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "users")
+// Admin listing: roles paged by _id, prefix searches by (email, _id) and (name, _id) (see UserRepositoryImpl).
+@CompoundIndexes({
+        @CompoundIndex(name = "roles_id", def = "{'roles': 1, '_id': 1}"),
+        @CompoundIndex(name = "email_id", def = "{'email': 1, '_id': 1}"),
+        @CompoundIndex(name = "name_id", def = "{'name': 1, '_id': 1}")
+})
 public class User {
 
     @Id
@@ -2,13 +2,12 @@ package com.mindwell.backend.repository;
 
 import com.mindwell.backend.model.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
-import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends MongoRepository<User, String> {
+public interface UserRepository extends MongoRepository<User, String>, UserRepositoryCustom {
 
     /**
      * Finds a User document by their unique email address.
@@ -37,7 +36,4 @@ public interface UserRepository extends MongoRepository<User, String> {
     boolean existsByName(String name);
 
     boolean existsByEmail(String email);
-    // Find all users with ADMIN role
-    @Query("{ 'roles': 'ADMIN' }")
-    java.util.List<User> findAllAdmins();
 }
\ No newline at end of file
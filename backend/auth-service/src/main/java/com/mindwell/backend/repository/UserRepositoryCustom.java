@@ -0,0 +1,35 @@
+package com.mindwell.backend.repository;
+
+import com.mindwell.backend.dto.UserCursor;
+import com.mindwell.backend.model.User;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Queries that need more than derived methods; implemented by {@link UserRepositoryImpl}.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * One keyset page of users in ascending id order or, with a prefix, first the users whose
+     * email starts with it in (email, id) order, then those whose name does in (name, id) order.
+     *
+     * @param role   only users with this role, or null for all
+     * @param prefix only users whose email or name starts with it, or null for all
+     * @param after  where the previous page ended, or null for the first page
+     * @param fields the fields to load, or null for all of them; a prefix search also loads
+     *               email and name, which the next cursor needs
+     * @param limit  maximum number of users returned
+     */
+    List<User> findPage(User.Role role, String prefix, UserCursor after, Collection<String> fields, int limit);
+
+    /**
+     * Sets only the password hash and updatedAt, and only while the stored hash is still
+     * {@code expectedHash}, so a password changed in the meantime is not overwritten.
+     *
+     * @return true when the hash was replaced
+     */
+    boolean replacePassword(String id, String expectedHash, String newHash, LocalDateTime updatedAt);
+}
@@ -0,0 +1,108 @@
+package com.mindwell.backend.repository;
+
+import com.mindwell.backend.dto.UserCursor;
+import com.mindwell.backend.model.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Every filter is served by an index, and paging seeks past the previous page instead of
+ * skipping, so the cost of a page does not grow with its position. Listings page on _id
+ * (roles by roles_id). A prefix search pages in the order of the field it matches, so that
+ * email_id and name_id bound the scan by both the prefix (an anchored, case-sensitive regex
+ * is an index range scan) and the cursor: first the users whose email matches, in (email,
+ * _id) order, then those whose name matches and email does not, in (name, _id) order.
+ */
+@RequiredArgsConstructor
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<User> findPage(User.Role role, String prefix, UserCursor after, Collection<String> fields, int limit) {
+        if (prefix == null) {
+            return findKeyset(role, null, null, after, fields, limit);
+        }
+        if (fields != null) {
+            fields = new ArrayList<>(fields);
+            fields.add(UserCursor.EMAIL);
+            fields.add(UserCursor.NAME);
+        }
+        // Emails are stored in lower case.
+        String emailPrefix = "^" + escape(prefix.toLowerCase());
+        List<User> page = new ArrayList<>(limit);
+        if (after == null || UserCursor.EMAIL.equals(after.getField())) {
+            page.addAll(findKeyset(role, Criteria.where("email").regex(emailPrefix), UserCursor.EMAIL, after,
+                    fields, limit));
+            if (page.size() == limit) {
+                return page;
+            }
+            after = null;
+        }
+        Criteria byName = Criteria.where("name").regex("^" + escape(prefix)).and("email").not().regex(emailPrefix);
+        page.addAll(findKeyset(role, byName, UserCursor.NAME, after, fields, limit - page.size()));
+        return page;
+    }
+
+    /**
+     * Users matching {@code prefix} after the cursor, in (orderBy, _id) order, or in _id order
+     * when orderBy is null.
+     */
+    private List<User> findKeyset(User.Role role, Criteria prefix, String orderBy, UserCursor after,
+                                  Collection<String> fields, int limit) {
+        List<Criteria> filters = new ArrayList<>();
+        if (role != null) {
+            // Some documents store the role in lower case (see User.Role.fromString).
+            filters.add(Criteria.where("roles").in(role.name(), role.name().toLowerCase()));
+        }
+        if (prefix != null) {
+            filters.add(prefix);
+        }
+        if (after != null && orderBy == null) {
+            filters.add(Criteria.where("_id").gt(after.getId()));
+        } else if (after != null) {
+            // The range bounds the index scan; the $or only skips ties on the value.
+            filters.add(Criteria.where(orderBy).gte(after.getValue()));
+            filters.add(new Criteria().orOperator(Criteria.where(orderBy).gt(after.getValue()),
+                    Criteria.where("_id").gt(after.getId())));
+        }
+        Query query = new Query();
+        if (!filters.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(filters.toArray(new Criteria[0])));
+        }
+        if (fields != null) {
+            fields.forEach(query.fields()::include);
+        }
+        Sort order = orderBy == null ? Sort.by(Sort.Direction.ASC, "_id") : Sort.by(Sort.Direction.ASC, orderBy, "_id");
+        return mongoTemplate.find(query.with(order).limit(limit), User.class);
+    }
+
+    @Override
+    public boolean replacePassword(String id, String expectedHash, String newHash, LocalDateTime updatedAt) {
+        Query query = Query.query(Criteria.where("_id").is(id).and("password").is(expectedHash));
+        Update update = new Update().set("password", newHash).set("updatedAt", updatedAt);
+        return mongoTemplate.updateFirst(query, update, User.class).getMatchedCount() > 0;
+    }
+
+    /**
+     * Backslash-escapes regex metacharacters. Unlike Pattern.quote's \Q...\E, Mongo still
+     * recognises the result as a plain prefix and bounds the index scan by it.
+     */
+    private static String escape(String literal) {
+        StringBuilder escaped = new StringBuilder(literal.length() + 8);
+        for (char c : literal.toCharArray()) {
+            if ("\\^$.|?*+()[]{}".indexOf(c) >= 0) escaped.append('\\');
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
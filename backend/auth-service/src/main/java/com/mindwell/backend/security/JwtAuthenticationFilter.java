@@ -7,10 +7,10 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import javax.servlet.FilterChain;
-import javax.servlet.ServletException;
-import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -35,17 +35,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             if (header != null && header.startsWith("Bearer ")) {
                 String token = header.substring(7);
 
-                if (jwtUtils.validateToken(token)) {
-                    String username = jwtUtils.getUsernameFromToken(token);
-                    List<String> roles = jwtUtils.getRolesFromToken(token);
-                    List<SimpleGrantedAuthority> authorities = roles.stream()
-                            .map(r -> new SimpleGrantedAuthority("ROLE_" + r))
-                            .collect(Collectors.toList());
-
-                    UsernamePasswordAuthenticationToken auth
-                            = new UsernamePasswordAuthenticationToken(username, null, authorities);
-                    SecurityContextHolder.getContext().setAuthentication(auth);
-                }
+                // One verification per request (none for cached tokens); the principal
+                // is handed to controllers through the SecurityContext.
+                VerifiedPrincipal principal = jwtUtils.verify(token);
+                List<SimpleGrantedAuthority> authorities = principal.getRoles().stream()
+                        .map(r -> new SimpleGrantedAuthority("ROLE_" + r))
+                        .collect(Collectors.toList());
+
+                UsernamePasswordAuthenticationToken auth
+                        = new UsernamePasswordAuthenticationToken(principal, null, authorities);
+                SecurityContextHolder.getContext().setAuthentication(auth);
             }
         } catch (Exception ex) {
             // If token parsing/validation fails we simply do not set authentication.
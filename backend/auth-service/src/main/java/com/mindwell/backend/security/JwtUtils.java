@@ -1,17 +1,22 @@
 package com.mindwell.backend.security;
 
 import com.mindwell.backend.model.User;
-import java.nio.charset.StandardCharsets;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PostConstruct;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -25,8 +30,26 @@ public class JwtUtils {
     @Value("${jwt.expiration}")
     private long expiration;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    private final VerifiedPrincipalCache principalCache;
+    private final Timer signTimer;
+    private final Timer parseTimer;
+
+    // Derived once from the secret; both are immutable and thread-safe.
+    private Key signingKey;
+    private JwtParser parser;
+
+    public JwtUtils(VerifiedPrincipalCache principalCache, MeterRegistry meterRegistry) {
+        this.principalCache = principalCache;
+        this.signTimer = Timer.builder("auth.jwt").description("JWT signing and parsing")
+                .tag("operation", "sign").register(meterRegistry);
+        this.parseTimer = Timer.builder("auth.jwt").description("JWT signing and parsing")
+                .tag("operation", "parse").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
     }
 
     public String generateToken(String email, Set<User.Role> roles) {
@@ -34,35 +57,50 @@ public class JwtUtils {
         // Add roles to the claims
         claims.put("roles", roles.stream().map(Enum::name).collect(Collectors.toList()));
 
-        return Jwts.builder()
+        return signTimer.record(() -> Jwts.builder()
                 .setClaims(claims)
                 .setSubject(email) // The unique identifier of the user (e.g., email)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
-                .compact();
+                .signWith(signingKey)
+                .compact());
     }
 
-    // Parse claims from token
+    /**
+     * Verifies the token at most once and returns its principal (subject, roles, expiry).
+     * Tokens seen before are answered from the principal cache without a signature check.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, tampered with or expired
+     */
+    public VerifiedPrincipal verify(String token) {
+        VerifiedPrincipal cached = principalCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+        Claims claims = getAllClaimsFromToken(token);
+        if (claims.getSubject() == null) {
+            throw new IllegalArgumentException("Token has no subject");
+        }
+        Date exp = claims.getExpiration();
+        VerifiedPrincipal principal = new VerifiedPrincipal(
+                claims.getSubject(),
+                rolesOf(claims),
+                exp != null ? exp.toInstant() : null);
+        principalCache.put(token, principal);
+        return principal;
+    }
+
+    // Parse claims from token (verifies signature and expiry); failures are timed too
     public Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parseTimer.record(() -> parser.parseClaimsJws(token).getBody());
     }
 
     public String getUsernameFromToken(String token) {
-        return getAllClaimsFromToken(token).getSubject();
+        return verify(token).getSubject();
     }
 
-    @SuppressWarnings("unchecked")
-    public java.util.List<String> getRolesFromToken(String token) {
-        Object roles = getAllClaimsFromToken(token).get("roles");
-        if (roles instanceof java.util.List) {
-            return (java.util.List<String>) roles;
-        }
-        return java.util.Collections.emptyList();
+    public List<String> getRolesFromToken(String token) {
+        return verify(token).getRoles();
     }
 
     public boolean isTokenExpired(String token) {
@@ -72,10 +110,18 @@ public class JwtUtils {
 
     public boolean validateToken(String token) {
         try {
-            Claims claims = getAllClaimsFromToken(token);
-            return claims.getSubject() != null && !isTokenExpired(token);
+            verify(token);
+            return true;
         } catch (Exception e) {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    private static List<String> rolesOf(Claims claims) {
+        Object roles = claims.get("roles");
+        if (roles instanceof List) {
+            return ((List<?>) roles).stream().map(String::valueOf).collect(Collectors.toUnmodifiableList());
+        }
+        return Collections.emptyList();
+    }
+}
@@ -1,5 +1,6 @@
 package com.mindwell.backend.security;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -20,9 +21,13 @@ public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    /**
+     * BCrypt with a configurable cost (log2 rounds). Existing hashes with another cost are
+     * re-hashed on the user's next successful login.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     @Bean
@@ -35,9 +40,11 @@ public class SecurityConfig {
         .sessionManagement(sess -> sess.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
 
         // Authorization rules
-        .authorizeRequests(auth -> auth
+        .authorizeHttpRequests(auth -> auth
             // Allow only register and login endpoints without authentication
-            .antMatchers("/api/auth/register", "/api/auth/login").permitAll()
+            .requestMatchers("/api/auth/register", "/api/auth/login").permitAll()
+            // Health checks and the metrics scraper
+            .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
             // All other requests require authentication
             .anyRequest().authenticated()
         );
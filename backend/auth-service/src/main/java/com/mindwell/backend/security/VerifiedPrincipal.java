@@ -0,0 +1,30 @@
+package com.mindwell.backend.security;
+
+import lombok.Value;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Immutable result of verifying a JWT once: subject (email), roles and expiry.
+ * Stored as the Authentication principal so controllers read it instead of re-parsing.
+ */
+@Value
+public class VerifiedPrincipal implements Principal {
+
+    String subject;
+
+    List<String> roles;
+
+    Instant expiresAt;
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
+
+    @Override
+    public String getName() {
+        return subject;
+    }
+}
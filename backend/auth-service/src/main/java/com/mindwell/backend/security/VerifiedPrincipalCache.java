@@ -0,0 +1,130 @@
+package com.mindwell.backend.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Small bounded cache of already-verified tokens, keyed by the token's SHA-256 digest.
+ * Entries are dropped once the token expires. Lookups take no lock, so request threads do
+ * not queue behind each other.
+ * <p>
+ * Once jwt.cache.max-size tokens are held, a new one takes the place of one of the oldest:
+ * an expired one if there is any among them, else one not read since it was last looked at
+ * (second chance: a read token moves to the back). If all of them are in use, the new token
+ * is not cached.
+ */
+@Component
+public class VerifiedPrincipalCache {
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    // Oldest tokens looked at for one to drop before a new token goes uncached.
+    private static final int EVICTION_PROBES = 16;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // The keys of the entries, oldest first.
+    private final Queue<String> order = new ConcurrentLinkedQueue<>();
+    private final int maxEntries;
+    private final Clock clock;
+
+    @Autowired
+    public VerifiedPrincipalCache(@Value("${jwt.cache.max-size:5000}") int maxEntries) {
+        this(maxEntries, Clock.systemUTC());
+    }
+
+    VerifiedPrincipalCache(int maxEntries, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the cached principal for this token, or null when absent or expired.
+     */
+    public VerifiedPrincipal get(String token) {
+        String key = digest(token);
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        if (entry.principal.isExpired(clock.instant())) {
+            // Its key stays queued until an eviction polls it.
+            entries.remove(key, entry);
+            return null;
+        }
+        entry.used = true;
+        return entry.principal;
+    }
+
+    public void put(String token, VerifiedPrincipal principal) {
+        // Never cache tokens without an expiry; they would stay valid forever.
+        if (maxEntries <= 0 || principal.getExpiresAt() == null) return;
+        Instant now = clock.instant();
+        if (principal.isExpired(now)) return;
+        String key = digest(token);
+        if ((entries.size() < maxEntries || makeRoom(now)) && entries.putIfAbsent(key, new Entry(principal)) == null) {
+            order.add(key);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Looks at up to {@link #EVICTION_PROBES} of the oldest tokens, dropping the expired ones
+     * and moving the others to the back with their read bit cleared. Unless that made room,
+     * drops the first of them that had not been read. True once there is room.
+     */
+    private boolean makeRoom(Instant now) {
+        String unusedKey = null;
+        Entry unused = null;
+        for (int i = 0; i < EVICTION_PROBES && entries.size() >= maxEntries; i++) {
+            String key = order.poll();
+            if (key == null) break;
+            Entry entry = entries.get(key);
+            if (entry == null) continue;
+            if (entry.principal.isExpired(now)) {
+                entries.remove(key, entry);
+                continue;
+            }
+            if (!entry.used && unused == null) {
+                unusedKey = key;
+                unused = entry;
+            }
+            entry.used = false;
+            order.add(key);
+        }
+        if (entries.size() >= maxEntries && unused != null) entries.remove(unusedKey, unused);
+        return entries.size() < maxEntries;
+    }
+
+    private static String digest(String token) {
+        return Base64.getEncoder().encodeToString(SHA256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static final class Entry {
+        final VerifiedPrincipal principal;
+        // Set on every read, cleared when the token gets its second chance.
+        volatile boolean used;
+
+        Entry(VerifiedPrincipal principal) {
+            this.principal = principal;
+        }
+    }
+}
@@ -1,34 +1,109 @@
 package com.mindwell.backend.service;
 
 // ... imports for all classes, including PasswordEncoder
+import com.mindwell.backend.cache.UserCache;
 import com.mindwell.backend.dto.LoginRequest;
 import com.mindwell.backend.dto.RegisterRequest;
+import com.mindwell.backend.dto.UserCursor;
+import com.mindwell.backend.dto.UserPage;
 import com.mindwell.backend.exception.ResourceNotFoundException; // Create this later
 import com.mindwell.backend.model.User;
 import com.mindwell.backend.repository.UserRepository;
 import com.mindwell.backend.security.JwtUtils;
+import com.mindwell.backend.security.PasswordHashingService;
+import com.mindwell.backend.exception.ServiceBusyException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class AuthService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+    // Fields an admin may project; the password hash is never listed.
+    private static final Set<String> LISTABLE_FIELDS = Set.of("id", "email", "name", "phone", "avatar", "roles",
+            "notificationEnabled", "notificationInterval", "googleId", "facebookId", "createdAt", "updatedAt");
+
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashing;
     private final JwtUtils jwtUtils;
+    private final UserCache userCache;
+    private final ObjectMapper objectMapper;
 
     /**
-     * ADMIN: Get all users (dashboard)
+     * ADMIN: List users (dashboard), one keyset page at a time in id order; with {@code q},
+     * the users whose email matches in email order, then those whose name matches in name order.
+     *
+     * @param role   only users with this role (USER, ADMIN, PSYCHOLOGIST)
+     * @param q      only users whose email or name starts with it (name is case-sensitive)
+     * @param cursor the nextCursor of the previous page
+     * @param limit  page size, capped at {@link #MAX_PAGE_SIZE}
+     * @param fields comma-separated fields to return; all of them when absent
      */
-    public java.util.List<User> getAllUsers() {
-        return userRepository.findAll();
+    public UserPage listUsers(String role, String q, String cursor, Integer limit, String fields) {
+        int size = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        User.Role roleFilter = parseRole(role);
+        String prefix = q == null || q.isBlank() ? null : q.trim();
+        UserCursor after = cursor == null || cursor.isBlank() ? null : UserCursor.decode(cursor);
+        Set<String> projection = parseFields(fields);
+
+        // Fetch one extra row to learn whether another page exists.
+        List<User> rows = userRepository.findPage(roleFilter, prefix, after, projection, size + 1);
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            nextCursor = UserCursor.after(rows.get(size - 1), prefix).encode();
+        }
+        if (projection == null) {
+            return new UserPage(rows, nextCursor);
+        }
+        List<Map<String, Object>> items = new ArrayList<>(rows.size());
+        for (User user : rows) {
+            Map<String, Object> item = objectMapper.convertValue(user, new TypeReference<Map<String, Object>>() {});
+            item.keySet().retainAll(projection);
+            items.add(item);
+        }
+        return new UserPage(items, nextCursor);
+    }
+
+    private static User.Role parseRole(String role) {
+        if (role == null || role.isBlank()) {
+            return null;
+        }
+        try {
+            return User.Role.fromString(role.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown role: " + role);
+        }
+    }
+
+    private static Set<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> projection = new LinkedHashSet<>();
+        projection.add("id"); // needed for the cursor
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) continue;
+            if (!LISTABLE_FIELDS.contains(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+            projection.add(name);
+        }
+        return projection;
     }
 
     // --- Registration ---
@@ -40,12 +115,14 @@ public class AuthService {
         User user = new User();
         user.setName(request.getName());
         user.setEmail(request.getEmail().trim().toLowerCase());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHashing.encode(request.getPassword()));
         user.setRoles(Collections.singleton(User.Role.USER));
         user.setCreatedAt(LocalDateTime.now());
         // Set other default fields
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userCache.put(saved);
+        return saved;
     }
 
     public String generateToken(String email, Set<User.Role> roles) {
@@ -57,14 +134,34 @@ public class AuthService {
         User user = userRepository.findByEmail(request.getEmail().trim().toLowerCase())
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + request.getEmail()));
 
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+        if (!passwordHashing.matches(request.getPassword(), user.getPassword())) {
             throw new IllegalArgumentException("Invalid password.");
         }
+        rehashIfNeeded(user, request.getPassword());
 
         // Generate and return JWT token
         return jwtUtils.generateToken(user.getEmail(), user.getRoles());
     }
 
+    /**
+     * Re-hashes the password with the configured BCrypt cost after the cost was changed.
+     * Best effort: when the hashing pool is busy the upgrade waits for a later login. Only the
+     * hash is written, so a concurrent profile update is not overwritten with this stale copy.
+     */
+    private void rehashIfNeeded(User user, String rawPassword) {
+        if (!passwordHashing.needsRehash(user.getPassword())) {
+            return;
+        }
+        try {
+            String rehashed = passwordHashing.encode(rawPassword);
+            if (userRepository.replacePassword(user.getId(), user.getPassword(), rehashed, LocalDateTime.now())) {
+                userCache.evict(user);
+            }
+        } catch (ServiceBusyException e) {
+            // Keep the old hash; it is still valid.
+        }
+    }
+
     /**
      * NEW METHOD: Get user by username
      * Used by the /me endpoint
@@ -72,7 +169,7 @@ public class AuthService {
     public User getUserByUsername(String username) {
         // Tokens use the email as the subject. The controller expects to find users by
         // email.
-        return userRepository.findByEmail(username)
+        return userCache.getByEmail(username, () -> userRepository.findByEmail(username))
                 .orElse(null);
     }
 
@@ -80,8 +177,10 @@ public class AuthService {
      * ADMIN: Update user details
      */
     public User updateUser(String id, User updates) {
+        // Always load a private copy from the repository; cached instances are shared.
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
+        userCache.evict(user);
 
         if (updates.getName() != null) {
             user.setName(updates.getName());
@@ -91,17 +190,19 @@ public class AuthService {
         }
         // Add other fields as needed
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userCache.evict(saved);
+        return saved;
     }
 
     /**
      * ADMIN: Delete user
      */
     public void deleteUser(String id) {
-        if (!userRepository.existsById(id)) {
-            throw new ResourceNotFoundException("User not found with id: " + id);
-        }
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
         userRepository.deleteById(id);
+        userCache.evict(user);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.mindwell.backend.cache;
+
+import com.mindwell.backend.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserCacheTests {
+
+	private final MovableClock clock = new MovableClock();
+	private final UserCache cache = new UserCache(true, 60, 3, clock);
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private Optional<User> load(User user) {
+		loads.incrementAndGet();
+		return Optional.of(user);
+	}
+
+	private static User user(String id, String email) {
+		User user = new User();
+		user.setId(id);
+		user.setEmail(email);
+		return user;
+	}
+
+	@Test
+	void readsThroughOnceAndServesBothIndexes() {
+		User ann = user("1", "ann@x.io");
+		assertSame(ann, cache.getByEmail("ann@x.io", () -> load(ann)).orElseThrow());
+		assertSame(ann, cache.getByEmail("ann@x.io", () -> load(ann)).orElseThrow());
+		assertSame(ann, cache.getById("1", () -> load(ann)).orElseThrow());
+		assertEquals(1, loads.get());
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		assertTrue(cache.getById("2", Optional::empty).isEmpty());
+		assertTrue(cache.getById("2", () -> load(user("2", "bob@x.io"))).isPresent(), "absent users are not cached");
+	}
+
+	@Test
+	void evictsOnWriteAndExpiresAfterTheTtl() {
+		User ann = user("1", "ann@x.io");
+		cache.getById("1", () -> load(ann));
+		cache.evict(ann);
+		cache.getByEmail("ann@x.io", () -> load(ann));
+		assertEquals(2, loads.get());
+
+		clock.advance(Duration.ofSeconds(59));
+		cache.getById("1", () -> load(ann));
+		assertEquals(2, loads.get());
+		clock.advance(Duration.ofSeconds(1));
+		cache.getById("1", () -> load(ann));
+		assertEquals(3, loads.get());
+	}
+
+	@Test
+	void doesNotCacheALoadThatRacedWithAnEviction() {
+		User stale = user("1", "ann@x.io");
+		cache.getById("1", () -> {
+			// A write lands while the old user is being read.
+			cache.evict(stale);
+			return load(stale);
+		});
+		User fresh = user("1", "ann@x.io");
+		assertSame(fresh, cache.getById("1", () -> load(fresh)).orElseThrow());
+	}
+
+	@Test
+	void staysWithinItsSizeAndDropsRenamedEmails() {
+		for (int i = 0; i < 10; i++) {
+			User u = user("id" + i, i + "@x.io");
+			cache.getById(u.getId(), () -> load(u));
+		}
+		assertTrue(cache.getSize() <= 3, "size " + cache.getSize());
+
+		User renamed = user("id9", "new@x.io");
+		cache.put(renamed);
+		int before = loads.get();
+		User reloaded = user("id9", "9@x.io");
+		assertSame(reloaded, cache.getByEmail("9@x.io", () -> load(reloaded)).orElseThrow());
+		assertEquals(before + 1, loads.get());
+	}
+
+	private static final class MovableClock extends Clock {
+		private Instant now = Instant.parse("2025-03-10T12:00:00Z");
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.mindwell.backend.repository;
+
+import com.mindwell.backend.dto.UserCursor;
+import com.mindwell.backend.model.User;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserRepositoryImplTests {
+
+	private MongoServer server;
+	private MongoClient client;
+	private MongoTemplate mongo;
+	private UserRepositoryImpl repository;
+
+	@BeforeEach
+	void startMongo() {
+		server = new MongoServer(new MemoryBackend());
+		client = MongoClients.create(server.bindAndGetConnectionString());
+		mongo = new MongoTemplate(client, "users");
+		repository = new UserRepositoryImpl(mongo);
+	}
+
+	@AfterEach
+	void stopMongo() {
+		client.close();
+		server.shutdown();
+	}
+
+	private User user(int id, String email, String name, User.Role role) {
+		User user = new User();
+		user.setId(new ObjectId(String.format("%024x", id)).toHexString());
+		user.setEmail(email);
+		user.setName(name);
+		user.setPassword("hash");
+		user.setRoles(Set.of(role));
+		return mongo.insert(user);
+	}
+
+	private static List<Integer> ids(List<User> users) {
+		return users.stream().map(u -> Integer.parseInt(u.getId(), 16)).collect(Collectors.toList());
+	}
+
+	@Test
+	void pagesEmailMatchesThenNameMatchesInFieldOrder() {
+		user(1, "ann@x.io", "Zoe", User.Role.USER);
+		user(2, "bob@x.io", "Annie", User.Role.USER);
+		user(3, "anna@x.io", "Anna", User.Role.ADMIN);
+		user(4, "cat@x.io", "ann", User.Role.USER);
+		user(5, "dan@x.io", "Dan", User.Role.USER);
+		user(6, "an.n@x.io", "Eve", User.Role.USER);
+		user(7, "gus@x.io", "Annie", User.Role.USER);
+
+		// Emails match case-insensitively, names case-sensitively.
+		assertEquals(List.of(1, 3, 2, 7), ids(repository.findPage(null, "Ann", null, null, 10)),
+				"a user matching on both fields appears once, with the email matches");
+		List<User> first = repository.findPage(null, "Ann", null, null, 2);
+		assertEquals(List.of(1, 3), ids(first));
+		List<User> second = repository.findPage(null, "Ann", UserCursor.after(first.get(1), "Ann"), null, 2);
+		assertEquals(List.of(2, 7), ids(second));
+		assertEquals(List.of(7), ids(repository.findPage(null, "Ann", UserCursor.after(second.get(0), "Ann"), null, 2)),
+				"equal names continue by id");
+		assertEquals(List.of(3), ids(repository.findPage(User.Role.ADMIN, "an", null, null, 10)));
+		assertEquals(List.of(6), ids(repository.findPage(null, "an.", null, null, 10)), "the prefix is literal");
+		UserCursor afterFour = new UserCursor(null, null, new ObjectId(String.format("%024x", 4)));
+		assertEquals(List.of(5, 6, 7), ids(repository.findPage(null, null, afterFour, null, 10)));
+	}
+
+	@Test
+	void projectsTheRequestedFields() {
+		user(1, "ann@x.io", "Ann", User.Role.USER);
+		User loaded = repository.findPage(null, null, null, List.of("email"), 10).get(0);
+		assertEquals("ann@x.io", loaded.getEmail());
+		assertNull(loaded.getName());
+		assertNull(loaded.getPassword());
+		User found = repository.findPage(null, "ann", null, List.of("email"), 10).get(0);
+		assertEquals("Ann", found.getName(), "a prefix search also loads the fields of its cursor");
+		assertNull(found.getPassword());
+	}
+
+	@Test
+	void replacesThePasswordOnlyWhileItIsUnchanged() {
+		User ann = user(1, "ann@x.io", "Ann", User.Role.USER);
+		LocalDateTime now = LocalDateTime.of(2025, 3, 10, 12, 0);
+
+		assertFalse(repository.replacePassword(ann.getId(), "other-hash", "new-hash", now));
+		assertTrue(repository.replacePassword(ann.getId(), "hash", "new-hash", now));
+		User stored = mongo.findById(ann.getId(), User.class);
+		assertEquals("new-hash", stored.getPassword());
+		assertEquals(now, stored.getUpdatedAt());
+		assertEquals("Ann", stored.getName());
+	}
+}
@@ -0,0 +1,68 @@
+package com.mindwell.backend.security;
+
+import com.mindwell.backend.model.User;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtUtilsTests {
+
+	private static final String SECRET = "A_Test_Secret_That_Is_Long_Enough_For_HS256_Signing";
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final VerifiedPrincipalCache cache = new VerifiedPrincipalCache(100);
+
+	private JwtUtils jwtUtils(long expirationMs) {
+		JwtUtils jwt = new JwtUtils(cache, registry);
+		ReflectionTestUtils.setField(jwt, "secret", SECRET);
+		ReflectionTestUtils.setField(jwt, "expiration", expirationMs);
+		jwt.init();
+		return jwt;
+	}
+
+	private long parses() {
+		return registry.get("auth.jwt").tag("operation", "parse").timer().count();
+	}
+
+	@Test
+	void verifiesOnceAndThenAnswersFromTheCache() {
+		JwtUtils jwt = jwtUtils(60_000);
+		String token = jwt.generateToken("ann@x.io", Set.of(User.Role.ADMIN));
+
+		VerifiedPrincipal principal = jwt.verify(token);
+		assertEquals("ann@x.io", principal.getSubject());
+		assertEquals(List.of("ADMIN"), principal.getRoles());
+		assertEquals(List.of("ADMIN"), jwt.getRolesFromToken(token));
+		assertEquals("ann@x.io", jwt.getUsernameFromToken(token));
+		assertEquals(1, parses());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	void rejectsTamperedAndExpiredTokens() {
+		JwtUtils jwt = jwtUtils(60_000);
+		String token = jwt.generateToken("ann@x.io", Set.of(User.Role.USER));
+		jwt.verify(token);
+
+		String[] parts = token.split("\\.");
+		String forgedClaims = parts[0] + "." + parts[1].substring(0, parts[1].length() - 2) + "x" + parts[1].charAt(parts[1].length() - 1) + "." + parts[2];
+		assertThrows(JwtException.class, () -> jwt.verify(forgedClaims));
+		char last = parts[2].charAt(parts[2].length() - 1);
+		String forgedSignature = parts[0] + "." + parts[1] + "." + parts[2].substring(0, parts[2].length() - 1) + (last == 'A' ? 'B' : 'A');
+		assertThrows(JwtException.class, () -> jwt.verify(forgedSignature));
+		assertFalse(jwt.validateToken(forgedSignature));
+
+		String expired = jwtUtils(-1_000).generateToken("ann@x.io", Set.of(User.Role.USER));
+		assertThrows(ExpiredJwtException.class, () -> jwt.verify(expired));
+		assertEquals(1, cache.size(), "rejected tokens are not cached");
+	}
+}
@@ -0,0 +1,82 @@
+package com.mindwell.backend.security;
+
+import com.mindwell.backend.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHashingServiceTests {
+
+	@Test
+	void encodesAndMatchesOnThePool() {
+		PasswordHashingService hashing = new PasswordHashingService(new BCryptPasswordEncoder(4), new SimpleMeterRegistry(), 4, 1, 1, 5000, 1);
+		String hash = hashing.encode("secret");
+		assertTrue(hashing.matches("secret", hash));
+		assertFalse(hashing.matches("wrong", hash));
+	}
+
+	@Test
+	void detectsCostChanges() {
+		PasswordHashingService hashing = new PasswordHashingService(new BCryptPasswordEncoder(5), new SimpleMeterRegistry(), 5, 1, 1, 5000, 1);
+		assertTrue(hashing.needsRehash(new BCryptPasswordEncoder(4).encode("secret")));
+		assertFalse(hashing.needsRehash(new BCryptPasswordEncoder(5).encode("secret")));
+	}
+
+	@Test
+	void rejectsWhenPoolAndQueueAreFull() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		PasswordEncoder slow = new PasswordEncoder() {
+			@Override
+			public String encode(CharSequence raw) {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return raw.toString();
+			}
+
+			@Override
+			public boolean matches(CharSequence raw, String encoded) {
+				return true;
+			}
+		};
+		PasswordHashingService hashing = new PasswordHashingService(slow, new SimpleMeterRegistry(), 10, 1, 1, 5000, 1);
+		// One task running, one queued: the third is shed immediately.
+		Thread first = new Thread(() -> hashing.encode("a"));
+		Thread second = new Thread(() -> hashing.encode("b"));
+		try {
+			first.start();
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			second.start();
+			awaitQueued(second);
+			assertThrows(ServiceBusyException.class, () -> hashing.encode("c"));
+		} finally {
+			release.countDown();
+			first.join();
+			second.join();
+		}
+	}
+
+	/**
+	 * Waits until the caller is parked in Future.get, which it only reaches after its task was
+	 * queued; the pool thread is busy, so the task cannot have started.
+	 */
+	private static void awaitQueued(Thread caller) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (caller.getState() != Thread.State.TIMED_WAITING) {
+			assertTrue(System.nanoTime() < deadline, "the second task was not queued");
+			Thread.onSpinWait();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.mindwell.backend.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VerifiedPrincipalCacheTests {
+
+	private static final Instant NOW = Instant.parse("2025-03-10T12:00:00Z");
+
+	private static VerifiedPrincipal principal(String subject, Instant expiresAt) {
+		return new VerifiedPrincipal(subject, List.of("USER"), expiresAt);
+	}
+
+	@Test
+	void servesATokenUntilItExpires() {
+		VerifiedPrincipal ann = principal("ann@x.io", NOW.plusSeconds(60));
+		VerifiedPrincipalCache cache = new VerifiedPrincipalCache(10, Clock.fixed(NOW, ZoneOffset.UTC));
+		cache.put("token-a", ann);
+		assertSame(ann, cache.get("token-a"));
+		assertNull(cache.get("token-b"));
+
+		VerifiedPrincipalCache atExpiry = new VerifiedPrincipalCache(10, Clock.fixed(NOW.plusSeconds(60), ZoneOffset.UTC));
+		atExpiry.put("token-a", ann);
+		assertNull(atExpiry.get("token-a"), "expired at exp");
+		assertEquals(0, atExpiry.size(), "expired entries are dropped");
+	}
+
+	@Test
+	void staysWithinItsBoundAndSkipsTokensWithoutExpiry() {
+		VerifiedPrincipalCache cache = new VerifiedPrincipalCache(3, Clock.fixed(NOW, ZoneOffset.UTC));
+		for (int i = 0; i < 10; i++) {
+			cache.put("token-" + i, principal("user" + i, NOW.plusSeconds(60)));
+		}
+		assertTrue(cache.size() <= 3, "size " + cache.size());
+		assertEquals("user9", cache.get("token-9").getSubject(), "the newest token is kept");
+
+		cache.put("forever", principal("root", null));
+		assertNull(cache.get("forever"));
+
+		VerifiedPrincipalCache disabled = new VerifiedPrincipalCache(0, Clock.fixed(NOW, ZoneOffset.UTC));
+		disabled.put("token-a", principal("ann", NOW.plusSeconds(60)));
+		assertEquals(0, disabled.size());
+	}
+
+	@Test
+	void evictsExpiredTokensFirstAndThenTheLeastRecentlyUsed() {
+		VerifiedPrincipalCache cache = new VerifiedPrincipalCache(3, Clock.fixed(NOW, ZoneOffset.UTC));
+		cache.put("token-a", principal("ann", NOW.plusSeconds(60)));
+		cache.put("token-stale", principal("old", NOW.minusSeconds(1)));
+		cache.put("token-b", principal("bob", NOW.plusSeconds(60)));
+		cache.put("token-c", principal("cid", NOW.plusSeconds(60)));
+		assertEquals("ann", cache.get("token-a").getSubject(), "the expired token goes before the oldest live one");
+		assertEquals(3, cache.size());
+
+		// token-a was just read; token-b is the oldest one not read since.
+		cache.put("token-d", principal("dee", NOW.plusSeconds(60)));
+		assertEquals("ann", cache.get("token-a").getSubject(), "a hot token survives churn");
+		assertNull(cache.get("token-b"));
+		assertEquals("cid", cache.get("token-c").getSubject());
+		assertEquals("dee", cache.get("token-d").getSubject());
+	}
+
+	@Test
+	void leavesNewTokensUncachedWhileTheOldestAreAllInUse() {
+		VerifiedPrincipalCache cache = new VerifiedPrincipalCache(20, Clock.fixed(NOW, ZoneOffset.UTC));
+		for (int i = 0; i < 20; i++) {
+			cache.put("token-" + i, principal("user" + i, NOW.plusSeconds(60)));
+			cache.get("token-" + i);
+		}
+		cache.put("token-new", principal("new", NOW.plusSeconds(60)));
+		assertNull(cache.get("token-new"), "no token in use is dropped for a new one");
+		assertEquals(20, cache.size());
+
+		// The probed tokens lost their read bit; unless read again, the oldest of them goes next.
+		cache.put("token-new", principal("new", NOW.plusSeconds(60)));
+		assertEquals("new", cache.get("token-new").getSubject());
+		assertNull(cache.get("token-0"));
+		assertEquals(20, cache.size());
+	}
+}
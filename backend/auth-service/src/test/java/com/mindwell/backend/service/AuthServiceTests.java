@@ -0,0 +1,115 @@
+package com.mindwell.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mindwell.backend.cache.UserCache;
+import com.mindwell.backend.dto.LoginRequest;
+import com.mindwell.backend.dto.UserCursor;
+import com.mindwell.backend.dto.UserPage;
+import com.mindwell.backend.model.User;
+import com.mindwell.backend.repository.UserRepository;
+import com.mindwell.backend.security.JwtUtils;
+import com.mindwell.backend.security.PasswordHashingService;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNotNull;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthServiceTests {
+
+	private final UserRepository repository = mock(UserRepository.class);
+	private final PasswordHashingService hashing = mock(PasswordHashingService.class);
+	private final UserCache userCache = mock(UserCache.class);
+	private final AuthService authService = new AuthService(repository, hashing,
+			mock(JwtUtils.class), userCache, new ObjectMapper().registerModule(new JavaTimeModule()));
+
+	@Test
+	void pagesByIdAndHandsBackACursor() {
+		User a = user("000000000000000000000001", "a@x.io");
+		User b = user("000000000000000000000002", "b@x.io");
+		User c = user("000000000000000000000003", "c@x.io");
+		when(repository.findPage(isNull(), isNull(), isNull(), isNull(), eq(3))).thenReturn(List.of(a, b, c));
+
+		UserPage first = authService.listUsers(null, null, null, 2, null);
+		assertEquals(List.of(a, b), first.getItems());
+
+		when(repository.findPage(isNull(), isNull(), any(), isNull(), eq(3))).thenReturn(List.of(c));
+		UserPage second = authService.listUsers(null, null, first.getNextCursor(), 2, null);
+		assertEquals(List.of(c), second.getItems());
+		assertNull(second.getNextCursor());
+		verify(repository).findPage(null, null, new UserCursor(null, null, new ObjectId(b.getId())), null, 3);
+	}
+
+	@Test
+	void prefixCursorsResumeOnTheFieldTheLastUserMatched() {
+		User a = user("000000000000000000000001", "ann@x.io");
+		User b = user("000000000000000000000002", "bob@x.io");
+		b.setName("Annie");
+		when(repository.findPage(isNull(), eq("Ann"), isNull(), isNull(), eq(2))).thenReturn(List.of(a, b));
+		when(repository.findPage(isNull(), eq("Ann"), isNotNull(), isNull(), eq(2))).thenReturn(List.of(b, a));
+
+		String afterEmail = authService.listUsers(null, "Ann", null, 1, null).getNextCursor();
+		assertEquals(new UserCursor("email", "ann@x.io", new ObjectId(a.getId())), UserCursor.decode(afterEmail));
+		String afterName = authService.listUsers(null, "Ann", afterEmail, 1, null).getNextCursor();
+		verify(repository).findPage(null, "Ann", UserCursor.decode(afterEmail), null, 2);
+		assertEquals(new UserCursor("name", "Annie", new ObjectId(b.getId())), UserCursor.decode(afterName));
+	}
+
+	@Test
+	void projectsFiltersAndValidatesParameters() {
+		User a = user("000000000000000000000001", "ann@x.io");
+		a.setName("Ann");
+		when(repository.findPage(eq(User.Role.ADMIN), eq("an"), isNull(), any(), eq(51))).thenReturn(List.of(a));
+
+		UserPage page = authService.listUsers("admin", " an ", null, null, "email");
+		assertEquals(List.of(Map.of("id", a.getId(), "email", "ann@x.io")), page.getItems());
+
+		assertThrows(IllegalArgumentException.class, () -> authService.listUsers("root", null, null, null, null));
+		assertThrows(IllegalArgumentException.class, () -> authService.listUsers(null, null, null, null, "password"));
+		assertThrows(IllegalArgumentException.class, () -> authService.listUsers(null, null, "not-a-cursor", null, null));
+	}
+
+	@Test
+	void rehashesWithATargetedUpdateOnLogin() {
+		User a = user("000000000000000000000001", "ann@x.io");
+		a.setPassword("old-hash");
+		a.setName("Ann");
+		when(repository.findByEmail("ann@x.io")).thenReturn(Optional.of(a));
+		when(hashing.matches("secret", "old-hash")).thenReturn(true);
+		when(hashing.needsRehash("old-hash")).thenReturn(true);
+		when(hashing.encode("secret")).thenReturn("new-hash");
+		when(repository.replacePassword(eq(a.getId()), eq("old-hash"), eq("new-hash"), any())).thenReturn(true);
+
+		LoginRequest login = new LoginRequest();
+		login.setEmail(" Ann@x.io ");
+		login.setPassword("secret");
+		authService.authenticateUser(login);
+
+		verify(repository).replacePassword(eq(a.getId()), eq("old-hash"), eq("new-hash"), any());
+		verify(repository, never()).save(any());
+		verify(userCache).evict(a);
+	}
+
+	private static User user(String id, String email) {
+		User user = new User();
+		user.setId(id);
+		user.setEmail(email);
+		user.setRoles(Set.of(User.Role.USER));
+		return user;
+	}
+}
@@ -0,0 +1,133 @@
+package com.mindwell.benchmarks;
+
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test for the request execution modes of the servlet services: an embedded Tomcat
+ * whose only endpoint blocks for a fixed time, standing in for a slow Mongo call, driven by
+ * a fixed number of concurrent clients. "platform" is the default 200-thread pool,
+ * "virtual" is spring.threads.virtual.enabled=true, both in one JVM. Prints throughput and
+ * latency percentiles per mode.
+ * <pre>
+ * java -cp target/benchmarks.jar com.mindwell.benchmarks.ExecutionModeLoadTest \
+ *     --latency-ms=50 --concurrency=1000 --requests=20000
+ * </pre>
+ */
+public final class ExecutionModeLoadTest {
+
+    private ExecutionModeLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int latencyMs = intArg(args, "latency-ms", 50);
+        int concurrency = intArg(args, "concurrency", 1000);
+        int requests = intArg(args, "requests", 20_000);
+
+        run("platform", null, latencyMs, concurrency, requests);
+        try (ExecutorService virtual = Executors.newVirtualThreadPerTaskExecutor()) {
+            run("virtual", virtual, latencyMs, concurrency, requests);
+        }
+    }
+
+    private static void run(String mode, ExecutorService executor, int latencyMs, int concurrency, int requests)
+            throws Exception {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        if (executor != null) {
+            TomcatProtocolHandlerCustomizer<?> customizer = handler -> handler.setExecutor(executor);
+            factory.addProtocolHandlerCustomizers(customizer);
+        }
+        WebServer server = factory.getWebServer(context -> context
+                .addServlet("slow-repository", new SlowRepositoryServlet(latencyMs))
+                .addMapping("/"));
+        server.start();
+        try {
+            URI uri = URI.create("http://localhost:" + server.getPort() + "/");
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            drive(client, uri, concurrency, Math.min(requests, 2_000));
+            long start = System.nanoTime();
+            long[] latencies = drive(client, uri, concurrency, requests);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(latencies);
+            System.out.printf("mode=%s latency=%dms concurrency=%d requests=%d throughput=%.0f req/s "
+                            + "p50=%.1fms p99=%.1fms max=%.1fms%n",
+                    mode, latencyMs, concurrency, requests, requests / seconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+        } finally {
+            server.destroy();
+        }
+    }
+
+    /**
+     * Sends {@code requests} GETs with at most {@code concurrency} in flight; returns each
+     * request's latency in nanoseconds.
+     */
+    private static long[] drive(HttpClient client, URI uri, int concurrency, int requests) throws Exception {
+        long[] latencies = new long[requests];
+        Semaphore inFlight = new Semaphore(concurrency);
+        AtomicInteger failures = new AtomicInteger();
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[requests];
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            int slot = i;
+            long sent = System.nanoTime();
+            calls[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        latencies[slot] = System.nanoTime() - sent;
+                        if (error != null || response.statusCode() != 200) failures.incrementAndGet();
+                        inFlight.release();
+                    });
+        }
+        CompletableFuture.allOf(calls).exceptionally(e -> null).join();
+        if (failures.get() > 0) System.out.printf("  %d of %d requests failed%n", failures.get(), requests);
+        return latencies;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+
+    private static int intArg(String[] args, String name, int defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) return Integer.parseInt(arg.substring(prefix.length()));
+        }
+        return defaultValue;
+    }
+
+    private static final class SlowRepositoryServlet extends HttpServlet {
+        private final int latencyMs;
+
+        SlowRepositoryServlet(int latencyMs) {
+            this.latencyMs = latencyMs;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            resp.setContentType("application/json");
+            resp.getWriter().write("[]");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.mindwell.benchmarks;
+
+import com.mindwell.api_gateway.filter.AuthenticationFilter;
+import com.mindwell.api_gateway.security.JwtVerifier;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gateway AuthenticationFilter on a protected route, with the verified-token cache
+ * disabled (cacheSize=0) and enabled. Includes building the mock exchange.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GatewayAuthBenchmark {
+
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    private GatewayFilter filter;
+    private GatewayFilterChain chain;
+    private String authorization;
+
+    @Setup
+    public void setup() {
+        filter = new AuthenticationFilter(new JwtVerifier(JwtBenchmark.SECRET, cacheSize), new SimpleMeterRegistry())
+                .apply(new AuthenticationFilter.Config());
+        chain = exchange -> Mono.empty();
+        authorization = "Bearer " + Jwts.builder()
+                .setSubject("bench@mindwell.test")
+                .setExpiration(new Date(System.currentTimeMillis() + 86_400_000L))
+                .signWith(Keys.hmacShaKeyFor(JwtBenchmark.SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+
+    @Benchmark
+    public MockServerWebExchange authenticate() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/api/mood").header(HttpHeaders.AUTHORIZATION, authorization));
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+}
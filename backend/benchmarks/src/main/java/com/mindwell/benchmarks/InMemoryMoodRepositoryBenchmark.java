@@ -0,0 +1,69 @@
+package com.mindwell.benchmarks;
+
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.repository.InMemoryMoodRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InMemoryMoodRepository queries over {@code moods} entries spread across {@value #USERS} users.
+ * For 10M run with {@code -p moods=10000000} and a large heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class InMemoryMoodRepositoryBenchmark {
+
+    static final int USERS = 1000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int moods;
+
+    private static final PageRequest FIRST_PAGE = PageRequest.of(0, 51,
+            Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")));
+
+    private InMemoryMoodRepository repository;
+    private Instant now;
+
+    @Setup
+    public void setup() {
+        repository = new InMemoryMoodRepository();
+        now = Instant.now();
+        for (int i = 0; i < moods; i++) {
+            repository.save(SyntheticMoods.mood(i, "user-" + (i % USERS), now.minusSeconds(i)));
+        }
+    }
+
+    @Benchmark
+    public List<Mood> findByUserId() {
+        return repository.findByUserId(randomUser());
+    }
+
+    @Benchmark
+    public List<Mood> firstPage() {
+        return repository.findByUserId(randomUser(), FIRST_PAGE);
+    }
+
+    @Benchmark
+    public List<Mood> lastDay() {
+        return repository.findCreatedBetween(randomUser(), now.minusSeconds(86_400), now.plusSeconds(1));
+    }
+
+    @Benchmark
+    public List<Mood> findAll() {
+        return repository.findAll();
+    }
+
+    private static String randomUser() {
+        return "user-" + ThreadLocalRandom.current().nextInt(USERS);
+    }
+}
@@ -0,0 +1,66 @@
+package com.mindwell.benchmarks;
+
+import com.mindwell.backend.model.User;
+import com.mindwell.backend.security.JwtUtils;
+import com.mindwell.backend.security.VerifiedPrincipal;
+import com.mindwell.backend.security.VerifiedPrincipalCache;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * auth-service JwtUtils: signing, a full parse, and verify() with and without the principal cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    static final String SECRET = "This_Is_The_Final_Shared_Secret_Key_For_MindWell_2025_PROJECT_XYZ";
+
+    private JwtUtils cached;
+    private JwtUtils uncached;
+    private String token;
+
+    @Setup
+    public void setup() {
+        cached = jwtUtils(5000);
+        uncached = jwtUtils(0);
+        token = cached.generateToken("bench@mindwell.test", Collections.singleton(User.Role.USER));
+    }
+
+    static JwtUtils jwtUtils(int cacheSize) {
+        JwtUtils utils = new JwtUtils(new VerifiedPrincipalCache(cacheSize), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(utils, "secret", SECRET);
+        ReflectionTestUtils.setField(utils, "expiration", 86_400_000L);
+        ReflectionTestUtils.invokeMethod(utils, "init");
+        return utils;
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cached.generateToken("bench@mindwell.test", Collections.singleton(User.Role.USER));
+    }
+
+    @Benchmark
+    public Claims getAllClaimsFromToken() {
+        return uncached.getAllClaimsFromToken(token);
+    }
+
+    @Benchmark
+    public VerifiedPrincipal verifyUncached() {
+        return uncached.verify(token);
+    }
+
+    @Benchmark
+    public VerifiedPrincipal verifyCached() {
+        return cached.verify(token);
+    }
+}
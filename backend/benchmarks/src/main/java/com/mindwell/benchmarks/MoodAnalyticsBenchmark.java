@@ -0,0 +1,176 @@
+package com.mindwell.benchmarks;
+
+import com.mindwell.mood_service.analytics.MoodAnalyticsEngine;
+import com.mindwell.mood_service.dto.MoodAnalytics;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.repository.MongoMoodRepository;
+import com.mindwell.mood_service.rollup.MoodRollupService;
+import com.mindwell.mood_service.service.MoodService;
+import com.mindwell.mood_service.service.MoodVersions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MoodService.analytics for a user with {@code moods} entries over three years, served by
+ * a stub repository that generates the moods lazily (no Mongo involved) and with rollups disabled.
+ * {@code store} selects the engine's per-user representation: day aggregates or the columnar series.
+ * <ul>
+ *   <li>{@code warm}: aggregate already built, the steady-state request path;</li>
+ *   <li>{@code cold}: first request for the user, which streams all raw moods;</li>
+ *   <li>{@code fullScan}: the same response built by scanning every mood on each request,
+ *   as the endpoint would without the engine (count, average, min/max, emotion shares, daily
+ *   or weekly trend and streak).</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class MoodAnalyticsBenchmark {
+
+    static final String USER = "bench-user";
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int moods;
+
+    @Param({"7d", "30d", "90d", "all"})
+    public String range;
+
+    @Param({"aggregate", "columnar"})
+    public String store;
+
+    private List<Mood> data;
+    private MoodAnalyticsEngine engine;
+    private MoodService moodService;
+    private String rangeParam;
+    private Integer rangeDays;
+
+    @Setup
+    public void setup() {
+        data = SyntheticMoods.forUser(USER, moods, 3 * 365);
+        MongoMoodRepository repository = repositoryOver(data);
+        engine = new MoodAnalyticsEngine(repository, MoodRollupService.disabled(), MoodVersions.local(), new SimpleMeterRegistry(), 1000, store, null);
+        moodService = new MoodService(repository, engine, null, null);
+        rangeParam = "all".equals(range) ? null : range;
+        rangeDays = rangeParam == null ? null : Integer.parseInt(rangeParam.substring(0, rangeParam.length() - 1));
+        moodService.analytics(USER, rangeParam);
+    }
+
+    @Benchmark
+    public MoodAnalytics warm() {
+        return moodService.analytics(USER, rangeParam);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 1, batchSize = 1)
+    @Measurement(iterations = 5, batchSize = 1)
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public MoodAnalytics cold() {
+        engine.invalidate(USER);
+        return moodService.analytics(USER, rangeParam);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public MoodAnalytics fullScan() {
+        return scan(data, rangeDays, LocalDate.now(ZoneOffset.UTC));
+    }
+
+    /**
+     * The analytics response computed from scratch over all of the user's moods, without any
+     * per-user state, matching what the engine returns for the same range.
+     */
+    static MoodAnalytics scan(List<Mood> moods, Integer rangeDays, LocalDate today) {
+        LocalDate from = rangeDays == null ? LocalDate.MIN : today.minusDays(rangeDays - 1L);
+        long count = 0;
+        long sum = 0;
+        int min = 0;
+        int max = 0;
+        Map<String, Long> emotions = new HashMap<>();
+        TreeMap<LocalDate, long[]> days = new TreeMap<>();
+        Set<LocalDate> activeDays = new HashSet<>();
+        for (Mood m : moods) {
+            LocalDate day = m.getCreatedAt() == null ? LocalDate.EPOCH
+                    : LocalDate.ofInstant(m.getCreatedAt(), ZoneOffset.UTC);
+            activeDays.add(day);
+            if (day.isBefore(from) || day.isAfter(today)) continue;
+            int score = m.getScore();
+            min = count == 0 ? score : Math.min(min, score);
+            max = count == 0 ? score : Math.max(max, score);
+            count++;
+            sum += score;
+            if (m.getEmotion() != null) emotions.merge(m.getEmotion(), 1L, Long::sum);
+            LocalDate bucket = rangeDays != null && rangeDays <= 90 ? day
+                    : day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            long[] point = days.computeIfAbsent(bucket, d -> new long[2]);
+            point[0]++;
+            point[1] += score;
+        }
+
+        MoodAnalytics result = new MoodAnalytics();
+        result.setTotalEntries(count);
+        result.setAverageIntensity(count > 0 ? (double) sum / count : 0);
+        result.setMinIntensity(min);
+        result.setMaxIntensity(max);
+        int streak = 0;
+        for (LocalDate day = today; activeDays.contains(day); day = day.minusDays(1)) {
+            streak++;
+        }
+        result.setMoodStreak(streak);
+
+        long withEmotion = emotions.values().stream().mapToLong(Long::longValue).sum();
+        List<MoodAnalytics.EmotionCount> distribution = new ArrayList<>();
+        emotions.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .forEach(e -> distribution.add(
+                        new MoodAnalytics.EmotionCount(e.getKey(), e.getValue(), e.getValue() * 100.0 / withEmotion)));
+        result.setEmotionDistribution(distribution);
+        result.setMostCommonEmotion(distribution.isEmpty() ? null : distribution.get(0).getEmotion());
+
+        List<MoodAnalytics.IntensityPoint> trend = new ArrayList<>();
+        days.forEach((day, point) -> trend.add(new MoodAnalytics.IntensityPoint(day.toString(), (double) point[1] / point[0])));
+        result.setIntensityOverTime(trend);
+        return result;
+    }
+
+    /**
+     * Only the query methods used by the analytics bootstrap are supported.
+     */
+    static MongoMoodRepository repositoryOver(List<Mood> moods) {
+        return (MongoMoodRepository) Proxy.newProxyInstance(
+                MongoMoodRepository.class.getClassLoader(),
+                new Class<?>[]{MongoMoodRepository.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findByUserId":
+                        case "findByUserIdAndCreatedAtGreaterThanEqual":
+                            return moods;
+                        case "streamByUserIdOrderByCreatedAtAsc":
+                            return moods.stream();
+                        case "toString":
+                            return "SyntheticMoodRepository";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
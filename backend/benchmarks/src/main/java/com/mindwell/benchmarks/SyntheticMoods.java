@@ -0,0 +1,54 @@
+package com.mindwell.benchmarks;
+
+import com.mindwell.mood_service.model.Mood;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Deterministic synthetic mood data. Lists are generated lazily, so datasets of millions of
+ * moods can be streamed through the code under test without being held in memory.
+ */
+final class SyntheticMoods {
+
+    static final String[] EMOTIONS = {"happy", "sad", "anxious", "calm", "stressed", "excited", "tired", "angry"};
+
+    private SyntheticMoods() {}
+
+    /**
+     * {@code count} moods of one user, spread evenly over the {@code days} days before now.
+     */
+    static List<Mood> forUser(String userId, int count, int days) {
+        Instant end = Instant.now();
+        long spacingMillis = Math.max(1, Duration.ofDays(days).toMillis() / Math.max(1, count));
+        return new AbstractList<>() {
+            @Override
+            public Mood get(int i) {
+                return mood(i, userId, end.minusMillis(spacingMillis * (count - i)));
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    static Mood mood(int i, String userId, Instant createdAt) {
+        int h = mix(i);
+        Mood m = new Mood(Integer.toHexString(i), userId, 1 + Math.floorMod(h, 10), null, createdAt);
+        m.setEmotion(EMOTIONS[Math.floorMod(h >>> 8, EMOTIONS.length)]);
+        return m;
+    }
+
+    static int mix(int x) {
+        x ^= x >>> 16;
+        x *= 0x7feb352d;
+        x ^= x >>> 15;
+        x *= 0x846ca68b;
+        x ^= x >>> 16;
+        return x;
+    }
+}
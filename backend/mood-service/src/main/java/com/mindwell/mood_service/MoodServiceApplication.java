@@ -2,9 +2,9 @@ package com.mindwell.mood_service;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.cloud.netflix.eureka.EnableEurekaClient;
+import org.springframework.scheduling.annotation.EnableScheduling;
 @SpringBootApplication
-@EnableEurekaClient
+@EnableScheduling
 public class MoodServiceApplication {
 
 	public static void main(String[] args) {
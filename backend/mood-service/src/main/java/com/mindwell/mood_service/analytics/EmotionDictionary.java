@@ -0,0 +1,54 @@
+package com.mindwell.mood_service.analytics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns emotion labels as one-byte codes for {@link MoodSeries}. Code 0 means no emotion;
+ * once all codes are taken, further labels are counted as "other".
+ */
+public class EmotionDictionary {
+
+    static final int NONE = 0;
+    static final int MAX_CODES = 256;
+    private static final String OTHER = "other";
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final String[] labels = new String[MAX_CODES];
+    private volatile int size = 1;
+
+    public EmotionDictionary() {
+        intern(OTHER);
+    }
+
+    public int code(String emotion) {
+        if (emotion == null) return NONE;
+        Integer code = codes.get(emotion);
+        return code != null ? code : intern(emotion);
+    }
+
+    /**
+     * The label for a code, or null for {@link #NONE}.
+     */
+    public String label(int code) {
+        return labels[code];
+    }
+
+    /**
+     * Every code handed out so far is below this bound.
+     */
+    public int size() {
+        return size;
+    }
+
+    private synchronized int intern(String emotion) {
+        Integer code = codes.get(emotion);
+        if (code != null) return code;
+        if (size == MAX_CODES) return codes.get(OTHER);
+        int next = size;
+        labels[next] = emotion;
+        codes.put(emotion, next);
+        size = next + 1;
+        return next;
+    }
+}
@@ -0,0 +1,247 @@
+package com.mindwell.mood_service.analytics;
+
+import com.mindwell.mood_service.archive.MoodArchive;
+import com.mindwell.mood_service.dto.MoodAnalytics;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.repository.MongoMoodRepository;
+import com.mindwell.mood_service.rollup.MoodRollupService;
+import com.mindwell.mood_service.service.MoodVersions;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Keeps running per-user mood aggregates so analytics never rescan the moods collection.
+ * A user's aggregate is built on first request from the weekly mood_rollups of weeks older
+ * than the daily charts reach, the daily ones after that, plus the raw moods newer than the
+ * rollup high-water mark (normally just today) and of days whose rollups are dirty. Raw moods that were archived are read back from the archive.
+ * <p>
+ * Every cached aggregate carries the user's shared version ({@link MoodVersions}) it was
+ * loaded at, and each request compares it with the current one, read from the version
+ * cache: a write stored by any instance makes a request here reload once the versions
+ * have synced. Loads run outside the map, so writes never
+ * wait for them, and a load is only cached when the version did not move while it ran.
+ * The write hooks, called once a write is stored, bump the version and apply the change to
+ * an aggregate that is exactly one version behind and was loaded before the write began;
+ * any other aggregate might already hold the change or lack another one, and is dropped.
+ * When full, the least recently used users are evicted.
+ * <p>
+ * With {@code mood.analytics.store=columnar} each user is instead held as a {@link MoodSeries}
+ * loaded from the raw moods, and every request scans its primitive columns.
+ */
+@Component
+public class MoodAnalyticsEngine {
+
+    private final MongoMoodRepository repository;
+    private final MoodRollupService rollupService;
+    private final MoodVersions versions;
+    private final MoodArchive archive;
+    private final Map<String, Cached> aggregates = new ConcurrentHashMap<>();
+    private final EmotionDictionary emotions = new EmotionDictionary();
+    private final int maxUsers;
+    private final boolean columnar;
+    private final Clock clock = Clock.systemUTC();
+    // mood.analytics: "cold" requests first load the user's aggregate from Mongo.
+    private final Timer warmTimer;
+    private final Timer coldTimer;
+
+    public MoodAnalyticsEngine(MongoMoodRepository repository,
+                               MoodRollupService rollupService,
+                               MoodVersions versions,
+                               MeterRegistry meterRegistry,
+                               @Value("${mood.analytics.max-users:100000}") int maxUsers,
+                               @Value("${mood.analytics.store:aggregate}") String store,
+                               @Nullable MoodArchive archive) {
+        this.repository = repository;
+        this.rollupService = rollupService;
+        this.versions = versions;
+        this.archive = archive;
+        this.maxUsers = maxUsers;
+        this.columnar = "columnar".equalsIgnoreCase(store);
+        this.warmTimer = analyticsTimer(meterRegistry, "warm");
+        this.coldTimer = analyticsTimer(meterRegistry, "cold");
+    }
+
+    private Timer analyticsTimer(MeterRegistry meterRegistry, String load) {
+        return Timer.builder("mood.analytics")
+                .description("Analytics requests")
+                .tag("store", columnar ? "columnar" : "aggregate")
+                .tag("load", load)
+                .register(meterRegistry);
+    }
+
+    public MoodAnalytics analytics(String userId, String range) {
+        Integer rangeDays = parseRange(range);
+        long start = System.nanoTime();
+        long version = versions.current(userId);
+        Cached cached = aggregates.get(userId);
+        boolean warm = cached != null && cached.version == version;
+        UserMoodAnalytics data;
+        if (warm) {
+            cached.lastAccess = start;
+            data = cached.data;
+        } else {
+            data = load(userId, version);
+        }
+        MoodAnalytics result = data.snapshot(rangeDays, LocalDate.now(clock));
+        (warm ? warmTimer : coldTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    /**
+     * Marks the start of a write; call it before the write is sent to the store and pass the
+     * result to the hook that follows it.
+     */
+    public long startWrite() {
+        return System.nanoTime();
+    }
+
+    public void onCreated(Mood mood, long ticket) {
+        rollupService.touched(mood);
+        changed(mood.getUserId(), ticket, agg -> agg.add(mood));
+    }
+
+    /**
+     * Hook for moods of one user stored together (a batch chunk): one version bump for all.
+     */
+    public void onCreated(String userId, List<Mood> moods, long ticket) {
+        if (moods.isEmpty()) return;
+        rollupService.touched(moods);
+        changed(userId, ticket, agg -> moods.forEach(agg::add));
+    }
+
+    public void onUpdated(Mood before, Mood after, long ticket) {
+        rollupService.touched(before, after);
+        changed(after.getUserId(), ticket, agg -> {
+            agg.remove(before);
+            agg.add(after);
+        });
+    }
+
+    public void onDeleted(Mood mood, long ticket) {
+        rollupService.touched(mood);
+        changed(mood.getUserId(), ticket, agg -> agg.remove(mood));
+    }
+
+    /**
+     * Drops a user's aggregate so the next request rebuilds it from Mongo.
+     */
+    public void invalidate(String userId) {
+        aggregates.remove(userId);
+    }
+
+    // Rollups are marked first, so a reload triggered by the new version sees their dirty days.
+    private void changed(String userId, long ticket, Consumer<UserMoodAnalytics> change) {
+        long version = versions.bump(userId);
+        aggregates.computeIfPresent(userId, (id, cached) -> {
+            if (cached.version != version - 1 || cached.loadedAt - ticket >= 0) return null;
+            change.accept(cached.data);
+            cached.version = version;
+            return cached;
+        });
+    }
+
+    // Serves this request either way; caches the result only if no write was recorded meanwhile.
+    private UserMoodAnalytics load(String userId, long version) {
+        UserMoodAnalytics data = columnar ? loadSeries(userId) : loadAggregate(userId);
+        long loadedAt = System.nanoTime();
+        if (versions.current(userId) == version) {
+            if (aggregates.size() >= maxUsers) evictLeastRecentlyUsed();
+            aggregates.put(userId, new Cached(data, version, loadedAt));
+        }
+        return data;
+    }
+
+    private UserMoodAnalytics loadAggregate(String id) {
+        MoodRollupService.UserRollups rollups =
+                rollupService.userRollups(id, UserMoodAggregate.weeklyBefore(LocalDate.now(clock)));
+        UserMoodAggregate agg = new UserMoodAggregate(rollups.getWeeklyBefore());
+        Instant highWaterMark = rollups.getHighWaterMark();
+        rollups.getWeeks().forEach(r -> agg.addWeek(MoodRollupService.day(r.getPeriodStart()),
+                MoodRollupService.toStats(r), r.getDayCounts()));
+        rollups.getDays()
+                .forEach(r -> agg.addDay(MoodRollupService.day(r.getPeriodStart()), MoodRollupService.toStats(r)));
+        // Dirty days and everything after the mark come from the raw moods of both tiers.
+        List<Mood> hot = new ArrayList<>(repository.findByUserIdAndCreatedAtGreaterThanEqual(id, highWaterMark));
+        for (LocalDate day : rollups.getDirtyDays()) {
+            hot.addAll(repository.findCreatedBetween(id, MoodRollupService.startOf(day), MoodRollupService.startOf(day.plusDays(1))));
+        }
+        hot.forEach(agg::add);
+        if (archive != null) {
+            Set<String> hotIds = new HashSet<>();
+            hot.forEach(m -> hotIds.add(m.getId()));
+            List<Mood> cold = new ArrayList<>(archive.findCreatedSince(id, highWaterMark));
+            for (LocalDate day : rollups.getDirtyDays()) {
+                cold.addAll(archive.findCreatedBetween(id, MoodRollupService.startOf(day), MoodRollupService.startOf(day.plusDays(1))));
+            }
+            cold.stream().filter(m -> !hotIds.contains(m.getId())).forEach(agg::add);
+        }
+        return agg;
+    }
+
+    // Streamed oldest first, so every mood is appended without shifting the columns.
+    private UserMoodAnalytics loadSeries(String id) {
+        MoodSeries series = new MoodSeries(emotions);
+        Stream<Mood> hot = repository.streamByUserIdOrderByCreatedAtAsc(id);
+        try (Stream<Mood> moods = archive != null ? archive.mergeOldestFirst(id, hot) : hot) {
+            moods.forEach(series::add);
+        }
+        return series;
+    }
+
+    // Drops the least recently used sixteenth in one pass, so the scan is spread over the
+    // loads that refill it.
+    private synchronized void evictLeastRecentlyUsed() {
+        if (aggregates.size() < maxUsers) return;
+        long[] accessed = aggregates.values().stream().mapToLong(c -> c.lastAccess).sorted().toArray();
+        if (accessed.length == 0) return;
+        long cutoff = accessed[accessed.length / 16];
+        aggregates.values().removeIf(c -> c.lastAccess - cutoff <= 0);
+    }
+
+    /**
+     * Parses ranges such as "7d", "30d" or "90d". Null or blank means all time.
+     */
+    static Integer parseRange(String range) {
+        if (range == null || range.isBlank()) return null;
+        String value = range.trim().toLowerCase();
+        if (value.endsWith("d")) value = value.substring(0, value.length() - 1);
+        try {
+            int days = Integer.parseInt(value);
+            if (days <= 0) throw new IllegalArgumentException("Invalid range: " + range);
+            return days;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid range: " + range);
+        }
+    }
+
+    private static final class Cached {
+        final UserMoodAnalytics data;
+        final long loadedAt;
+        // Changed only under the map's lock for this user.
+        volatile long version;
+        volatile long lastAccess;
+
+        Cached(UserMoodAnalytics data, long version, long loadedAt) {
+            this.data = data;
+            this.version = version;
+            this.loadedAt = loadedAt;
+            this.lastAccess = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.mindwell.mood_service.analytics;
+
+import com.mindwell.mood_service.dto.MoodAnalytics;
+import com.mindwell.mood_service.model.Mood;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One user's moods stored column-wise in primitive arrays, ordered by time: epoch seconds,
+ * score, interned emotion code, and the note as a slice of a char arena. That is about 18
+ * bytes per mood plus the note text, against well over 100 for a {@link Mood} object graph.
+ * <p>
+ * Snapshots are linear passes over the arrays that allocate nothing but the result.
+ * Scores outside the byte range saturate, and times are kept to the second.
+ * Thread-safe; all access is synchronized on the series.
+ */
+public class MoodSeries implements UserMoodAnalytics {
+
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final int DAILY_POINTS_MAX_DAYS = 90;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NO_NOTE = -1;
+    // Per-thread emotion counters, cleared after each snapshot.
+    private static final ThreadLocal<long[]> EMOTION_COUNTS = ThreadLocal.withInitial(() -> new long[EmotionDictionary.MAX_CODES]);
+
+    private final EmotionDictionary emotions;
+    private int size;
+    private long[] times = new long[INITIAL_CAPACITY];
+    private byte[] scores = new byte[INITIAL_CAPACITY];
+    private byte[] emotionCodes = new byte[INITIAL_CAPACITY];
+    private int[] noteOffsets = new int[INITIAL_CAPACITY];
+    private int[] noteLengths = new int[INITIAL_CAPACITY];
+    private char[] arena = new char[0];
+    private int arenaUsed;
+    private int arenaGarbage;
+
+    public MoodSeries(EmotionDictionary emotions) {
+        this.emotions = emotions;
+    }
+
+    @Override
+    public synchronized void add(Mood mood) {
+        if (size == times.length) grow();
+        long t = epochSecond(mood);
+        // After any equal timestamps, so moods loaded in order are always appended.
+        int at = upperBound(t);
+        int tail = size - at;
+        if (tail > 0) {
+            System.arraycopy(times, at, times, at + 1, tail);
+            System.arraycopy(scores, at, scores, at + 1, tail);
+            System.arraycopy(emotionCodes, at, emotionCodes, at + 1, tail);
+            System.arraycopy(noteOffsets, at, noteOffsets, at + 1, tail);
+            System.arraycopy(noteLengths, at, noteLengths, at + 1, tail);
+        }
+        times[at] = t;
+        scores[at] = toByte(mood.getScore());
+        emotionCodes[at] = (byte) emotions.code(mood.getEmotion());
+        appendNote(at, mood.getNote());
+        size++;
+    }
+
+    /**
+     * Removes one entry equal to the mood in every stored column; ids are not kept, and
+     * entries equal in all columns are interchangeable.
+     */
+    @Override
+    public synchronized void remove(Mood mood) {
+        long t = epochSecond(mood);
+        byte score = toByte(mood.getScore());
+        byte emotion = (byte) emotions.code(mood.getEmotion());
+        for (int i = lowerBound(t); i < size && times[i] == t; i++) {
+            if (scores[i] == score && emotionCodes[i] == emotion && noteEquals(i, mood.getNote())) {
+                removeAt(i);
+                return;
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized MoodAnalytics snapshot(Integer rangeDays, LocalDate today) {
+        int from = 0;
+        int to = size;
+        if (rangeDays != null) {
+            from = lowerBound(startOfDay(today.toEpochDay() - (rangeDays - 1L)));
+            to = lowerBound(startOfDay(today.toEpochDay() + 1));
+        }
+        boolean weekly = rangeDays == null || rangeDays > DAILY_POINTS_MAX_DAYS;
+
+        // One pass per column; each inner loop is a plain run over a primitive array.
+        List<MoodAnalytics.IntensityPoint> points = new ArrayList<>();
+        long sum = 0;
+        for (int i = from; i < to; ) {
+            long day = Math.floorDiv(times[i], SECONDS_PER_DAY);
+            long bucket = weekly ? mondayOf(day) : day;
+            int end = Math.min(to, lowerBound(startOfDay(bucket + (weekly ? 7 : 1))));
+            long bucketSum = 0;
+            for (int k = i; k < end; k++) {
+                bucketSum += scores[k];
+            }
+            points.add(point(bucket, bucketSum, end - i));
+            sum += bucketSum;
+            i = end;
+        }
+
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, scores[i]);
+            max = Math.max(max, scores[i]);
+        }
+
+        long[] emotionCounts = EMOTION_COUNTS.get();
+        for (int i = from; i < to; i++) {
+            emotionCounts[emotionCodes[i] & 0xFF]++;
+        }
+
+        int count = to - from;
+        Map<String, Long> byEmotion = new HashMap<>();
+        int codes = emotions.size();
+        for (int code = 1; code < codes; code++) {
+            if (emotionCounts[code] > 0) byEmotion.put(emotions.label(code), emotionCounts[code]);
+        }
+        Arrays.fill(emotionCounts, 0, codes, 0);
+
+        MoodAnalytics result = new MoodAnalytics();
+        result.setTotalEntries(count);
+        result.setAverageIntensity(count > 0 ? (double) sum / count : 0);
+        result.setMinIntensity(count > 0 ? min : 0);
+        result.setMaxIntensity(count > 0 ? max : 0);
+        result.setMoodStreak(streakEndingAt(today.toEpochDay()));
+        List<MoodAnalytics.EmotionCount> distribution = UserMoodAggregate.distribution(byEmotion);
+        result.setEmotionDistribution(distribution);
+        result.setMostCommonEmotion(distribution.isEmpty() ? null : distribution.get(0).getEmotion());
+        result.setIntensityOverTime(points);
+        return result;
+    }
+
+    private int streakEndingAt(long today) {
+        int streak = 0;
+        long day = today;
+        int end = lowerBound(startOfDay(day + 1));
+        while (end > 0 && times[end - 1] >= startOfDay(day)) {
+            streak++;
+            end = lowerBoundBefore(startOfDay(day), end);
+            day--;
+        }
+        return streak;
+    }
+
+    private static MoodAnalytics.IntensityPoint point(long epochDay, long sum, int count) {
+        return new MoodAnalytics.IntensityPoint(LocalDate.ofEpochDay(epochDay).toString(), (double) sum / count);
+    }
+
+    // 1970-01-01 was a Thursday; weeks are keyed by their Monday as in UserMoodAggregate.
+    private static long mondayOf(long epochDay) {
+        return epochDay - Math.floorMod(epochDay + 3, 7);
+    }
+
+    private static long startOfDay(long epochDay) {
+        return epochDay * SECONDS_PER_DAY;
+    }
+
+    // Undated moods count as 1970-01-01, like LocalDate.EPOCH in UserMoodAggregate.
+    private static long epochSecond(Mood mood) {
+        return mood.getCreatedAt() == null ? 0 : mood.getCreatedAt().getEpochSecond();
+    }
+
+    private static byte toByte(int score) {
+        return (byte) Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, score));
+    }
+
+    /**
+     * First index whose time is >= t.
+     */
+    private int lowerBound(long t) {
+        return lowerBound(t, 0, size);
+    }
+
+    private int lowerBound(long t, int lo, int hi) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Same as {@link #lowerBound(long)} for an answer known to be at most {@code end}:
+     * gallops back from {@code end}, so the cost depends on the distance, not the size.
+     */
+    private int lowerBoundBefore(long t, int end) {
+        int bound = end;
+        int probe = end - 1;
+        int step = 1;
+        while (probe >= 0 && times[probe] >= t) {
+            bound = probe;
+            probe -= step;
+            step <<= 1;
+        }
+        return lowerBound(t, Math.max(probe + 1, 0), bound);
+    }
+
+    /**
+     * First index whose time is > t.
+     */
+    private int upperBound(long t) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] <= t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private void grow() {
+        int capacity = times.length + (times.length >> 1);
+        times = Arrays.copyOf(times, capacity);
+        scores = Arrays.copyOf(scores, capacity);
+        emotionCodes = Arrays.copyOf(emotionCodes, capacity);
+        noteOffsets = Arrays.copyOf(noteOffsets, capacity);
+        noteLengths = Arrays.copyOf(noteLengths, capacity);
+    }
+
+    private void removeAt(int i) {
+        if (noteLengths[i] > 0) arenaGarbage += noteLengths[i];
+        int tail = size - i - 1;
+        System.arraycopy(times, i + 1, times, i, tail);
+        System.arraycopy(scores, i + 1, scores, i, tail);
+        System.arraycopy(emotionCodes, i + 1, emotionCodes, i, tail);
+        System.arraycopy(noteOffsets, i + 1, noteOffsets, i, tail);
+        System.arraycopy(noteLengths, i + 1, noteLengths, i, tail);
+        size--;
+        if (arenaGarbage > arenaUsed / 2) compactArena();
+    }
+
+    private void appendNote(int at, String note) {
+        if (note == null) {
+            noteOffsets[at] = 0;
+            noteLengths[at] = NO_NOTE;
+            return;
+        }
+        int length = note.length();
+        if (arenaUsed + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arenaUsed + length, arena.length * 2));
+        }
+        note.getChars(0, length, arena, arenaUsed);
+        noteOffsets[at] = arenaUsed;
+        noteLengths[at] = length;
+        arenaUsed += length;
+    }
+
+    private boolean noteEquals(int i, String note) {
+        int length = noteLengths[i];
+        if (note == null || length == NO_NOTE) return note == null && length == NO_NOTE;
+        if (note.length() != length) return false;
+        int offset = noteOffsets[i];
+        for (int k = 0; k < length; k++) {
+            if (arena[offset + k] != note.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    // Copies live notes into a fresh arena, in entry order.
+    private void compactArena() {
+        char[] compacted = new char[arenaUsed - arenaGarbage];
+        int used = 0;
+        for (int i = 0; i < size; i++) {
+            int length = noteLengths[i];
+            if (length <= 0) continue;
+            System.arraycopy(arena, noteOffsets[i], compacted, used, length);
+            noteOffsets[i] = used;
+            used += length;
+        }
+        arena = compacted;
+        arenaUsed = used;
+        arenaGarbage = 0;
+    }
+}
@@ -0,0 +1,103 @@
+package com.mindwell.mood_service.analytics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Running count/sum plus score and emotion histograms. Keeping the score histogram
+ * (rather than plain min/max fields) lets removals stay exact.
+ * Not thread-safe; callers guard it.
+ */
+public class MoodStats {
+    private long count;
+    private long sum;
+    private final TreeMap<Integer, Long> scores = new TreeMap<>();
+    private final Map<String, Long> emotions = new HashMap<>();
+
+    /**
+     * Rebuilds stats from persisted histograms (see MoodRollup); zero counts are skipped.
+     */
+    public static MoodStats fromHistograms(Map<String, Long> scores, Map<String, Long> emotions) {
+        MoodStats stats = new MoodStats();
+        scores.forEach((k, v) -> {
+            if (v != null && v > 0) {
+                int score = Integer.parseInt(k);
+                stats.count += v;
+                stats.sum += score * v;
+                stats.scores.merge(score, v, Long::sum);
+            }
+        });
+        emotions.forEach((k, v) -> {
+            if (v != null && v > 0) stats.emotions.merge(k, v, Long::sum);
+        });
+        return stats;
+    }
+
+    public void add(int score, String emotion) {
+        count++;
+        sum += score;
+        scores.merge(score, 1L, Long::sum);
+        if (emotion != null) {
+            emotions.merge(emotion, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Takes one mood back out; a score that was never added leaves the stats unchanged.
+     *
+     * @return false if there was no such mood to remove
+     */
+    public boolean remove(int score, String emotion) {
+        if (!scores.containsKey(score)) return false;
+        scores.computeIfPresent(score, (k, v) -> v > 1 ? v - 1 : null);
+        count--;
+        sum -= score;
+        if (emotion != null) {
+            emotions.computeIfPresent(emotion, (k, v) -> v > 1 ? v - 1 : null);
+        }
+        return true;
+    }
+
+    /**
+     * Folds another stats instance into this one.
+     */
+    public void merge(MoodStats other) {
+        count += other.count;
+        sum += other.sum;
+        other.scores.forEach((k, v) -> scores.merge(k, v, Long::sum));
+        other.emotions.forEach((k, v) -> emotions.merge(k, v, Long::sum));
+    }
+
+    public boolean isEmpty() {
+        return count <= 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public double getAverage() {
+        return count > 0 ? (double) sum / count : 0;
+    }
+
+    public int getMin() {
+        return scores.isEmpty() ? 0 : scores.firstKey();
+    }
+
+    public int getMax() {
+        return scores.isEmpty() ? 0 : scores.lastKey();
+    }
+
+    public Map<Integer, Long> getScores() {
+        return scores;
+    }
+
+    public Map<String, Long> getEmotions() {
+        return emotions;
+    }
+}
@@ -0,0 +1,215 @@
+package com.mindwell.mood_service.analytics;
+
+import com.mindwell.mood_service.dto.MoodAnalytics;
+import com.mindwell.mood_service.model.Mood;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * All-time totals plus per-day (UTC) buckets for one user's moods. Days before
+ * weeklyBefore are only kept per ISO week, with a mood count for each day of the week;
+ * those days are never needed one by one, as ranges of up to {@value #DAILY_POINTS_MAX_DAYS}
+ * days are the only ones charted per day.
+ */
+public class UserMoodAggregate implements UserMoodAnalytics {
+    public static final int DAILY_POINTS_MAX_DAYS = 90;
+
+    private final LocalDate weeklyBefore;
+    private final MoodStats total = new MoodStats();
+    private final TreeMap<LocalDate, MoodStats> days = new TreeMap<>();
+    private final TreeMap<LocalDate, Week> weeks = new TreeMap<>();
+
+    public UserMoodAggregate() {
+        this(LocalDate.MIN);
+    }
+
+    /**
+     * @param weeklyBefore a Monday, at or before {@link #weeklyBefore(LocalDate)} of every
+     *                     day the aggregate will be queried for
+     */
+    public UserMoodAggregate(LocalDate weeklyBefore) {
+        this.weeklyBefore = weeklyBefore;
+    }
+
+    /**
+     * The latest Monday such that every range charted per day up to today starts on or after it.
+     */
+    public static LocalDate weeklyBefore(LocalDate today) {
+        return mondayOf(today.minusDays(DAILY_POINTS_MAX_DAYS - 1L));
+    }
+
+    @Override
+    public synchronized void add(Mood mood) {
+        total.add(mood.getScore(), mood.getEmotion());
+        LocalDate day = dayOf(mood);
+        if (day.isBefore(weeklyBefore)) {
+            Week week = weeks.computeIfAbsent(mondayOf(day), d -> new Week());
+            week.stats.add(mood.getScore(), mood.getEmotion());
+            week.dayCounts[weekday(day)]++;
+        } else {
+            days.computeIfAbsent(day, d -> new MoodStats()).add(mood.getScore(), mood.getEmotion());
+        }
+    }
+
+    /**
+     * Folds a pre-aggregated day (e.g. from mood_rollups) into the aggregate.
+     */
+    public synchronized void addDay(LocalDate day, MoodStats stats) {
+        if (stats.isEmpty()) return;
+        total.merge(stats);
+        if (day.isBefore(weeklyBefore)) {
+            Week week = weeks.computeIfAbsent(mondayOf(day), d -> new Week());
+            week.stats.merge(stats);
+            week.dayCounts[weekday(day)] += stats.getCount();
+        } else {
+            days.computeIfAbsent(day, d -> new MoodStats()).merge(stats);
+        }
+    }
+
+    /**
+     * Folds a pre-aggregated week, which must end before weeklyBefore, into the aggregate.
+     *
+     * @param dayCounts moods per day of the week, Monday first
+     */
+    public synchronized void addWeek(LocalDate monday, MoodStats stats, List<Long> dayCounts) {
+        if (stats.isEmpty()) return;
+        total.merge(stats);
+        Week week = weeks.computeIfAbsent(monday, d -> new Week());
+        week.stats.merge(stats);
+        for (int i = 0; i < week.dayCounts.length && i < dayCounts.size(); i++) {
+            week.dayCounts[i] += dayCounts.get(i);
+        }
+    }
+
+    /**
+     * Takes the mood out of its day; a mood its day never held changes nothing.
+     */
+    @Override
+    public synchronized void remove(Mood mood) {
+        LocalDate day = dayOf(mood);
+        if (day.isBefore(weeklyBefore)) {
+            LocalDate monday = mondayOf(day);
+            Week week = weeks.get(monday);
+            if (week == null || week.dayCounts[weekday(day)] == 0
+                    || !week.stats.remove(mood.getScore(), mood.getEmotion())) return;
+            week.dayCounts[weekday(day)]--;
+            if (week.stats.isEmpty()) weeks.remove(monday);
+        } else {
+            MoodStats bucket = days.get(day);
+            if (bucket == null || !bucket.remove(mood.getScore(), mood.getEmotion())) return;
+            if (bucket.isEmpty()) days.remove(day);
+        }
+        total.remove(mood.getScore(), mood.getEmotion());
+    }
+
+    /**
+     * Builds analytics for the last {@code rangeDays} days up to {@code today}, or for all
+     * time when {@code rangeDays} is null. Ranges longer than {@value #DAILY_POINTS_MAX_DAYS}
+     * days are charted per week and cover whole weeks, from the Monday of their first day.
+     * Cost is proportional to the number of buckets in the range, never to the number of
+     * moods.
+     */
+    @Override
+    public synchronized MoodAnalytics snapshot(Integer rangeDays, LocalDate today) {
+        boolean daily = rangeDays != null && rangeDays <= DAILY_POINTS_MAX_DAYS;
+        NavigableMap<LocalDate, MoodStats> window;
+        NavigableMap<LocalDate, Week> weekWindow;
+        MoodStats stats;
+        if (rangeDays == null) {
+            window = days;
+            weekWindow = weeks;
+            stats = total;
+        } else {
+            LocalDate from = today.minusDays(rangeDays - 1L);
+            if (!daily) from = mondayOf(from);
+            window = days.subMap(from, true, today, true);
+            weekWindow = weeks.tailMap(from, true);
+            stats = new MoodStats();
+            window.values().forEach(stats::merge);
+            weekWindow.values().forEach(w -> stats.merge(w.stats));
+        }
+
+        MoodAnalytics result = new MoodAnalytics();
+        result.setTotalEntries(stats.getCount());
+        result.setAverageIntensity(stats.getAverage());
+        result.setMinIntensity(stats.getMin());
+        result.setMaxIntensity(stats.getMax());
+        result.setMoodStreak(streakEndingAt(today));
+
+        List<MoodAnalytics.EmotionCount> distribution = distribution(stats.getEmotions());
+        result.setEmotionDistribution(distribution);
+        result.setMostCommonEmotion(distribution.isEmpty() ? null : distribution.get(0).getEmotion());
+
+        result.setIntensityOverTime(daily ? points(window) : points(byWeek(window, weekWindow)));
+        return result;
+    }
+
+    /**
+     * Emotion shares, most common first (ties by name).
+     */
+    static List<MoodAnalytics.EmotionCount> distribution(Map<String, Long> emotions) {
+        long withEmotion = emotions.values().stream().mapToLong(Long::longValue).sum();
+        return emotions.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(e -> new MoodAnalytics.EmotionCount(e.getKey(), e.getValue(), e.getValue() * 100.0 / withEmotion))
+                .collect(Collectors.toList());
+    }
+
+    private static List<MoodAnalytics.IntensityPoint> points(NavigableMap<LocalDate, MoodStats> buckets) {
+        return buckets.entrySet().stream()
+                .map(e -> new MoodAnalytics.IntensityPoint(e.getKey().toString(), e.getValue().getAverage()))
+                .collect(Collectors.toList());
+    }
+
+    // Long windows are charted per ISO week (keyed by Monday).
+    private static NavigableMap<LocalDate, MoodStats> byWeek(NavigableMap<LocalDate, MoodStats> window,
+                                                             NavigableMap<LocalDate, Week> weekWindow) {
+        TreeMap<LocalDate, MoodStats> weeks = new TreeMap<>();
+        weekWindow.forEach((monday, week) -> weeks.computeIfAbsent(monday, d -> new MoodStats()).merge(week.stats));
+        window.forEach((day, stats) -> weeks.computeIfAbsent(mondayOf(day), d -> new MoodStats()).merge(stats));
+        return weeks;
+    }
+
+    private int streakEndingAt(LocalDate today) {
+        int streak = 0;
+        LocalDate day = today;
+        while (hasMoods(day)) {
+            streak++;
+            day = day.minusDays(1);
+        }
+        return streak;
+    }
+
+    private boolean hasMoods(LocalDate day) {
+        if (!day.isBefore(weeklyBefore)) return days.containsKey(day);
+        Week week = weeks.get(mondayOf(day));
+        return week != null && week.dayCounts[weekday(day)] > 0;
+    }
+
+    private static LocalDate mondayOf(LocalDate day) {
+        return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private static int weekday(LocalDate day) {
+        return day.getDayOfWeek().getValue() - 1;
+    }
+
+    private static LocalDate dayOf(Mood mood) {
+        return mood.getCreatedAt() == null ? LocalDate.EPOCH : LocalDate.ofInstant(mood.getCreatedAt(), ZoneOffset.UTC);
+    }
+
+    private static final class Week {
+        final MoodStats stats = new MoodStats();
+        final long[] dayCounts = new long[7];
+    }
+}
@@ -0,0 +1,22 @@
+package com.mindwell.mood_service.analytics;
+
+import com.mindwell.mood_service.dto.MoodAnalytics;
+import com.mindwell.mood_service.model.Mood;
+
+import java.time.LocalDate;
+
+/**
+ * One user's moods as kept by MoodAnalyticsEngine: either per-day aggregates
+ * ({@link UserMoodAggregate}) or the full columnar series ({@link MoodSeries}).
+ */
+public interface UserMoodAnalytics {
+
+    void add(Mood mood);
+
+    void remove(Mood mood);
+
+    /**
+     * Analytics for the last {@code rangeDays} UTC days up to {@code today}, or all time when null.
+     */
+    MoodAnalytics snapshot(Integer rangeDays, LocalDate today);
+}
@@ -0,0 +1,605 @@
+package com.mindwell.mood_service.archive;
+
+import com.mindwell.mood_service.dto.MoodCursor;
+import com.mindwell.mood_service.lease.LeaseService;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.model.MoodArchiveRemoval;
+import com.mindwell.mood_service.model.MoodArchiveRun;
+import com.mindwell.mood_service.repository.MongoMoodRepository;
+import com.mindwell.mood_service.rollup.MoodRollupService;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Cold tier for old moods (mood.archive.enabled=true). Each archive run moves the moods
+ * created more than mood.archive.age-days ago out of the hot moods collection into one
+ * immutable, memory-mapped {@link MoodSegment} file under mood.archive.dir, so the
+ * collection and its indexes only hold recent history. The directory must be a volume
+ * shared by every instance (NFS, EFS and the like): each instance maps every segment.
+ * Listings, exports and analytics merge both tiers through the methods below; updating or
+ * deleting an archived mood first restores it to the hot collection.
+ * <p>
+ * The database only keeps the catalog of runs (mood_archive_runs, one small document per
+ * segment) and the ids dropped from segments ({@link MoodArchiveRemoval}). Each instance
+ * caches the catalog, with the segments it maps, for mood.archive.catalog-refresh-ms; a run
+ * deletes its moods from the hot collection only after two such periods, so every instance
+ * has mapped the segment before the moods leave the hot collection.
+ * <p>
+ * Runs happen on one instance at a time, under a lease. A run is recorded in
+ * mood_archive_runs, writes its segment (to a temporary file, renamed once forced to disk)
+ * and only then deletes its moods from the hot collection, so every mood stays readable
+ * throughout; while both copies exist, readers prefer the hot one. Moods changed or deleted
+ * while being archived, and restored moods, are recorded as removed from their run. A run
+ * that stopped while writing is discarded by the next one, and one that stopped while
+ * deleting is settled by it.
+ */
+@Component
+@ConditionalOnProperty(name = "mood.archive.enabled", havingValue = "true")
+public class MoodArchive {
+
+    /**
+     * One user's moods by (createdAt, id), the order of exports and series loads.
+     */
+    public static final Comparator<Mood> OLDEST_FIRST = Comparator
+            .comparing(Mood::getCreatedAt, Comparator.nullsFirst(Comparator.<Instant>naturalOrder()))
+            .thenComparing(Mood::getId);
+
+    static final String LEASE = "mood-archiver";
+
+    private static final Comparator<Mood> NEWEST_FIRST = OLDEST_FIRST.reversed();
+    private static final Logger log = LoggerFactory.getLogger(MoodArchive.class);
+
+    private final MongoMoodRepository repository;
+    private final MoodRollupService rollupService;
+    private final MongoTemplate mongoTemplate;
+    private final LeaseService leases;
+    private final Path dir;
+    private final int ageDays;
+    private final int chunkMoods;
+    private final int blockMoods;
+    private final Duration leaseDuration;
+    private final Duration catalogRefresh;
+    private final Clock clock;
+    private volatile Catalog catalog;
+
+    @Autowired
+    public MoodArchive(MongoMoodRepository repository,
+                       MoodRollupService rollupService,
+                       MongoTemplate mongoTemplate,
+                       LeaseService leases,
+                       @Value("${mood.archive.dir}") String dir,
+                       @Value("${mood.archive.age-days:180}") int ageDays,
+                       @Value("${mood.archive.chunk-moods:50000}") int chunkMoods,
+                       @Value("${mood.archive.block-moods:256}") int blockMoods,
+                       @Value("${mood.archive.lease-ms:3600000}") long leaseMs,
+                       @Value("${mood.archive.catalog-refresh-ms:10000}") long catalogRefreshMs) {
+        this(repository, rollupService, mongoTemplate, leases, Paths.get(dir), ageDays, chunkMoods, blockMoods,
+                Duration.ofMillis(leaseMs), Duration.ofMillis(catalogRefreshMs), Clock.systemUTC());
+    }
+
+    MoodArchive(MongoMoodRepository repository, MoodRollupService rollupService, MongoTemplate mongoTemplate,
+                LeaseService leases, Path dir, int ageDays, int chunkMoods, int blockMoods, Duration leaseDuration,
+                Duration catalogRefresh, Clock clock) {
+        this.repository = repository;
+        this.rollupService = rollupService;
+        this.mongoTemplate = mongoTemplate;
+        this.leases = leases;
+        this.dir = dir;
+        this.ageDays = Math.max(1, ageDays);
+        this.chunkMoods = Math.max(1, chunkMoods);
+        this.blockMoods = Math.max(1, blockMoods);
+        this.leaseDuration = leaseDuration;
+        this.catalogRefresh = catalogRefresh;
+        this.clock = clock;
+    }
+
+    /**
+     * Moods created at or after this instant are only in the hot collection. From the cached
+     * catalog; a new run only deletes hot moods once every instance has seen it.
+     */
+    public Instant horizon() {
+        return catalog().horizon;
+    }
+
+    // ---- Catalog ----
+
+    // The runs as last read, with the mapped segments of those that are readable.
+    private static final class Catalog {
+        final Instant horizon;
+        final List<MoodSegment> segments;
+        final long loadedAt;
+
+        Catalog(Instant horizon, List<MoodSegment> segments, long loadedAt) {
+            this.horizon = horizon;
+            this.segments = segments;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private Catalog catalog() {
+        Catalog current = catalog;
+        if (current != null && System.nanoTime() - current.loadedAt < catalogRefresh.toNanos()) return current;
+        synchronized (this) {
+            current = catalog;
+            if (current != null && System.nanoTime() - current.loadedAt < catalogRefresh.toNanos()) return current;
+            return reloadCatalog();
+        }
+    }
+
+    // Segments already mapped are kept; only new runs are opened.
+    private synchronized Catalog reloadCatalog() {
+        Map<String, MoodSegment> mapped = new HashMap<>();
+        if (catalog != null) catalog.segments.forEach(s -> mapped.put(s.run, s));
+        Instant horizon = Instant.EPOCH;
+        List<MoodSegment> segments = new ArrayList<>();
+        for (MoodArchiveRun run : mongoTemplate.findAll(MoodArchiveRun.class)) {
+            if (run.getCutoff().isAfter(horizon)) horizon = run.getCutoff();
+            if (run.getState() == MoodArchiveRun.State.WRITING) continue;
+            MoodSegment segment = mapped.get(run.getId());
+            segments.add(segment != null ? segment : openSegment(run.getId()));
+        }
+        catalog = new Catalog(horizon, List.copyOf(segments), System.nanoTime());
+        return catalog;
+    }
+
+    private MoodSegment openSegment(String run) {
+        try {
+            return MoodSegment.open(run, segmentFile(run));
+        } catch (IOException e) {
+            throw new UncheckedIOException(new IOException("Cannot map archive segment " + segmentFile(run)
+                    + "; mood.archive.dir must be shared by every instance", e));
+        }
+    }
+
+    private Path segmentFile(String run) {
+        return dir.resolve(run + ".seg");
+    }
+
+    // ---- Archiving ----
+
+    /**
+     * Moves moods older than the configured age (and already folded into rollups, when those
+     * are on) into new segments, oldest first. Returns how many left the hot collection; 0
+     * when another instance holds the lease.
+     */
+    public long archive() {
+        if (!leases.acquire(LEASE, leaseDuration)) return 0;
+        try {
+            Files.createDirectories(dir);
+            long moved = recover();
+            Instant cutoff = LocalDate.now(clock).minusDays(ageDays).atStartOfDay(ZoneOffset.UTC).toInstant();
+            Instant mark = rollupService.highWaterMark();
+            if (rollupService.isEnabled() && mark.isBefore(cutoff)) {
+                // Rollups are built from the hot collection; never archive days they still need.
+                cutoff = mark;
+            }
+            PageRequest chunk = PageRequest.of(0, chunkMoods, Sort.by(Sort.Direction.ASC, "createdAt", "id"));
+            int runs = 0;
+            while (leases.acquire(LEASE, leaseDuration)) {
+                List<Mood> moods = repository.findByCreatedAtLessThan(cutoff, chunk);
+                if (moods.isEmpty()) break;
+                MoodArchiveRun run = startRun(cutoff);
+                MoodSegment.write(segmentFile(run.getId()), moods, blockMoods);
+                run.setMoods(moods.size());
+                setState(run, MoodArchiveRun.State.PENDING);
+                reloadCatalog();
+                awaitCatalogRefresh();
+                long deleted = settle(run, moods, true);
+                moved += deleted;
+                runs++;
+                // A short chunk was the last; a chunk that moved nothing would come back unchanged.
+                if (moods.size() < chunkMoods || deleted == 0) break;
+            }
+            if (runs > 0) {
+                log.info("Archived {} moods created before {} in {} runs", moved, cutoff, runs);
+            }
+            return moved;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            leases.release(LEASE);
+        }
+    }
+
+    private MoodArchiveRun startRun(Instant cutoff) {
+        // Recorded before the segment, so horizon() covers it as soon as it exists.
+        return mongoTemplate.insert(new MoodArchiveRun(new ObjectId().toHexString(), cutoff, clock.instant()));
+    }
+
+    // Other instances map a new segment within one catalog refresh of it being recorded.
+    private void awaitCatalogRefresh() {
+        if (catalogRefresh.isZero()) return;
+        try {
+            Thread.sleep(catalogRefresh.toMillis() * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted before settling an archive run", e);
+        }
+    }
+
+    /**
+     * Deletes the run's moods from the hot collection where they are unchanged, and records
+     * as removed from the run those that were changed since they were read. When the moods
+     * were read by this run, the ones now missing were deleted meanwhile and are removed too;
+     * when settling an interrupted run that cannot be told apart from having been deleted by
+     * the run itself, so they are kept.
+     */
+    private long settle(MoodArchiveRun run, List<Mood> moods, boolean readThisRun) {
+        Map<String, Mood> current = new HashMap<>();
+        List<String> ids = moods.stream().map(Mood::getId).collect(Collectors.toList());
+        repository.findAllById(ids).forEach(m -> current.put(m.getId(), m));
+        List<Mood> unchanged = new ArrayList<>(moods.size());
+        List<Mood> dropped = new ArrayList<>();
+        for (Mood m : moods) {
+            Mood now = current.get(m.getId());
+            if ((now == null && readThisRun) || (now != null && now.getVersion() != m.getVersion())) {
+                dropped.add(m);
+            } else if (now != null) {
+                unchanged.add(m);
+            }
+        }
+        remove(run.getId(), dropped);
+        long deleted = repository.deleteIfUnchanged(unchanged);
+        setState(run, MoodArchiveRun.State.SETTLED);
+        return deleted;
+    }
+
+    // Runs left behind by an instance that stopped mid-run.
+    private long recover() throws IOException {
+        long deleted = 0;
+        Query unfinished = Query.query(Criteria.where("state").ne(MoodArchiveRun.State.SETTLED));
+        List<MoodArchiveRun> runs = mongoTemplate.find(unfinished, MoodArchiveRun.class);
+        boolean awaited = false;
+        for (MoodArchiveRun run : runs) {
+            if (run.getState() == MoodArchiveRun.State.WRITING) {
+                // Nothing was deleted from the hot collection yet: the segment is only a copy.
+                MoodSegment.delete(segmentFile(run.getId()));
+                mongoTemplate.remove(Query.query(Criteria.where("run").is(run.getId())), MoodArchiveRemoval.class);
+                mongoTemplate.remove(run);
+                continue;
+            }
+            if (!awaited) {
+                // The run may have been recorded just before its instance stopped.
+                awaitCatalogRefresh();
+                awaited = true;
+            }
+            MoodSegment segment = openSegment(run.getId());
+            Set<String> removed = new HashSet<>();
+            mongoTemplate.find(Query.query(Criteria.where("run").is(run.getId())), MoodArchiveRemoval.class)
+                    .forEach(r -> removed.add(r.getId()));
+            List<Mood> moods = new ArrayList<>(segment.moods());
+            for (int b = 0; b < segment.blocks(); b++) {
+                for (Mood m : segment.read(b)) {
+                    if (!removed.contains(MoodArchiveRemoval.idOf(run.getId(), m.getId()))) moods.add(m);
+                }
+            }
+            deleted += settle(run, moods, false);
+        }
+        return deleted;
+    }
+
+    private void setState(MoodArchiveRun run, MoodArchiveRun.State state) {
+        run.setState(state);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(run.getId())),
+                Update.update("state", state).set("moods", run.getMoods()), MoodArchiveRun.class);
+    }
+
+    private void remove(String run, List<Mood> moods) {
+        if (moods.isEmpty()) return;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MoodArchiveRemoval.class);
+        for (Mood m : moods) {
+            String userKey = MoodSegment.userKey(m.getUserId());
+            bulk.upsert(Query.query(Criteria.where("_id").is(MoodArchiveRemoval.idOf(run, m.getId()))),
+                    Update.update("run", run).set("userId", userKey).set("moodId", m.getId()));
+        }
+        bulk.execute();
+    }
+
+    // ---- Reads merged with the hot collection ----
+
+    // One block of one segment.
+    private static final class BlockRef {
+        final MoodSegment segment;
+        final int block;
+
+        BlockRef(MoodSegment segment, int block) {
+            this.segment = segment;
+            this.block = block;
+        }
+
+        Instant first() {
+            return segment.firstCreatedAt(block);
+        }
+
+        Instant last() {
+            return segment.lastCreatedAt(block);
+        }
+    }
+
+    // The user's blocks in every segment, from the sparse indexes alone.
+    private List<BlockRef> blocksOf(String userKey, Predicate<BlockRef> filter) {
+        List<BlockRef> blocks = new ArrayList<>();
+        for (MoodSegment segment : catalog().segments) {
+            for (int b = segment.startOf(userKey), end = segment.endOf(userKey); b < end; b++) {
+                BlockRef ref = new BlockRef(segment, b);
+                if (filter.test(ref)) blocks.add(ref);
+            }
+        }
+        return blocks;
+    }
+
+    // Removal ids ("run:mood") of the user's archived moods; a handful at most.
+    private Set<String> removedOf(String userKey) {
+        Set<String> removed = new HashSet<>();
+        mongoTemplate.find(Query.query(Criteria.where("userId").is(userKey)), MoodArchiveRemoval.class)
+                .forEach(r -> removed.add(r.getId()));
+        return removed;
+    }
+
+    private static List<Mood> read(BlockRef ref, Set<String> removed) {
+        List<Mood> moods = ref.segment.read(ref.block);
+        if (!removed.isEmpty()) moods.removeIf(m -> removed.contains(MoodArchiveRemoval.idOf(ref.segment.run, m.getId())));
+        return moods;
+    }
+
+    /**
+     * The user's archived moods, oldest first, inflating one block at a time as the stream
+     * is consumed (and only the blocks whose time ranges overlap at once).
+     */
+    public Stream<Mood> streamByUserId(String userId) {
+        String user = MoodSegment.userKey(userId);
+        List<BlockRef> blocks = blocksOf(user, b -> true);
+        if (blocks.isEmpty()) return Stream.empty();
+        blocks.sort(Comparator.comparing(BlockRef::first));
+        Iterator<Mood> moods = new OldestFirst(blocks, removedOf(user));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(moods, Spliterator.ORDERED), false);
+    }
+
+    // Opens blocks in order of their first mood, each once the merge reaches it.
+    private static final class OldestFirst implements Iterator<Mood> {
+        private final List<BlockRef> blocks;
+        private final Set<String> removed;
+        private final PriorityQueue<Iterator<Mood>> open;
+        private final Map<Iterator<Mood>, Mood> heads = new IdentityHashMap<>();
+        private int next;
+
+        OldestFirst(List<BlockRef> blocks, Set<String> removed) {
+            this.blocks = blocks;
+            this.removed = removed;
+            this.open = new PriorityQueue<>(Comparator.comparing(heads::get, OLDEST_FIRST));
+        }
+
+        @Override
+        public boolean hasNext() {
+            openReached();
+            return !open.isEmpty();
+        }
+
+        @Override
+        public Mood next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Iterator<Mood> block = open.poll();
+            Mood mood = heads.remove(block);
+            if (block.hasNext()) {
+                heads.put(block, block.next());
+                open.add(block);
+            }
+            return mood;
+        }
+
+        // A block can hold the next mood if it starts no later than the oldest open head.
+        private void openReached() {
+            while (next < blocks.size()) {
+                Mood head = open.isEmpty() ? null : heads.get(open.peek());
+                if (head != null && blocks.get(next).first().isAfter(head.getCreatedAt())) return;
+                Iterator<Mood> block = read(blocks.get(next++), removed).iterator();
+                if (block.hasNext()) {
+                    heads.put(block, block.next());
+                    open.add(block);
+                }
+            }
+        }
+    }
+
+    /**
+     * The user's archived moods created at or after the instant, oldest first. Blocks that
+     * end before it are not read.
+     */
+    public List<Mood> findCreatedSince(String userId, Instant from) {
+        return collect(userId, b -> !b.last().isBefore(from), m -> !m.getCreatedAt().isBefore(from));
+    }
+
+    /**
+     * The user's archived moods created in [from, to), oldest first.
+     */
+    public List<Mood> findCreatedBetween(String userId, Instant from, Instant to) {
+        return collect(userId, b -> !b.last().isBefore(from) && b.first().isBefore(to),
+                m -> !m.getCreatedAt().isBefore(from) && m.getCreatedAt().isBefore(to));
+    }
+
+    private List<Mood> collect(String userId, Predicate<BlockRef> blocks, Predicate<Mood> filter) {
+        String user = MoodSegment.userKey(userId);
+        List<BlockRef> refs = blocksOf(user, blocks);
+        if (refs.isEmpty()) return new ArrayList<>();
+        Set<String> removed = removedOf(user);
+        List<Mood> result = new ArrayList<>();
+        for (BlockRef ref : refs) {
+            for (Mood m : read(ref, removed)) {
+                if (filter.test(m)) result.add(m);
+            }
+        }
+        // Segments of successive runs cover successive time slices, so this is usually already in order.
+        result.sort(OLDEST_FIRST);
+        return result;
+    }
+
+    /**
+     * Completes a newest-first keyset page of the hot collection with archived moods. Blocks
+     * are read newest end first and only until none can hold a mood of the page.
+     *
+     * @param hot   up to limit hot moods after the cursor, newest first
+     * @param after the page cursor, or null for the first page
+     */
+    public List<Mood> mergePage(String userId, List<Mood> hot, MoodCursor after, int limit) {
+        // Archived moods are all older than the horizon; a full page reaching no further back is final.
+        if (hot.size() >= limit) {
+            Instant oldest = hot.get(limit - 1).getCreatedAt();
+            if (oldest != null && !oldest.isBefore(horizon())) return hot;
+        }
+        Instant createdAt = after != null ? after.getCreatedAt() : null;
+        String id = after != null ? after.getId() : null;
+        String user = MoodSegment.userKey(userId);
+        List<BlockRef> blocks = blocksOf(user, b -> createdAt == null || !b.first().isAfter(createdAt));
+        if (blocks.isEmpty()) return hot;
+        blocks.sort(Comparator.comparing(BlockRef::last).reversed());
+        Set<String> removed = removedOf(user);
+        Set<String> hotIds = hot.stream().map(Mood::getId).collect(Collectors.toSet());
+        List<Mood> rows = new ArrayList<>(hot);
+        for (BlockRef block : blocks) {
+            // Later blocks end no later than this one: once the page is full of newer moods, stop.
+            if (rows.size() >= limit) {
+                rows.sort(NEWEST_FIRST);
+                if (rows.get(limit - 1).getCreatedAt().isAfter(block.last())) break;
+            }
+            for (Mood m : read(block, removed)) {
+                if (hotIds.contains(m.getId())) continue;
+                if (createdAt == null || isBefore(m, createdAt, id)) rows.add(m);
+            }
+        }
+        rows.sort(NEWEST_FIRST);
+        return rows.size() <= limit ? rows : new ArrayList<>(rows.subList(0, limit));
+    }
+
+    private static boolean isBefore(Mood m, Instant createdAt, String id) {
+        int c = m.getCreatedAt().compareTo(createdAt);
+        return c < 0 || (c == 0 && m.getId().compareTo(id) < 0);
+    }
+
+    /**
+     * Merges the user's archived moods into a stream of their hot moods, both oldest first,
+     * holding no more than a block or two of archived moods at a time. Closing the result
+     * closes the hot stream.
+     */
+    public Stream<Mood> mergeOldestFirst(String userId, Stream<Mood> hot) {
+        Iterator<Mood> coldMoods = streamByUserId(userId).iterator();
+        if (!coldMoods.hasNext()) return hot;
+        Iterator<Mood> hotMoods = hot.iterator();
+        Spliterator<Mood> merged = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED) {
+            private Mood nextCold = coldMoods.next();
+            private Mood nextHot = hotMoods.hasNext() ? hotMoods.next() : null;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Mood> action) {
+                if (nextCold == null && nextHot == null) return false;
+                Mood out;
+                if (nextHot == null || (nextCold != null && OLDEST_FIRST.compare(nextCold, nextHot) < 0)) {
+                    out = nextCold;
+                    nextCold = coldMoods.hasNext() ? coldMoods.next() : null;
+                } else {
+                    out = nextHot;
+                    nextHot = hotMoods.hasNext() ? hotMoods.next() : null;
+                    // Both copies of a mood being archived right now: keep the hot one.
+                    if (nextCold != null && nextCold.getId().equals(out.getId())) {
+                        nextCold = coldMoods.hasNext() ? coldMoods.next() : null;
+                    }
+                }
+                action.accept(out);
+                return true;
+            }
+        };
+        return StreamSupport.stream(merged, false).onClose(hot::close);
+    }
+
+    // ---- Writes to archived moods ----
+
+    /**
+     * Moves an archived mood of the user back into the hot collection, so it can be updated
+     * or deleted there. False if the user has no archived mood with this id. A mood that is
+     * in the hot collection (at another version, or someone else's) needs no restore, and
+     * archived copies are found through the segments' id tables, inflating only the blocks
+     * that hold the id.
+     */
+    public boolean restore(String userId, String id) {
+        List<MoodSegment> segments = catalog().segments;
+        if (segments.isEmpty() || repository.existsById(id)) return false;
+        String user = MoodSegment.userKey(userId);
+        Mood newest = null;
+        List<Mood> holding = new ArrayList<>();
+        List<String> runs = new ArrayList<>();
+        Set<String> removed = null;
+        for (MoodSegment segment : segments) {
+            for (int block : segment.blocksWithId(id)) {
+                if (!segment.userOf(block).equals(user)) continue;
+                for (Mood m : segment.read(block)) {
+                    if (!m.getId().equals(id)) continue;
+                    if (removed == null) removed = removedOf(user);
+                    if (removed.contains(MoodArchiveRemoval.idOf(segment.run, id))) continue;
+                    holding.add(m);
+                    runs.add(segment.run);
+                    if (newest == null || m.getVersion() > newest.getVersion()) newest = m;
+                }
+            }
+        }
+        if (newest == null) return false;
+        try {
+            repository.insert(newest);
+        } catch (DuplicateKeyException e) {
+            // Already hot again (a concurrent restore, or an unsettled run).
+        }
+        for (int i = 0; i < holding.size(); i++) {
+            remove(runs.get(i), List.of(holding.get(i)));
+        }
+        return true;
+    }
+
+    /**
+     * Drops any archived copy of a mood that was just changed or deleted in the hot
+     * collection, in case an archive run read it before the change. Only looks the id up in
+     * the segments, and does nothing for moods newer than the horizon, which is nearly all of
+     * them.
+     */
+    public void forget(Mood mood) {
+        if (mood.getCreatedAt() == null || !mood.getCreatedAt().isBefore(horizon())) return;
+        String user = MoodSegment.userKey(mood.getUserId());
+        for (MoodSegment segment : catalog().segments) {
+            for (int block : segment.blocksWithId(mood.getId())) {
+                if (!segment.userOf(block).equals(user)
+                        || segment.firstCreatedAt(block).isAfter(mood.getCreatedAt())
+                        || segment.lastCreatedAt(block).isBefore(mood.getCreatedAt())) continue;
+                if (segment.read(block).stream().anyMatch(m -> m.getId().equals(mood.getId()))) {
+                    remove(segment.run, List.of(mood));
+                }
+            }
+        }
+    }
+}
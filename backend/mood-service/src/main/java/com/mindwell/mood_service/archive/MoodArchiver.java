@@ -0,0 +1,35 @@
+package com.mindwell.mood_service.archive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically moves old moods into the archive. On with mood.archive.enabled=true; every
+ * instance schedules it, but a run only proceeds on the instance holding the archive lease.
+ */
+@Component
+@ConditionalOnProperty(name = "mood.archive.enabled", havingValue = "true")
+public class MoodArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(MoodArchiver.class);
+
+    private final MoodArchive archive;
+
+    public MoodArchiver(MoodArchive archive) {
+        this.archive = archive;
+    }
+
+    @Scheduled(initialDelayString = "${mood.archive.initial-delay-ms:300000}",
+               fixedDelayString = "${mood.archive.interval-ms:86400000}")
+    public void run() {
+        try {
+            archive.archive();
+        } catch (Exception e) {
+            // Runs left unsettled are picked up by the next one.
+            log.warn("Mood archiving failed: {}", e.getMessage());
+        }
+    }
+}
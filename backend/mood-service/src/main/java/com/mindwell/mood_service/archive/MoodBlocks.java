@@ -0,0 +1,95 @@
+package com.mindwell.mood_service.archive;
+
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.repository.MoodCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes the moods of one segment block and back: MoodCodec records behind a count,
+ * deflated as a whole.
+ */
+final class MoodBlocks {
+
+    private MoodBlocks() {}
+
+    /**
+     * The moods, uncompressed.
+     */
+    static byte[] encode(List<Mood> moods) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(moods.size() * 64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(moods.size());
+            for (Mood m : moods) {
+                MoodCodec.write(out, m);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static byte[] deflate(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream packed = new ByteArrayOutputStream(raw.length / 3 + 64);
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            packed.write(chunk, 0, deflater.deflate(chunk));
+        }
+        return packed.toByteArray();
+    }
+
+    /**
+     * The moods of a deflated block, in stored order.
+     *
+     * @param what names the block in the error for a damaged one
+     */
+    static List<Mood> decode(ByteBuffer packed, int rawLength, String what) {
+        ByteBuffer in = ByteBuffer.wrap(inflate(packed, rawLength, what));
+        int count = in.getInt();
+        List<Mood> moods = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            moods.add(MoodCodec.read(in));
+        }
+        return moods;
+    }
+
+    // A truncated or damaged block ends the stream early (or needs more input than it has)
+    // before the recorded raw length is filled; that is reported instead of spinning.
+    private static byte[] inflate(ByteBuffer packed, int rawLength, String what) {
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(packed);
+            int n = 0;
+            while (n < raw.length) {
+                n += inflater.inflate(raw, n, raw.length - n);
+                if (n < raw.length && (inflater.needsInput() || inflater.needsDictionary() || inflater.finished())) {
+                    throw corrupt(what, null);
+                }
+            }
+        } catch (DataFormatException e) {
+            throw corrupt(what, e);
+        } finally {
+            inflater.end();
+        }
+        return raw;
+    }
+
+    private static UncheckedIOException corrupt(String what, Exception cause) {
+        return new UncheckedIOException(new IOException("Corrupt block " + what, cause));
+    }
+}
@@ -0,0 +1,295 @@
+package com.mindwell.mood_service.archive;
+
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.repository.MoodCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * One immutable archive segment file, written by one archive run: moods sorted by
+ * (userId, createdAt, id) and packed into deflated blocks that never span two users,
+ * followed by a sparse index (one entry per block: user, time range, position), an id
+ * table and a fixed footer. The whole file is memory-mapped once; the sparse index is
+ * held on the heap, while the id table is binary-searched straight from the mapping.
+ * <p>
+ * The id table holds one long per mood, the upper half of its id's hash over the number of
+ * the block holding it, sorted; finding one mood inflates a single block (rarely two, on a
+ * hash collision).
+ */
+final class MoodSegment {
+
+    static final Comparator<Mood> ORDER = Comparator
+            .comparing((Mood m) -> userKey(m.getUserId()))
+            .thenComparing(MoodArchive.OLDEST_FIRST);
+
+    private static final int MAGIC = 0x4d4f4f44; // "MOOD"
+    private static final int FORMAT = 2;
+    private static final int FOOTER_BYTES = 8 + 8 + 4 + 4 + 4 + 4;
+    private static final int ID_ENTRY_BYTES = 8;
+    private static final long HASH_BITS = ~0xffffffffL;
+
+    /**
+     * The archive run that wrote the segment.
+     */
+    final String run;
+    final Path file;
+
+    private final MappedByteBuffer data;
+    private final int idsOffset;
+    private final int moods;
+    // Sparse index, one entry per block.
+    private final String[] user;
+    private final Instant[] firstCreatedAt;
+    private final Instant[] lastCreatedAt;
+    private final int[] offset;
+    private final int[] length;
+    private final int[] rawLength;
+
+    private MoodSegment(String run, Path file, MappedByteBuffer data, int idsOffset, int moods, int blocks) {
+        this.run = run;
+        this.file = file;
+        this.data = data;
+        this.idsOffset = idsOffset;
+        this.moods = moods;
+        this.user = new String[blocks];
+        this.firstCreatedAt = new Instant[blocks];
+        this.lastCreatedAt = new Instant[blocks];
+        this.offset = new int[blocks];
+        this.length = new int[blocks];
+        this.rawLength = new int[blocks];
+    }
+
+    // ---- Writing ----
+
+    /**
+     * Writes the moods, which must all have a createdAt, to a new segment file next to
+     * {@code file}, forces it to disk and only then renames it into place, so a segment
+     * file is either complete or absent.
+     */
+    static void write(Path file, List<Mood> moods, int blockMoods) throws IOException {
+        List<Mood> sorted = new ArrayList<>(moods);
+        sorted.sort(ORDER);
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream indexOut = new DataOutputStream(index);
+        long[] ids = new long[sorted.size()];
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        Path temp = temporary(file);
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            int blocks = 0;
+            int from = 0;
+            while (from < sorted.size()) {
+                String blockUser = userKey(sorted.get(from).getUserId());
+                int to = from + 1;
+                while (to < sorted.size() && to - from < blockMoods && blockUser.equals(userKey(sorted.get(to).getUserId()))) {
+                    to++;
+                }
+                List<Mood> block = sorted.subList(from, to);
+                byte[] raw = MoodBlocks.encode(block);
+                byte[] packed = MoodBlocks.deflate(deflater, raw);
+                MoodCodec.writeString(indexOut, blockUser);
+                writeInstant(indexOut, block.get(0).getCreatedAt());
+                writeInstant(indexOut, block.get(block.size() - 1).getCreatedAt());
+                indexOut.writeInt(Math.toIntExact(out.position()));
+                indexOut.writeInt(packed.length);
+                indexOut.writeInt(raw.length);
+                for (int i = from; i < to; i++) {
+                    ids[i] = (idHash(sorted.get(i).getId()) & HASH_BITS) | blocks;
+                }
+                writeFully(out, ByteBuffer.wrap(packed));
+                blocks++;
+                from = to;
+            }
+            long indexOffset = out.position();
+            writeFully(out, ByteBuffer.wrap(index.toByteArray()));
+            long idsOffset = out.position();
+            writeFully(out, idTable(ids));
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_BYTES);
+            footer.putLong(indexOffset).putLong(idsOffset).putInt(blocks).putInt(sorted.size())
+                    .putInt(FORMAT).putInt(MAGIC).flip();
+            writeFully(out, footer);
+            if (out.position() > Integer.MAX_VALUE) throw new IOException("Mood segment too large: " + file);
+            out.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            deflater.end();
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Removes the segment file, or what an interrupted write left of it.
+     */
+    static void delete(Path file) throws IOException {
+        Files.deleteIfExists(temporary(file));
+        Files.deleteIfExists(file);
+    }
+
+    private static Path temporary(Path file) {
+        return file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    private static ByteBuffer idTable(long[] ids) {
+        Arrays.sort(ids);
+        ByteBuffer table = ByteBuffer.allocate(ids.length * ID_ENTRY_BYTES);
+        for (long entry : ids) {
+            table.putLong(entry);
+        }
+        return table.flip();
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant instant) throws IOException {
+        out.writeLong(instant.getEpochSecond());
+        out.writeInt(instant.getNano());
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    // ---- Reading ----
+
+    /**
+     * Maps a segment file and loads its sparse index.
+     */
+    static MoodSegment open(String run, Path file) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE || channel.size() < FOOTER_BYTES) {
+                throw new IOException("Bad mood segment size: " + file);
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer footer = data.duplicate().position(data.capacity() - FOOTER_BYTES);
+        long indexOffset = footer.getLong();
+        long idsOffset = footer.getLong();
+        int blocks = footer.getInt();
+        int moods = footer.getInt();
+        int format = footer.getInt();
+        if (footer.getInt() != MAGIC || format != FORMAT) {
+            throw new IOException("Not a mood segment: " + file);
+        }
+        MoodSegment segment = new MoodSegment(run, file, data, (int) idsOffset, moods, blocks);
+        ByteBuffer index = data.duplicate().position((int) indexOffset);
+        for (int b = 0; b < blocks; b++) {
+            segment.user[b] = MoodCodec.readString(index);
+            segment.firstCreatedAt[b] = Instant.ofEpochSecond(index.getLong(), index.getInt());
+            segment.lastCreatedAt[b] = Instant.ofEpochSecond(index.getLong(), index.getInt());
+            segment.offset[b] = index.getInt();
+            segment.length[b] = index.getInt();
+            segment.rawLength[b] = index.getInt();
+        }
+        return segment;
+    }
+
+    int blocks() {
+        return offset.length;
+    }
+
+    int moods() {
+        return moods;
+    }
+
+    String userOf(int block) {
+        return user[block];
+    }
+
+    Instant firstCreatedAt(int block) {
+        return firstCreatedAt[block];
+    }
+
+    Instant lastCreatedAt(int block) {
+        return lastCreatedAt[block];
+    }
+
+    /**
+     * The first block of the user, or where it would be; the user's blocks run up to {@link #endOf}.
+     */
+    int startOf(String userKey) {
+        int lo = 0;
+        int hi = blocks();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (user[mid].compareTo(userKey) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * One past the last block of the user.
+     */
+    int endOf(String userKey) {
+        int lo = 0;
+        int hi = blocks();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (user[mid].compareTo(userKey) <= 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * The blocks that may hold a mood with this id, in ascending order.
+     */
+    List<Integer> blocksWithId(String id) {
+        long hash = idHash(id) & HASH_BITS;
+        int entries = (data.capacity() - FOOTER_BYTES - idsOffset) / ID_ENTRY_BYTES;
+        int lo = 0;
+        int hi = entries;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (data.getLong(idsOffset + mid * ID_ENTRY_BYTES) < hash) lo = mid + 1;
+            else hi = mid;
+        }
+        List<Integer> blocks = new ArrayList<>(1);
+        for (int e = lo; e < entries; e++) {
+            long entry = data.getLong(idsOffset + e * ID_ENTRY_BYTES);
+            if ((entry & HASH_BITS) != hash) break;
+            if (!blocks.contains((int) entry)) blocks.add((int) entry);
+        }
+        return blocks;
+    }
+
+    /**
+     * Inflates one block straight from the mapping: its moods, oldest first.
+     */
+    List<Mood> read(int block) {
+        return MoodBlocks.decode(data.slice(offset[block], length[block]), rawLength[block],
+                block + " of " + file);
+    }
+
+    // FNV-1a over the id's chars.
+    static long idHash(String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    static String userKey(String userId) {
+        return userId != null ? userId : "";
+    }
+}
@@ -0,0 +1,55 @@
+package com.mindwell.mood_service.config;
+
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.model.MoodArchiveRemoval;
+import com.mindwell.mood_service.model.MoodRollup;
+import com.mindwell.mood_service.model.MoodRollupDirty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Ensures the indexes declared on our documents exist. Runs off the startup thread so the
+ * service still boots (and tests still pass) when Mongo is not reachable yet.
+ */
+@Component
+@Profile("!inmemory")
+public class MongoIndexInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexInitializer.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoIndexInitializer(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        CompletableFuture.runAsync(() -> {
+                    ensureIndexes(Mood.class);
+                    ensureIndexes(MoodRollup.class);
+                    ensureIndexes(MoodRollupDirty.class);
+                    ensureIndexes(MoodArchiveRemoval.class);
+                })
+                .exceptionally(e -> {
+                    log.warn("Could not ensure Mongo indexes: {}", e.getMessage());
+                    return null;
+                });
+    }
+
+    private void ensureIndexes(Class<?> type) {
+        IndexOperations ops = mongoTemplate.indexOps(type);
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        resolver.resolveIndexFor(type).forEach(ops::ensureIndex);
+    }
+}
@@ -0,0 +1,210 @@
+package com.mindwell.mood_service.config;
+
+import com.mindwell.mood_service.lease.LeaseService;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.model.MoodRollup;
+import com.mindwell.mood_service.model.MoodRollupDirty;
+import com.mindwell.mood_service.model.MoodShardLayout;
+import com.mindwell.mood_service.repository.MongoMoodRepository;
+import com.mindwell.mood_service.repository.MongoShardMoves;
+import com.mindwell.mood_service.repository.ShardedMoodRepository;
+import com.mindwell.mood_service.rollup.ShardedMoodRollupService;
+import com.mongodb.ConnectionString;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Splits moods across the databases in mood.sharding.uris (one connection string with a
+ * database each) when mood.sharding.enabled=true. Users are placed by consistent hashing,
+ * so appending a URI only moves the users that land on the new shard.
+ * <p>
+ * The default database records how many shards every user has been placed on
+ * ({@link MoodShardLayout}). When more URIs are configured than that, the users whose
+ * shard changed are moved in the background by the instance holding the {@value #LEASE}
+ * lease (and by any instance on a user's first access before that); the record is updated
+ * once all are moved, and every other instance then stops checking the old placement, so
+ * restarts do not walk the shards again. Each user is moved under a per-user lease and
+ * recorded as moved in the default database ({@link MongoShardMoves}), so instances never
+ * move the same user at once or read a user's old shard after the move; the records are
+ * dropped once the layout is recorded. mood.sharding.previous-count is only read when
+ * there is no record yet, i.e. for deployments that were sharded before it existed.
+ * <p>
+ * Shards can only be appended: removing or reordering URIs changes where existing users
+ * are looked up. Rollups are compacted per shard and move with their users
+ * ({@link ShardedMoodRollupService}).
+ */
+@Configuration
+@Profile("!inmemory & !reactive")
+@ConditionalOnProperty(name = "mood.sharding.enabled", havingValue = "true")
+public class MoodShardingConfig {
+
+    static final String LEASE = "mood-shard-rebalancer";
+
+    private static final Logger log = LoggerFactory.getLogger(MoodShardingConfig.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final LeaseService leases;
+    private final Duration leaseDuration;
+    private final Duration moveLeaseDuration;
+    private final Duration moveWait;
+    private final List<MongoClient> clients = new ArrayList<>();
+    private final List<MongoTemplate> templates = new ArrayList<>();
+    private ShardedMoodRepository repository;
+    private volatile boolean layoutRecorded;
+
+    /**
+     * @param mongoTemplate the default database, which holds the shard layout record and the lease
+     */
+    public MoodShardingConfig(MongoTemplate mongoTemplate, LeaseService leases,
+                              @Value("${mood.sharding.lease-ms:300000}") long leaseMs,
+                              @Value("${mood.sharding.move-lease-ms:30000}") long moveLeaseMs,
+                              @Value("${mood.sharding.move-wait-ms:10000}") long moveWaitMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.leases = leases;
+        this.leaseDuration = Duration.ofMillis(leaseMs);
+        this.moveLeaseDuration = Duration.ofMillis(moveLeaseMs);
+        this.moveWait = Duration.ofMillis(moveWaitMs);
+    }
+
+    @Bean
+    @Primary
+    public ShardedMoodRepository shardedMoodRepository(@Value("${mood.sharding.uris}") List<String> uris,
+                                                       @Value("${mood.sharding.previous-count:0}") int previousCount,
+                                                       @Value("${mood.sharding.virtual-nodes:128}") int virtualNodes) {
+        int settled = settledShards();
+        if (settled > uris.size()) {
+            throw new IllegalStateException("Mood shards can only be appended: " + settled
+                    + " are in use but " + uris.size() + " are configured");
+        }
+        List<MongoMoodRepository> shards = new ArrayList<>(uris.size());
+        for (String uri : uris) {
+            ConnectionString connection = new ConnectionString(uri.trim());
+            if (connection.getDatabase() == null) {
+                throw new IllegalArgumentException("Mood shard URI has no database: " + connection.getHosts());
+            }
+            MongoClient client = MongoClients.create(connection);
+            clients.add(client);
+            MongoTemplate template = new MongoTemplate(client, connection.getDatabase());
+            templates.add(template);
+            shards.add(ShardedMoodRepository.mongoShard(template));
+        }
+        repository = new ShardedMoodRepository(shards, settled > 0 ? settled : previousCount, virtualNodes,
+                new MongoShardMoves(mongoTemplate, leases, shards.size(), moveLeaseDuration), moveWait);
+        if (repository.isRebalancing()) {
+            log.info("Moods sharded across {} databases, moving users onto the appended ones", shards.size());
+        } else {
+            if (settled < shards.size()) recordLayout();
+            layoutRecorded = true;
+            log.info("Moods sharded across {} databases", shards.size());
+        }
+        return repository;
+    }
+
+    /**
+     * Rollups kept and compacted on each shard, next to the moods they sum up; takes over
+     * from the default database's rollups.
+     */
+    @Bean
+    @Primary
+    public ShardedMoodRollupService shardedMoodRollupService(ShardedMoodRepository shardedMoodRepository,
+                                                             @Value("${mood.rollup.enabled:true}") boolean enabled,
+                                                             @Value("${mood.rollup.lease-ms:300000}") long leaseMs) {
+        return new ShardedMoodRollupService(templates, shardedMoodRepository, leases, enabled, Duration.ofMillis(leaseMs));
+    }
+
+    /**
+     * Ensures the mood and rollup indexes on every shard, off the startup thread like
+     * {@link MongoIndexInitializer}.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepareShards() {
+        CompletableFuture.runAsync(() -> {
+                    for (MongoTemplate template : templates) {
+                        for (Class<?> type : List.of(Mood.class, MoodRollup.class, MoodRollupDirty.class)) {
+                            IndexOperations ops = template.indexOps(type);
+                            new MongoPersistentEntityIndexResolver(template.getConverter().getMappingContext())
+                                    .resolveIndexFor(type).forEach(ops::ensureIndex);
+                        }
+                    }
+                })
+                .exceptionally(e -> {
+                    log.warn("Could not prepare mood shards: {}", e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Until the layout is recorded: adopts a rebalance finished by another instance, or, under
+     * the lease, moves the remaining users and records the layout.
+     */
+    @Scheduled(initialDelayString = "${mood.sharding.rebalance-initial-delay-ms:30000}",
+               fixedDelayString = "${mood.sharding.rebalance-interval-ms:60000}")
+    public void rebalanceShards() {
+        if (repository == null || layoutRecorded) return;
+        try {
+            if (repository.isRebalancing()) {
+                if (settledShards() >= repository.shardCount()) {
+                    repository.settle();
+                    layoutRecorded = true;
+                    log.info("Mood shards were rebalanced by another instance");
+                    return;
+                }
+                if (!leases.acquire(LEASE, leaseDuration)) return;
+                try {
+                    int moved = repository.rebalance(() -> leases.acquire(LEASE, leaseDuration));
+                    if (repository.isRebalancing()) return;
+                    log.info("Moved {} users to their new shard", moved);
+                } finally {
+                    leases.release(LEASE);
+                }
+            }
+            recordLayout();
+            layoutRecorded = true;
+        } catch (Exception e) {
+            // Retried on the next run; users not moved yet are still moved on their next request.
+            log.warn("Could not rebalance mood shards: {}", e.getMessage());
+        }
+    }
+
+    private int settledShards() {
+        MoodShardLayout layout = mongoTemplate.findById(MoodShardLayout.ID, MoodShardLayout.class);
+        return layout != null ? layout.getSettledShards() : 0;
+    }
+
+    private void recordLayout() {
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(MoodShardLayout.ID)),
+                new Update().max("settledShards", repository.shardCount()).set("settledAt", Instant.now()),
+                MoodShardLayout.class);
+        MongoShardMoves.forgetSettled(mongoTemplate, repository.shardCount());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (repository != null) repository.shutdown();
+        clients.forEach(MongoClient::close);
+    }
+}
@@ -1,63 +1,225 @@
 package com.mindwell.mood_service.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.mindwell.mood_service.dto.CreateMoodRequest;
+import com.mindwell.mood_service.dto.MoodAnalytics;
+import com.mindwell.mood_service.dto.MoodPage;
 import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.service.MoodBatchService;
+import com.mindwell.mood_service.service.MoodExportService;
 import com.mindwell.mood_service.service.MoodService;
+import com.mindwell.mood_service.service.MoodVersions;
 
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/mood")
 public class MoodController {
 
+    private static final Logger log = LoggerFactory.getLogger(MoodController.class);
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
     private final MoodService moodService;
+    private final MoodBatchService moodBatchService;
+    private final MoodExportService moodExportService;
+    private final MoodVersions moodVersions;
+    private final ObjectMapper objectMapper;
 
-    public MoodController(MoodService moodService) {
+    public MoodController(MoodService moodService, MoodBatchService moodBatchService,
+                          MoodExportService moodExportService, MoodVersions moodVersions,
+                          ObjectMapper objectMapper) {
         this.moodService = moodService;
+        this.moodBatchService = moodBatchService;
+        this.moodExportService = moodExportService;
+        this.moodVersions = moodVersions;
+        this.objectMapper = objectMapper;
     }
 
     // Public test endpoint (keeps previous behavior)
     @GetMapping("/test")
     public ResponseEntity<String> testProtectedEndpoint(
             @RequestHeader(value = "X-Auth-User-ID", required = false) String userId) {
-
-        System.out.println("LOG: Authenticated Mood Request from User ID: " + userId);
-
+        log.debug("Authenticated mood request from user {}", userId);
         return ResponseEntity.ok("SUCCESS: MOOD-SERVICE accessed by authenticated user ID: " + userId);
     }
 
+    /**
+     * Lists the caller's moods newest first, one page at a time. The body stays a plain
+     * array; the cursor for the next page is returned in the X-Next-Cursor header.
+     * A matching If-None-Match is answered with 304 without reading any moods.
+     */
     @GetMapping
-    public ResponseEntity<List<Mood>> listMoods() {
-        return ResponseEntity.ok(moodService.listAll());
+    public ResponseEntity<?> listMoods(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
+                                       @RequestParam(required = false) String cursor,
+                                       @RequestParam(required = false) Integer limit,
+                                       WebRequest request) {
+        String owner = userId != null ? userId : "anonymous";
+        // Taken before reading, so a concurrent write can only make the tag older than the data.
+        String etag = moodVersions.etag(owner);
+        if (request.checkNotModified(etag)) return null;
+        MoodPage page;
+        try {
+            page = moodService.listPage(owner, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag);
+        if (page.getNextCursor() != null) {
+            response.header("X-Next-Cursor", page.getNextCursor());
+        }
+        return response.body(page.getItems());
     }
 
+    /**
+     * Streams the caller's full mood history as NDJSON (default) or CSV (?format=csv),
+     * oldest first, without loading it into memory.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportMoods(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
+                                         @RequestParam(defaultValue = "ndjson") String format) {
+        MoodExportService.Format fmt;
+        try {
+            fmt = MoodExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", "Unsupported format: " + format));
+        }
+        String owner = userId != null ? userId : "anonymous";
+        StreamingResponseBody body = out -> moodExportService.export(owner, fmt, out);
+        return ResponseEntity.ok()
+                .contentType(fmt == MoodExportService.Format.CSV
+                        ? MediaType.parseMediaType("text/csv")
+                        : MediaType.parseMediaType(APPLICATION_NDJSON))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"moods." + fmt.name().toLowerCase() + "\"")
+                .body(body);
+    }
+
+    /**
+     * Creates a mood: 201 once stored, or 202 when write-behind acknowledges buffered moods
+     * (mood.write-behind.ack=accepted). 503 with Retry-After when the write buffer is full.
+     */
     @PostMapping
-    public ResponseEntity<Mood> createMood(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
-                                           @RequestBody CreateMoodRequest req) {
-        Mood created = moodService.create(userId != null ? userId : "anonymous", req);
-        return ResponseEntity.status(201).body(created);
+    public ResponseEntity<?> createMood(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
+                                        @RequestBody CreateMoodRequest req) {
+        Mood created;
+        try {
+            created = moodService.create(userId != null ? userId : "anonymous", req);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Collections.singletonMap("error", e.getMessage()));
+        }
+        return ResponseEntity.status(moodService.isAcceptedBeforeStored() ? 202 : 201).body(created);
     }
 
+    /**
+     * Bulk upload of moods (e.g. offline sync) as a JSON array. Returns one result per entry.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> createMoodBatch(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
+                                             @RequestBody List<CreateMoodRequest> reqs) {
+        try {
+            return ResponseEntity.ok(moodBatchService.createBatch(userId != null ? userId : "anonymous", reqs));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Same as the JSON array variant, but reads one CreateMoodRequest per line (NDJSON).
+     */
+    @PostMapping(value = "/batch", consumes = APPLICATION_NDJSON)
+    public ResponseEntity<?> createMoodBatchNdjson(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
+                                                   HttpServletRequest request) throws IOException {
+        int maxItems = moodBatchService.getMaxItems();
+        List<CreateMoodRequest> reqs = new ArrayList<>();
+        try (MappingIterator<CreateMoodRequest> lines = objectMapper.readerFor(CreateMoodRequest.class)
+                .readValues(request.getInputStream())) {
+            while (lines.hasNextValue()) {
+                if (reqs.size() == maxItems) {
+                    return ResponseEntity.badRequest()
+                            .body(Collections.singletonMap("error", "Batch exceeds " + maxItems + " items"));
+                }
+                reqs.add(lines.nextValue());
+            }
+        }
+        return createMoodBatch(userId, reqs);
+    }
+
+    /**
+     * Updates one of the caller's moods. An If-Match with the mood's ETag (its version)
+     * makes the update conditional: 412 if someone else changed it in between.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<?> updateMood(@PathVariable String id, @RequestBody CreateMoodRequest req) {
-        return moodService.update(id, req)
-                .map(m -> ResponseEntity.ok(m))
-                .orElseGet(() -> ResponseEntity.notFound().build());
+    public ResponseEntity<?> updateMood(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                        @PathVariable String id, @RequestBody CreateMoodRequest req) {
+        try {
+            return moodService.update(userId != null ? userId : "anonymous", id, req, MoodService.expectedVersion(ifMatch))
+                    .<ResponseEntity<?>>map(m -> ResponseEntity.ok().eTag(MoodService.etag(m)).body(m))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (OptimisticLockingFailureException e) {
+            return preconditionFailed(e);
+        }
     }
 
+    /**
+     * Deletes one of the caller's moods, conditionally when If-Match is given.
+     */
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteMood(@PathVariable String id) {
-        boolean deleted = moodService.delete(id);
+    public ResponseEntity<?> deleteMood(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                        @PathVariable String id) {
+        boolean deleted;
+        try {
+            deleted = moodService.delete(userId != null ? userId : "anonymous", id, MoodService.expectedVersion(ifMatch));
+        } catch (OptimisticLockingFailureException e) {
+            return preconditionFailed(e);
+        }
         if (deleted) return ResponseEntity.noContent().build();
         return ResponseEntity.notFound().build();
     }
 
+    /**
+     * Ranges and streaks end today (UTC), so the ETag also changes when the day does.
+     */
     @GetMapping("/analytics")
-    public ResponseEntity<Map<String, Object>> analytics(@RequestParam(required = false) String range) {
-        return ResponseEntity.ok(moodService.analytics(range));
+    public ResponseEntity<?> analytics(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
+                                       @RequestParam(required = false) String range,
+                                       WebRequest request) {
+        String owner = userId != null ? userId : "anonymous";
+        String etag = moodVersions.etag(owner, LocalDate.now(ZoneOffset.UTC));
+        if (request.checkNotModified(etag)) return null;
+        try {
+            MoodAnalytics result = moodService.analytics(owner, range);
+            return ResponseEntity.ok().eTag(etag).body(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+
+    private static ResponseEntity<?> preconditionFailed(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(Collections.singletonMap("error", e.getMessage()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,188 @@
+package com.mindwell.mood_service.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindwell.mood_service.dto.CreateMoodRequest;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.service.MoodBatchService;
+import com.mindwell.mood_service.service.MoodExportService;
+import com.mindwell.mood_service.service.MoodService;
+import com.mindwell.mood_service.service.MoodVersions;
+import com.mindwell.mood_service.service.ReactiveMoodService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * The same API as {@link MoodController} on WebFlux, for the reactive profile. Listing and
+ * analytics keep their ETags; exports are written element by element as the cursor yields them.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/mood")
+public class ReactiveMoodController {
+
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private final ReactiveMoodService moodService;
+    private final MoodBatchService moodBatchService;
+    private final MoodVersions moodVersions;
+    private final ObjectMapper objectMapper;
+
+    public ReactiveMoodController(ReactiveMoodService moodService, MoodBatchService moodBatchService,
+                                  MoodVersions moodVersions, ObjectMapper objectMapper) {
+        this.moodService = moodService;
+        this.moodBatchService = moodBatchService;
+        this.moodVersions = moodVersions;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping("/test")
+    public ResponseEntity<String> testProtectedEndpoint(
+            @RequestHeader(value = "X-Auth-User-ID", required = false) String userId) {
+        return ResponseEntity.ok("SUCCESS: MOOD-SERVICE accessed by authenticated user ID: " + userId);
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<?>> listMoods(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(required = false) Integer limit,
+                                             ServerWebExchange exchange) {
+        String owner = userId != null ? userId : "anonymous";
+        return etag(() -> moodVersions.etag(owner)).flatMap(etag -> {
+            if (exchange.checkNotModified(etag)) return Mono.empty();
+            return moodService.listPage(owner, cursor, limit)
+                    .<ResponseEntity<?>>map(page -> {
+                        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag);
+                        if (page.getNextCursor() != null) {
+                            response.header("X-Next-Cursor", page.getNextCursor());
+                        }
+                        return response.body(page.getItems());
+                    })
+                    .onErrorResume(IllegalArgumentException.class, ReactiveMoodController::badRequest);
+        });
+    }
+
+    /**
+     * Streams the caller's full mood history as NDJSON (default) or CSV (?format=csv),
+     * oldest first, with backpressure down to the Mongo cursor. Both are written as text
+     * lines, serialized here as in {@link MoodExportService}.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<Flux<String>> exportMoods(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
+                                                    @RequestParam(defaultValue = "ndjson") String format) {
+        MoodExportService.Format fmt;
+        try {
+            fmt = MoodExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                    .body(Mono.fromCallable(() -> objectMapper.writeValueAsString(
+                            Collections.singletonMap("error", "Unsupported format: " + format))).flux());
+        }
+        Flux<Mood> moods = moodService.export(userId != null ? userId : "anonymous");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"moods." + fmt.name().toLowerCase() + "\"");
+        if (fmt == MoodExportService.Format.CSV) {
+            return response.contentType(MediaType.parseMediaType("text/csv"))
+                    .body(Flux.concat(Mono.just(MoodExportService.CSV_HEADER), moods.map(MoodExportService::csvRow)));
+        }
+        return response.contentType(MediaType.parseMediaType(APPLICATION_NDJSON))
+                .body(moods.handle((m, sink) -> {
+                    try {
+                        sink.next(objectMapper.writeValueAsString(m) + "\n");
+                    } catch (JsonProcessingException e) {
+                        sink.error(e);
+                    }
+                }));
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Mood>> createMood(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
+                                                 @RequestBody CreateMoodRequest req) {
+        return moodService.create(userId != null ? userId : "anonymous", req)
+                .map(created -> ResponseEntity.status(201).body(created));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<?>> createMoodBatch(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
+                                                   @RequestBody List<CreateMoodRequest> reqs) {
+        return moodService.createBatch(userId != null ? userId : "anonymous", reqs)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class, ReactiveMoodController::badRequest);
+    }
+
+    /**
+     * One CreateMoodRequest per line (NDJSON); decoding stops one line past the item limit.
+     */
+    @PostMapping(value = "/batch", consumes = APPLICATION_NDJSON)
+    public Mono<ResponseEntity<?>> createMoodBatchNdjson(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
+                                                         @RequestBody Flux<CreateMoodRequest> lines) {
+        int maxItems = moodBatchService.getMaxItems();
+        return lines.take(maxItems + 1L).collectList().flatMap(reqs -> reqs.size() > maxItems
+                ? Mono.just(ResponseEntity.badRequest().body(Collections.singletonMap("error", "Batch exceeds " + maxItems + " items")))
+                : createMoodBatch(userId, reqs));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<?>> updateMood(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              @PathVariable String id, @RequestBody CreateMoodRequest req) {
+        return moodService.update(userId != null ? userId : "anonymous", id, req, MoodService.expectedVersion(ifMatch))
+                .<ResponseEntity<?>>map(m -> ResponseEntity.ok().eTag(MoodService.etag(m)).body(m))
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(OptimisticLockingFailureException.class, ReactiveMoodController::preconditionFailed);
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<?>> deleteMood(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              @PathVariable String id) {
+        return moodService.delete(userId != null ? userId : "anonymous", id, MoodService.expectedVersion(ifMatch))
+                .<ResponseEntity<?>>map(deleted -> deleted ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build())
+                .onErrorResume(OptimisticLockingFailureException.class, ReactiveMoodController::preconditionFailed);
+    }
+
+    /**
+     * Ranges and streaks end today (UTC), so the ETag also changes when the day does.
+     */
+    @GetMapping("/analytics")
+    public Mono<ResponseEntity<?>> analytics(@RequestHeader(value = "X-Auth-User-ID", required = false) String userId,
+                                             @RequestParam(required = false) String range,
+                                             ServerWebExchange exchange) {
+        String owner = userId != null ? userId : "anonymous";
+        return etag(() -> moodVersions.etag(owner, LocalDate.now(ZoneOffset.UTC))).flatMap(etag -> {
+            if (exchange.checkNotModified(etag)) return Mono.empty();
+            return moodService.analytics(owner, range)
+                    .<ResponseEntity<?>>map(result -> ResponseEntity.ok().eTag(etag).body(result))
+                    .onErrorResume(IllegalArgumentException.class, ReactiveMoodController::badRequest);
+        });
+    }
+
+    // The version lookup is a blocking Mongo read, so it runs off the event loop.
+    private static Mono<String> etag(Callable<String> lookup) {
+        return Mono.fromCallable(lookup).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static Mono<ResponseEntity<?>> badRequest(IllegalArgumentException e) {
+        return Mono.just(ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage())));
+    }
+
+    private static Mono<ResponseEntity<?>> preconditionFailed(OptimisticLockingFailureException e) {
+        return Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(Collections.singletonMap("error", e.getMessage())));
+    }
+}
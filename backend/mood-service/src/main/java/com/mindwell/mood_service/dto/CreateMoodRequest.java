@@ -1,8 +1,15 @@
 package com.mindwell.mood_service.dto;
 
+import java.time.Instant;
+
 public class CreateMoodRequest {
     private int score;
     private String note;
+    private String emotion;
+    // Optional, used by offline sync: when the entry was recorded, and a client key that
+    // makes retries of the same entry idempotent.
+    private Instant createdAt;
+    private String idempotencyKey;
 
     public CreateMoodRequest() {}
 
@@ -26,4 +33,28 @@ public class CreateMoodRequest {
     public void setNote(String note) {
         this.note = note;
     }
+
+    public String getEmotion() {
+        return emotion;
+    }
+
+    public void setEmotion(String emotion) {
+        this.emotion = emotion;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
 }
@@ -0,0 +1,150 @@
+package com.mindwell.mood_service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response body of GET /api/mood/analytics, shaped after the frontend's MoodAnalytics model.
+ */
+public class MoodAnalytics {
+    private long totalEntries;
+    private double averageIntensity;
+    private int minIntensity;
+    private int maxIntensity;
+    private String mostCommonEmotion;
+    private int moodStreak;
+    private List<EmotionCount> emotionDistribution = new ArrayList<>();
+    private List<IntensityPoint> intensityOverTime = new ArrayList<>();
+
+    public MoodAnalytics() {}
+
+    public long getTotalEntries() {
+        return totalEntries;
+    }
+
+    public void setTotalEntries(long totalEntries) {
+        this.totalEntries = totalEntries;
+    }
+
+    public double getAverageIntensity() {
+        return averageIntensity;
+    }
+
+    public void setAverageIntensity(double averageIntensity) {
+        this.averageIntensity = averageIntensity;
+    }
+
+    public int getMinIntensity() {
+        return minIntensity;
+    }
+
+    public void setMinIntensity(int minIntensity) {
+        this.minIntensity = minIntensity;
+    }
+
+    public int getMaxIntensity() {
+        return maxIntensity;
+    }
+
+    public void setMaxIntensity(int maxIntensity) {
+        this.maxIntensity = maxIntensity;
+    }
+
+    public String getMostCommonEmotion() {
+        return mostCommonEmotion;
+    }
+
+    public void setMostCommonEmotion(String mostCommonEmotion) {
+        this.mostCommonEmotion = mostCommonEmotion;
+    }
+
+    public int getMoodStreak() {
+        return moodStreak;
+    }
+
+    public void setMoodStreak(int moodStreak) {
+        this.moodStreak = moodStreak;
+    }
+
+    public List<EmotionCount> getEmotionDistribution() {
+        return emotionDistribution;
+    }
+
+    public void setEmotionDistribution(List<EmotionCount> emotionDistribution) {
+        this.emotionDistribution = emotionDistribution;
+    }
+
+    public List<IntensityPoint> getIntensityOverTime() {
+        return intensityOverTime;
+    }
+
+    public void setIntensityOverTime(List<IntensityPoint> intensityOverTime) {
+        this.intensityOverTime = intensityOverTime;
+    }
+
+    public static class EmotionCount {
+        private String emotion;
+        private long count;
+        private double percentage;
+
+        public EmotionCount() {}
+
+        public EmotionCount(String emotion, long count, double percentage) {
+            this.emotion = emotion;
+            this.count = count;
+            this.percentage = percentage;
+        }
+
+        public String getEmotion() {
+            return emotion;
+        }
+
+        public void setEmotion(String emotion) {
+            this.emotion = emotion;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+
+        public double getPercentage() {
+            return percentage;
+        }
+
+        public void setPercentage(double percentage) {
+            this.percentage = percentage;
+        }
+    }
+
+    public static class IntensityPoint {
+        private String date;
+        private double intensity;
+
+        public IntensityPoint() {}
+
+        public IntensityPoint(String date, double intensity) {
+            this.date = date;
+            this.intensity = intensity;
+        }
+
+        public String getDate() {
+            return date;
+        }
+
+        public void setDate(String date) {
+            this.date = date;
+        }
+
+        public double getIntensity() {
+            return intensity;
+        }
+
+        public void setIntensity(double intensity) {
+            this.intensity = intensity;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.mindwell.mood_service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response body of POST /api/mood/batch: totals plus one result per submitted item, in order.
+ */
+public class MoodBatchResult {
+    public static final String CREATED = "created";
+    public static final String DUPLICATE = "duplicate";
+    public static final String INVALID = "invalid";
+    public static final String FAILED = "failed";
+
+    private int created;
+    private int duplicates;
+    private int invalid;
+    private int failed;
+    private List<Item> items = new ArrayList<>();
+
+    public MoodBatchResult() {}
+
+    public void add(Item item) {
+        items.add(item);
+    }
+
+    /**
+     * Recomputes the totals from the item statuses.
+     */
+    public MoodBatchResult summarize() {
+        created = duplicates = invalid = failed = 0;
+        for (Item item : items) {
+            switch (item.getStatus()) {
+                case CREATED: created++; break;
+                case DUPLICATE: duplicates++; break;
+                case INVALID: invalid++; break;
+                default: failed++;
+            }
+        }
+        return this;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public int getInvalid() {
+        return invalid;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public static class Item {
+        private int index;
+        private String status;
+        private String id;
+        private String idempotencyKey;
+        private String error;
+
+        public Item() {}
+
+        public Item(int index, String status, String id, String idempotencyKey, String error) {
+            this.index = index;
+            this.status = status;
+            this.id = id;
+            this.idempotencyKey = idempotencyKey;
+            this.error = error;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getIdempotencyKey() {
+            return idempotencyKey;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.mindwell.mood_service.dto;
+
+import com.mindwell.mood_service.model.Mood;
+
+import java.util.List;
+
+/**
+ * One page of a user's moods plus the cursor for the next page (null on the last page).
+ */
+public class MoodPage {
+    private final List<Mood> items;
+    private final String nextCursor;
+
+    public MoodPage(List<Mood> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Mood> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,93 @@
+package com.mindwell.mood_service.lease;
+
+import com.mindwell.mood_service.model.ServiceLease;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Single-owner leases in the service_leases collection, so background jobs that rewrite
+ * shared data (rollup compaction, archiving) run on one instance at a time. Acquiring is
+ * one atomic upsert that only matches a lease that is free, expired or already ours; a lease
+ * held by another instance makes the upsert collide on _id instead.
+ * <p>
+ * A holder must renew (acquire again) well within the duration and stop its work as soon as
+ * that fails: once a lease has expired another instance may take it over.
+ */
+@Component
+public class LeaseService {
+
+    private final MongoTemplate mongoTemplate;
+    private final Clock clock;
+    private final String owner;
+
+    @Autowired
+    public LeaseService(MongoTemplate mongoTemplate) {
+        this(mongoTemplate, Clock.systemUTC());
+    }
+
+    LeaseService(MongoTemplate mongoTemplate, Clock clock) {
+        this.mongoTemplate = mongoTemplate;
+        this.clock = clock;
+        this.owner = hostName() + "-" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Takes or renews the lease for the given duration.
+     *
+     * @return false if another instance holds it
+     */
+    public boolean acquire(String name, Duration duration) {
+        Instant now = clock.instant();
+        Query free = Query.query(Criteria.where("_id").is(name)
+                .orOperator(Criteria.where("owner").is(owner), Criteria.where("expiresAt").lt(now)));
+        Update take = new Update().set("owner", owner).set("expiresAt", now.plus(duration));
+        try {
+            mongoTemplate.findAndModify(free, take, FindAndModifyOptions.options().upsert(true).returnNew(true),
+                    ServiceLease.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gives the lease up early, if this instance still holds it.
+     */
+    public void release(String name) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(name).and("owner").is(owner)),
+                new Update().set("expiresAt", Instant.EPOCH), ServiceLease.class);
+    }
+
+    /**
+     * Gives the lease up and deletes its record, if this instance still holds it; for
+     * short-lived leases on many names, such as one per user.
+     */
+    public void remove(String name) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(name).and("owner").is(owner)), ServiceLease.class);
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "mood-service";
+        }
+    }
+}
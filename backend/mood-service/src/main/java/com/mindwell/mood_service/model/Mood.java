@@ -1,17 +1,29 @@
 package com.mindwell.mood_service.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.Instant;
 
 @Document(collection = "moods")
+// Backs the keyset-paginated per-user listing: userId equality, then (createdAt, _id) descending.
+@CompoundIndex(name = "user_created_id", def = "{'userId': 1, 'createdAt': -1, '_id': -1}")
+// Makes client-supplied idempotency keys unique per user so retried uploads cannot duplicate.
+@CompoundIndex(name = "user_idempotency_key", def = "{'userId': 1, 'idempotencyKey': 1}", unique = true,
+        partialFilter = "{ 'idempotencyKey': { '$exists': true } }")
 public class Mood {
     @Id
     private String id;
     private String userId;
     private int score; // e.g., 1-10 scale
     private String note;
+    private String emotion; // e.g., happy, sad, anxious
+    @Indexed(name = "created_at") // time-window scans by the rollup compactor
     private Instant createdAt;
+    private String idempotencyKey;
+    // Incremented by every update; documents written before it existed read as 0.
+    private long version;
 
     public Mood() {}
 
@@ -55,6 +67,14 @@ public class Mood {
         this.note = note;
     }
 
+    public String getEmotion() {
+        return emotion;
+    }
+
+    public void setEmotion(String emotion) {
+        this.emotion = emotion;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
@@ -62,4 +82,20 @@ public class Mood {
     public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
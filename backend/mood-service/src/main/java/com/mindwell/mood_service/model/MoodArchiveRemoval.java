@@ -0,0 +1,68 @@
+package com.mindwell.mood_service.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * A mood dropped from one archive run's segment: restored to the hot collection, or
+ * changed or deleted while being archived. Segments are immutable, so readers skip the
+ * mood instead. The id is the run and the mood id; a mood archived again later, by another
+ * run, is not affected.
+ */
+@Document(collection = "mood_archive_removed")
+public class MoodArchiveRemoval {
+
+    @Id
+    private String id;
+    @Indexed(name = "user") // skipped by every read of one user's archived moods
+    private String userId;
+    @Indexed(name = "run") // settling and recovering one archive run
+    private String run;
+    private String moodId;
+
+    public MoodArchiveRemoval() {}
+
+    public MoodArchiveRemoval(String run, String userId, String moodId) {
+        this.id = idOf(run, moodId);
+        this.run = run;
+        this.userId = userId;
+        this.moodId = moodId;
+    }
+
+    public static String idOf(String run, String moodId) {
+        return run + ":" + moodId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getRun() {
+        return run;
+    }
+
+    public void setRun(String run) {
+        this.run = run;
+    }
+
+    public String getMoodId() {
+        return moodId;
+    }
+
+    public void setMoodId(String moodId) {
+        this.moodId = moodId;
+    }
+}
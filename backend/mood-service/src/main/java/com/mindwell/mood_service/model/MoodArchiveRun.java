@@ -0,0 +1,81 @@
+package com.mindwell.mood_service.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * One archive run, the catalog entry of its segment file ({@code <id>.seg} in
+ * mood.archive.dir), which holds moods created before cutoff. A run is recorded
+ * before its segment is written, so the largest cutoff bounds everything that may be
+ * archived; the moods still archived are the moods of the readable runs minus their
+ * {@link MoodArchiveRemoval}s.
+ */
+@Document(collection = "mood_archive_runs")
+public class MoodArchiveRun {
+
+    public enum State {
+        /** The segment is being written; no hot mood has been deleted yet. */
+        WRITING,
+        /** The segment is readable; its moods are being deleted from the hot collection. */
+        PENDING,
+        SETTLED
+    }
+
+    @Id
+    private String id;
+    private Instant cutoff;
+    private State state;
+    private Instant startedAt;
+    private long moods;
+
+    public MoodArchiveRun() {}
+
+    public MoodArchiveRun(String id, Instant cutoff, Instant startedAt) {
+        this.id = id;
+        this.cutoff = cutoff;
+        this.state = State.WRITING;
+        this.startedAt = startedAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Instant getCutoff() {
+        return cutoff;
+    }
+
+    public void setCutoff(Instant cutoff) {
+        this.cutoff = cutoff;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public long getMoods() {
+        return moods;
+    }
+
+    public void setMoods(long moods) {
+        this.moods = moods;
+    }
+}
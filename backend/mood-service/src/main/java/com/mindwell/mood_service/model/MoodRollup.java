@@ -0,0 +1,121 @@
+package com.mindwell.mood_service.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-aggregated moods of one user over one UTC day, or one ISO week (Monday to Sunday,
+ * UTC). Histogram keys are score values and emotion names; week buckets also count the
+ * moods of each of their days, Monday first, so streaks can be followed through them.
+ */
+@Document(collection = "mood_rollups")
+// Per-user reads (analytics bootstrap) and per-period scans (compactor) respectively.
+@CompoundIndex(name = "user_granularity_period", def = "{'userId': 1, 'granularity': 1, 'periodStart': 1}")
+@CompoundIndex(name = "granularity_period_user", def = "{'granularity': 1, 'periodStart': 1, 'userId': 1}")
+public class MoodRollup {
+
+    public enum Granularity { DAY, WEEK }
+
+    @Id
+    private String id;
+    private String userId;
+    private Granularity granularity;
+    private Instant periodStart;
+    private long count;
+    private long sum;
+    private Map<String, Long> scores = new HashMap<>();
+    private Map<String, Long> emotions = new HashMap<>();
+    private List<Long> dayCounts = new ArrayList<>();
+
+    public MoodRollup() {}
+
+    public MoodRollup(String userId, Granularity granularity, Instant periodStart) {
+        this.id = idOf(userId, granularity, periodStart);
+        this.userId = userId;
+        this.granularity = granularity;
+        this.periodStart = periodStart;
+    }
+
+    public static String idOf(String userId, Granularity granularity, Instant periodStart) {
+        return userId + "|" + granularity.name().charAt(0) + "|" + periodStart.getEpochSecond();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Granularity getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(Granularity granularity) {
+        this.granularity = granularity;
+    }
+
+    public Instant getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(Instant periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public void setSum(long sum) {
+        this.sum = sum;
+    }
+
+    public Map<String, Long> getScores() {
+        return scores;
+    }
+
+    public void setScores(Map<String, Long> scores) {
+        this.scores = scores;
+    }
+
+    public Map<String, Long> getEmotions() {
+        return emotions;
+    }
+
+    public void setEmotions(Map<String, Long> emotions) {
+        this.emotions = emotions;
+    }
+
+    public List<Long> getDayCounts() {
+        return dayCounts;
+    }
+
+    public void setDayCounts(List<Long> dayCounts) {
+        this.dayCounts = dayCounts;
+    }
+}
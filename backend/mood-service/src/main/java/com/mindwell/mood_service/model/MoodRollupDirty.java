@@ -0,0 +1,57 @@
+package com.mindwell.mood_service.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * A daily rollup bucket whose moods changed after its day was sealed, so it must be
+ * recomputed from the raw moods. Shares its id with the bucket; seq grows with every change,
+ * so a recompute only clears the marker if nothing changed while it ran.
+ */
+@Document(collection = "mood_rollup_dirty")
+@CompoundIndex(name = "user_period", def = "{'userId': 1, 'periodStart': 1}")
+public class MoodRollupDirty {
+
+    @Id
+    private String id;
+    private String userId;
+    private Instant periodStart;
+    private long seq;
+
+    public MoodRollupDirty() {}
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Instant getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(Instant periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+}
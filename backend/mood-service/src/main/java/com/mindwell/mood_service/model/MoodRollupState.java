@@ -0,0 +1,58 @@
+package com.mindwell.mood_service.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Progress of the rollup compactor: every mood with createdAt before the high-water mark
+ * is already reflected in mood_rollups, except in buckets marked dirty. Changes to moods
+ * created before sealedUntil (the end of the days the current run builds) mark their
+ * bucket dirty; sealedUntil is never behind the high-water mark. Every week that ended
+ * before weeksUntil (a Monday, never past the high-water mark) has its week buckets.
+ */
+@Document(collection = "mood_rollup_state")
+public class MoodRollupState {
+    public static final String MOODS = "moods";
+
+    @Id
+    private String id;
+    private Instant highWaterMark;
+    private Instant sealedUntil;
+    private Instant weeksUntil;
+
+    public MoodRollupState() {}
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Instant getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    public void setHighWaterMark(Instant highWaterMark) {
+        this.highWaterMark = highWaterMark;
+    }
+
+    public Instant getSealedUntil() {
+        return sealedUntil;
+    }
+
+    public void setSealedUntil(Instant sealedUntil) {
+        this.sealedUntil = sealedUntil;
+    }
+
+    public Instant getWeeksUntil() {
+        return weeksUntil;
+    }
+
+    public void setWeeksUntil(Instant weeksUntil) {
+        this.weeksUntil = weeksUntil;
+    }
+}
@@ -0,0 +1,54 @@
+package com.mindwell.mood_service.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * How many mood shards every user has been placed on, kept in the default database so
+ * that all instances, and restarts, agree on whether a rebalance is still due. Written
+ * when a deployment first runs sharded and after each completed rebalance.
+ */
+@Document(collection = "mood_shard_layout")
+public class MoodShardLayout {
+
+    public static final String ID = "moods";
+
+    @Id
+    private String id;
+    private int settledShards;
+    private Instant settledAt;
+
+    public MoodShardLayout() {}
+
+    public MoodShardLayout(int settledShards, Instant settledAt) {
+        this.id = ID;
+        this.settledShards = settledShards;
+        this.settledAt = settledAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public int getSettledShards() {
+        return settledShards;
+    }
+
+    public void setSettledShards(int settledShards) {
+        this.settledShards = settledShards;
+    }
+
+    public Instant getSettledAt() {
+        return settledAt;
+    }
+
+    public void setSettledAt(Instant settledAt) {
+        this.settledAt = settledAt;
+    }
+}
@@ -0,0 +1,66 @@
+package com.mindwell.mood_service.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Records that one user's moods were moved onto their shard in the layout of the given
+ * number of shards. Written by the instance that moved them before it deletes the old copies;
+ * every instance checks it before serving a user that may still be on its previous shard.
+ */
+@Document(collection = "mood_shard_moves")
+public class MoodShardMove {
+
+    @Id
+    private String id;
+    private int shards;
+    private String userId;
+    private Instant movedAt;
+
+    public MoodShardMove() {}
+
+    public MoodShardMove(int shards, String userId, Instant movedAt) {
+        this.id = idOf(shards, userId);
+        this.shards = shards;
+        this.userId = userId;
+        this.movedAt = movedAt;
+    }
+
+    public static String idOf(int shards, String userId) {
+        return shards + "|" + userId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Instant getMovedAt() {
+        return movedAt;
+    }
+
+    public void setMovedAt(Instant movedAt) {
+        this.movedAt = movedAt;
+    }
+}
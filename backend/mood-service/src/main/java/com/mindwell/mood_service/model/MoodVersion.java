@@ -0,0 +1,46 @@
+package com.mindwell.mood_service.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Change counter of one user's moods, shared by all instances: incremented after every
+ * stored write. since is set when the document is created, so counters that start over
+ * (the collection was dropped) never repeat an earlier tag.
+ */
+@Document(collection = "mood_versions")
+public class MoodVersion {
+
+    @Id
+    private String id;
+    private long version;
+    private Instant since;
+
+    public MoodVersion() {}
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public Instant getSince() {
+        return since;
+    }
+
+    public void setSince(Instant since) {
+        this.since = since;
+    }
+}
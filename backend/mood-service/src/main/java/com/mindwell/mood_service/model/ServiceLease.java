@@ -0,0 +1,45 @@
+package com.mindwell.mood_service.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * A named job that must run on one mood-service instance at a time, held by owner until
+ * expiresAt unless renewed.
+ */
+@Document(collection = "service_leases")
+public class ServiceLease {
+
+    @Id
+    private String id;
+    private String owner;
+    private Instant expiresAt;
+
+    public ServiceLease() {}
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,53 @@
+package com.mindwell.mood_service.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hashing of user ids onto shards 0..n-1. Each shard owns a number of virtual
+ * nodes on a 64-bit ring, keyed by its index; a key belongs to the first node at or after
+ * its own hash. Appending shard n therefore only takes keys away from existing shards, about
+ * 1/(n+1) of them, and never moves keys between the old ones.
+ */
+public final class ConsistentHashRing {
+
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+    private final int shards;
+
+    public ConsistentHashRing(int shards, int virtualNodes) {
+        if (shards < 1) throw new IllegalArgumentException("At least one shard is required");
+        this.shards = shards;
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < Math.max(1, virtualNodes); node++) {
+                ring.put(hash("shard-" + shard + "#" + node), shard);
+            }
+        }
+    }
+
+    public int size() {
+        return shards;
+    }
+
+    public int shardFor(String key) {
+        if (shards == 1) return 0;
+        Map.Entry<Long, Integer> node = ring.ceilingEntry(hash(key != null ? key : ""));
+        return (node != null ? node : ring.firstEntry()).getValue();
+    }
+
+    // First 8 bytes of MD5: stable across JVMs and releases, unlike String.hashCode mixing.
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (digest[i] & 0xff);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,39 +1,498 @@
 package com.mindwell.mood_service.repository;
 
 import com.mindwell.mood_service.model.Mood;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import org.springframework.stereotype.Repository;
-
+/**
+ * Mongo-free mood store for edge and demo deployments; activate with the "inmemory" profile.
+ * Moods are kept only in this process unless a {@link MoodJournal} is configured
+ * (mood.inmemory.persistence.enabled=true), which logs every change and restores the store
+ * on startup.
+ * <p>
+ * Besides the map by id, moods are indexed by (createdAt, id) descending, once across all
+ * users and once per user, so listings, keyset pages and time ranges are a O(log n) seek
+ * followed by an in-order walk. Writes to one id are serialized by a striped lock, which
+ * keeps the indexes in step with the id map; reads take no locks. Like Mongo, the store hands
+ * out copies, so callers mutating a result never change stored data. Query by example is
+ * evaluated by scanning the moods (of the probe's user, when it names one).
+ */
 @Repository
-public class InMemoryMoodRepository {
-    private final Map<String, Mood> store = new ConcurrentHashMap<>();
+@Primary
+@Profile("inmemory")
+public class InMemoryMoodRepository implements MongoMoodRepository {
 
-    public List<Mood> findAll() {
-        return new ArrayList<>(store.values()).stream()
-                .sorted(Comparator.comparing(Mood::getCreatedAt).reversed())
+    private static final int LOCK_STRIPES = 64;
+    // Moods without a userId are indexed under this key.
+    private static final String NO_USER = "";
+
+    private static final Comparator<Key> NEWEST_FIRST = Comparator
+            .comparing((Key k) -> k.createdAt, Comparator.nullsFirst(Comparator.<Instant>naturalOrder()))
+            .thenComparing(k -> k.id)
+            .reversed();
+    // Range views of Collections.emptyNavigableMap() would compare Keys naturally.
+    private static final NavigableMap<Key, Mood> NO_MOODS = Collections.unmodifiableNavigableMap(new TreeMap<>(NEWEST_FIRST));
+
+    private final Map<String, Mood> byId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Key, Mood> all = new ConcurrentSkipListMap<>(NEWEST_FIRST);
+    private final Map<String, ConcurrentSkipListMap<Key, Mood>> byUser = new ConcurrentHashMap<>();
+    // userId + idempotencyKey -> mood id, mirroring the unique user_idempotency_key index.
+    private final Map<String, String> idempotencyKeys = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final MoodJournal journal;
+
+    public InMemoryMoodRepository() {
+        this(null);
+    }
+
+    /**
+     * @param journal log to recover the store from and to record every change in, or null
+     *                to keep moods only in memory
+     */
+    @Autowired
+    public InMemoryMoodRepository(@Nullable MoodJournal journal) {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        this.journal = journal;
+        if (journal != null) journal.recover(byId::values, this::restore, this::restoreDeleted);
+    }
+
+    // ---- Derived and custom queries ----
+
+    @Override
+    public List<Mood> findByUserId(String userId) {
+        return copies(userMoods(userId).values().stream());
+    }
+
+    @Override
+    public List<Mood> findByUserIdAndCreatedAtGreaterThanEqual(String userId, Instant createdAt) {
+        return copies(userMoods(userId).headMap(new Key(createdAt, ""), true).values().stream());
+    }
+
+    @Override
+    public List<Mood> findCreatedBetween(String userId, Instant from, Instant to) {
+        return copies(userMoods(userId).subMap(new Key(to, ""), false, new Key(from, ""), true).values().stream());
+    }
+
+    @Override
+    public Optional<Mood> findByUserIdAndIdempotencyKey(String userId, String idempotencyKey) {
+        String id = idempotencyKeys.get(idempotencyKeyOf(userId, idempotencyKey));
+        return id == null ? Optional.empty() : findById(id);
+    }
+
+    @Override
+    public List<Mood> findByUserIdAndIdempotencyKeyIn(String userId, Collection<String> idempotencyKeys) {
+        List<Mood> result = new ArrayList<>();
+        for (String key : new LinkedHashSet<>(idempotencyKeys)) {
+            findByUserIdAndIdempotencyKey(userId, key).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Mood> findByUserId(String userId, Pageable pageable) {
+        return query(userMoods(userId).values(), pageable);
+    }
+
+    @Override
+    public List<Mood> findPageAfter(String userId, Instant createdAt, Object id, Pageable pageable) {
+        return query(userMoods(userId).tailMap(new Key(createdAt, id.toString()), false).values(), pageable);
+    }
+
+    @Override
+    public Stream<Mood> streamByUserIdOrderByCreatedAtAsc(String userId) {
+        return userMoods(userId).descendingMap().values().stream().map(InMemoryMoodRepository::copy);
+    }
+
+    @Override
+    public List<Mood> findByCreatedAtLessThan(Instant createdAt, Pageable pageable) {
+        // Like $lt, never matches moods without a createdAt (which sort last here).
+        return query(all.tailMap(new Key(createdAt, ""), false).values().stream()
+                .filter(m -> m.getCreatedAt() != null).collect(Collectors.toList()), pageable);
+    }
+
+    @Override
+    public List<String> findUserIdsAfter(String after, int limit) {
+        return byUser.keySet().stream()
+                .filter(u -> !u.equals(NO_USER) && (after == null || u.compareTo(after) > 0))
+                .sorted()
+                .limit(limit)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public MoodInsertResult insertUnordered(List<Mood> moods) {
+        MoodInsertResult result = new MoodInsertResult();
+        for (int i = 0; i < moods.size(); i++) {
+            try {
+                write(moods.get(i), true);
+            } catch (DuplicateKeyException e) {
+                result.duplicate(i);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long deleteIfUnchanged(List<Mood> moods) {
+        long deleted = 0;
+        for (Mood m : moods) {
+            if (deleteIfMatches(m.getId(), m.getUserId(), m.getVersion()).isPresent()) deleted++;
+        }
+        return deleted;
+    }
+
+    @Override
+    public Optional<Mood> updateIfMatches(String id, String userId, Long expectedVersion, int score, String note, String emotion) {
+        synchronized (lockFor(id)) {
+            Mood current = byId.get(id);
+            if (!matches(current, userId, expectedVersion)) return Optional.empty();
+            Mood updated = copy(current);
+            updated.setScore(score);
+            updated.setNote(note);
+            if (emotion != null) updated.setEmotion(emotion);
+            updated.setVersion(current.getVersion() + 1);
+            write(updated, false);
+            // Stored moods are replaced, never mutated, so current is still the old version.
+            return Optional.of(copy(current));
+        }
+    }
+
+    @Override
+    public Optional<Mood> deleteIfMatches(String id, String userId, Long expectedVersion) {
+        synchronized (lockFor(id)) {
+            Mood current = byId.get(id);
+            if (!matches(current, userId, expectedVersion)) return Optional.empty();
+            deleteById(id);
+            return Optional.of(copy(current));
+        }
+    }
+
+    // ---- CRUD ----
+
+    @Override
+    public <S extends Mood> S save(S entity) {
+        write(entity, false);
+        return entity;
+    }
+
+    @Override
+    public <S extends Mood> List<S> saveAll(Iterable<S> entities) {
+        List<S> result = new ArrayList<>();
+        entities.forEach(e -> result.add(save(e)));
+        return result;
+    }
+
+    @Override
+    public <S extends Mood> S insert(S entity) {
+        write(entity, true);
+        return entity;
+    }
+
+    @Override
+    public <S extends Mood> List<S> insert(Iterable<S> entities) {
+        List<S> result = new ArrayList<>();
+        entities.forEach(e -> result.add(insert(e)));
+        return result;
+    }
+
+    @Override
     public Optional<Mood> findById(String id) {
-        return Optional.ofNullable(store.get(id));
+        Mood m = byId.get(id);
+        return m == null ? Optional.empty() : Optional.of(copy(m));
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return byId.containsKey(id);
     }
 
-    public Mood save(Mood mood) {
-        store.put(mood.getId(), mood);
-        return mood;
+    @Override
+    public List<Mood> findAll() {
+        return copies(all.values().stream());
+    }
+
+    @Override
+    public List<Mood> findAll(Sort sort) {
+        return query(all.values(), Pageable.unpaged(), sort);
     }
 
+    @Override
+    public Page<Mood> findAll(Pageable pageable) {
+        return new PageImpl<>(query(all.values(), pageable), pageable, count());
+    }
+
+    @Override
+    public List<Mood> findAllById(Iterable<String> ids) {
+        List<Mood> result = new ArrayList<>();
+        ids.forEach(id -> findById(id).ifPresent(result::add));
+        return result;
+    }
+
+    @Override
+    public long count() {
+        return byId.size();
+    }
+
+    @Override
     public void deleteById(String id) {
-        store.remove(id);
+        synchronized (lockFor(id)) {
+            Mood current = byId.get(id);
+            if (current == null) return;
+            if (journal != null) journal.deleted(id, () -> remove(current));
+            else remove(current);
+        }
     }
 
-    public List<Mood> findByUserId(String userId) {
-        return store.values().stream()
-                .filter(m -> m.getUserId() != null && m.getUserId().equals(userId))
-                .sorted(Comparator.comparing(Mood::getCreatedAt).reversed())
-                .collect(Collectors.toList());
+    @Override
+    public void delete(Mood entity) {
+        deleteById(entity.getId());
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Mood> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        byId.keySet().forEach(this::deleteById);
+    }
+
+    // ---- Query by example ----
+
+    @Override
+    public <S extends Mood> Optional<S> findOne(Example<S> example) {
+        return findBy(example, FluentQuery.FetchableFluentQuery::first);
+    }
+
+    @Override
+    public <S extends Mood> List<S> findAll(Example<S> example) {
+        return findBy(example, FluentQuery.FetchableFluentQuery::all);
+    }
+
+    @Override
+    public <S extends Mood> List<S> findAll(Example<S> example, Sort sort) {
+        return findBy(example, q -> q.sortBy(sort).all());
+    }
+
+    @Override
+    public <S extends Mood> Page<S> findAll(Example<S> example, Pageable pageable) {
+        return findBy(example, q -> q.page(pageable));
+    }
+
+    @Override
+    public <S extends Mood> long count(Example<S> example) {
+        return findBy(example, FluentQuery.FetchableFluentQuery::count);
+    }
+
+    @Override
+    public <S extends Mood> boolean exists(Example<S> example) {
+        return findBy(example, FluentQuery.FetchableFluentQuery::exists);
+    }
+
+    /**
+     * Evaluated against the stored moods (see {@link MoodExamples}); without a sort, results
+     * come newest first. A probe with a userId only walks that user's index.
+     */
+    @Override
+    public <S extends Mood, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        String userId = MoodExamples.exactUserId(example);
+        Collection<Mood> rows = userId != null ? userMoods(userId).values() : all.values();
+        return queryFunction.apply(MoodExamples.query(example, rows::stream, InMemoryMoodRepository::copy));
+    }
+
+    // ---- Internals ----
+
+    private void write(Mood mood, boolean insertOnly) {
+        if (mood.getId() == null) mood.setId(new ObjectId().toHexString());
+        Mood stored = copy(mood);
+        String id = stored.getId();
+        synchronized (lockFor(id)) {
+            Mood previous = byId.get(id);
+            if (previous != null && insertOnly) {
+                throw new DuplicateKeyException("Duplicate mood id: " + id);
+            }
+            String newKey = stored.getIdempotencyKey() == null ? null
+                    : idempotencyKeyOf(stored.getUserId(), stored.getIdempotencyKey());
+            boolean claimed = false;
+            if (newKey != null) {
+                String owner = idempotencyKeys.putIfAbsent(newKey, id);
+                if (owner != null && !owner.equals(id)) {
+                    throw new DuplicateKeyException("Duplicate idempotency key for user " + stored.getUserId());
+                }
+                claimed = owner == null;
+            }
+            if (journal == null) {
+                store(stored, previous);
+                return;
+            }
+            try {
+                journal.saved(stored, () -> store(stored, previous));
+            } catch (RuntimeException e) {
+                if (claimed) idempotencyKeys.remove(newKey, id);
+                throw e;
+            }
+        }
+    }
+
+    // Applies a write whose new idempotency key, if any, is already claimed.
+    private void store(Mood stored, Mood previous) {
+        String id = stored.getId();
+        if (previous != null && previous.getIdempotencyKey() != null) {
+            String oldKey = idempotencyKeyOf(previous.getUserId(), previous.getIdempotencyKey());
+            String newKey = stored.getIdempotencyKey() == null ? null
+                    : idempotencyKeyOf(stored.getUserId(), stored.getIdempotencyKey());
+            if (!oldKey.equals(newKey)) idempotencyKeys.remove(oldKey, id);
+        }
+        byId.put(id, stored);
+        // Index the new version before dropping the old one so readers never miss the mood.
+        index(stored);
+        if (previous != null && !sameIndexSlot(previous, stored)) unindex(previous);
+    }
+
+    private void remove(Mood current) {
+        String id = current.getId();
+        byId.remove(id);
+        unindex(current);
+        if (current.getIdempotencyKey() != null) {
+            idempotencyKeys.remove(idempotencyKeyOf(current.getUserId(), current.getIdempotencyKey()), id);
+        }
+    }
+
+    // Recovery: replays logged states without checks, since a snapshot may briefly hold a key twice.
+    private void restore(Mood mood) {
+        if (mood.getIdempotencyKey() != null) {
+            idempotencyKeys.put(idempotencyKeyOf(mood.getUserId(), mood.getIdempotencyKey()), mood.getId());
+        }
+        store(mood, byId.get(mood.getId()));
+    }
+
+    private void restoreDeleted(String id) {
+        Mood current = byId.get(id);
+        if (current != null) remove(current);
+    }
+
+    private void index(Mood m) {
+        Key key = Key.of(m);
+        all.put(key, m);
+        byUser.compute(userKey(m.getUserId()), (u, moods) -> {
+            if (moods == null) moods = new ConcurrentSkipListMap<>(NEWEST_FIRST);
+            moods.put(key, m);
+            return moods;
+        });
+    }
+
+    private void unindex(Mood m) {
+        Key key = Key.of(m);
+        all.remove(key);
+        byUser.computeIfPresent(userKey(m.getUserId()), (u, moods) -> {
+            moods.remove(key);
+            return moods.isEmpty() ? null : moods;
+        });
+    }
+
+    private static boolean matches(Mood m, String userId, Long expectedVersion) {
+        return m != null && Objects.equals(m.getUserId(), userId)
+                && (expectedVersion == null || m.getVersion() == expectedVersion);
+    }
+
+    private static boolean sameIndexSlot(Mood a, Mood b) {
+        return Objects.equals(a.getUserId(), b.getUserId()) && Objects.equals(a.getCreatedAt(), b.getCreatedAt());
+    }
+
+    private NavigableMap<Key, Mood> userMoods(String userId) {
+        NavigableMap<Key, Mood> moods = byUser.get(userKey(userId));
+        return moods != null ? moods : NO_MOODS;
+    }
+
+    private Object lockFor(String id) {
+        return locks[Math.floorMod(id.hashCode(), LOCK_STRIPES)];
+    }
+
+    private List<Mood> query(Collection<Mood> newestFirst, Pageable pageable) {
+        return query(newestFirst, pageable, pageable.getSort());
+    }
+
+    /**
+     * Pages through rows already in index order; any other sort falls back to sorting them.
+     */
+    private static List<Mood> query(Collection<Mood> newestFirst, Pageable pageable, Sort sort) {
+        Stream<Mood> rows = newestFirst.stream();
+        if (sort.isSorted() && !isIndexOrder(sort)) rows = rows.sorted(MoodSorts.comparator(sort));
+        if (pageable.isPaged()) rows = rows.skip(pageable.getOffset()).limit(pageable.getPageSize());
+        return copies(rows);
+    }
+
+    private static boolean isIndexOrder(Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        if (orders.isEmpty() || orders.size() > 2) return false;
+        Sort.Order first = orders.get(0);
+        if (!first.getProperty().equals("createdAt") || first.isAscending()) return false;
+        if (orders.size() == 1) return true;
+        Sort.Order second = orders.get(1);
+        return (second.getProperty().equals("id") || second.getProperty().equals("_id")) && second.isDescending();
+    }
+
+    private static List<Mood> copies(Stream<Mood> rows) {
+        return rows.map(InMemoryMoodRepository::copy).collect(Collectors.toList());
+    }
+
+    private static Mood copy(Mood m) {
+        Mood c = new Mood(m.getId(), m.getUserId(), m.getScore(), m.getNote(), m.getCreatedAt());
+        c.setEmotion(m.getEmotion());
+        c.setIdempotencyKey(m.getIdempotencyKey());
+        c.setVersion(m.getVersion());
+        return c;
+    }
+
+    private static String userKey(String userId) {
+        return userId != null ? userId : NO_USER;
+    }
+
+    private static String idempotencyKeyOf(String userId, String idempotencyKey) {
+        return userKey(userId) + '\u0000' + idempotencyKey;
+    }
+
+    /**
+     * Index entry position; under NEWEST_FIRST undated moods sort last.
+     */
+    private static final class Key {
+        final Instant createdAt;
+        final String id;
+
+        Key(Instant createdAt, String id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        static Key of(Mood m) {
+            return new Key(m.getCreatedAt(), m.getId());
+        }
     }
 }
@@ -1,12 +1,54 @@
 package com.mindwell.mood_service.repository;
 
 import com.mindwell.mood_service.model.Mood;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface MongoMoodRepository extends MongoRepository<Mood, String> {
+public interface MongoMoodRepository extends MongoRepository<Mood, String>, MoodBulkOperations, MoodConditionalWrites {
     List<Mood> findByUserId(String userId);
+
+    List<Mood> findByUserIdAndCreatedAtGreaterThanEqual(String userId, Instant createdAt);
+
+    /**
+     * A user's moods created in [from, to), newest first.
+     */
+    @Query(value = "{ 'userId': ?0, 'createdAt': { '$gte': ?1, '$lt': ?2 } }", sort = "{ 'createdAt': -1, '_id': -1 }")
+    List<Mood> findCreatedBetween(String userId, Instant from, Instant to);
+
+    Optional<Mood> findByUserIdAndIdempotencyKey(String userId, String idempotencyKey);
+
+    List<Mood> findByUserIdAndIdempotencyKeyIn(String userId, Collection<String> idempotencyKeys);
+
+    /**
+     * First page of a user's moods; pass a pageable sorted by createdAt and id descending.
+     */
+    List<Mood> findByUserId(String userId, Pageable pageable);
+
+    /**
+     * Keyset page: the moods strictly after the (createdAt, id) cursor in descending order.
+     * Served by the user_created_id index without skipping over earlier pages.
+     */
+    @Query("{ 'userId': ?0, '$or': [ { 'createdAt': { '$lt': ?1 } }, { 'createdAt': ?1, '_id': { '$lt': ?2 } } ] }")
+    List<Mood> findPageAfter(String userId, Instant createdAt, Object id, Pageable pageable);
+
+    /**
+     * Cursor-backed stream of a user's moods, oldest first. The caller must close it.
+     */
+    @Meta(cursorBatchSize = 500)
+    Stream<Mood> streamByUserIdOrderByCreatedAtAsc(String userId);
+
+    /**
+     * Moods created before the instant; the archiver pages through these oldest first.
+     */
+    List<Mood> findByCreatedAtLessThan(Instant createdAt, Pageable pageable);
 }
@@ -0,0 +1,71 @@
+package com.mindwell.mood_service.repository;
+
+import com.mindwell.mood_service.lease.LeaseService;
+import com.mindwell.mood_service.model.MoodShardMove;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * {@link ShardMoves} shared through the default database: a {@link LeaseService} lease per
+ * user being moved, and a {@link MoodShardMove} record per user moved into the layout of
+ * the configured number of shards.
+ */
+public class MongoShardMoves implements ShardMoves {
+
+    private static final String LEASE_PREFIX = "mood-shard-move:";
+
+    private final MongoTemplate mongoTemplate;
+    private final LeaseService leases;
+    private final int shards;
+    private final Duration leaseDuration;
+    private final Clock clock = Clock.systemUTC();
+
+    /**
+     * @param mongoTemplate the default database
+     * @param shards        how many shards the users are being moved onto
+     */
+    public MongoShardMoves(MongoTemplate mongoTemplate, LeaseService leases, int shards, Duration leaseDuration) {
+        this.mongoTemplate = mongoTemplate;
+        this.leases = leases;
+        this.shards = shards;
+        this.leaseDuration = leaseDuration;
+    }
+
+    @Override
+    public boolean isMoved(String userKey) {
+        return mongoTemplate.exists(Query.query(Criteria.where("_id").is(MoodShardMove.idOf(shards, userKey))),
+                MoodShardMove.class);
+    }
+
+    @Override
+    public boolean acquire(String userKey) {
+        return leases.acquire(lease(userKey), leaseDuration);
+    }
+
+    @Override
+    public void markMoved(String userKey) {
+        mongoTemplate.save(new MoodShardMove(shards, userKey, clock.instant()));
+    }
+
+    @Override
+    public void release(String userKey) {
+        leases.remove(lease(userKey));
+    }
+
+    /**
+     * Drops the move records of layouts up to the given number of shards, once every user
+     * is placed on them. An instance that has not noticed yet finds a user's previous shard
+     * empty and records the move again.
+     */
+    public static void forgetSettled(MongoTemplate mongoTemplate, int settledShards) {
+        mongoTemplate.remove(Query.query(Criteria.where("shards").lte(settledShards)), MoodShardMove.class);
+    }
+
+    private String lease(String userKey) {
+        return LEASE_PREFIX + shards + ":" + userKey;
+    }
+}
@@ -0,0 +1,33 @@
+package com.mindwell.mood_service.repository;
+
+import com.mindwell.mood_service.model.Mood;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Unordered multi-insert and multi-delete, and paging through the users of a store,
+ * implemented natively by each mood store.
+ */
+public interface MoodBulkOperations {
+
+    /**
+     * Inserts all moods (ids already assigned), continuing past failed entries.
+     * Store-wide failures (e.g. the database is unreachable) are thrown as DataAccessException.
+     */
+    MoodInsertResult insertUnordered(List<Mood> moods);
+
+    /**
+     * Deletes each mood that is still at its version, leaving ones changed in the meantime.
+     *
+     * @return how many were deleted
+     */
+    long deleteIfUnchanged(List<Mood> moods);
+
+    /**
+     * Up to limit distinct user ids greater than after (all when null), in ascending order;
+     * the shard rebalancer pages through a shard's users with these. Moods without a user
+     * are skipped.
+     */
+    List<String> findUserIdsAfter(@Nullable String after, int limit);
+}
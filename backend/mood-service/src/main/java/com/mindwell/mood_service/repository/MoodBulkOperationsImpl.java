@@ -0,0 +1,78 @@
+package com.mindwell.mood_service.repository;
+
+import com.mindwell.mood_service.model.Mood;
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mongo fragment of {@link MongoMoodRepository}: one unordered bulk write per call.
+ */
+class MoodBulkOperationsImpl implements MoodBulkOperations {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+
+    MoodBulkOperationsImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public MoodInsertResult insertUnordered(List<Mood> moods) {
+        MoodInsertResult result = new MoodInsertResult();
+        if (moods.isEmpty()) return result;
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Mood.class);
+            bulk.insert(moods);
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() == DUPLICATE_KEY) {
+                    result.duplicate(error.getIndex());
+                } else {
+                    result.failed(error.getIndex(), error.getMessage());
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long deleteIfUnchanged(List<Mood> moods) {
+        if (moods.isEmpty()) return 0;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Mood.class);
+        for (Mood m : moods) {
+            bulk.remove(MoodConditionalWritesImpl.matching(m.getId(), m.getUserId(), m.getVersion()));
+        }
+        return bulk.execute().getDeletedCount();
+    }
+
+    /**
+     * One seek on the userId index prefix per user, so a page costs limit small queries
+     * however many moods its users have.
+     */
+    @Override
+    public List<String> findUserIdsAfter(String after, int limit) {
+        List<String> users = new ArrayList<>(limit);
+        String cursor = after;
+        while (users.size() < limit) {
+            // $gte "" matches every string userId and no null one.
+            Query next = Query.query(cursor == null ? Criteria.where("userId").gte("") : Criteria.where("userId").gt(cursor))
+                    .with(Sort.by("userId")).limit(1);
+            next.fields().include("userId");
+            Mood mood = mongoTemplate.findOne(next, Mood.class);
+            if (mood == null) break;
+            cursor = mood.getUserId();
+            users.add(cursor);
+        }
+        return users;
+    }
+}
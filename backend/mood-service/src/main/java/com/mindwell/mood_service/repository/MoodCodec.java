@@ -0,0 +1,66 @@
+package com.mindwell.mood_service.repository;
+
+import com.mindwell.mood_service.model.Mood;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Compact binary form of a mood, shared by the stored formats (archive blocks, the
+ * in-memory store's journal and snapshots). Strings are length-prefixed UTF-8 with -1 for
+ * null, so unlike writeUTF they are not limited to 64 KB; times keep full precision.
+ */
+public final class MoodCodec {
+
+    private MoodCodec() {
+    }
+
+    public static void write(DataOutput out, Mood m) throws IOException {
+        writeString(out, m.getId());
+        writeString(out, m.getUserId());
+        Instant createdAt = m.getCreatedAt();
+        out.writeBoolean(createdAt != null);
+        if (createdAt != null) {
+            out.writeLong(createdAt.getEpochSecond());
+            out.writeInt(createdAt.getNano());
+        }
+        out.writeInt(m.getScore());
+        writeString(out, m.getNote());
+        writeString(out, m.getEmotion());
+        writeString(out, m.getIdempotencyKey());
+        out.writeLong(m.getVersion());
+    }
+
+    public static Mood read(ByteBuffer in) {
+        String id = readString(in);
+        String userId = readString(in);
+        Instant createdAt = in.get() != 0 ? Instant.ofEpochSecond(in.getLong(), in.getInt()) : null;
+        Mood m = new Mood(id, userId, in.getInt(), null, createdAt);
+        m.setNote(readString(in));
+        m.setEmotion(readString(in));
+        m.setIdempotencyKey(readString(in));
+        m.setVersion(in.getLong());
+        return m;
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(ByteBuffer in) {
+        int n = in.getInt();
+        if (n < 0) return null;
+        byte[] bytes = new byte[n];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,25 @@
+package com.mindwell.mood_service.repository;
+
+import com.mindwell.mood_service.model.Mood;
+
+import java.util.Optional;
+
+/**
+ * Single-round-trip conditional update and delete of one mood, implemented natively by each
+ * mood store. A mood matches when it has the id, belongs to the user and, if an expected
+ * version is given, is at that version.
+ */
+public interface MoodConditionalWrites {
+
+    /**
+     * Sets score, note and (when non-null) emotion on the matching mood and increments its
+     * version, atomically. Returns the mood as it was before the update, or empty if no mood
+     * matched.
+     */
+    Optional<Mood> updateIfMatches(String id, String userId, Long expectedVersion, int score, String note, String emotion);
+
+    /**
+     * Deletes the matching mood atomically. Returns the deleted mood, or empty if no mood matched.
+     */
+    Optional<Mood> deleteIfMatches(String id, String userId, Long expectedVersion);
+}
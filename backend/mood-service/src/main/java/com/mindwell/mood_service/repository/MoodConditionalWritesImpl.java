@@ -0,0 +1,51 @@
+package com.mindwell.mood_service.repository;
+
+import com.mindwell.mood_service.model.Mood;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Optional;
+
+/**
+ * Mongo fragment of {@link MongoMoodRepository}: one findAndModify or findAndRemove per call,
+ * so the match and the write cannot be interleaved with another writer.
+ */
+class MoodConditionalWritesImpl implements MoodConditionalWrites {
+
+    private final MongoTemplate mongoTemplate;
+
+    MoodConditionalWritesImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Optional<Mood> updateIfMatches(String id, String userId, Long expectedVersion, int score, String note, String emotion) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(matching(id, userId, expectedVersion),
+                changes(score, note, emotion), FindAndModifyOptions.options().returnNew(false), Mood.class));
+    }
+
+    @Override
+    public Optional<Mood> deleteIfMatches(String id, String userId, Long expectedVersion) {
+        return Optional.ofNullable(mongoTemplate.findAndRemove(matching(id, userId, expectedVersion), Mood.class));
+    }
+
+    static Query matching(String id, String userId, Long expectedVersion) {
+        Criteria criteria = Criteria.where("id").is(id).and("userId").is(userId);
+        if (expectedVersion != null && expectedVersion == 0) {
+            // Moods stored before versioning have no version field.
+            criteria.orOperator(Criteria.where("version").is(0L), Criteria.where("version").exists(false));
+        } else if (expectedVersion != null) {
+            criteria.and("version").is(expectedVersion);
+        }
+        return new Query(criteria);
+    }
+
+    static Update changes(int score, String note, String emotion) {
+        Update update = new Update().set("score", score).set("note", note).inc("version", 1);
+        if (emotion != null) update.set("emotion", emotion);
+        return update;
+    }
+}
@@ -0,0 +1,210 @@
+package com.mindwell.mood_service.repository;
+
+import com.mindwell.mood_service.model.Mood;
+import org.springframework.beans.BeanUtils;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.data.support.ExampleMatcherAccessor;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Query by example over moods held in process, for stores that evaluate queries themselves.
+ * Matches like Mongo's example mapping: every non-null probe property is a condition
+ * (primitives always are, so score and version usually belong in withIgnorePaths), strings
+ * follow the matcher's string matcher and case setting, and NullHandler.INCLUDE turns null
+ * properties into "is null" conditions.
+ */
+final class MoodExamples {
+
+    private static final List<String> PROPERTIES =
+            List.of("id", "userId", "score", "note", "emotion", "createdAt", "idempotencyKey", "version");
+    private static final SpelAwareProxyProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
+    private MoodExamples() {
+    }
+
+    static Predicate<Mood> matcher(Example<? extends Mood> example) {
+        ExampleMatcherAccessor accessor = new ExampleMatcherAccessor(example.getMatcher());
+        Mood probe = example.getProbe();
+        List<Predicate<Mood>> conditions = new ArrayList<>();
+        for (String path : PROPERTIES) {
+            if (accessor.isIgnoredPath(path)) continue;
+            Function<Mood, Comparable<?>> field = MoodSorts.field(path);
+            Object expected = accessor.getValueTransformerForPath(path)
+                    .apply(Optional.ofNullable(field.apply(probe))).orElse(null);
+            if (expected == null) {
+                if (accessor.getNullHandler() == ExampleMatcher.NullHandler.INCLUDE) {
+                    conditions.add(m -> field.apply(m) == null);
+                }
+            } else if (expected instanceof String) {
+                Predicate<String> test = stringMatcher(accessor, path, (String) expected);
+                conditions.add(m -> field.apply(m) instanceof String && test.test((String) field.apply(m)));
+            } else {
+                conditions.add(m -> Objects.equals(expected, field.apply(m)));
+            }
+        }
+        if (example.getMatcher().isAnyMatching() && !conditions.isEmpty()) {
+            return m -> conditions.stream().anyMatch(c -> c.test(m));
+        }
+        return m -> conditions.stream().allMatch(c -> c.test(m));
+    }
+
+    /**
+     * The userId every match must have, when the probe pins one exactly; null otherwise.
+     */
+    @Nullable
+    static String exactUserId(Example<? extends Mood> example) {
+        String userId = example.getProbe().getUserId();
+        ExampleMatcherAccessor accessor = new ExampleMatcherAccessor(example.getMatcher());
+        boolean exact = userId != null && example.getMatcher().isAllMatching()
+                && !accessor.isIgnoredPath("userId") && !accessor.isIgnoreCaseForPath("userId")
+                && accessor.getStringMatcherForPath("userId") == ExampleMatcher.StringMatcher.DEFAULT
+                && userId.equals(accessor.getValueTransformerForPath("userId").apply(Optional.of(userId)).orElse(null));
+        return exact ? userId : null;
+    }
+
+    private static Predicate<String> stringMatcher(ExampleMatcherAccessor accessor, String path, String expected) {
+        boolean ignoreCase = accessor.isIgnoreCaseForPath(path);
+        switch (accessor.getStringMatcherForPath(path)) {
+            case STARTING:
+                return regex("^" + Pattern.quote(expected), ignoreCase);
+            case ENDING:
+                return regex(Pattern.quote(expected) + "$", ignoreCase);
+            case CONTAINING:
+                return regex(Pattern.quote(expected), ignoreCase);
+            case REGEX:
+                return regex(expected, ignoreCase);
+            default:
+                return ignoreCase ? expected::equalsIgnoreCase : expected::equals;
+        }
+    }
+
+    private static Predicate<String> regex(String pattern, boolean ignoreCase) {
+        Pattern compiled = Pattern.compile(pattern, ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+        return value -> compiled.matcher(value).find();
+    }
+
+    /**
+     * A fluent query over the moods matching the example.
+     *
+     * @param rows the store's moods, in the order results have without a sort
+     * @param copy applied to every mood handed out, so callers never hold stored instances
+     */
+    @SuppressWarnings("unchecked")
+    static <S extends Mood> FluentQuery.FetchableFluentQuery<S> query(Example<S> example, Supplier<Stream<Mood>> rows,
+                                                                     Function<Mood, Mood> copy) {
+        Predicate<Mood> matcher = matcher(example);
+        return new Fluent<>(() -> rows.get().filter(matcher), Sort.unsorted(), copy, m -> (S) copy.apply(m));
+    }
+
+    private static final class Fluent<T> implements FluentQuery.FetchableFluentQuery<T> {
+
+        private final Supplier<Stream<Mood>> rows;
+        private final Sort sort;
+        private final Function<Mood, Mood> copy;
+        private final Function<Mood, T> mapping;
+
+        Fluent(Supplier<Stream<Mood>> rows, Sort sort, Function<Mood, Mood> copy, Function<Mood, T> mapping) {
+            this.rows = rows;
+            this.sort = sort;
+            this.copy = copy;
+            this.mapping = mapping;
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<T> sortBy(Sort sort) {
+            return new Fluent<>(rows, this.sort.and(sort), copy, mapping);
+        }
+
+        @Override
+        public <R> FluentQuery.FetchableFluentQuery<R> as(Class<R> resultType) {
+            return new Fluent<>(rows, sort, copy, projection(resultType).compose(copy));
+        }
+
+        // Every property is loaded anyway, so a projection to fewer properties changes nothing.
+        @Override
+        public FluentQuery.FetchableFluentQuery<T> project(Collection<String> properties) {
+            return this;
+        }
+
+        @Override
+        public T oneValue() {
+            List<Mood> two = sorted().limit(2).collect(Collectors.toList());
+            if (two.size() > 1) throw new IncorrectResultSizeDataAccessException(1);
+            return two.isEmpty() ? null : mapping.apply(two.get(0));
+        }
+
+        @Override
+        public T firstValue() {
+            return sorted().findFirst().map(mapping).orElse(null);
+        }
+
+        @Override
+        public List<T> all() {
+            return stream().collect(Collectors.toList());
+        }
+
+        @Override
+        public Page<T> page(Pageable pageable) {
+            Fluent<T> query = pageable.getSort().isSorted() ? (Fluent<T>) sortBy(pageable.getSort()) : this;
+            if (pageable.isUnpaged()) {
+                List<T> content = query.all();
+                return new PageImpl<>(content, pageable, content.size());
+            }
+            List<T> content = query.sorted().skip(pageable.getOffset()).limit(pageable.getPageSize())
+                    .map(mapping).collect(Collectors.toList());
+            return new PageImpl<>(content, pageable, count());
+        }
+
+        @Override
+        public Stream<T> stream() {
+            return sorted().map(mapping);
+        }
+
+        @Override
+        public long count() {
+            return rows.get().count();
+        }
+
+        @Override
+        public boolean exists() {
+            return rows.get().findAny().isPresent();
+        }
+
+        private Stream<Mood> sorted() {
+            Stream<Mood> result = rows.get();
+            return sort.isSorted() ? result.sorted(MoodSorts.comparator(sort)) : result;
+        }
+
+        // Moods as is, interfaces as projection proxies, other classes by copying matching properties.
+        @SuppressWarnings("unchecked")
+        private static <R> Function<Mood, R> projection(Class<R> type) {
+            if (type.isAssignableFrom(Mood.class)) return m -> (R) m;
+            if (type.isInterface()) return m -> PROJECTIONS.createProjection(type, m);
+            return m -> {
+                R result = BeanUtils.instantiateClass(type);
+                BeanUtils.copyProperties(m, result);
+                return result;
+            };
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.mindwell.mood_service.repository;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-entry outcome of {@link MoodBulkOperations#insertUnordered}, by position in the input
+ * list. Positions that appear in neither set were inserted.
+ */
+public class MoodInsertResult {
+    private final Set<Integer> duplicates = new HashSet<>();
+    private final Map<Integer, String> failures = new HashMap<>();
+
+    public void duplicate(int index) {
+        duplicates.add(index);
+    }
+
+    public void failed(int index, String error) {
+        failures.put(index, error);
+    }
+
+    public boolean isDuplicate(int index) {
+        return duplicates.contains(index);
+    }
+
+    public String getFailure(int index) {
+        return failures.get(index);
+    }
+}
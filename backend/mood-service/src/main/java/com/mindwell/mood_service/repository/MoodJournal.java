@@ -0,0 +1,434 @@
+package com.mindwell.mood_service.repository;
+
+import com.mindwell.mood_service.model.Mood;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Durability for {@link InMemoryMoodRepository} (mood.inmemory.persistence.enabled=true).
+ * Every save and delete is appended to a write-ahead log with one write call, and is only
+ * applied to the store, and returned to the caller, once the log is forced to disk past it,
+ * so an acknowledged write survives a crash or power loss. A syncer thread forces the log
+ * for all the appends waiting at once (group commit), at most once every
+ * mood.inmemory.persistence.fsync-interval-ms, so concurrent writers share one fsync and a
+ * lone write waits for at most one; with 0, every append forces the log itself.
+ * <p>
+ * Every mood.inmemory.persistence.snapshot-interval-ms the log is rolled over and the store
+ * is written to a snapshot, after which older logs and snapshots are deleted. The snapshot is
+ * taken while writes go on, so it may already hold some changes from the new log; replaying
+ * that log over it still ends in the same state, because every record carries a mood's
+ * complete state or its deletion. Recovery maps the latest snapshot, loads it and replays the
+ * logs from the same point, stopping at a torn record at the end of a log.
+ */
+@Component
+@Profile("inmemory")
+@ConditionalOnProperty(name = "mood.inmemory.persistence.enabled", havingValue = "true")
+public class MoodJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(MoodJournal.class);
+
+    private static final byte SAVE = 1;
+    private static final byte DELETE = 2;
+    private static final int RECORD_HEADER = 4 + 4;
+    private static final int SNAPSHOT_MAGIC = 0x4d4f534e; // "MOSN"
+    private static final int SNAPSHOT_FOOTER = 8 + 4;
+    private static final String WAL_PREFIX = "wal-";
+    private static final String WAL_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final Path dir;
+    private final long fsyncIntervalNanos;
+
+    // Guards the current log and its sequence number; held only for the write call.
+    private final Object appendLock = new Object();
+    // Held shared from a record's append until the store has applied it, and exclusively to
+    // roll the log over, so a snapshot never misses a change logged before its log.
+    private final ReadWriteLock applying = new ReentrantReadWriteLock();
+    private FileChannel wal;
+    private long walSequence;
+    // Records appended to any log so far; guarded by appendLock.
+    private long written;
+    // Guards the sync progress below, which the syncer and the appends waiting on it share.
+    private final Object syncLock = new Object();
+    // The last record waiting on a force, the last one on disk, and the last one in a force
+    // that failed; all only ever move forward.
+    private long requested;
+    private long synced;
+    private long failed;
+    private final AtomicLong sinceCheckpoint = new AtomicLong();
+    private Supplier<Collection<Mood>> state;
+    private Thread syncer;
+    private volatile boolean running = true;
+
+    public MoodJournal(@Value("${mood.inmemory.persistence.dir:data/inmemory}") String dir,
+                       @Value("${mood.inmemory.persistence.fsync-interval-ms:10}") long fsyncIntervalMs) {
+        this.dir = Paths.get(dir);
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, fsyncIntervalMs));
+    }
+
+    /**
+     * Loads the persisted moods into the store through the given callbacks, then starts a
+     * new log. Called once by the store while it is being constructed.
+     *
+     * @param state the store's current moods, read when taking snapshots
+     */
+    void recover(Supplier<Collection<Mood>> state, Consumer<Mood> save, Consumer<String> delete) {
+        this.state = state;
+        long start = System.nanoTime();
+        long snapshot = 0;
+        long lastSequence = 0;
+        long records = 0;
+        try {
+            Files.createDirectories(dir);
+            List<Long> logs = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(".tmp")) {
+                        Files.delete(file); // a snapshot that was never completed
+                    } else if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX)) {
+                        snapshot = Math.max(snapshot, sequenceOf(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX));
+                    } else if (name.startsWith(WAL_PREFIX) && name.endsWith(WAL_SUFFIX)) {
+                        logs.add(sequenceOf(name, WAL_PREFIX, WAL_SUFFIX));
+                    }
+                }
+            }
+            if (snapshot > 0) records += loadSnapshot(snapshotFile(snapshot), save);
+            logs.sort(null);
+            lastSequence = snapshot;
+            for (long sequence : logs) {
+                lastSequence = Math.max(lastSequence, sequence);
+                if (sequence >= snapshot) records += replay(walFile(sequence), save, delete);
+            }
+            synchronized (appendLock) {
+                walSequence = lastSequence + 1;
+                wal = openWal(walSequence);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not recover moods from " + dir, e);
+        }
+        log.info("Recovered {} mood records from {} in {} ms", records, dir.toAbsolutePath(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (fsyncIntervalNanos > 0) {
+            syncer = new Thread(this::syncLoop, "mood-journal-sync");
+            syncer.setDaemon(true);
+            syncer.start();
+        }
+    }
+
+    // ---- Appending ----
+
+    /**
+     * Logs the mood's new state and, once it is on disk, lets the store apply it. Nothing is
+     * applied if the append or its sync fails.
+     */
+    void saved(Mood mood, Runnable apply) {
+        append(SAVE, out -> MoodCodec.write(out, mood), apply);
+    }
+
+    void deleted(String id, Runnable apply) {
+        append(DELETE, out -> MoodCodec.writeString(out, id), apply);
+    }
+
+    private interface Body {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private void append(byte type, Body body, Runnable apply) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(type);
+            body.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER, record.limit() - RECORD_HEADER);
+        record.putInt(0, record.limit() - RECORD_HEADER).putInt(4, (int) crc.getValue());
+        applying.readLock().lock();
+        try {
+            long sequence;
+            synchronized (appendLock) {
+                try {
+                    while (record.hasRemaining()) {
+                        wal.write(record);
+                    }
+                    if (fsyncIntervalNanos == 0) wal.force(false);
+                } catch (IOException e) {
+                    throw new DataAccessResourceFailureException("Could not append to mood journal", e);
+                }
+                sequence = ++written;
+            }
+            if (fsyncIntervalNanos > 0) awaitSync(sequence);
+            sinceCheckpoint.incrementAndGet();
+            apply.run();
+        } finally {
+            applying.readLock().unlock();
+        }
+    }
+
+    // Wakes the syncer and waits until it has forced the log past the record.
+    private void awaitSync(long sequence) {
+        boolean interrupted = false;
+        synchronized (syncLock) {
+            if (sequence > requested) {
+                requested = sequence;
+                syncLock.notifyAll();
+            }
+            try {
+                while (synced < sequence) {
+                    if (failed >= sequence) throw new DataAccessResourceFailureException("Could not sync mood journal");
+                    if (!running) throw new DataAccessResourceFailureException("Mood journal is closed");
+                    try {
+                        syncLock.wait();
+                    } catch (InterruptedException e) {
+                        // The record is logged already; the store must still apply it once synced.
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void syncLoop() {
+        long lastForce = System.nanoTime() - fsyncIntervalNanos;
+        while (true) {
+            synchronized (syncLock) {
+                while (running && requested <= Math.max(synced, failed)) {
+                    try {
+                        syncLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) return;
+            }
+            // At most one force per interval; the appends that arrive meanwhile share the next.
+            long wait = lastForce + fsyncIntervalNanos - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(this, wait);
+            long target;
+            FileChannel current;
+            synchronized (appendLock) {
+                target = written;
+                current = wal;
+            }
+            lastForce = System.nanoTime();
+            boolean forced = true;
+            try {
+                current.force(false);
+            } catch (ClosedChannelException e) {
+                // Rolled over or closed meanwhile; the old log was forced before it was closed.
+            } catch (IOException e) {
+                forced = false;
+                log.warn("Could not sync mood journal: {}", e.getMessage());
+            }
+            synchronized (syncLock) {
+                if (forced) synced = Math.max(synced, target);
+                else failed = Math.max(failed, target);
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    // ---- Snapshots ----
+
+    @Scheduled(initialDelayString = "${mood.inmemory.persistence.snapshot-interval-ms:600000}",
+               fixedDelayString = "${mood.inmemory.persistence.snapshot-interval-ms:600000}")
+    public void scheduledCheckpoint() {
+        try {
+            checkpoint();
+        } catch (Exception e) {
+            // The logs are only deleted once a snapshot is complete, so nothing is lost.
+            log.warn("Mood snapshot failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rolls the log over, writes a snapshot and deletes the files it replaces. Skipped when
+     * nothing was written since the last one.
+     */
+    public synchronized void checkpoint() throws IOException {
+        if (sinceCheckpoint.get() == 0) return;
+        long sequence;
+        applying.writeLock().lock();
+        try {
+            synchronized (appendLock) {
+                wal.force(false);
+                wal.close();
+                sequence = ++walSequence;
+                wal = openWal(sequence);
+                sinceCheckpoint.set(0);
+            }
+        } finally {
+            applying.writeLock().unlock();
+        }
+        long start = System.nanoTime();
+        Path tmp = dir.resolve(SNAPSHOT_PREFIX + String.format("%016d", sequence) + SNAPSHOT_SUFFIX + ".tmp");
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            for (Mood m : state.get()) {
+                MoodCodec.write(out, m);
+                count++;
+            }
+            out.writeLong(count);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, snapshotFile(sequence), StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                boolean older = (name.startsWith(WAL_PREFIX) && name.endsWith(WAL_SUFFIX)
+                        && sequenceOf(name, WAL_PREFIX, WAL_SUFFIX) < sequence)
+                        || (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX)
+                        && sequenceOf(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) < sequence);
+                if (older) Files.delete(file);
+            }
+        }
+        log.info("Wrote mood snapshot of {} moods in {} ms", count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        long target = -1;
+        try {
+            synchronized (appendLock) {
+                if (wal != null && wal.isOpen()) {
+                    wal.force(false);
+                    wal.close();
+                }
+                target = written;
+            }
+        } finally {
+            synchronized (syncLock) {
+                running = false;
+                synced = Math.max(synced, target);
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    // ---- Recovery ----
+
+    private static long loadSnapshot(Path file, Consumer<Mood> save) throws IOException {
+        MappedByteBuffer data = map(file);
+        if (data.capacity() < SNAPSHOT_FOOTER || data.getInt(data.capacity() - 4) != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a complete mood snapshot: " + file);
+        }
+        long count = data.getLong(data.capacity() - SNAPSHOT_FOOTER);
+        data.limit(data.capacity() - SNAPSHOT_FOOTER);
+        for (long i = 0; i < count; i++) {
+            save.accept(MoodCodec.read(data));
+        }
+        return count;
+    }
+
+    private static long replay(Path file, Consumer<Mood> save, Consumer<String> delete) throws IOException {
+        MappedByteBuffer data = map(file);
+        CRC32 crc = new CRC32();
+        long records = 0;
+        while (data.remaining() >= RECORD_HEADER) {
+            int at = data.position();
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length <= 0 || length > data.remaining()) {
+                log.warn("Mood journal {} ends in a torn record at byte {}", file.getFileName(), at);
+                break;
+            }
+            ByteBuffer record = data.slice(data.position(), length);
+            crc.reset();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Mood journal {} has a corrupt record at byte {}", file.getFileName(), at);
+                break;
+            }
+            data.position(data.position() + length);
+            if (record.get() == SAVE) save.accept(MoodCodec.read(record));
+            else delete.accept(MoodCodec.readString(record));
+            records++;
+        }
+        return records;
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Mood file over 2 GB: " + file);
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    // ---- Files ----
+
+    private FileChannel openWal(long sequence) throws IOException {
+        FileChannel channel = FileChannel.open(walFile(sequence),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        syncDirectory();
+        return channel;
+    }
+
+    // Makes file creations and renames durable; not supported on every platform.
+    private void syncDirectory() {
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            log.debug("Could not sync directory {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private Path walFile(long sequence) {
+        return dir.resolve(WAL_PREFIX + String.format("%016d", sequence) + WAL_SUFFIX);
+    }
+
+    private Path snapshotFile(long sequence) {
+        return dir.resolve(SNAPSHOT_PREFIX + String.format("%016d", sequence) + SNAPSHOT_SUFFIX);
+    }
+
+    private static long sequenceOf(String name, String prefix, String suffix) {
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+}
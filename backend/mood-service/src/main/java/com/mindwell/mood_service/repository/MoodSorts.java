@@ -0,0 +1,65 @@
+package com.mindwell.mood_service.repository;
+
+import com.mindwell.mood_service.model.Mood;
+import org.springframework.data.domain.Sort;
+
+import java.util.Comparator;
+import java.util.function.Function;
+
+/**
+ * In-process ordering of moods by a Spring Data {@link Sort}, for stores that sort or merge
+ * results themselves. Nulls sort first, as in Mongo.
+ */
+final class MoodSorts {
+
+    /**
+     * (createdAt, id) descending: the order of the user_created_id index and of listings.
+     */
+    static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id"));
+
+    private MoodSorts() {
+    }
+
+    static Comparator<Mood> comparator(Sort sort) {
+        Comparator<Mood> result = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Function<Mood, Comparable<?>> field = field(order.getProperty());
+            Comparator<Mood> next = (a, b) -> compareNullsFirst(field.apply(a), field.apply(b));
+            if (order.isDescending()) next = next.reversed();
+            result = result.thenComparing(next);
+        }
+        return result;
+    }
+
+    // Also resolves the properties of query-by-example probes (MoodExamples).
+    static Function<Mood, Comparable<?>> field(String property) {
+        switch (property) {
+            case "id":
+            case "_id":
+                return Mood::getId;
+            case "userId":
+                return Mood::getUserId;
+            case "score":
+                return Mood::getScore;
+            case "note":
+                return Mood::getNote;
+            case "emotion":
+                return Mood::getEmotion;
+            case "createdAt":
+                return Mood::getCreatedAt;
+            case "idempotencyKey":
+                return Mood::getIdempotencyKey;
+            case "version":
+                return Mood::getVersion;
+            default:
+                throw new IllegalArgumentException("Unknown sort property: " + property);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareNullsFirst(Comparable a, Comparable b) {
+        if (a == null) return b == null ? 0 : -1;
+        if (b == null) return 1;
+        return a.compareTo(b);
+    }
+}
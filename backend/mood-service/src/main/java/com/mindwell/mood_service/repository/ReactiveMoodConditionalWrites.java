@@ -0,0 +1,14 @@
+package com.mindwell.mood_service.repository;
+
+import com.mindwell.mood_service.model.Mood;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link MoodConditionalWrites}; empty when no mood matched.
+ */
+public interface ReactiveMoodConditionalWrites {
+
+    Mono<Mood> updateIfMatches(String id, String userId, Long expectedVersion, int score, String note, String emotion);
+
+    Mono<Mood> deleteIfMatches(String id, String userId, Long expectedVersion);
+}
@@ -0,0 +1,30 @@
+package com.mindwell.mood_service.repository;
+
+import com.mindwell.mood_service.model.Mood;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive fragment of {@link ReactiveMoodRepository}, issuing the same single commands as
+ * {@link MoodConditionalWritesImpl}.
+ */
+class ReactiveMoodConditionalWritesImpl implements ReactiveMoodConditionalWrites {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    ReactiveMoodConditionalWritesImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Mono<Mood> updateIfMatches(String id, String userId, Long expectedVersion, int score, String note, String emotion) {
+        return mongoTemplate.findAndModify(MoodConditionalWritesImpl.matching(id, userId, expectedVersion),
+                MoodConditionalWritesImpl.changes(score, note, emotion), FindAndModifyOptions.options().returnNew(false), Mood.class);
+    }
+
+    @Override
+    public Mono<Mood> deleteIfMatches(String id, String userId, Long expectedVersion) {
+        return mongoTemplate.findAndRemove(MoodConditionalWritesImpl.matching(id, userId, expectedVersion), Mood.class);
+    }
+}
@@ -0,0 +1,39 @@
+package com.mindwell.mood_service.repository;
+
+import com.mindwell.mood_service.model.Mood;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Meta;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Non-blocking counterpart of {@link MongoMoodRepository} for the reactive profile, with the
+ * same queries and indexes.
+ */
+@Repository
+public interface ReactiveMoodRepository extends ReactiveMongoRepository<Mood, String>, ReactiveMoodConditionalWrites {
+
+    Mono<Mood> findByUserIdAndIdempotencyKey(String userId, String idempotencyKey);
+
+    /**
+     * First page of a user's moods; pass a pageable sorted by createdAt and id descending.
+     */
+    Flux<Mood> findByUserId(String userId, Pageable pageable);
+
+    /**
+     * Keyset page: the moods strictly after the (createdAt, id) cursor in descending order.
+     */
+    @Query("{ 'userId': ?0, '$or': [ { 'createdAt': { '$lt': ?1 } }, { 'createdAt': ?1, '_id': { '$lt': ?2 } } ] }")
+    Flux<Mood> findPageAfter(String userId, Instant createdAt, Object id, Pageable pageable);
+
+    /**
+     * A user's moods, oldest first, fetched in cursor batches as the subscriber requests them.
+     */
+    @Meta(cursorBatchSize = 500)
+    Flux<Mood> findByUserIdOrderByCreatedAtAsc(String userId);
+}
@@ -0,0 +1,57 @@
+package com.mindwell.mood_service.repository;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coordinates moving users onto their new shard between the instances that share the
+ * shards (see {@link ShardedMoodRepository}). Keys are user ids, "" for moods without one.
+ */
+public interface ShardMoves {
+
+    /**
+     * True once the user's move has been recorded, by any instance.
+     */
+    boolean isMoved(String userKey);
+
+    /**
+     * Takes or renews the right to move the user.
+     *
+     * @return false while another instance holds it
+     */
+    boolean acquire(String userKey);
+
+    /**
+     * Records the move as done; from then on every instance serves the user from the new shard.
+     */
+    void markMoved(String userKey);
+
+    void release(String userKey);
+
+    /**
+     * Moves coordinated within this process only, for a single instance and tests.
+     */
+    static ShardMoves local() {
+        Set<String> moved = ConcurrentHashMap.newKeySet();
+        return new ShardMoves() {
+            @Override
+            public boolean isMoved(String userKey) {
+                return moved.contains(userKey);
+            }
+
+            @Override
+            public boolean acquire(String userKey) {
+                return true;
+            }
+
+            @Override
+            public void markMoved(String userKey) {
+                moved.add(userKey);
+            }
+
+            @Override
+            public void release(String userKey) {
+            }
+        };
+    }
+}
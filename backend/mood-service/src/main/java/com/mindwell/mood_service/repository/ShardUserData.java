@@ -0,0 +1,49 @@
+package com.mindwell.mood_service.repository;
+
+import java.util.List;
+
+/**
+ * Data kept per shard next to a user's moods (rollups, say) that moves with the user when
+ * {@link ShardedMoodRepository} moves it onto an appended shard. Shards are given by their
+ * index in configuration order.
+ */
+public interface ShardUserData {
+
+    /**
+     * Users with data on the shard, in id order, after the given one (null for the first
+     * page); the rebalancer moves them along with the users that have moods there.
+     */
+    List<String> findUserIdsAfter(int shard, String after, int limit);
+
+    /**
+     * Copies the user's data, after its moods were copied to the target shard and before the
+     * move is recorded; no other instance writes the user meanwhile. Overwrites what an
+     * interrupted move left on the target.
+     */
+    void copy(String userId, int from, int to);
+
+    /**
+     * Removes the user's data from its old shard once the move is recorded.
+     */
+    void delete(String userId, int from);
+
+    /**
+     * No data besides the moods.
+     */
+    static ShardUserData none() {
+        return new ShardUserData() {
+            @Override
+            public List<String> findUserIdsAfter(int shard, String after, int limit) {
+                return List.of();
+            }
+
+            @Override
+            public void copy(String userId, int from, int to) {
+            }
+
+            @Override
+            public void delete(String userId, int from) {
+            }
+        };
+    }
+}
@@ -0,0 +1,603 @@
+package com.mindwell.mood_service.repository;
+
+import com.mindwell.mood_service.model.Mood;
+import org.bson.types.ObjectId;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Mood store split across several shard stores by consistent hashing of the user id; enabled
+ * with mood.sharding.enabled=true (see MoodShardingConfig). Everything MoodService does is
+ * scoped to one user and so goes to exactly one shard. Lookups by id alone, admin scans
+ * (findAll, count) and query by example fan out to all shards in parallel and merge the
+ * results; an example that pins its userId only goes to that user's shard.
+ * <p>
+ * After shards are appended, the users whose shard changed are moved online: the rebalancer
+ * pages through the users of the previous shards in the background (on one instance, see
+ * MoodShardingConfig), and any operation on a user that has not been moved yet moves that
+ * user first. A user is moved by one instance at a time, holding the user's {@link ShardMoves}
+ * lease (operations on other instances wait for the move instead of reading the old shard).
+ * The moods are copied in keyset chunks, overwriting what an interrupted move left on the new
+ * shard, and the move is recorded before they are deleted from the old one; once recorded,
+ * no instance reads the old shard for that user again, and the rebalancer clears what an
+ * interrupted delete left there. Writes by id alone (deleteById) are not coordinated with
+ * moves. Other per-user data on the shards ({@link ShardUserData}) is copied, recorded and
+ * deleted in the same steps.
+ */
+public class ShardedMoodRepository implements MongoMoodRepository {
+
+    private static final int LOCK_STRIPES = 256;
+    // Users per page of the rebalancer, and moods per copy or delete of a move.
+    private static final int REBALANCE_BATCH = 1000;
+    private static final int MOVE_CHUNK = 1000;
+    private static final Duration MOVE_POLL = Duration.ofMillis(50);
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id"));
+
+    private final List<MongoMoodRepository> shards;
+    private final ConsistentHashRing ring;
+    // Placement before the last shards were appended; null once every user has been moved.
+    private volatile ConsistentHashRing previousRing;
+    // Users this instance has moved (or found moved), so the move record is not read again.
+    private final Set<String> moved = ConcurrentHashMap.newKeySet();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final ShardMoves moves;
+    private final Duration moveWait;
+    private final ExecutorService fanOut;
+    private volatile ShardUserData userData = ShardUserData.none();
+
+    /**
+     * A store whose moves are only coordinated within this process.
+     */
+    public ShardedMoodRepository(List<MongoMoodRepository> shards, int previousCount, int virtualNodes) {
+        this(shards, previousCount, virtualNodes, ShardMoves.local(), Duration.ZERO);
+    }
+
+    /**
+     * @param shards        one store per shard, in configuration order
+     * @param previousCount how many of them existed before the last shards were appended, or 0
+     * @param virtualNodes  ring positions per shard
+     * @param moves         coordination of moves with the other instances
+     * @param moveWait      how long an operation waits for another instance to move its user
+     */
+    public ShardedMoodRepository(List<MongoMoodRepository> shards, int previousCount, int virtualNodes,
+                                 ShardMoves moves, Duration moveWait) {
+        this.shards = List.copyOf(shards);
+        this.moves = moves;
+        this.moveWait = moveWait;
+        this.ring = new ConsistentHashRing(shards.size(), virtualNodes);
+        this.previousRing = previousCount > 0 && previousCount < shards.size()
+                ? new ConsistentHashRing(previousCount, virtualNodes) : null;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        this.fanOut = Executors.newFixedThreadPool(shards.size(), r -> {
+            Thread t = new Thread(r, "mood-shard-fan-out");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * A Mongo-backed shard store on the given database, with the same fragments as the
+     * default repository.
+     */
+    public static MongoMoodRepository mongoShard(MongoTemplate mongoTemplate) {
+        return new MongoRepositoryFactory(mongoTemplate).getRepository(MongoMoodRepository.class,
+                RepositoryComposition.RepositoryFragments.just(
+                        new MoodBulkOperationsImpl(mongoTemplate), new MoodConditionalWritesImpl(mongoTemplate)));
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public int shardOf(String userId) {
+        return ring.shardFor(userId);
+    }
+
+    /**
+     * The user's shard, after moving the user there if a rebalance has not done so yet.
+     */
+    public int placeUser(String userId) {
+        if (previousRing != null) moveIfPending(userId);
+        return ring.shardFor(userId);
+    }
+
+    /**
+     * Registers the data that moves with each user; set before the first move.
+     */
+    public void setUserData(ShardUserData userData) {
+        this.userData = userData;
+    }
+
+    // ---- Rebalancing ----
+
+    public boolean isRebalancing() {
+        return previousRing != null;
+    }
+
+    /**
+     * Moves every user whose shard changed when shards were appended. Safe to run again after
+     * an interruption, and alongside moves by other instances. Returns the number of users
+     * moved by this call.
+     */
+    public int rebalance() {
+        return rebalance(() -> true);
+    }
+
+    /**
+     * Like {@link #rebalance()}, but asks {@code keepGoing} (a lease renewal, say) before each
+     * page of users and stops, still rebalancing, as soon as it answers false. Each previous
+     * shard is paged through by user id, so only one page of ids is held at a time.
+     */
+    public int rebalance(BooleanSupplier keepGoing) {
+        ConsistentHashRing previous = previousRing;
+        if (previous == null) return 0;
+        int count = 0;
+        for (int shard = 0; shard < previous.size(); shard++) {
+            int from = shard;
+            // Users whose moods are all archived only have their other data on the shard.
+            List<BiFunction<String, Integer, List<String>>> sources = List.of(shards.get(shard)::findUserIdsAfter,
+                    (after, limit) -> userData.findUserIdsAfter(from, after, limit));
+            for (BiFunction<String, Integer, List<String>> pages : sources) {
+                String after = null;
+                List<String> users;
+                do {
+                    if (!keepGoing.getAsBoolean()) return count;
+                    users = pages.apply(after, REBALANCE_BATCH);
+                    for (String userId : users) {
+                        if (ring.shardFor(userId) == shard) continue;
+                        if (moveIfPending(userId)) {
+                            count++;
+                        } else if (moved.contains(userKey(userId))) {
+                            // Recorded as moved, yet still here: a move that stopped while deleting.
+                            deleteUser(shard, userId);
+                        }
+                    }
+                    if (!users.isEmpty()) after = users.get(users.size() - 1);
+                } while (users.size() == REBALANCE_BATCH);
+            }
+        }
+        settle();
+        return count;
+    }
+
+    /**
+     * Drops the previous placement once every user is on its shard, whichever instance moved them.
+     */
+    public void settle() {
+        previousRing = null;
+        moved.clear();
+    }
+
+    /**
+     * Moves the user to its shard if it still lives on its previous one; true if this call
+     * moved it. Waits up to moveWait while another instance moves the user.
+     */
+    private boolean moveIfPending(String userId) {
+        ConsistentHashRing previous = previousRing;
+        String key = userKey(userId);
+        if (previous == null || moved.contains(key)) return false;
+        int from = previous.shardFor(userId);
+        int to = ring.shardFor(userId);
+        if (from == to) return false;
+        synchronized (lockFor(key)) {
+            if (moved.contains(key)) return false;
+            long deadline = System.nanoTime() + moveWait.toNanos();
+            while (true) {
+                if (moves.isMoved(key)) {
+                    moved.add(key);
+                    return false;
+                }
+                if (moves.acquire(key)) break;
+                if (System.nanoTime() - deadline >= 0) {
+                    throw new TransientDataAccessResourceException("Moods of user " + userId
+                            + " are being moved to shard " + to + " by another instance");
+                }
+                pause();
+            }
+            try {
+                if (moves.isMoved(key)) {
+                    moved.add(key);
+                    return false;
+                }
+                copyUser(shards.get(from), shards.get(to), userId, key);
+                userData.copy(userId, from, to);
+                moves.markMoved(key);
+                moved.add(key);
+                deleteUser(from, userId);
+                return true;
+            } finally {
+                moves.release(key);
+            }
+        }
+    }
+
+    // Newest first in keyset chunks, renewing the move lease before each one. The old shard
+    // is the only one written for this user until the move is recorded, so its copy wins
+    // over anything an interrupted move left on the new shard.
+    private void copyUser(MongoMoodRepository source, MongoMoodRepository target, String userId, String key) {
+        PageRequest chunk = PageRequest.of(0, MOVE_CHUNK, NEWEST_FIRST);
+        List<Mood> moods = source.findByUserId(userId, chunk);
+        while (!moods.isEmpty()) {
+            MoodInsertResult copied = target.insertUnordered(moods);
+            for (int i = 0; i < moods.size(); i++) {
+                if (copied.getFailure(i) != null) {
+                    throw new IllegalStateException("Could not move mood " + moods.get(i).getId()
+                            + " to shard " + ring.shardFor(userId) + ": " + copied.getFailure(i));
+                }
+                if (copied.isDuplicate(i)) target.save(moods.get(i));
+            }
+            if (moods.size() < MOVE_CHUNK) break;
+            if (!moves.acquire(key)) {
+                throw new TransientDataAccessResourceException("Lost the lease on moving the moods of user " + userId);
+            }
+            Mood last = moods.get(moods.size() - 1);
+            moods = source.findPageAfter(userId, last.getCreatedAt(), pageId(last.getId()), chunk);
+        }
+    }
+
+    private void deleteUser(int shard, String userId) {
+        MongoMoodRepository source = shards.get(shard);
+        PageRequest chunk = PageRequest.of(0, MOVE_CHUNK, NEWEST_FIRST);
+        List<Mood> moods;
+        do {
+            moods = source.findByUserId(userId, chunk);
+            source.deleteAllById(moods.stream().map(Mood::getId).collect(Collectors.toList()));
+        } while (moods.size() == MOVE_CHUNK);
+        userData.delete(userId, shard);
+    }
+
+    private static Object pageId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(MOVE_POLL.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransientDataAccessResourceException("Interrupted while waiting for a shard move", e);
+        }
+    }
+
+    private MongoMoodRepository shardFor(String userId) {
+        return shards.get(placeUser(userId));
+    }
+
+    // ---- Per-user queries: one shard each ----
+
+    @Override
+    public List<Mood> findByUserId(String userId) {
+        return shardFor(userId).findByUserId(userId);
+    }
+
+    @Override
+    public List<Mood> findByUserIdAndCreatedAtGreaterThanEqual(String userId, Instant createdAt) {
+        return shardFor(userId).findByUserIdAndCreatedAtGreaterThanEqual(userId, createdAt);
+    }
+
+    @Override
+    public List<Mood> findCreatedBetween(String userId, Instant from, Instant to) {
+        return shardFor(userId).findCreatedBetween(userId, from, to);
+    }
+
+    @Override
+    public Optional<Mood> findByUserIdAndIdempotencyKey(String userId, String idempotencyKey) {
+        return shardFor(userId).findByUserIdAndIdempotencyKey(userId, idempotencyKey);
+    }
+
+    @Override
+    public List<Mood> findByUserIdAndIdempotencyKeyIn(String userId, Collection<String> idempotencyKeys) {
+        return shardFor(userId).findByUserIdAndIdempotencyKeyIn(userId, idempotencyKeys);
+    }
+
+    @Override
+    public List<Mood> findByUserId(String userId, Pageable pageable) {
+        return shardFor(userId).findByUserId(userId, pageable);
+    }
+
+    @Override
+    public List<Mood> findPageAfter(String userId, Instant createdAt, Object id, Pageable pageable) {
+        return shardFor(userId).findPageAfter(userId, createdAt, id, pageable);
+    }
+
+    @Override
+    public Stream<Mood> streamByUserIdOrderByCreatedAtAsc(String userId) {
+        return shardFor(userId).streamByUserIdOrderByCreatedAtAsc(userId);
+    }
+
+    @Override
+    public List<Mood> findByCreatedAtLessThan(Instant createdAt, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return merge(onAllShards(shard -> shard.findByCreatedAtLessThan(createdAt, pageable)), pageable.getSort(),
+                    0, Integer.MAX_VALUE);
+        }
+        int offset = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE - pageable.getPageSize());
+        Pageable head = PageRequest.of(0, offset + pageable.getPageSize(), pageable.getSort());
+        return merge(onAllShards(shard -> shard.findByCreatedAtLessThan(createdAt, head)), pageable.getSort(),
+                offset, pageable.getPageSize());
+    }
+
+    @Override
+    public Optional<Mood> updateIfMatches(String id, String userId, Long expectedVersion, int score, String note, String emotion) {
+        return shardFor(userId).updateIfMatches(id, userId, expectedVersion, score, note, emotion);
+    }
+
+    @Override
+    public Optional<Mood> deleteIfMatches(String id, String userId, Long expectedVersion) {
+        return shardFor(userId).deleteIfMatches(id, userId, expectedVersion);
+    }
+
+    // ---- Writes: grouped by shard ----
+
+    @Override
+    public MoodInsertResult insertUnordered(List<Mood> moods) {
+        MoodInsertResult result = new MoodInsertResult();
+        Map<MongoMoodRepository, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < moods.size(); i++) {
+            positions.computeIfAbsent(shardFor(moods.get(i).getUserId()), s -> new ArrayList<>()).add(i);
+        }
+        positions.forEach((shard, indexes) -> {
+            List<Mood> group = new ArrayList<>(indexes.size());
+            indexes.forEach(i -> group.add(moods.get(i)));
+            MoodInsertResult groupResult = shard.insertUnordered(group);
+            for (int j = 0; j < indexes.size(); j++) {
+                if (groupResult.isDuplicate(j)) result.duplicate(indexes.get(j));
+                String failure = groupResult.getFailure(j);
+                if (failure != null) result.failed(indexes.get(j), failure);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public long deleteIfUnchanged(List<Mood> moods) {
+        Map<MongoMoodRepository, List<Mood>> groups = new LinkedHashMap<>();
+        for (Mood m : moods) {
+            groups.computeIfAbsent(shardFor(m.getUserId()), s -> new ArrayList<>()).add(m);
+        }
+        long deleted = 0;
+        for (Map.Entry<MongoMoodRepository, List<Mood>> group : groups.entrySet()) {
+            deleted += group.getKey().deleteIfUnchanged(group.getValue());
+        }
+        return deleted;
+    }
+
+    @Override
+    public <S extends Mood> S save(S entity) {
+        return shardFor(entity.getUserId()).save(entity);
+    }
+
+    @Override
+    public <S extends Mood> List<S> saveAll(Iterable<S> entities) {
+        List<S> result = new ArrayList<>();
+        entities.forEach(e -> result.add(save(e)));
+        return result;
+    }
+
+    @Override
+    public <S extends Mood> S insert(S entity) {
+        return shardFor(entity.getUserId()).insert(entity);
+    }
+
+    @Override
+    public <S extends Mood> List<S> insert(Iterable<S> entities) {
+        List<S> result = new ArrayList<>();
+        entities.forEach(e -> result.add(insert(e)));
+        return result;
+    }
+
+    @Override
+    public void delete(Mood entity) {
+        shardFor(entity.getUserId()).deleteById(entity.getId());
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Mood> entities) {
+        entities.forEach(this::delete);
+    }
+
+    // ---- By id alone and admin scans: all shards in parallel ----
+
+    @Override
+    public Optional<Mood> findById(String id) {
+        return onAllShards(shard -> shard.findById(id)).stream()
+                .filter(Optional::isPresent).map(Optional::get).findFirst();
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return onAllShards(shard -> shard.existsById(id)).contains(true);
+    }
+
+    @Override
+    public List<Mood> findAllById(Iterable<String> ids) {
+        List<String> idList = new ArrayList<>();
+        ids.forEach(idList::add);
+        Map<String, Mood> found = new LinkedHashMap<>();
+        onAllShards(shard -> shard.findAllById(idList)).forEach(moods -> moods.forEach(m -> found.putIfAbsent(m.getId(), m)));
+        return new ArrayList<>(found.values());
+    }
+
+    @Override
+    public void deleteById(String id) {
+        onAllShards(shard -> {
+            shard.deleteById(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        List<String> idList = new ArrayList<>();
+        ids.forEach(idList::add);
+        onAllShards(shard -> {
+            shard.deleteAllById(idList);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAll() {
+        onAllShards(shard -> {
+            shard.deleteAll();
+            return null;
+        });
+    }
+
+    @Override
+    public long count() {
+        return onAllShards(MongoMoodRepository::count).stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public List<String> findUserIdsAfter(String after, int limit) {
+        Set<String> users = new TreeSet<>();
+        onAllShards(shard -> shard.findUserIdsAfter(after, limit)).forEach(users::addAll);
+        return users.stream().limit(limit).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Mood> findAll() {
+        List<Mood> all = new ArrayList<>();
+        onAllShards(MongoMoodRepository::findAll).forEach(all::addAll);
+        return all;
+    }
+
+    @Override
+    public List<Mood> findAll(Sort sort) {
+        return merge(onAllShards(shard -> shard.findAll(sort)), sort, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Each shard returns its first offset + size moods in order; the merged page is cut from those.
+     */
+    @Override
+    public Page<Mood> findAll(Pageable pageable) {
+        if (pageable.isUnpaged()) return new PageImpl<>(findAll(pageable.getSort()));
+        int offset = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE - pageable.getPageSize());
+        Pageable head = PageRequest.of(0, offset + pageable.getPageSize(), pageable.getSort());
+        List<Mood> page = merge(onAllShards(shard -> shard.findAll(head).getContent()), pageable.getSort(),
+                offset, pageable.getPageSize());
+        return new PageImpl<>(page, pageable, count());
+    }
+
+    private static <T extends Mood> List<T> merge(List<List<T>> perShard, Sort sort, int skip, int limit) {
+        Stream<T> rows = perShard.stream().flatMap(List::stream);
+        if (sort.isSorted()) rows = rows.sorted(MoodSorts.comparator(sort));
+        return rows.skip(skip).limit(limit).collect(Collectors.toList());
+    }
+
+    private <T> List<T> onAllShards(Function<MongoMoodRepository, T> operation) {
+        if (shards.size() == 1) return Collections.singletonList(operation.apply(shards.get(0)));
+        List<CompletableFuture<T>> calls = new ArrayList<>(shards.size());
+        for (MongoMoodRepository shard : shards) {
+            calls.add(CompletableFuture.supplyAsync(() -> operation.apply(shard), fanOut));
+        }
+        List<T> results = new ArrayList<>(calls.size());
+        try {
+            for (CompletableFuture<T> call : calls) {
+                results.add(call.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+        return results;
+    }
+
+    public void shutdown() {
+        fanOut.shutdown();
+    }
+
+    // ---- Query by example: the probe's user's shard, or all shards in parallel ----
+
+    @Override
+    public <S extends Mood> Optional<S> findOne(Example<S> example) {
+        return onShardsFor(example, shard -> shard.findOne(example)).stream()
+                .filter(Optional::isPresent).map(Optional::get).findFirst();
+    }
+
+    @Override
+    public <S extends Mood> List<S> findAll(Example<S> example) {
+        List<S> all = new ArrayList<>();
+        onShardsFor(example, shard -> shard.findAll(example)).forEach(all::addAll);
+        return all;
+    }
+
+    @Override
+    public <S extends Mood> List<S> findAll(Example<S> example, Sort sort) {
+        return merge(onShardsFor(example, shard -> shard.findAll(example, sort)), sort, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Cut from each shard's first offset + size matches, like {@link #findAll(Pageable)}.
+     */
+    @Override
+    public <S extends Mood> Page<S> findAll(Example<S> example, Pageable pageable) {
+        if (pageable.isUnpaged()) return new PageImpl<>(findAll(example, pageable.getSort()));
+        int offset = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE - pageable.getPageSize());
+        Pageable head = PageRequest.of(0, offset + pageable.getPageSize(), pageable.getSort());
+        List<S> page = merge(onShardsFor(example, shard -> shard.findAll(example, head).getContent()), pageable.getSort(),
+                offset, pageable.getPageSize());
+        return new PageImpl<>(page, pageable, count(example));
+    }
+
+    @Override
+    public <S extends Mood> long count(Example<S> example) {
+        return onShardsFor(example, shard -> shard.count(example)).stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public <S extends Mood> boolean exists(Example<S> example) {
+        return onShardsFor(example, shard -> shard.exists(example)).contains(true);
+    }
+
+    /**
+     * The matches are fetched from the shards first (see {@link #findAll(Example)}); sorting,
+     * projection and paging then run over them in memory.
+     */
+    @Override
+    public <S extends Mood, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        return queryFunction.apply(MoodExamples.query(example,
+                () -> findAll(example).stream().map(Mood.class::cast), Function.identity()));
+    }
+
+    private <T> List<T> onShardsFor(Example<? extends Mood> example, Function<MongoMoodRepository, T> operation) {
+        String userId = MoodExamples.exactUserId(example);
+        if (userId != null) return Collections.singletonList(operation.apply(shardFor(userId)));
+        return onAllShards(operation);
+    }
+
+    private Object lockFor(String key) {
+        return locks[Math.floorMod(key.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static String userKey(String userId) {
+        return userId != null ? userId : "";
+    }
+}
@@ -0,0 +1,43 @@
+package com.mindwell.mood_service.rollup;
+
+import com.mindwell.mood_service.archive.MoodArchive;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically folds completed days of raw moods into mood_rollups and recomputes dirty
+ * buckets. Every instance schedules it; only the lease holder does the work.
+ * Disable with mood.rollup.enabled=false.
+ */
+@Component
+@ConditionalOnProperty(name = "mood.rollup.enabled", havingValue = "true", matchIfMissing = true)
+public class MoodRollupCompactor {
+
+    private static final Logger log = LoggerFactory.getLogger(MoodRollupCompactor.class);
+
+    private final MoodRollupService rollupService;
+    private final MoodArchive archive;
+
+    /**
+     * @param archive cold tier whose moods count in recomputed buckets, or null
+     */
+    public MoodRollupCompactor(MoodRollupService rollupService, @Nullable MoodArchive archive) {
+        this.rollupService = rollupService;
+        this.archive = archive;
+    }
+
+    @Scheduled(initialDelayString = "${mood.rollup.initial-delay-ms:60000}",
+               fixedDelayString = "${mood.rollup.interval-ms:600000}")
+    public void run() {
+        try {
+            rollupService.compact(archive);
+        } catch (Exception e) {
+            // Next run resumes from the persisted high-water mark.
+            log.warn("Mood rollup compaction failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,708 @@
+package com.mindwell.mood_service.rollup;
+
+import com.mindwell.mood_service.analytics.MoodStats;
+import com.mindwell.mood_service.archive.MoodArchive;
+import com.mindwell.mood_service.lease.LeaseService;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.model.MoodRollup;
+import com.mindwell.mood_service.model.MoodRollupDirty;
+import com.mindwell.mood_service.model.MoodRollupState;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the mood_rollups collection: one bucket per user and UTC day, plus one per
+ * user and ISO week for every week that has fully ended below the high-water mark.
+ * <p>
+ * The compactor rebuilds whole days from raw moods, from the high-water mark up to the last
+ * day that ended at least {@link #GRACE} ago. It runs on one instance at a time, under the
+ * {@value #LEASE} lease (one per shard when moods are sharded, see
+ * {@link ShardedMoodRollupService}), and first seals every day it is about to build
+ * (sealedUntil in {@link MoodRollupState}). Each day is then rebuilt and the mark advanced past it, which is
+ * the step that makes its buckets visible: readers only use buckets below the mark.
+ * <p>
+ * Buckets are never incremented. A change to a mood of a sealed day (an edit, a delete, a
+ * backdated insert) marks its bucket dirty after the mood is stored, reading the state fresh
+ * each time; so the change either reached the raw moods before its day was sealed, and thus
+ * before the rebuild read them, or it left a marker. Each run ends by recomputing the dirty
+ * buckets below the mark from the raw (and archived) moods. Until then readers take dirty
+ * days from the raw moods as well, see {@link #userRollups}.
+ * <p>
+ * Week buckets are folded from the day buckets once the mark passes the end of their week
+ * (weeksUntil in the state), and refolded whenever one of their days is recomputed, so
+ * long-range analytics read about one bucket per week instead of seven. A week with a
+ * dirty day is read as days until that day is recomputed.
+ */
+@Service
+public class MoodRollupService {
+
+    /**
+     * Days are compacted only once they ended this long ago, which bounds the clock skew
+     * between instances that {@link #touched} tolerates.
+     */
+    public static final Duration GRACE = Duration.ofMinutes(5);
+    static final String LEASE = "mood-rollup-compactor";
+
+    private static final Logger log = LoggerFactory.getLogger(MoodRollupService.class);
+    private static final int WRITE_CHUNK = 1000;
+    private static final String OTHER_EMOTION = "other";
+
+    private final MongoTemplate mongoTemplate;
+    private final LeaseService leases;
+    private final boolean enabled;
+    private final Duration leaseDuration;
+    private final Clock clock;
+    private final String lease;
+
+    /**
+     * With {@code mood.rollup.enabled=false} nothing is read from or written to mood_rollups:
+     * the high-water mark stays at the epoch, so analytics are built from raw moods only.
+     */
+    @Autowired
+    public MoodRollupService(MongoTemplate mongoTemplate,
+                             LeaseService leases,
+                             @Value("${mood.rollup.enabled:true}") boolean enabled,
+                             @Value("${mood.rollup.lease-ms:300000}") long leaseMs) {
+        this(mongoTemplate, leases, enabled, Duration.ofMillis(leaseMs), Clock.systemUTC());
+    }
+
+    MoodRollupService(MongoTemplate mongoTemplate, LeaseService leases, boolean enabled, Duration leaseDuration, Clock clock) {
+        this(mongoTemplate, leases, enabled, leaseDuration, clock, LEASE);
+    }
+
+    /**
+     * @param lease name of the compactor lease, distinct per database compacted
+     */
+    MoodRollupService(MongoTemplate mongoTemplate, LeaseService leases, boolean enabled, Duration leaseDuration,
+                      Clock clock, String lease) {
+        this.mongoTemplate = mongoTemplate;
+        this.leases = leases;
+        this.enabled = enabled;
+        this.leaseDuration = leaseDuration;
+        this.clock = clock;
+        this.lease = lease;
+    }
+
+    /**
+     * A service that never touches Mongo, for the inmemory profile and tests.
+     */
+    public static MoodRollupService disabled() {
+        return new MoodRollupService(null, null, false, Duration.ZERO, Clock.systemUTC());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Moods created before this instant are covered by rollups; later ones only exist raw.
+     * Read from Mongo on every call.
+     */
+    public Instant highWaterMark() {
+        if (!enabled) return Instant.EPOCH;
+        return highWaterMark(mongoTemplate.findById(MoodRollupState.MOODS, MoodRollupState.class));
+    }
+
+    private static Instant highWaterMark(@Nullable MoodRollupState state) {
+        return state != null && state.getHighWaterMark() != null ? state.getHighWaterMark() : Instant.EPOCH;
+    }
+
+    /**
+     * The user's rollups as day buckets only; see {@link #userRollups(String, LocalDate)}.
+     */
+    public UserRollups userRollups(String userId) {
+        return userRollups(userId, LocalDate.MIN);
+    }
+
+    /**
+     * A consistent view of the user's rollups: the buckets below the high-water mark that
+     * are not dirty, plus the days the caller must read raw instead. Weeks before
+     * weeklyBefore (a Monday) come as week buckets as far as those are built, and as days
+     * where one of their days is dirty; {@link UserRollups#getWeeklyBefore()} tells how far
+     * that reached. The state is read first and the markers before the buckets, so a bucket
+     * recomputed meanwhile is seen either as dirty or already recomputed.
+     */
+    public UserRollups userRollups(String userId, LocalDate weeklyBefore) {
+        if (!enabled) return new UserRollups(Instant.EPOCH, LocalDate.MIN, List.of(), List.of(), Set.of());
+        MoodRollupState state = mongoTemplate.findById(MoodRollupState.MOODS, MoodRollupState.class);
+        Instant mark = highWaterMark(state);
+        LocalDate split = LocalDate.MIN;
+        if (state != null && state.getWeeksUntil() != null && weeklyBefore.isAfter(LocalDate.MIN)) {
+            split = weekOf(weeklyBefore).isBefore(day(state.getWeeksUntil())) ? weekOf(weeklyBefore) : day(state.getWeeksUntil());
+        }
+        Set<LocalDate> dirty = new TreeSet<>();
+        for (MoodRollupDirty marker : mongoTemplate.find(
+                Query.query(Criteria.where("userId").is(userId).and("periodStart").lt(mark)), MoodRollupDirty.class)) {
+            dirty.add(day(marker.getPeriodStart()));
+        }
+        Set<LocalDate> dirtyWeeks = new TreeSet<>();
+        for (LocalDate day : dirty) {
+            if (day.isBefore(split)) dirtyWeeks.add(weekOf(day));
+        }
+
+        List<MoodRollup> weeks = new ArrayList<>();
+        if (split.isAfter(LocalDate.MIN)) {
+            Query query = Query.query(Criteria.where("userId").is(userId)
+                            .and("granularity").is(MoodRollup.Granularity.WEEK)
+                            .and("periodStart").lt(startOf(split)))
+                    .with(Sort.by("periodStart"));
+            for (MoodRollup rollup : mongoTemplate.find(query, MoodRollup.class)) {
+                if (!dirtyWeeks.contains(day(rollup.getPeriodStart()))) weeks.add(rollup);
+            }
+        }
+        // The days after the split, and those of the weeks that cannot be read whole.
+        List<Criteria> periods = new ArrayList<>();
+        periods.add(split.isAfter(LocalDate.MIN)
+                ? Criteria.where("periodStart").gte(startOf(split)).lt(mark)
+                : Criteria.where("periodStart").lt(mark));
+        for (LocalDate week : dirtyWeeks) {
+            periods.add(Criteria.where("periodStart").gte(startOf(week)).lt(startOf(week.plusWeeks(1))));
+        }
+        Query query = Query.query(Criteria.where("userId").is(userId)
+                        .and("granularity").is(MoodRollup.Granularity.DAY)
+                        .orOperator(periods.toArray(new Criteria[0])))
+                .with(Sort.by("periodStart"));
+        List<MoodRollup> days = new ArrayList<>();
+        for (MoodRollup rollup : mongoTemplate.find(query, MoodRollup.class)) {
+            if (!dirty.contains(day(rollup.getPeriodStart()))) days.add(rollup);
+        }
+        return new UserRollups(mark, split, weeks, days, dirty);
+    }
+
+    /**
+     * Marks the buckets of moods that were just created, changed or deleted dirty where
+     * their day is sealed. Call after the change is stored. Moods of the current day are
+     * skipped without reading the state: no instance seals a day until {@link #GRACE}
+     * after it ended.
+     */
+    public void touched(Collection<Mood> moods) {
+        if (!enabled || moods.isEmpty()) return;
+        Instant today = startOf(day(clock.instant()));
+        List<Mood> older = new ArrayList<>();
+        for (Mood m : moods) {
+            if (m.getCreatedAt() != null && m.getCreatedAt().isBefore(today)) older.add(m);
+        }
+        if (older.isEmpty()) return;
+        MoodRollupState state = mongoTemplate.findById(MoodRollupState.MOODS, MoodRollupState.class);
+        Instant sealed = state != null ? state.getSealedUntil() : null;
+        if (sealed == null) return;
+        Set<String> marked = new HashSet<>();
+        for (Mood m : older) {
+            if (!m.getCreatedAt().isBefore(sealed)) continue;
+            Instant start = startOf(day(m.getCreatedAt()));
+            String id = MoodRollup.idOf(m.getUserId(), MoodRollup.Granularity.DAY, start);
+            if (!marked.add(id)) continue;
+            mongoTemplate.upsert(Query.query(Criteria.where("_id").is(id)),
+                    new Update().setOnInsert("userId", m.getUserId()).setOnInsert("periodStart", start).inc("seq", 1),
+                    MoodRollupDirty.class);
+        }
+    }
+
+    public void touched(Mood... moods) {
+        touched(List.of(moods));
+    }
+
+    // ---- Compaction ----
+
+    /**
+     * Compaction without an archive; see {@link #compact(MoodArchive)}.
+     */
+    public int compact() {
+        return compact(null);
+    }
+
+    /**
+     * Rolls up every day between the high-water mark and the last day that ended at least
+     * {@link #GRACE} ago, then recomputes dirty buckets. Does nothing while another instance
+     * holds the lease, and stops early if it cannot renew it. Returns the number of days
+     * compacted.
+     *
+     * @param archive cold tier to include in recomputed buckets, or null
+     */
+    public int compact(@Nullable MoodArchive archive) {
+        if (!enabled || !leases.acquire(lease, leaseDuration)) return 0;
+        try {
+            // Days before this one have ended at least GRACE ago.
+            LocalDate last = day(clock.instant().minus(GRACE));
+            Instant sealUntil = startOf(last);
+            MoodRollupState state = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(MoodRollupState.MOODS)),
+                    new Update().max("sealedUntil", sealUntil),
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), MoodRollupState.class);
+            // Sealed before looking for the oldest mood, so older moods added later are marked dirty.
+            LocalDate from = state.getHighWaterMark() != null ? day(state.getHighWaterMark()) : earliestMoodDay(last);
+            if (state.getHighWaterMark() == null) advance(from);
+
+            int days = 0;
+            for (LocalDate day = from; day.isBefore(last); day = day.plusDays(1)) {
+                if (days > 0 && !leases.acquire(lease, leaseDuration)) {
+                    log.warn("Lost the rollup compactor lease; stopping before {}", day);
+                    return days;
+                }
+                rebuildDay(day);
+                // The day's buckets become visible to readers with this single update.
+                advance(day.plusDays(1));
+                days++;
+            }
+            int weeks = rollUpWeeks();
+            int recomputed = recomputeDirty(archive);
+            if (days > 0 || weeks > 0 || recomputed > 0) {
+                log.info("Compacted {} day(s) and {} week(s) of moods into rollups up to {}, recomputed {} dirty bucket(s)",
+                        days, weeks, last, recomputed);
+            }
+            return days;
+        } finally {
+            leases.release(lease);
+        }
+    }
+
+    private void advance(LocalDate day) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(MoodRollupState.MOODS)),
+                new Update().set("highWaterMark", startOf(day)), MoodRollupState.class);
+    }
+
+    private void rebuildDay(LocalDate day) {
+        Instant start = startOf(day);
+        Instant end = startOf(day.plusDays(1));
+        mongoTemplate.remove(Query.query(Criteria.where("granularity").is(MoodRollup.Granularity.DAY)
+                .and("periodStart").is(start)), MoodRollup.class);
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("createdAt").gte(start).lt(end)),
+                Aggregation.group("userId", "score", "emotion").count().as("n"),
+                Aggregation.sort(Sort.by("userId")))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        try (Stream<Document> stream = mongoTemplate.aggregateStream(aggregation, "moods", Document.class);
+             RollupWriter writer = new RollupWriter()) {
+            Iterator<Document> rows = stream.iterator();
+            MoodRollup current = null;
+            while (rows.hasNext()) {
+                Document row = rows.next();
+                Document key = row.get("_id", Document.class);
+                String userId = key.getString("userId");
+                if (current == null || !Objects.equals(current.getUserId(), userId)) {
+                    writer.add(current);
+                    current = new MoodRollup(userId, MoodRollup.Granularity.DAY, start);
+                }
+                add(current, ((Number) key.get("score")).intValue(), key.getString("emotion"),
+                        ((Number) row.get("n")).longValue());
+            }
+            writer.add(current);
+        }
+    }
+
+    /**
+     * Folds the day buckets of every week that ended below the mark and is not folded yet
+     * into week buckets, advancing weeksUntil past each one. The first run after week
+     * buckets existed starts at the oldest day bucket. Returns the number of weeks folded.
+     */
+    private int rollUpWeeks() {
+        MoodRollupState state = mongoTemplate.findById(MoodRollupState.MOODS, MoodRollupState.class);
+        Instant mark = highWaterMark(state);
+        LocalDate week;
+        if (state.getWeeksUntil() != null) {
+            week = day(state.getWeeksUntil());
+        } else {
+            Query oldest = Query.query(Criteria.where("granularity").is(MoodRollup.Granularity.DAY))
+                    .with(Sort.by("periodStart")).limit(1);
+            MoodRollup first = mongoTemplate.findOne(oldest, MoodRollup.class);
+            week = weekOf(day(first != null ? first.getPeriodStart() : mark));
+            advanceWeeks(week);
+        }
+        int weeks = 0;
+        for (; !startOf(week.plusWeeks(1)).isAfter(mark); week = week.plusWeeks(1)) {
+            if (weeks > 0 && !leases.acquire(lease, leaseDuration)) {
+                log.warn("Lost the rollup compactor lease; stopping before the week of {}", week);
+                return weeks;
+            }
+            rebuildWeek(week);
+            advanceWeeks(week.plusWeeks(1));
+            weeks++;
+        }
+        return weeks;
+    }
+
+    private void advanceWeeks(LocalDate monday) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(MoodRollupState.MOODS)),
+                new Update().set("weeksUntil", startOf(monday)), MoodRollupState.class);
+    }
+
+    private void rebuildWeek(LocalDate monday) {
+        Instant start = startOf(monday);
+        Instant end = startOf(monday.plusWeeks(1));
+        mongoTemplate.remove(Query.query(Criteria.where("granularity").is(MoodRollup.Granularity.WEEK)
+                .and("periodStart").is(start)), MoodRollup.class);
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("granularity").is(MoodRollup.Granularity.DAY)
+                        .and("periodStart").gte(start).lt(end)),
+                Aggregation.sort(Sort.by("userId", "periodStart")))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        try (Stream<MoodRollup> stream = mongoTemplate.aggregateStream(aggregation, "mood_rollups", MoodRollup.class);
+             RollupWriter writer = new RollupWriter()) {
+            Iterator<MoodRollup> days = stream.iterator();
+            MoodRollup current = null;
+            while (days.hasNext()) {
+                MoodRollup day = days.next();
+                if (current == null || !Objects.equals(current.getUserId(), day.getUserId())) {
+                    writer.add(current);
+                    current = newWeek(day.getUserId(), monday);
+                }
+                addDay(current, day);
+            }
+            writer.add(current);
+        }
+    }
+
+    // Refolds one user's week after one of its days was recomputed.
+    private void rebuildWeek(String userId, LocalDate monday) {
+        MoodRollup week = newWeek(userId, monday);
+        mongoTemplate.find(Query.query(Criteria.where("userId").is(userId)
+                        .and("granularity").is(MoodRollup.Granularity.DAY)
+                        .and("periodStart").gte(startOf(monday)).lt(startOf(monday.plusWeeks(1)))), MoodRollup.class)
+                .forEach(day -> addDay(week, day));
+        if (week.getCount() == 0) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(week.getId())), MoodRollup.class);
+        } else {
+            mongoTemplate.save(week);
+        }
+    }
+
+    private static MoodRollup newWeek(String userId, LocalDate monday) {
+        MoodRollup week = new MoodRollup(userId, MoodRollup.Granularity.WEEK, startOf(monday));
+        week.setDayCounts(new ArrayList<>(Collections.nCopies(7, 0L)));
+        return week;
+    }
+
+    private static void addDay(MoodRollup week, MoodRollup day) {
+        week.setCount(week.getCount() + day.getCount());
+        week.setSum(week.getSum() + day.getSum());
+        day.getScores().forEach((k, v) -> week.getScores().merge(k, v, Long::sum));
+        day.getEmotions().forEach((k, v) -> week.getEmotions().merge(k, v, Long::sum));
+        int weekday = day(day.getPeriodStart()).getDayOfWeek().getValue() - 1;
+        week.getDayCounts().set(weekday, week.getDayCounts().get(weekday) + day.getCount());
+    }
+
+    /**
+     * Recomputes each dirty bucket below the mark from the user's raw moods of that day,
+     * and its week bucket if the week is folded, then clears its marker unless it was
+     * marked again meanwhile.
+     */
+    private int recomputeDirty(@Nullable MoodArchive archive) {
+        MoodRollupState state = mongoTemplate.findById(MoodRollupState.MOODS, MoodRollupState.class);
+        Instant mark = highWaterMark(state);
+        LocalDate weeksUntil = state != null && state.getWeeksUntil() != null ? day(state.getWeeksUntil()) : LocalDate.MIN;
+        int recomputed = 0;
+        Query dirty = Query.query(Criteria.where("periodStart").lt(mark));
+        try (Stream<MoodRollupDirty> stream = mongoTemplate.stream(dirty, MoodRollupDirty.class)) {
+            Iterator<MoodRollupDirty> markers = stream.iterator();
+            while (markers.hasNext()) {
+                MoodRollupDirty marker = markers.next();
+                recompute(marker.getUserId(), marker.getPeriodStart(), archive);
+                LocalDate week = weekOf(day(marker.getPeriodStart()));
+                if (week.isBefore(weeksUntil)) rebuildWeek(marker.getUserId(), week);
+                mongoTemplate.remove(Query.query(Criteria.where("_id").is(marker.getId()).and("seq").is(marker.getSeq())),
+                        MoodRollupDirty.class);
+                recomputed++;
+            }
+        }
+        return recomputed;
+    }
+
+    private void recompute(String userId, Instant start, @Nullable MoodArchive archive) {
+        Instant end = startOf(day(start).plusDays(1));
+        Map<String, Mood> moods = new LinkedHashMap<>();
+        mongoTemplate.find(Query.query(Criteria.where("userId").is(userId).and("createdAt").gte(start).lt(end)), Mood.class)
+                .forEach(m -> moods.put(m.getId(), m));
+        if (archive != null) {
+            // A mood being restored is briefly in both tiers; the hot copy counts.
+            archive.findCreatedBetween(userId, start, end).forEach(m -> moods.putIfAbsent(m.getId(), m));
+        }
+        String id = MoodRollup.idOf(userId, MoodRollup.Granularity.DAY, start);
+        if (moods.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(id)), MoodRollup.class);
+            return;
+        }
+        MoodRollup rollup = new MoodRollup(userId, MoodRollup.Granularity.DAY, start);
+        moods.values().forEach(m -> add(rollup, m.getScore(), m.getEmotion(), 1));
+        mongoTemplate.save(rollup);
+    }
+
+    private static void add(MoodRollup rollup, int score, String emotion, long n) {
+        rollup.setCount(rollup.getCount() + n);
+        rollup.setSum(rollup.getSum() + score * n);
+        rollup.getScores().merge(Integer.toString(score), n, Long::sum);
+        if (emotion != null) rollup.getEmotions().merge(emotionKey(emotion), n, Long::sum);
+    }
+
+    private LocalDate earliestMoodDay(LocalDate fallback) {
+        Query oldest = new Query(Criteria.where("createdAt").ne(null)).with(Sort.by("createdAt")).limit(1);
+        oldest.fields().include("createdAt");
+        Mood first = mongoTemplate.findOne(oldest, Mood.class);
+        return first != null && day(first.getCreatedAt()).isBefore(fallback) ? day(first.getCreatedAt()) : fallback;
+    }
+
+    // ---- Moving users between shards (see ShardedMoodRollupService) ----
+
+    @Nullable
+    MoodRollupState state() {
+        return mongoTemplate.findById(MoodRollupState.MOODS, MoodRollupState.class);
+    }
+
+    /**
+     * Starts compaction of a database that holds no moods yet at the given state, so the
+     * users moved onto it keep the buckets they had instead of being rebuilt from raw moods,
+     * which no longer include their archived ones. Does nothing once the database has a
+     * state or any mood.
+     */
+    void seed(MoodRollupState from) {
+        if (!enabled || mongoTemplate.exists(new Query(), Mood.class)) return;
+        Update update = new Update().setOnInsert("highWaterMark", from.getHighWaterMark())
+                .setOnInsert("sealedUntil", from.getHighWaterMark());
+        if (from.getWeeksUntil() != null) update.setOnInsert("weeksUntil", from.getWeeksUntil());
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(MoodRollupState.MOODS)), update, MoodRollupState.class);
+    }
+
+    /**
+     * Users with buckets here, in id order, after the given one (null for the first page).
+     */
+    List<String> findUserIdsAfter(@Nullable String after, int limit) {
+        List<String> users = new ArrayList<>(limit);
+        String cursor = after;
+        while (enabled && users.size() < limit) {
+            Query next = Query.query(cursor == null ? Criteria.where("userId").gte("") : Criteria.where("userId").gt(cursor))
+                    .with(Sort.by("userId")).limit(1);
+            next.fields().include("userId");
+            MoodRollup rollup = mongoTemplate.findOne(next, MoodRollup.class);
+            if (rollup == null) break;
+            cursor = rollup.getUserId();
+            users.add(cursor);
+        }
+        return users;
+    }
+
+    /**
+     * Copies the user's buckets and markers to the target database, after the user's moods
+     * were copied there and while nothing else writes them. Only buckets the target's
+     * compactor is past are copied (days below its mark, weeks below its weeksUntil), so
+     * they never clash with its inserts; every day of the user from the first week either
+     * side may not have folded on is then marked dirty on the target where sealed, so the
+     * target recomputes what was not copied or was built without the user.
+     */
+    void copyUser(String userId, MoodRollupService target) {
+        if (!enabled) return;
+        MoodRollupState from = state();
+        MoodRollupState to = target.state();
+        Instant mark = highWaterMark(to);
+        Instant weeksUntil = to != null ? to.getWeeksUntil() : null;
+        Instant recheckFrom = from == null || from.getWeeksUntil() == null || weeksUntil == null ? null
+                : from.getWeeksUntil().isBefore(weeksUntil) ? from.getWeeksUntil() : weeksUntil;
+
+        Set<Instant> recheck = new TreeSet<>();
+        List<MoodRollup> copies = new ArrayList<>();
+        try (Stream<MoodRollup> stream = mongoTemplate.stream(Query.query(Criteria.where("userId").is(userId)), MoodRollup.class)) {
+            Iterator<MoodRollup> rollups = stream.iterator();
+            while (rollups.hasNext()) {
+                MoodRollup rollup = rollups.next();
+                Instant start = rollup.getPeriodStart();
+                if (rollup.getGranularity() == MoodRollup.Granularity.DAY) {
+                    if (recheckFrom == null || !start.isBefore(recheckFrom)) recheck.add(start);
+                    if (start.isBefore(mark)) copies.add(rollup);
+                } else if (weeksUntil != null && start.isBefore(weeksUntil)) {
+                    copies.add(rollup);
+                }
+                if (copies.size() >= WRITE_CHUNK) target.replace(copies);
+            }
+        }
+        target.replace(copies);
+        for (MoodRollupDirty marker : mongoTemplate.find(Query.query(Criteria.where("userId").is(userId)), MoodRollupDirty.class)) {
+            target.markDirty(List.of(marker.getPeriodStart()), userId);
+        }
+
+        // Read after the moods were copied, as in touched(): later days are built from them.
+        MoodRollupState now = target.state();
+        Instant sealed = now != null ? now.getSealedUntil() : null;
+        if (sealed == null) return;
+        Query moods = Query.query(recheckFrom == null
+                ? Criteria.where("userId").is(userId).and("createdAt").lt(sealed)
+                : Criteria.where("userId").is(userId).and("createdAt").gte(recheckFrom).lt(sealed));
+        moods.fields().include("createdAt");
+        target.mongoTemplate.find(moods, Mood.class).forEach(m -> recheck.add(startOf(day(m.getCreatedAt()))));
+        recheck.removeIf(start -> !start.isBefore(sealed));
+        target.markDirty(recheck, userId);
+    }
+
+    /**
+     * Removes the user's buckets and markers, once the user has moved to another database.
+     */
+    void deleteUser(String userId) {
+        if (!enabled) return;
+        mongoTemplate.remove(Query.query(Criteria.where("userId").is(userId)), MoodRollup.class);
+        mongoTemplate.remove(Query.query(Criteria.where("userId").is(userId)), MoodRollupDirty.class);
+    }
+
+    // Overwrites what an interrupted move left behind.
+    private void replace(List<MoodRollup> rollups) {
+        if (rollups.isEmpty()) return;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MoodRollup.class);
+        rollups.forEach(r -> bulk.replaceOne(Query.query(Criteria.where("_id").is(r.getId())), r,
+                FindAndReplaceOptions.options().upsert()));
+        bulk.execute();
+        rollups.clear();
+    }
+
+    private void markDirty(Collection<Instant> days, String userId) {
+        if (days.isEmpty()) return;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MoodRollupDirty.class);
+        for (Instant start : days) {
+            bulk.upsert(Query.query(Criteria.where("_id").is(MoodRollup.idOf(userId, MoodRollup.Granularity.DAY, start))),
+                    new Update().setOnInsert("userId", userId).setOnInsert("periodStart", start).inc("seq", 1));
+        }
+        bulk.execute();
+    }
+
+    /**
+     * Turns a rollup document back into in-memory stats.
+     */
+    public static MoodStats toStats(MoodRollup rollup) {
+        return MoodStats.fromHistograms(rollup.getScores(), rollup.getEmotions());
+    }
+
+    public static LocalDate day(Instant instant) {
+        return LocalDate.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    public static Instant startOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    /**
+     * The Monday of the day's ISO week.
+     */
+    public static LocalDate weekOf(LocalDate day) {
+        return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    // Map keys in Mongo documents cannot contain '.' or start with '$'.
+    private static String emotionKey(String emotion) {
+        return emotion.isEmpty() || emotion.indexOf('.') >= 0 || emotion.startsWith("$") ? OTHER_EMOTION : emotion;
+    }
+
+    /**
+     * One user's usable rollups; see {@link #userRollups}.
+     */
+    public static final class UserRollups {
+        private final Instant highWaterMark;
+        private final LocalDate weeklyBefore;
+        private final List<MoodRollup> weeks;
+        private final List<MoodRollup> days;
+        private final Set<LocalDate> dirtyDays;
+
+        UserRollups(Instant highWaterMark, LocalDate weeklyBefore, List<MoodRollup> weeks, List<MoodRollup> days,
+                    Set<LocalDate> dirtyDays) {
+            this.highWaterMark = highWaterMark;
+            this.weeklyBefore = weeklyBefore;
+            this.weeks = weeks;
+            this.days = days;
+            this.dirtyDays = dirtyDays;
+        }
+
+        /**
+         * Moods created at or after this instant must be read raw.
+         */
+        public Instant getHighWaterMark() {
+            return highWaterMark;
+        }
+
+        /**
+         * Weeks before this Monday are covered by {@link #getWeeks()}, except for the days
+         * of weeks that hold a dirty day; LocalDate.MIN when no weeks were read.
+         */
+        public LocalDate getWeeklyBefore() {
+            return weeklyBefore;
+        }
+
+        /**
+         * Clean weekly buckets before {@link #getWeeklyBefore()}, oldest first.
+         */
+        public List<MoodRollup> getWeeks() {
+            return weeks;
+        }
+
+        /**
+         * Clean daily buckets below the mark and not covered by a week bucket, oldest first.
+         */
+        public List<MoodRollup> getDays() {
+            return days;
+        }
+
+        /**
+         * Days below the mark whose buckets are stale and must be read raw.
+         */
+        public Set<LocalDate> getDirtyDays() {
+            return dirtyDays;
+        }
+    }
+
+    /**
+     * Buffers finished rollups and bulk-inserts them in chunks.
+     */
+    private class RollupWriter implements AutoCloseable {
+        private final List<MoodRollup> buffer = new ArrayList<>();
+
+        void add(MoodRollup rollup) {
+            if (rollup == null) return;
+            buffer.add(rollup);
+            if (buffer.size() >= WRITE_CHUNK) flush();
+        }
+
+        void flush() {
+            if (buffer.isEmpty()) return;
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MoodRollup.class);
+            bulk.insert(buffer);
+            bulk.execute();
+            buffer.clear();
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+}
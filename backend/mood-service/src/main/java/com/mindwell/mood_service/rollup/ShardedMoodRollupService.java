@@ -0,0 +1,155 @@
+package com.mindwell.mood_service.rollup;
+
+import com.mindwell.mood_service.archive.MoodArchive;
+import com.mindwell.mood_service.lease.LeaseService;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.model.MoodRollupState;
+import com.mindwell.mood_service.repository.ShardUserData;
+import com.mindwell.mood_service.repository.ShardedMoodRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.lang.Nullable;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rollups of sharded moods (mood.sharding.enabled=true, see MoodShardingConfig). Each shard
+ * database keeps the buckets, dirty markers and compaction state of its own moods, compacted
+ * by its own {@link MoodRollupService} under a lease of its own, so the shards compact in
+ * parallel and the admin dashboard reads each one with its own mark. A user's rollups are
+ * read from and marked on the user's shard, like its moods.
+ * <p>
+ * When shards are appended, the repository moves each user's rollups along with its moods
+ * ({@link ShardUserData}). An appended shard starts compacting at the oldest mark of the
+ * others, so the buckets of moved users, archived moods included, carry over instead of
+ * being rebuilt from the raw moods. A compaction of the old shard that is still folding the
+ * user's last days while the user moves can leave buckets behind there; they are no longer
+ * read, and the rebalancer deletes them with the user's other leftovers.
+ */
+public class ShardedMoodRollupService extends MoodRollupService implements ShardUserData {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedMoodRollupService.class);
+
+    private final List<MoodRollupService> shards;
+    private final ShardedMoodRepository repository;
+
+    /**
+     * @param templates  one database per shard, in configuration order
+     * @param repository the sharded moods, which then moves each user's rollups along
+     */
+    public ShardedMoodRollupService(List<MongoTemplate> templates, ShardedMoodRepository repository, LeaseService leases,
+                                    boolean enabled, Duration leaseDuration) {
+        this(templates, repository, leases, enabled, leaseDuration, Clock.systemUTC());
+    }
+
+    ShardedMoodRollupService(List<MongoTemplate> templates, ShardedMoodRepository repository, LeaseService leases,
+                             boolean enabled, Duration leaseDuration, Clock clock) {
+        super(null, leases, enabled, leaseDuration, clock);
+        this.repository = repository;
+        List<MoodRollupService> shards = new ArrayList<>(templates.size());
+        for (int i = 0; i < templates.size(); i++) {
+            shards.add(new MoodRollupService(templates.get(i), leases, enabled, leaseDuration, clock, LEASE + "-" + i));
+        }
+        this.shards = List.copyOf(shards);
+        seedAppendedShards();
+        repository.setUserData(this);
+    }
+
+    // Empty shards without a state start at the oldest mark and weeksUntil of the others.
+    private void seedAppendedShards() {
+        if (!isEnabled()) return;
+        Instant mark = null;
+        Instant weeks = null;
+        boolean folded = true;
+        for (MoodRollupService shard : shards) {
+            MoodRollupState state = shard.state();
+            if (state == null || state.getHighWaterMark() == null) continue;
+            if (mark == null || state.getHighWaterMark().isBefore(mark)) mark = state.getHighWaterMark();
+            if (state.getWeeksUntil() == null) {
+                folded = false;
+            } else if (weeks == null || state.getWeeksUntil().isBefore(weeks)) {
+                weeks = state.getWeeksUntil();
+            }
+        }
+        if (mark == null) return;
+        MoodRollupState oldest = new MoodRollupState();
+        oldest.setHighWaterMark(mark);
+        oldest.setWeeksUntil(folded ? weeks : null);
+        for (MoodRollupService shard : shards) {
+            if (shard.state() == null) shard.seed(oldest);
+        }
+    }
+
+    /**
+     * The oldest mark of all shards: moods created before it are covered on every shard.
+     */
+    @Override
+    public Instant highWaterMark() {
+        Instant oldest = null;
+        for (MoodRollupService shard : shards) {
+            Instant mark = shard.highWaterMark();
+            if (oldest == null || mark.isBefore(oldest)) oldest = mark;
+        }
+        return oldest != null ? oldest : Instant.EPOCH;
+    }
+
+    @Override
+    public UserRollups userRollups(String userId, LocalDate weeklyBefore) {
+        if (!isEnabled()) return super.userRollups(userId, weeklyBefore);
+        return shards.get(repository.placeUser(userId)).userRollups(userId, weeklyBefore);
+    }
+
+    @Override
+    public void touched(Collection<Mood> moods) {
+        if (!isEnabled() || moods.isEmpty()) return;
+        Map<Integer, List<Mood>> byShard = new HashMap<>();
+        for (Mood m : moods) {
+            byShard.computeIfAbsent(repository.shardOf(m.getUserId()), s -> new ArrayList<>()).add(m);
+        }
+        byShard.forEach((shard, shardMoods) -> shards.get(shard).touched(shardMoods));
+    }
+
+    /**
+     * Compacts each shard in turn, each under its own lease; a failing shard does not hold
+     * up the others. Returns the number of days compacted across shards.
+     */
+    @Override
+    public int compact(@Nullable MoodArchive archive) {
+        int days = 0;
+        for (int i = 0; i < shards.size(); i++) {
+            try {
+                days += shards.get(i).compact(archive);
+            } catch (RuntimeException e) {
+                // Resumes from the shard's own high-water mark next run.
+                log.warn("Mood rollup compaction of shard {} failed: {}", i, e.getMessage());
+            }
+        }
+        return days;
+    }
+
+    // ---- ShardUserData: rollups move with their user ----
+
+    @Override
+    public List<String> findUserIdsAfter(int shard, String after, int limit) {
+        return shards.get(shard).findUserIdsAfter(after, limit);
+    }
+
+    @Override
+    public void copy(String userId, int from, int to) {
+        shards.get(from).copyUser(userId, shards.get(to));
+    }
+
+    @Override
+    public void delete(String userId, int from) {
+        shards.get(from).deleteUser(userId);
+    }
+}
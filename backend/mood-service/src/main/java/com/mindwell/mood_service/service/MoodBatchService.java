@@ -0,0 +1,165 @@
+package com.mindwell.mood_service.service;
+
+import com.mindwell.mood_service.analytics.MoodAnalyticsEngine;
+import com.mindwell.mood_service.dto.CreateMoodRequest;
+import com.mindwell.mood_service.dto.MoodBatchResult;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.repository.MongoMoodRepository;
+import com.mindwell.mood_service.repository.MoodInsertResult;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Bulk ingestion for offline sync: validates each entry, writes valid ones with unordered
+ * bulk inserts in chunks, and reports a result per entry. Entries carrying an
+ * idempotency key are inserted at most once per user, so retried uploads are safe.
+ */
+@Service
+public class MoodBatchService {
+
+    private static final int MAX_NOTE_LENGTH = 2000;
+    private static final int MAX_KEY_LENGTH = 128;
+    private static final Duration MAX_CLOCK_SKEW = Duration.ofMinutes(5);
+
+    private final MongoMoodRepository repository;
+    private final MoodAnalyticsEngine analyticsEngine;
+    private final int chunkSize;
+    private final int maxItems;
+
+    public MoodBatchService(MongoMoodRepository repository,
+                            MoodAnalyticsEngine analyticsEngine,
+                            @Value("${mood.batch.chunk-size:500}") int chunkSize,
+                            @Value("${mood.batch.max-items:5000}") int maxItems) {
+        this.repository = repository;
+        this.analyticsEngine = analyticsEngine;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxItems = maxItems;
+    }
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    public MoodBatchResult createBatch(String userId, List<CreateMoodRequest> requests) {
+        if (requests.size() > maxItems) {
+            throw new IllegalArgumentException("Batch exceeds " + maxItems + " items");
+        }
+        MoodBatchResult result = new MoodBatchResult();
+        for (int start = 0; start < requests.size(); start += chunkSize) {
+            int end = Math.min(start + chunkSize, requests.size());
+            writeChunk(userId, requests, start, end, result);
+        }
+        return result.summarize();
+    }
+
+    private void writeChunk(String userId, List<CreateMoodRequest> requests, int start, int end, MoodBatchResult result) {
+        List<Mood> pending = new ArrayList<>();
+        List<MoodBatchResult.Item> pendingItems = new ArrayList<>();
+        Map<String, MoodBatchResult.Item> firstByKey = new HashMap<>();
+        Instant now = Instant.now();
+
+        for (int i = start; i < end; i++) {
+            CreateMoodRequest req = requests.get(i);
+            String key = req == null ? null : req.getIdempotencyKey();
+            MoodBatchResult.Item item = new MoodBatchResult.Item(i, null, null, key, null);
+            result.add(item);
+
+            String error = validate(req, now);
+            if (error != null) {
+                item.setStatus(MoodBatchResult.INVALID);
+                item.setError(error);
+                continue;
+            }
+            // The same key twice in one chunk: only the first one is written.
+            if (key != null && firstByKey.containsKey(key)) {
+                item.setStatus(MoodBatchResult.DUPLICATE);
+                item.setId(firstByKey.get(key).getId());
+                continue;
+            }
+
+            Mood m = new Mood();
+            m.setId(new ObjectId().toHexString());
+            m.setUserId(userId);
+            m.setScore(req.getScore());
+            m.setNote(req.getNote());
+            m.setEmotion(req.getEmotion());
+            m.setCreatedAt(req.getCreatedAt() != null ? req.getCreatedAt() : now);
+            m.setIdempotencyKey(key);
+            item.setId(m.getId());
+            pending.add(m);
+            pendingItems.add(item);
+            if (key != null) firstByKey.put(key, item);
+        }
+        if (pending.isEmpty()) return;
+
+        long ticket = analyticsEngine.startWrite();
+        MoodInsertResult inserted;
+        try {
+            inserted = repository.insertUnordered(pending);
+        } catch (DataAccessException e) {
+            for (MoodBatchResult.Item item : pendingItems) {
+                item.setStatus(MoodBatchResult.FAILED);
+                item.setId(null);
+                item.setError(e.getMessage());
+            }
+            return;
+        }
+
+        List<MoodBatchResult.Item> duplicates = new ArrayList<>();
+        List<Mood> created = new ArrayList<>();
+        for (int j = 0; j < pending.size(); j++) {
+            MoodBatchResult.Item item = pendingItems.get(j);
+            if (inserted.isDuplicate(j) && item.getIdempotencyKey() != null) {
+                item.setStatus(MoodBatchResult.DUPLICATE);
+                duplicates.add(item);
+            } else if (inserted.isDuplicate(j) || inserted.getFailure(j) != null) {
+                item.setStatus(MoodBatchResult.FAILED);
+                item.setId(null);
+                item.setError(inserted.isDuplicate(j) ? "Duplicate key" : inserted.getFailure(j));
+            } else {
+                item.setStatus(MoodBatchResult.CREATED);
+                created.add(pending.get(j));
+            }
+        }
+        analyticsEngine.onCreated(userId, created, ticket);
+        resolveDuplicates(userId, duplicates);
+    }
+
+    /**
+     * Points duplicate items at the mood that an earlier upload already stored.
+     */
+    private void resolveDuplicates(String userId, List<MoodBatchResult.Item> duplicates) {
+        if (duplicates.isEmpty()) return;
+        Set<String> keys = new HashSet<>();
+        duplicates.forEach(item -> keys.add(item.getIdempotencyKey()));
+        Map<String, String> existing = new HashMap<>();
+        for (Mood m : repository.findByUserIdAndIdempotencyKeyIn(userId, keys)) {
+            existing.put(m.getIdempotencyKey(), m.getId());
+        }
+        for (MoodBatchResult.Item item : duplicates) {
+            item.setId(existing.get(item.getIdempotencyKey()));
+        }
+    }
+
+    private static String validate(CreateMoodRequest req, Instant now) {
+        if (req == null) return "Entry is empty";
+        if (req.getScore() < 1 || req.getScore() > 10) return "Score must be between 1 and 10";
+        if (req.getNote() != null && req.getNote().length() > MAX_NOTE_LENGTH) {
+            return "Note exceeds " + MAX_NOTE_LENGTH + " characters";
+        }
+        if (req.getIdempotencyKey() != null
+                && (req.getIdempotencyKey().isBlank() || req.getIdempotencyKey().length() > MAX_KEY_LENGTH)) {
+            return "Idempotency key must be 1-" + MAX_KEY_LENGTH + " characters";
+        }
+        if (req.getCreatedAt() != null && req.getCreatedAt().isAfter(now.plus(MAX_CLOCK_SKEW))) {
+            return "createdAt is in the future";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,112 @@
+package com.mindwell.mood_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindwell.mood_service.archive.MoodArchive;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.repository.MongoMoodRepository;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+/**
+ * Streams a user's full mood history straight from a Mongo cursor to the response.
+ * Only one cursor batch and one write buffer are held in memory at a time, and the cursor
+ * only advances as fast as the client reads. Archived moods are merged in from the archive
+ * segments, inflated one block at a time as the merge reaches them.
+ */
+@Service
+public class MoodExportService {
+
+    public enum Format { NDJSON, CSV }
+
+    public static final String CSV_HEADER = "id,createdAt,score,emotion,note\n";
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final String FORMULA_START = "=+-@\t\r";
+
+    private final MongoMoodRepository repository;
+    private final ObjectMapper objectMapper;
+    private final MoodArchive archive;
+
+    public MoodExportService(MongoMoodRepository repository, ObjectMapper objectMapper,
+                             @Nullable MoodArchive archive) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.archive = archive;
+    }
+
+    public void export(String userId, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+        }
+        Stream<Mood> hot = repository.streamByUserIdOrderByCreatedAtAsc(userId);
+        try (Stream<Mood> moods = archive != null ? archive.mergeOldestFirst(userId, hot) : hot) {
+            moods.forEach(m -> {
+                try {
+                    if (format == Format.CSV) writeCsv(writer, m);
+                    else writeNdjson(writer, m);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; closing the stream above released the cursor.
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void writeNdjson(Writer writer, Mood m) throws IOException {
+        writer.write(objectMapper.writeValueAsString(m));
+        writer.write('\n');
+    }
+
+    /**
+     * One CSV line for the mood, including the newline.
+     */
+    public static String csvRow(Mood m) {
+        StringWriter row = new StringWriter(64);
+        try {
+            writeCsv(row, m);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return row.toString();
+    }
+
+    private static void writeCsv(Writer writer, Mood m) throws IOException {
+        writer.write(csv(m.getId()));
+        writer.write(',');
+        writer.write(m.getCreatedAt() != null ? m.getCreatedAt().toString() : "");
+        writer.write(',');
+        writer.write(Integer.toString(m.getScore()));
+        writer.write(',');
+        writer.write(csv(m.getEmotion()));
+        writer.write(',');
+        writer.write(csv(m.getNote()));
+        writer.write('\n');
+    }
+
+    /**
+     * Quotes the value when needed. Text a spreadsheet would run as a formula (a leading =, +,
+     * -, @, tab or carriage return) is prefixed with a single quote so it stays text.
+     */
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (!value.isEmpty() && FORMULA_START.indexOf(value.charAt(0)) >= 0) value = "'" + value;
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,70 +1,220 @@
 package com.mindwell.mood_service.service;
 
+import com.mindwell.mood_service.analytics.MoodAnalyticsEngine;
+import com.mindwell.mood_service.archive.MoodArchive;
 import com.mindwell.mood_service.model.Mood;
 import com.mindwell.mood_service.dto.CreateMoodRequest;
+import com.mindwell.mood_service.dto.MoodAnalytics;
+import com.mindwell.mood_service.dto.MoodCursor;
+import com.mindwell.mood_service.dto.MoodPage;
 import com.mindwell.mood_service.repository.MongoMoodRepository;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class MoodService {
 
+    private static final Logger log = LoggerFactory.getLogger(MoodService.class);
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id"));
+
     private final MongoMoodRepository repository;
+    private final MoodAnalyticsEngine analyticsEngine;
+    private final MoodWriteBuffer writeBuffer;
+    private final MoodArchive archive;
 
-    public MoodService(MongoMoodRepository repository) {
+    /**
+     * @param writeBuffer group-commit buffer for creates, or null to save each one directly
+     * @param archive     cold tier holding old moods, or null when archiving is off
+     */
+    public MoodService(MongoMoodRepository repository, MoodAnalyticsEngine analyticsEngine,
+                       @Nullable MoodWriteBuffer writeBuffer, @Nullable MoodArchive archive) {
         this.repository = repository;
+        this.analyticsEngine = analyticsEngine;
+        this.writeBuffer = writeBuffer;
+        this.archive = archive;
+    }
+
+    /**
+     * True when creates are acknowledged before they are stored (write-behind with ack=accepted).
+     */
+    public boolean isAcceptedBeforeStored() {
+        return writeBuffer != null && writeBuffer.getAck() == MoodWriteBuffer.Ack.ACCEPTED;
     }
 
     public List<Mood> listAll() {
         return repository.findAll();
     }
 
+    /**
+     * Keyset-paginated listing of one user's moods, newest first. Each page is a single
+     * bounded index range scan regardless of how much history precedes it, completed from
+     * the archive once the listing reaches archived history.
+     */
+    public MoodPage listPage(String userId, String cursor, Integer limit) {
+        int size = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // Fetch one extra row to learn whether another page exists.
+        PageRequest page = PageRequest.of(0, size + 1, NEWEST_FIRST);
+        List<Mood> rows;
+        MoodCursor after = null;
+        if (cursor == null || cursor.isBlank()) {
+            rows = repository.findByUserId(userId, page);
+        } else {
+            after = MoodCursor.decode(cursor);
+            Object id = ObjectId.isValid(after.getId()) ? new ObjectId(after.getId()) : after.getId();
+            rows = repository.findPageAfter(userId, after.getCreatedAt(), id, page);
+        }
+        if (archive != null) rows = archive.mergePage(userId, rows, after, size + 1);
+        if (rows.size() <= size) return new MoodPage(rows, null);
+        List<Mood> items = new ArrayList<>(rows.subList(0, size));
+        Mood last = items.get(size - 1);
+        return new MoodPage(items, new MoodCursor(last.getCreatedAt(), last.getId()).encode());
+    }
+
     public Mood create(String userId, CreateMoodRequest req) {
         Mood m = new Mood();
         m.setUserId(userId);
         m.setScore(req.getScore());
         m.setNote(req.getNote());
+        m.setEmotion(req.getEmotion());
         m.setCreatedAt(Instant.now());
-        return repository.save(m);
+        m.setIdempotencyKey(req.getIdempotencyKey());
+        if (writeBuffer != null) return createBuffered(m);
+        long ticket = analyticsEngine.startWrite();
+        Mood saved;
+        try {
+            saved = repository.save(m);
+        } catch (DuplicateKeyException e) {
+            // A retry of an entry we already stored: hand back the original.
+            return repository.findByUserIdAndIdempotencyKey(userId, req.getIdempotencyKey()).orElseThrow(() -> e);
+        }
+        analyticsEngine.onCreated(saved, ticket);
+        return saved;
+    }
+
+    /**
+     * Hands the mood to the write-behind buffer, which runs the analytics hooks per group.
+     * With ack=durable this waits for its group commit; with ack=accepted it returns at once.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if the buffer is full
+     */
+    private Mood createBuffered(Mood m) {
+        CompletableFuture<Mood> stored = writeBuffer.submit(m);
+        if (writeBuffer.getAck() == MoodWriteBuffer.Ack.ACCEPTED) {
+            stored.exceptionally(e -> {
+                log.warn("Accepted mood {} was not stored: {}", m.getId(), e.getMessage());
+                return null;
+            });
+            return m;
+        }
+        try {
+            return stored.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
     }
 
     public Optional<Mood> findById(String id) {
         return repository.findById(id);
     }
 
-    public Optional<Mood> update(String id, CreateMoodRequest req) {
-        Optional<Mood> existing = repository.findById(id);
-        if (existing.isEmpty()) return Optional.empty();
-        Mood m = existing.get();
-        m.setScore(req.getScore());
-        m.setNote(req.getNote());
-        repository.save(m);
-        return Optional.of(m);
+    /**
+     * Updates the user's mood in one atomic write. With an expected version (from If-Match)
+     * the update only applies to that version. An archived mood is restored to the hot
+     * collection first.
+     *
+     * @return the updated mood, or empty if the user has no mood with this id
+     * @throws OptimisticLockingFailureException if the mood is at another version
+     */
+    public Optional<Mood> update(String userId, String id, CreateMoodRequest req, Long expectedVersion) {
+        long ticket = analyticsEngine.startWrite();
+        Optional<Mood> previous = repository.updateIfMatches(id, userId, expectedVersion,
+                req.getScore(), req.getNote(), req.getEmotion());
+        if (previous.isEmpty() && archive != null && archive.restore(userId, id)) {
+            previous = repository.updateIfMatches(id, userId, expectedVersion,
+                    req.getScore(), req.getNote(), req.getEmotion());
+        }
+        if (previous.isEmpty()) {
+            if (expectedVersion != null) failIfOwned(id, userId);
+            return Optional.empty();
+        }
+        Mood before = previous.get();
+        Mood after = new Mood(before.getId(), before.getUserId(), req.getScore(), req.getNote(), before.getCreatedAt());
+        after.setEmotion(req.getEmotion() != null ? req.getEmotion() : before.getEmotion());
+        after.setIdempotencyKey(before.getIdempotencyKey());
+        after.setVersion(before.getVersion() + 1);
+        if (archive != null) archive.forget(before);
+        analyticsEngine.onUpdated(before, after, ticket);
+        return Optional.of(after);
     }
 
-    public boolean delete(String id) {
-        Optional<Mood> existing = repository.findById(id);
-        if (existing.isEmpty()) return false;
-        repository.deleteById(id);
+    /**
+     * Deletes the user's mood in one atomic write, optionally only at the expected version.
+     *
+     * @return false if the user has no mood with this id
+     * @throws OptimisticLockingFailureException if the mood is at another version
+     */
+    public boolean delete(String userId, String id, Long expectedVersion) {
+        long ticket = analyticsEngine.startWrite();
+        Optional<Mood> deleted = repository.deleteIfMatches(id, userId, expectedVersion);
+        if (deleted.isEmpty() && archive != null && archive.restore(userId, id)) {
+            deleted = repository.deleteIfMatches(id, userId, expectedVersion);
+        }
+        if (deleted.isEmpty()) {
+            if (expectedVersion != null) failIfOwned(id, userId);
+            return false;
+        }
+        if (archive != null) archive.forget(deleted.get());
+        analyticsEngine.onDeleted(deleted.get(), ticket);
         return true;
     }
 
-    public Map<String, Object> analytics(String range) {
-        // Simple analytics: average score and count over stored moods.
-        List<Mood> all = repository.findAll();
-        Map<String, Object> result = new HashMap<>();
-        if (all.isEmpty()) {
-            result.put("average", 0);
-            result.put("count", 0);
-            return result;
+    // Only on the failure path: tells a stale version (412) apart from a missing mood (404).
+    private void failIfOwned(String id, String userId) {
+        repository.findById(id).filter(m -> Objects.equals(m.getUserId(), userId)).ifPresent(m -> {
+            throw new OptimisticLockingFailureException("Mood " + id + " is at version " + m.getVersion());
+        });
+    }
+
+    /**
+     * Strong ETag of a single mood, its version.
+     */
+    public static String etag(Mood mood) {
+        return "\"" + mood.getVersion() + "\"";
+    }
+
+    /**
+     * The version an If-Match header asks for: null when absent or "*", and -1, which no
+     * mood has, for tags that are not one of ours.
+     */
+    public static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) return null;
+        String tag = ifMatch.trim();
+        if (tag.length() < 2 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') return -1L;
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1L;
         }
-        double avg = all.stream().collect(Collectors.averagingInt(Mood::getScore));
-        result.put("average", avg);
-        result.put("count", all.size());
-        return result;
+    }
+
+    public MoodAnalytics analytics(String userId, String range) {
+        return analyticsEngine.analytics(userId, range);
     }
 }
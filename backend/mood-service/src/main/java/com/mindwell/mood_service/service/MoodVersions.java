@@ -0,0 +1,229 @@
+package com.mindwell.mood_service.service;
+
+import com.mindwell.mood_service.model.MoodVersion;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user change counters behind the ETags of the mood list and analytics. Each user has
+ * one document in mood_versions, the sum of the writes every instance stored for them, so
+ * all instances behind the gateway converge on the same tag for the same state.
+ * <p>
+ * Neither reads nor writes wait for Mongo. A write bumps this instance's cached counter at
+ * once and is queued; {@link #sync()} (every mood.versions.sync-ms) adds the queued writes
+ * to the documents in one bulk upsert, one update per user however many writes it had,
+ * and then re-reads the documents of the users held here, which brings in the writes of
+ * the other instances. A tag thus changes at once on the instance that stored the write
+ * and within two sync periods on the others. Only the first read of a user on an
+ * instance, and the first after mood.versions.idle-ms without use, loads the document.
+ * <p>
+ * Bump after the write is stored: a response tagged with the old version may then contain
+ * the new data (harmless), but never the reverse.
+ * <p>
+ * The in-memory profile has no shared database, so there the counters are kept in this
+ * process (mood.versions.shared=false) and tags carry a per-process id instead.
+ */
+@Component
+public class MoodVersions {
+
+    private static final Logger log = LoggerFactory.getLogger(MoodVersions.class);
+
+    private static final int FETCH_BATCH = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean shared;
+    private final Duration idle;
+    private final Clock clock;
+    private final ConcurrentMap<String, Long> counters = new ConcurrentHashMap<>();
+    private final String instance = Integer.toHexString(ThreadLocalRandom.current().nextInt());
+    // Shared mode: the users held here, and the writes not yet added to their documents.
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> queued = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MoodVersions(MongoTemplate mongoTemplate, @Value("${mood.versions.shared:true}") boolean shared,
+                        @Value("${mood.versions.idle-ms:60000}") long idleMs) {
+        this(mongoTemplate, shared, Duration.ofMillis(idleMs), Clock.systemUTC());
+    }
+
+    MoodVersions(MongoTemplate mongoTemplate, boolean shared, Duration idle, Clock clock) {
+        this.mongoTemplate = mongoTemplate;
+        this.shared = shared;
+        this.idle = idle;
+        this.clock = clock;
+    }
+
+    /**
+     * Counters kept in this process only, for the in-memory profile and tests.
+     */
+    public static MoodVersions local() {
+        return new MoodVersions(null, false, Duration.ZERO, Clock.systemUTC());
+    }
+
+    /**
+     * Records a stored write of the user's moods; call it once per user per write, however
+     * many moods it stored.
+     *
+     * @return the user's new version, or -1 when this instance holds none for the user
+     */
+    public long bump(String userId) {
+        if (!shared) return counters.merge(key(userId), 1L, Long::sum);
+        long[] version = {-1};
+        // Queued and counted under the entry's lock, so a concurrent load counts it exactly once.
+        entries.compute(key(userId), (id, e) -> {
+            queued.merge(id, 1L, Long::sum);
+            if (e != null) {
+                version[0] = e.version.incrementAndGet();
+                e.lastUsed = clock.millis();
+            }
+            return e;
+        });
+        return version[0];
+    }
+
+    /**
+     * The user's current version, 0 before their first write.
+     */
+    public long current(String userId) {
+        if (!shared) return counters.getOrDefault(key(userId), 0L);
+        return entry(userId).version.get();
+    }
+
+    /**
+     * Strong ETag for data that depends only on the user's moods.
+     */
+    public String etag(String userId) {
+        return "\"" + stamp(userId) + "\"";
+    }
+
+    /**
+     * Strong ETag for data that also depends on the current day (ranges, streaks).
+     */
+    public String etag(String userId, LocalDate today) {
+        return "\"" + stamp(userId) + "-" + today.toEpochDay() + "\"";
+    }
+
+    private String stamp(String userId) {
+        if (!shared) return instance + "-" + counters.getOrDefault(key(userId), 0L);
+        Entry e = entry(userId);
+        long version = e.version.get();
+        if (e.since == null) return version == 0 ? "0" : "0-" + version;
+        return Long.toHexString(e.since.toEpochMilli()) + "-" + version;
+    }
+
+    /**
+     * Adds the queued writes to the shared documents, then refreshes the users held here and
+     * forgets those unused for mood.versions.idle-ms.
+     */
+    @Scheduled(fixedDelayString = "${mood.versions.sync-ms:200}")
+    public synchronized void sync() {
+        if (!shared) return;
+        Map<String, Long> flushed = new HashMap<>();
+        for (String id : new ArrayList<>(queued.keySet())) {
+            Long n = queued.remove(id);
+            if (n != null) flushed.put(id, n);
+        }
+        try {
+            if (!flushed.isEmpty()) {
+                BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MoodVersion.class);
+                Instant now = clock.instant();
+                flushed.forEach((id, n) -> bulk.upsert(byId(id), new Update().inc("version", n).setOnInsert("since", now)));
+                bulk.execute();
+            }
+        } catch (RuntimeException e) {
+            // Still counted here; the next sync retries them.
+            flushed.forEach((id, n) -> queued.merge(id, n, Long::sum));
+            log.warn("Could not store mood versions: {}", e.getMessage());
+            return;
+        }
+        long cutoff = clock.millis() - idle.toMillis();
+        entries.values().removeIf(e -> e.lastUsed - cutoff < 0);
+        List<String> held = new ArrayList<>(entries.keySet());
+        for (int from = 0; from < held.size(); from += FETCH_BATCH) {
+            List<String> ids = held.subList(from, Math.min(from + FETCH_BATCH, held.size()));
+            Map<String, MoodVersion> docs = new HashMap<>();
+            mongoTemplate.find(Query.query(Criteria.where("_id").in(ids)), MoodVersion.class)
+                    .forEach(v -> docs.put(v.getId(), v));
+            for (String id : ids) {
+                Entry e = entries.get(id);
+                if (e != null) e.refresh(docs.get(id), flushed.getOrDefault(id, 0L));
+            }
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        sync();
+    }
+
+    private Entry entry(String userId) {
+        String id = key(userId);
+        Entry e = entries.get(id);
+        if (e == null) e = load(id);
+        e.lastUsed = clock.millis();
+        return e;
+    }
+
+    // Under the sync lock, so no flushed write is missing from both the document and the queue.
+    private synchronized Entry load(String id) {
+        Entry held = entries.get(id);
+        if (held != null) return held;
+        MoodVersion doc = mongoTemplate.findOne(byId(id), MoodVersion.class);
+        return entries.compute(id, (key, e) -> e != null ? e : new Entry(doc, queued.getOrDefault(key, 0L), clock.millis()));
+    }
+
+    private static Query byId(String id) {
+        return Query.query(Criteria.where("_id").is(id));
+    }
+
+    private static String key(String userId) {
+        return userId != null ? userId : "";
+    }
+
+    private static final class Entry {
+        // The document as last read: since and version; changed only under the sync lock.
+        volatile Instant since;
+        long stored;
+        // stored plus this instance's writes not in it yet; only ever moves forward.
+        final AtomicLong version;
+        volatile long lastUsed;
+
+        Entry(MoodVersion doc, long queued, long now) {
+            this.since = doc != null ? doc.getSince() : null;
+            this.stored = doc != null ? doc.getVersion() : 0L;
+            this.version = new AtomicLong(stored + queued);
+            this.lastUsed = now;
+        }
+
+        // The flushed writes are in the document now; whatever else it gained came from others.
+        void refresh(MoodVersion doc, long flushed) {
+            long now = doc != null ? doc.getVersion() : 0L;
+            version.addAndGet(now - stored - flushed);
+            stored = now;
+            since = doc != null ? doc.getSince() : null;
+        }
+    }
+}
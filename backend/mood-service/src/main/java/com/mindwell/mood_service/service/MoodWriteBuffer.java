@@ -0,0 +1,258 @@
+package com.mindwell.mood_service.service;
+
+import com.mindwell.mood_service.analytics.MoodAnalyticsEngine;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.repository.MongoMoodRepository;
+import com.mindwell.mood_service.repository.MoodInsertResult;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind buffer for single mood creates (mood.write-behind.enabled=true). Request
+ * threads append to a lock-free queue; one flusher thread drains it and writes each group
+ * with a single unordered bulk insert, once mood.write-behind.batch-size moods are waiting
+ * or the oldest has waited mood.write-behind.max-latency-ms. Once a group is stored, the
+ * analytics hooks run once per user in it, as for a batch upload, and only then do the
+ * submitted moods' futures complete (or fail).
+ * <p>
+ * The buffer holds at most mood.write-behind.capacity moods, including the group being
+ * written. When it is full, {@link #submit} waits up to mood.write-behind.offer-timeout-ms
+ * for room and then rejects, so a slow database pushes back on clients instead of growing
+ * the heap. Moods still buffered at shutdown are flushed before the flusher exits; those it
+ * cannot store within the shutdown timeout fail with RejectedExecutionException.
+ */
+@Component
+@ConditionalOnProperty(name = "mood.write-behind.enabled", havingValue = "true")
+public class MoodWriteBuffer {
+
+    /**
+     * When a create is acknowledged: once its group is stored, or as soon as it is buffered.
+     * ACCEPTED answers faster but loses buffered moods if the process dies.
+     */
+    public enum Ack { DURABLE, ACCEPTED }
+
+    private static final Logger log = LoggerFactory.getLogger(MoodWriteBuffer.class);
+
+    private final MongoMoodRepository repository;
+    private final MoodAnalyticsEngine analyticsEngine;
+    private final int batchSize;
+    private final long maxLatencyNanos;
+    private final long offerTimeoutMs;
+    private final Ack ack;
+
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Semaphore room;
+    private final DistributionSummary groupSizes;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public MoodWriteBuffer(MongoMoodRepository repository,
+                           MoodAnalyticsEngine analyticsEngine,
+                           MeterRegistry meterRegistry,
+                           @Value("${mood.write-behind.capacity:10000}") int capacity,
+                           @Value("${mood.write-behind.batch-size:500}") int batchSize,
+                           @Value("${mood.write-behind.max-latency-ms:20}") long maxLatencyMs,
+                           @Value("${mood.write-behind.offer-timeout-ms:100}") long offerTimeoutMs,
+                           @Value("${mood.write-behind.ack:durable}") String ack) {
+        this.repository = repository;
+        this.analyticsEngine = analyticsEngine;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxLatencyMs));
+        this.offerTimeoutMs = Math.max(0, offerTimeoutMs);
+        this.ack = Ack.valueOf(ack.trim().toUpperCase());
+        this.room = new Semaphore(Math.max(this.batchSize, capacity));
+        Gauge.builder("mood.write.buffer", queued, AtomicInteger::get)
+                .description("Moods waiting in the write-behind buffer")
+                .register(meterRegistry);
+        this.groupSizes = DistributionSummary.builder("mood.write.group")
+                .description("Moods per group commit")
+                .register(meterRegistry);
+        this.flusher = new Thread(this::run, "mood-write-behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public Ack getAck() {
+        return ack;
+    }
+
+    /**
+     * Queues the mood for the next group commit, assigning its id if it has none.
+     *
+     * @return completes with the stored mood, or with the earlier mood for a retried
+     *         idempotency key
+     * @throws RejectedExecutionException if the buffer stays full for the offer timeout
+     */
+    public CompletableFuture<Mood> submit(Mood mood) {
+        if (mood.getId() == null) mood.setId(new ObjectId().toHexString());
+        try {
+            if (!room.tryAcquire(offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("Mood write buffer is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for the mood write buffer", e);
+        }
+        if (!running) {
+            room.release();
+            throw new RejectedExecutionException("Mood write buffer is shut down");
+        }
+        Pending pending = new Pending(mood, analyticsEngine.startWrite());
+        queue.offer(pending);
+        int depth = queued.incrementAndGet();
+        // Shut down since the check above: the flusher may already have drained the queue and
+        // exited. Take the mood back unless the flusher (or shutdown) got to it first.
+        if (!running && queue.remove(pending)) {
+            queued.decrementAndGet();
+            room.release();
+            throw new RejectedExecutionException("Mood write buffer is shut down");
+        }
+        // The first mood starts the latency deadline; a full group is written right away.
+        if (depth == 1 || depth == batchSize) LockSupport.unpark(flusher);
+        return pending.stored;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        shutdown(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Stops accepting moods and waits up to {@code timeoutMs} for the flusher to store the
+     * buffered ones; any still buffered after that are failed rather than left pending.
+     */
+    void shutdown(long timeoutMs) throws InterruptedException {
+        running = false;
+        LockSupport.unpark(flusher);
+        flusher.join(timeoutMs);
+        RejectedExecutionException stopped = new RejectedExecutionException("Mood write buffer is shut down");
+        Pending left;
+        while ((left = queue.poll()) != null) {
+            queued.decrementAndGet();
+            room.release();
+            left.stored.completeExceptionally(stopped);
+        }
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            Pending oldest = queue.peek();
+            if (oldest == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            long deadline = oldest.queuedAt + maxLatencyNanos;
+            long wait;
+            while (running && queued.get() < batchSize && (wait = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.warn("Mood group commit failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void flush() {
+        List<Pending> group = new ArrayList<>(Math.min(batchSize, queued.get()));
+        Pending next;
+        while (group.size() < batchSize && (next = queue.poll()) != null) {
+            group.add(next);
+        }
+        queued.addAndGet(-group.size());
+        if (group.isEmpty()) return;
+        groupSizes.record(group.size());
+        try {
+            List<Mood> moods = new ArrayList<>(group.size());
+            group.forEach(p -> moods.add(p.mood));
+            MoodInsertResult result;
+            try {
+                result = repository.insertUnordered(moods);
+            } catch (RuntimeException e) {
+                group.forEach(p -> p.stored.completeExceptionally(e));
+                return;
+            }
+            // The group's new moods by user, with the ticket of each user's first (oldest) one.
+            Map<String, List<Mood>> created = new LinkedHashMap<>();
+            Map<String, Long> tickets = new LinkedHashMap<>();
+            for (int i = 0; i < group.size(); i++) {
+                if (result.isDuplicate(i) || result.getFailure(i) != null) continue;
+                Pending p = group.get(i);
+                created.computeIfAbsent(p.mood.getUserId(), u -> new ArrayList<>()).add(p.mood);
+                tickets.putIfAbsent(p.mood.getUserId(), p.ticket);
+            }
+            created.forEach((userId, stored) -> {
+                try {
+                    analyticsEngine.onCreated(userId, stored, tickets.get(userId));
+                } catch (RuntimeException e) {
+                    log.warn("Analytics update for {} stored moods of {} failed: {}", stored.size(), userId, e.getMessage());
+                }
+            });
+            for (int i = 0; i < group.size(); i++) {
+                Pending p = group.get(i);
+                if (result.isDuplicate(i)) {
+                    completeDuplicate(p);
+                } else if (result.getFailure(i) != null) {
+                    p.stored.completeExceptionally(new DataIntegrityViolationException(result.getFailure(i)));
+                } else {
+                    p.stored.complete(p.mood);
+                }
+            }
+        } finally {
+            room.release(group.size());
+        }
+    }
+
+    // A retried create: hand back the original, as MoodService does for direct saves.
+    private void completeDuplicate(Pending p) {
+        Mood mood = p.mood;
+        try {
+            Mood original = mood.getIdempotencyKey() == null ? null
+                    : repository.findByUserIdAndIdempotencyKey(mood.getUserId(), mood.getIdempotencyKey()).orElse(null);
+            if (original != null) {
+                p.stored.complete(original);
+            } else {
+                p.stored.completeExceptionally(new DuplicateKeyException("Duplicate mood " + mood.getId()));
+            }
+        } catch (RuntimeException e) {
+            p.stored.completeExceptionally(e);
+        }
+    }
+
+    private static final class Pending {
+        final Mood mood;
+        // From MoodAnalyticsEngine.startWrite, taken before the mood was queued.
+        final long ticket;
+        final long queuedAt = System.nanoTime();
+        final CompletableFuture<Mood> stored = new CompletableFuture<>();
+
+        Pending(Mood mood, long ticket) {
+            this.mood = mood;
+            this.ticket = ticket;
+        }
+    }
+}
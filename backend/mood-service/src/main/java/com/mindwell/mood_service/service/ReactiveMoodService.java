@@ -0,0 +1,186 @@
+package com.mindwell.mood_service.service;
+
+import com.mindwell.mood_service.analytics.MoodAnalyticsEngine;
+import com.mindwell.mood_service.archive.MoodArchive;
+import com.mindwell.mood_service.dto.CreateMoodRequest;
+import com.mindwell.mood_service.dto.MoodAnalytics;
+import com.mindwell.mood_service.dto.MoodBatchResult;
+import com.mindwell.mood_service.dto.MoodCursor;
+import com.mindwell.mood_service.dto.MoodPage;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.repository.ReactiveMoodRepository;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * MoodService for the reactive profile: mood reads and writes go through the reactive driver
+ * and never block a request thread. The analytics engine, its rollup deltas and the batch
+ * insert path are shared with the servlet variant and still blocking, so they run on the
+ * bounded elastic scheduler, as do reads and restores of archived moods.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveMoodService {
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id"));
+
+    private final ReactiveMoodRepository repository;
+    private final MoodAnalyticsEngine analyticsEngine;
+    private final MoodBatchService batchService;
+    private final MoodArchive archive;
+
+    public ReactiveMoodService(ReactiveMoodRepository repository, MoodAnalyticsEngine analyticsEngine,
+                               MoodBatchService batchService,
+                               @Nullable MoodArchive archive) {
+        this.repository = repository;
+        this.analyticsEngine = analyticsEngine;
+        this.batchService = batchService;
+        this.archive = archive;
+    }
+
+    /**
+     * Same keyset pages as {@link MoodService#listPage}. A page is at most
+     * {@link MoodService#MAX_PAGE_SIZE} moods and is collected so the next cursor is known
+     * before the response starts.
+     */
+    public Mono<MoodPage> listPage(String userId, String cursor, Integer limit) {
+        int size = limit == null ? MoodService.DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MoodService.MAX_PAGE_SIZE));
+        PageRequest page = PageRequest.of(0, size + 1, NEWEST_FIRST);
+        Flux<Mood> rows;
+        MoodCursor after = null;
+        if (cursor == null || cursor.isBlank()) {
+            rows = repository.findByUserId(userId, page);
+        } else {
+            try {
+                after = MoodCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return Mono.error(e);
+            }
+            Object id = ObjectId.isValid(after.getId()) ? new ObjectId(after.getId()) : after.getId();
+            rows = repository.findPageAfter(userId, after.getCreatedAt(), id, page);
+        }
+        Mono<List<Mood>> hot = rows.collectList();
+        if (archive != null) {
+            MoodCursor from = after;
+            hot = hot.publishOn(Schedulers.boundedElastic()).map(list -> archive.mergePage(userId, list, from, size + 1));
+        }
+        return hot.map(list -> {
+            if (list.size() <= size) return new MoodPage(list, null);
+            List<Mood> items = new ArrayList<>(list.subList(0, size));
+            Mood last = items.get(size - 1);
+            return new MoodPage(items, new MoodCursor(last.getCreatedAt(), last.getId()).encode());
+        });
+    }
+
+    /**
+     * The user's full history, oldest first, pulled from the cursor only as fast as it is consumed.
+     */
+    public Flux<Mood> export(String userId) {
+        Flux<Mood> hot = repository.findByUserIdOrderByCreatedAtAsc(userId);
+        if (archive == null) return hot;
+        // Archived moods are inflated a block at a time, as the merge pulls them.
+        Flux<Mood> cold = Flux.fromStream(() -> archive.streamByUserId(userId)).subscribeOn(Schedulers.boundedElastic());
+        // Hot first, so the hot copy of a mood that is being archived wins the tie.
+        return Flux.mergeComparing(MoodArchive.OLDEST_FIRST, hot, cold)
+                .distinctUntilChanged(Mood::getId);
+    }
+
+    public Mono<Mood> create(String userId, CreateMoodRequest req) {
+        Mood m = new Mood();
+        m.setUserId(userId);
+        m.setScore(req.getScore());
+        m.setNote(req.getNote());
+        m.setEmotion(req.getEmotion());
+        m.setCreatedAt(Instant.now());
+        m.setIdempotencyKey(req.getIdempotencyKey());
+        return Mono.fromSupplier(analyticsEngine::startWrite)
+                .flatMap(ticket -> repository.save(m)
+                        .flatMap(saved -> afterWrite(() -> analyticsEngine.onCreated(saved, ticket)).thenReturn(saved)))
+                // A retry of an entry we already stored: hand back the original.
+                .onErrorResume(DuplicateKeyException.class, e -> repository
+                        .findByUserIdAndIdempotencyKey(userId, req.getIdempotencyKey())
+                        .switchIfEmpty(Mono.error(e)));
+    }
+
+    public Mono<MoodBatchResult> createBatch(String userId, List<CreateMoodRequest> requests) {
+        return Mono.fromCallable(() -> batchService.createBatch(userId, requests))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Same single atomic write as {@link MoodService#update}; empty when the user has no mood
+     * with this id, an OptimisticLockingFailureException when it is at another version.
+     */
+    public Mono<Mood> update(String userId, String id, CreateMoodRequest req, Long expectedVersion) {
+        return Mono.fromSupplier(analyticsEngine::startWrite).flatMap(ticket -> repository
+                .updateIfMatches(id, userId, expectedVersion, req.getScore(), req.getNote(), req.getEmotion())
+                .switchIfEmpty(restored(userId, id).flatMap(r -> repository.updateIfMatches(id, userId, expectedVersion,
+                        req.getScore(), req.getNote(), req.getEmotion())))
+                .flatMap(before -> {
+                    Mood after = new Mood(before.getId(), before.getUserId(), req.getScore(), req.getNote(), before.getCreatedAt());
+                    after.setEmotion(req.getEmotion() != null ? req.getEmotion() : before.getEmotion());
+                    after.setIdempotencyKey(before.getIdempotencyKey());
+                    after.setVersion(before.getVersion() + 1);
+                    return afterWrite(() -> {
+                        if (archive != null) archive.forget(before);
+                        analyticsEngine.onUpdated(before, after, ticket);
+                    }).thenReturn(after);
+                }))
+                .switchIfEmpty(expectedVersion != null ? failIfOwned(id, userId) : Mono.empty());
+    }
+
+    /**
+     * Emits true once the mood is deleted, false when the user has no mood with this id.
+     */
+    public Mono<Boolean> delete(String userId, String id, Long expectedVersion) {
+        return Mono.fromSupplier(analyticsEngine::startWrite).flatMap(ticket -> repository
+                .deleteIfMatches(id, userId, expectedVersion)
+                .switchIfEmpty(restored(userId, id).flatMap(r -> repository.deleteIfMatches(id, userId, expectedVersion)))
+                .flatMap(deleted -> afterWrite(() -> {
+                    if (archive != null) archive.forget(deleted);
+                    analyticsEngine.onDeleted(deleted, ticket);
+                }).thenReturn(true)))
+                .switchIfEmpty(expectedVersion != null ? failIfOwned(id, userId) : Mono.empty())
+                .defaultIfEmpty(false);
+    }
+
+    // Emits only when an archived mood was moved back to the hot collection.
+    private Mono<Boolean> restored(String userId, String id) {
+        if (archive == null) return Mono.empty();
+        return Mono.fromCallable(() -> archive.restore(userId, id))
+                .subscribeOn(Schedulers.boundedElastic())
+                .filter(Boolean::booleanValue);
+    }
+
+    // Only on the failure path: tells a stale version apart from a missing mood.
+    private <T> Mono<T> failIfOwned(String id, String userId) {
+        return Mono.defer(() -> repository.findById(id)
+                .filter(m -> Objects.equals(m.getUserId(), userId))
+                .flatMap(m -> Mono.error(new OptimisticLockingFailureException(
+                        "Mood " + id + " is at version " + m.getVersion()))));
+    }
+
+    public Mono<MoodAnalytics> analytics(String userId, String range) {
+        return Mono.fromCallable(() -> analyticsEngine.analytics(userId, range))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // Analytics hooks write rollup deltas through the blocking template.
+    private static Mono<Void> afterWrite(Runnable hooks) {
+        return Mono.fromRunnable(hooks).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+}
@@ -0,0 +1,103 @@
+package com.mindwell.mood_service.analytics;
+
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.repository.InMemoryMoodRepository;
+import com.mindwell.mood_service.rollup.MoodRollupService;
+import com.mindwell.mood_service.service.MoodVersions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MoodAnalyticsEngineTests {
+
+	private final InMemoryMoodRepository repo = new InMemoryMoodRepository();
+	// One counter set shared by every engine, as mood_versions is shared by all instances.
+	private final MoodVersions versions = MoodVersions.local();
+	private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+	private MoodAnalyticsEngine engine(int maxUsers) {
+		return new MoodAnalyticsEngine(repo, MoodRollupService.disabled(), versions, meters, maxUsers, "aggregate", null);
+	}
+
+	private static Mood mood(String id, String userId, int score) {
+		Mood m = new Mood(id, userId, score, null, Instant.now());
+		m.setEmotion("calm");
+		return m;
+	}
+
+	private Mood create(MoodAnalyticsEngine engine, Mood mood) {
+		long ticket = engine.startWrite();
+		repo.save(mood);
+		engine.onCreated(mood, ticket);
+		return mood;
+	}
+
+	private long coldLoads() {
+		return meters.get("mood.analytics").tag("load", "cold").timer().count();
+	}
+
+	@Test
+	void appliesLocalWritesAndReloadsAfterWritesOnOtherInstances() {
+		MoodAnalyticsEngine here = engine(100);
+		MoodAnalyticsEngine there = engine(100);
+		create(here, mood("a", "u1", 4));
+		assertEquals(1, here.analytics("u1", null).getTotalEntries());
+
+		create(here, mood("b", "u1", 6));
+		assertEquals(2, here.analytics("u1", null).getTotalEntries());
+		assertEquals(1, coldLoads());
+
+		create(there, mood("c", "u1", 8));
+		assertEquals(3, here.analytics("u1", null).getTotalEntries());
+		assertEquals(2, coldLoads());
+
+		long ticket = there.startWrite();
+		Mood deleted = repo.findById("a").orElseThrow();
+		repo.deleteById("a");
+		there.onDeleted(deleted, ticket);
+		assertEquals(2, here.analytics("u1", null).getTotalEntries());
+		assertEquals(7.0, here.analytics("u1", null).getAverageIntensity());
+	}
+
+	@Test
+	void aWriteStoredWhileItsUserIsLoadedIsCountedOnce() {
+		MoodAnalyticsEngine engine = engine(100);
+		create(engine, mood("kept", "u1", 3));
+		Mood m = mood("a", "u1", 5);
+		long ticket = engine.startWrite();
+		repo.save(m);
+		// The load sees the stored mood before the hook has bumped the version.
+		assertEquals(2, engine.analytics("u1", null).getTotalEntries());
+		engine.onCreated(m, ticket);
+		assertEquals(2, engine.analytics("u1", null).getTotalEntries());
+
+		engine.invalidate("u1");
+		long deleteTicket = engine.startWrite();
+		repo.deleteById("a");
+		assertEquals(1, engine.analytics("u1", null).getTotalEntries());
+		engine.onDeleted(m, deleteTicket);
+		assertEquals(1, engine.analytics("u1", null).getTotalEntries());
+		assertEquals(3.0, engine.analytics("u1", null).getAverageIntensity());
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedUser() {
+		MoodAnalyticsEngine engine = engine(2);
+		for (String user : new String[] {"u1", "u2", "u3"}) {
+			create(engine, mood("m-" + user, user, 5));
+		}
+		engine.analytics("u1", null);
+		engine.analytics("u2", null);
+		engine.analytics("u1", null);
+		engine.analytics("u3", null);
+		assertEquals(3, coldLoads());
+
+		engine.analytics("u1", null);
+		assertEquals(3, coldLoads());
+		engine.analytics("u2", null);
+		assertEquals(4, coldLoads());
+	}
+}
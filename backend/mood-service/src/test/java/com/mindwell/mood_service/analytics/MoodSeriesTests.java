@@ -0,0 +1,75 @@
+package com.mindwell.mood_service.analytics;
+
+import com.mindwell.mood_service.dto.MoodAnalytics;
+import com.mindwell.mood_service.model.Mood;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MoodSeriesTests {
+
+	private static final LocalDate TODAY = LocalDate.of(2025, 3, 10);
+	private static final String[] EMOTIONS = {"happy", "sad", "calm", null};
+
+	@Test
+	void matchesDayAggregatesForEveryRange() {
+		Random random = new Random(42);
+		MoodSeries series = new MoodSeries(new EmotionDictionary());
+		UserMoodAggregate aggregate = new UserMoodAggregate();
+		List<Mood> moods = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			Instant at = TODAY.atStartOfDay().toInstant(ZoneOffset.UTC)
+					.plusSeconds(86_400L - random.nextInt(400 * 86_400));
+			Mood m = new Mood(null, "u1", 1 + random.nextInt(10), random.nextBoolean() ? "note " + i : null, at);
+			m.setEmotion(EMOTIONS[random.nextInt(EMOTIONS.length)]);
+			moods.add(m);
+			series.add(m);
+			aggregate.add(m);
+		}
+		for (int i = 0; i < moods.size(); i += 3) {
+			series.remove(moods.get(i));
+			aggregate.remove(moods.get(i));
+		}
+
+		for (Integer range : new Integer[]{1, 7, 30, 90, 365, null}) {
+			MoodAnalytics expected = aggregate.snapshot(range, TODAY);
+			MoodAnalytics actual = series.snapshot(range, TODAY);
+			assertEquals(expected.getTotalEntries(), actual.getTotalEntries());
+			assertEquals(expected.getAverageIntensity(), actual.getAverageIntensity(), 1e-9);
+			assertEquals(expected.getMinIntensity(), actual.getMinIntensity());
+			assertEquals(expected.getMaxIntensity(), actual.getMaxIntensity());
+			assertEquals(expected.getMoodStreak(), actual.getMoodStreak());
+			assertEquals(expected.getMostCommonEmotion(), actual.getMostCommonEmotion());
+			assertEquals(expected.getEmotionDistribution().size(), actual.getEmotionDistribution().size());
+			assertEquals(expected.getIntensityOverTime().size(), actual.getIntensityOverTime().size());
+			for (int p = 0; p < expected.getIntensityOverTime().size(); p++) {
+				assertEquals(expected.getIntensityOverTime().get(p).getDate(), actual.getIntensityOverTime().get(p).getDate());
+				assertEquals(expected.getIntensityOverTime().get(p).getIntensity(), actual.getIntensityOverTime().get(p).getIntensity(), 1e-9);
+			}
+		}
+	}
+
+	@Test
+	void removeMatchesNoteAndCompactsArena() {
+		MoodSeries series = new MoodSeries(new EmotionDictionary());
+		Instant at = Instant.parse("2025-03-10T12:00:00Z");
+		for (int i = 0; i < 100; i++) {
+			series.add(new Mood(null, "u1", 5, "note " + i, at));
+		}
+		series.remove(new Mood(null, "u1", 5, "no such note", at));
+		assertEquals(100, series.size());
+		for (int i = 0; i < 99; i++) {
+			series.remove(new Mood(null, "u1", 5, "note " + i, at));
+		}
+		assertEquals(1, series.size());
+		series.remove(new Mood(null, "u1", 5, "note 99", at));
+		assertEquals(0, series.size());
+	}
+}
@@ -0,0 +1,110 @@
+package com.mindwell.mood_service.analytics;
+
+import com.mindwell.mood_service.dto.MoodAnalytics;
+import com.mindwell.mood_service.model.Mood;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserMoodAggregateTests {
+
+	private static final LocalDate TODAY = LocalDate.of(2025, 3, 10);
+
+	private static Mood mood(String id, int score, String emotion, int daysAgo) {
+		Instant at = TODAY.minusDays(daysAgo).atTime(12, 0).toInstant(ZoneOffset.UTC);
+		Mood m = new Mood(id, "u1", score, null, at);
+		m.setEmotion(emotion);
+		return m;
+	}
+
+	@Test
+	void rangeOnlyCountsBucketsInsideWindow() {
+		UserMoodAggregate agg = new UserMoodAggregate();
+		agg.add(mood("a", 8, "happy", 0));
+		agg.add(mood("b", 4, "sad", 1));
+		agg.add(mood("c", 2, "sad", 20));
+
+		MoodAnalytics week = agg.snapshot(7, TODAY);
+		assertEquals(2, week.getTotalEntries());
+		assertEquals(6.0, week.getAverageIntensity());
+		assertEquals(2, week.getIntensityOverTime().size());
+		assertEquals(2, week.getMoodStreak());
+
+		MoodAnalytics all = agg.snapshot(null, TODAY);
+		assertEquals(3, all.getTotalEntries());
+		assertEquals("sad", all.getMostCommonEmotion());
+		assertEquals(2, all.getMinIntensity());
+		assertEquals(8, all.getMaxIntensity());
+	}
+
+	@Test
+	void removeKeepsMinMaxExact() {
+		UserMoodAggregate agg = new UserMoodAggregate();
+		Mood low = mood("a", 1, null, 0);
+		agg.add(low);
+		agg.add(mood("b", 5, null, 0));
+		agg.remove(low);
+
+		MoodAnalytics all = agg.snapshot(null, TODAY);
+		assertEquals(1, all.getTotalEntries());
+		assertEquals(5, all.getMinIntensity());
+		assertEquals(5, all.getMaxIntensity());
+	}
+
+	@Test
+	void removingAMoodItsDayNeverHeldChangesNothing() {
+		UserMoodAggregate agg = new UserMoodAggregate();
+		agg.add(mood("a", 5, "calm", 0));
+		agg.remove(mood("b", 7, "calm", 0));
+		agg.remove(mood("c", 5, "calm", 3));
+
+		MoodAnalytics all = agg.snapshot(null, TODAY);
+		assertEquals(1, all.getTotalEntries());
+		assertEquals(5.0, all.getAverageIntensity());
+		assertEquals(1, all.getEmotionDistribution().get(0).getCount());
+	}
+
+	@Test
+	void keepsOldDaysPerWeekAndFollowsStreaksThroughThem() {
+		// TODAY is a Monday; days before Feb 24 are kept per week.
+		UserMoodAggregate agg = new UserMoodAggregate(LocalDate.of(2025, 2, 24));
+		for (int daysAgo = 0; daysAgo <= 21; daysAgo++) {
+			agg.add(mood("d" + daysAgo, 5, "calm", daysAgo));
+		}
+		Mood weekly = mood("w", 9, "happy", 20);
+		agg.add(weekly);
+		agg.addWeek(LocalDate.of(2025, 2, 10), stats(3, 2), List.of(0L, 0L, 0L, 0L, 0L, 1L, 1L));
+
+		MoodAnalytics all = agg.snapshot(null, TODAY);
+		assertEquals(25, all.getTotalEntries());
+		assertEquals(24, all.getMoodStreak(), "through the Sunday and Saturday of the folded week");
+
+		MoodAnalytics longRange = agg.snapshot(100, TODAY);
+		assertEquals(25, longRange.getTotalEntries());
+		assertEquals(LocalDate.of(2025, 2, 10).toString(), longRange.getIntensityOverTime().get(0).getDate());
+
+		agg.remove(weekly);
+		agg.remove(mood("x", 9, "happy", 19));
+		assertEquals(24, agg.snapshot(null, TODAY).getTotalEntries(), "a mood its day never held changes nothing");
+		assertEquals(5, agg.snapshot(null, TODAY).getMaxIntensity());
+	}
+
+	private static MoodStats stats(int score, int count) {
+		MoodStats stats = new MoodStats();
+		for (int i = 0; i < count; i++) stats.add(score, "tired");
+		return stats;
+	}
+
+	@Test
+	void parseRangeRejectsGarbage() {
+		assertEquals(30, MoodAnalyticsEngine.parseRange("30d"));
+		assertEquals(null, MoodAnalyticsEngine.parseRange(null));
+		assertThrows(IllegalArgumentException.class, () -> MoodAnalyticsEngine.parseRange("abc"));
+	}
+}
@@ -0,0 +1,235 @@
+package com.mindwell.mood_service.archive;
+
+import com.mindwell.mood_service.analytics.MoodAnalyticsEngine;
+import com.mindwell.mood_service.dto.MoodPage;
+import com.mindwell.mood_service.lease.LeaseService;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.model.MoodArchiveRemoval;
+import com.mindwell.mood_service.model.MoodArchiveRun;
+import com.mindwell.mood_service.repository.InMemoryMoodRepository;
+import com.mindwell.mood_service.rollup.MoodRollupService;
+import com.mindwell.mood_service.service.MoodService;
+import com.mindwell.mood_service.service.MoodVersions;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoodArchiveTests {
+
+	private final InMemoryMoodRepository repo = new InMemoryMoodRepository();
+
+	@TempDir
+	Path dir;
+
+	private MongoServer server;
+	private MongoClient client;
+	private MongoTemplate mongo;
+
+	@BeforeEach
+	void startMongo() {
+		server = new MongoServer(new MemoryBackend());
+		client = MongoClients.create(server.bindAndGetConnectionString());
+		mongo = new MongoTemplate(client, "moods");
+	}
+
+	@AfterEach
+	void stopMongo() {
+		client.close();
+		server.shutdown();
+	}
+
+	// Each call stands for another instance sharing the database and the segment directory.
+	private MoodArchive archive() {
+		return new MoodArchive(repo, MoodRollupService.disabled(), mongo, new LeaseService(mongo), dir,
+				180, 100, 16, Duration.ofMinutes(5), Duration.ZERO, Clock.systemUTC());
+	}
+
+	private static List<String> ids(Stream<Mood> moods) {
+		try (moods) {
+			return moods.map(Mood::getId).collect(Collectors.toList());
+		}
+	}
+
+	private MoodService service(MoodArchive archive) {
+		MoodAnalyticsEngine engine = new MoodAnalyticsEngine(repo, MoodRollupService.disabled(), MoodVersions.local(),
+				new SimpleMeterRegistry(), 1000, "aggregate", archive);
+		return new MoodService(repo, engine, null, archive);
+	}
+
+	// One mood every 2 days going back 400 days, so about half of them are archivable.
+	private List<String> seedNewestFirst(String userId) {
+		List<String> ids = new ArrayList<>();
+		Instant now = Instant.now();
+		for (int i = 0; i < 200; i++) {
+			Mood m = new Mood(null, userId, 1 + i % 10, "note " + i, now.minus(Duration.ofDays(2L * i)));
+			m.setEmotion(i % 2 == 0 ? "calm" : "sad");
+			ids.add(repo.save(m).getId());
+		}
+		return ids;
+	}
+
+	@Test
+	void listsExportsAndAnalyzesAcrossHotAndColdMoodsOnEveryInstance() {
+		List<String> expected = seedNewestFirst("u1");
+		seedNewestFirst("u2");
+		long moved = archive().archive();
+		assertTrue(moved > 150 && moved < 250, "moved " + moved);
+		assertEquals(400 - moved, repo.count());
+		assertTrue(Files.exists(dir.resolve(mongo.findAll(MoodArchiveRun.class).get(0).getId() + ".seg")));
+		assertEquals(moved, mongo.findAll(MoodArchiveRun.class).stream().mapToLong(MoodArchiveRun::getMoods).sum());
+
+		MoodArchive other = archive();
+		List<String> listed = new ArrayList<>();
+		String cursor = null;
+		do {
+			MoodPage page = service(other).listPage("u1", cursor, 30);
+			page.getItems().forEach(m -> listed.add(((Mood) m).getId()));
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		assertEquals(expected, listed);
+
+		try (Stream<Mood> export = other.mergeOldestFirst("u1", repo.streamByUserIdOrderByCreatedAtAsc("u1"))) {
+			List<String> oldestFirst = export.map(Mood::getId).collect(Collectors.toList());
+			assertEquals(200, oldestFirst.size());
+			assertEquals(expected.get(199), oldestFirst.get(0));
+		}
+		assertEquals(200, service(other).analytics("u1", null).getTotalEntries());
+	}
+
+	@Test
+	void restoresArchivedMoodsForDeletesSeenByOtherInstances() {
+		List<String> ids = seedNewestFirst("u1");
+		String oldest = ids.get(ids.size() - 1);
+		MoodArchive archive = archive();
+		archive.archive();
+		assertFalse(repo.existsById(oldest));
+
+		MoodService service = service(archive);
+		assertTrue(service.delete("u1", oldest, 0L));
+		assertFalse(repo.existsById(oldest));
+		assertFalse(service.delete("u2", ids.get(ids.size() - 2), null), "only the owner can restore");
+
+		List<String> cold = ids(archive().streamByUserId("u1"));
+		assertFalse(cold.contains(oldest));
+		assertEquals(199, cold.size() + repo.count());
+		assertEquals(1, mongo.count(new Query(), MoodArchiveRemoval.class));
+
+		String hot = ids.get(0);
+		assertFalse(archive.restore("u1", hot), "a hot mood is never looked up in the segments");
+		assertFalse(archive.restore("u1", "no-such-mood"));
+	}
+
+	@Test
+	void cachesTheCatalogUntilTheRefresh() {
+		seedNewestFirst("u1");
+		MoodArchive cached = new MoodArchive(repo, MoodRollupService.disabled(), mongo, new LeaseService(mongo), dir,
+				180, 100, 16, Duration.ofMinutes(5), Duration.ofHours(1), Clock.systemUTC());
+		assertEquals(Instant.EPOCH, cached.horizon());
+		MoodArchive archiver = archive();
+		archiver.archive();
+		assertEquals(Instant.EPOCH, cached.horizon(), "read from the catalog cached an hour ago");
+		assertTrue(archiver.horizon().isAfter(Instant.EPOCH), "the archiving instance refreshes at once");
+	}
+
+	@Test
+	void streamsArchivedMoodsOfOverlappingSegmentsOldestFirst() throws Exception {
+		Instant start = Instant.parse("2024-01-01T00:00:00Z");
+		List<Mood> first = new ArrayList<>();
+		List<Mood> second = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			Mood m = new Mood(String.format("m%02d", i), "u1", 5, null, start.plus(Duration.ofHours(i)));
+			(i % 3 == 0 ? second : first).add(m);
+		}
+		for (String run : List.of("a", "b")) {
+			MoodArchiveRun r = new MoodArchiveRun(run, start.plus(Duration.ofDays(10)), Instant.now());
+			r.setState(MoodArchiveRun.State.SETTLED);
+			mongo.insert(r);
+			MoodSegment.write(dir.resolve(run + ".seg"), run.equals("a") ? first : second, 4);
+		}
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			expected.add(String.format("m%02d", i));
+		}
+		assertEquals(expected, ids(archive().streamByUserId("u1")));
+		assertEquals(List.of("m03", "m04", "m05"), archive().findCreatedBetween("u1", start.plus(Duration.ofHours(3)),
+				start.plus(Duration.ofHours(6))).stream().map(Mood::getId).collect(Collectors.toList()));
+	}
+
+	@Test
+	void onlyTheLeaseHolderArchives() {
+		seedNewestFirst("u1");
+		assertTrue(new LeaseService(mongo).acquire(MoodArchive.LEASE, Duration.ofMinutes(5)));
+		assertEquals(0, archive().archive());
+		assertEquals(200, repo.count());
+	}
+
+	@Test
+	void discardsRunsStoppedWhileWritingAndSettlesRunsStoppedWhileDeleting() throws Exception {
+		List<String> ids = seedNewestFirst("u1");
+		Mood old = repo.findById(ids.get(199)).orElseThrow();
+		Mood older = repo.findById(ids.get(198)).orElseThrow();
+		Instant cutoff = older.getCreatedAt().plusSeconds(1);
+
+		MoodArchiveRun writing = new MoodArchiveRun("writing", cutoff, Instant.now());
+		mongo.insert(writing);
+		MoodSegment.write(dir.resolve("writing.seg"), List.of(old), 16);
+		Files.write(dir.resolve("writing.seg.tmp"), new byte[] {1, 2, 3});
+
+		MoodArchiveRun pending = new MoodArchiveRun("pending", cutoff, Instant.now());
+		pending.setState(MoodArchiveRun.State.PENDING);
+		mongo.insert(pending);
+		MoodSegment.write(dir.resolve("pending.seg"), List.of(old, older), 16);
+
+		MoodArchive archive = new MoodArchive(repo, MoodRollupService.disabled(), mongo, new LeaseService(mongo), dir,
+				100_000, 100, 16, Duration.ofMinutes(5), Duration.ZERO, Clock.systemUTC());
+		assertEquals(2, archive.archive());
+		assertFalse(repo.existsById(old.getId()));
+		assertFalse(repo.existsById(older.getId()));
+		assertFalse(Files.exists(dir.resolve("writing.seg")));
+		assertFalse(Files.exists(dir.resolve("writing.seg.tmp")));
+		assertEquals(null, mongo.findById("writing", MoodArchiveRun.class));
+		assertEquals(MoodArchiveRun.State.SETTLED, mongo.findById("pending", MoodArchiveRun.class).getState());
+		assertEquals(List.of(old.getId(), older.getId()), ids(archive.streamByUserId("u1")));
+	}
+
+	@Test
+	void reportsATruncatedBlockInsteadOfSpinning() {
+		Mood m = new Mood("m1", "u1", 5, "a note that is long enough to need input", Instant.now());
+		byte[] raw = MoodBlocks.encode(List.of(m, m, m));
+		Deflater deflater = new Deflater();
+		byte[] packed = MoodBlocks.deflate(deflater, raw);
+		deflater.end();
+		ByteBuffer truncated = ByteBuffer.wrap(Arrays.copyOf(packed, packed.length / 2));
+		UncheckedIOException e = assertTimeoutPreemptively(Duration.ofSeconds(5),
+				() -> assertThrows(UncheckedIOException.class, () -> MoodBlocks.decode(truncated, raw.length, "b")));
+		assertTrue(e.getCause().getMessage().startsWith("Corrupt block"), e.getCause().getMessage());
+	}
+}
@@ -0,0 +1,205 @@
+package com.mindwell.mood_service.config;
+
+import com.mindwell.mood_service.lease.LeaseService;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.model.MoodRollup;
+import com.mindwell.mood_service.model.MoodRollupDirty;
+import com.mindwell.mood_service.model.MoodShardLayout;
+import com.mindwell.mood_service.model.MoodShardMove;
+import com.mindwell.mood_service.repository.MongoShardMoves;
+import com.mindwell.mood_service.repository.ShardedMoodRepository;
+import com.mindwell.mood_service.rollup.MoodRollupService;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoodShardingConfigTests {
+
+	private MongoServer server;
+	private String uri;
+	private MongoClient client;
+	private MongoTemplate mongo;
+	private final List<MoodShardingConfig> configs = new ArrayList<>();
+
+	@BeforeEach
+	void startMongo() {
+		server = new MongoServer(new MemoryBackend());
+		uri = server.bindAndGetConnectionString();
+		client = MongoClients.create(uri);
+		mongo = new MongoTemplate(client, "moods");
+	}
+
+	@AfterEach
+	void stopMongo() {
+		configs.forEach(MoodShardingConfig::close);
+		client.close();
+		server.shutdown();
+	}
+
+	private List<String> uris(int count) {
+		List<String> uris = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			uris.add(uri + "/shard" + i);
+		}
+		return uris;
+	}
+
+	// Each call stands for an instance starting with the given configuration.
+	private ShardedMoodRepository start(int shards, int previousCount) {
+		MoodShardingConfig config = new MoodShardingConfig(mongo, new LeaseService(mongo), 300_000, 30_000, 10_000);
+		configs.add(config);
+		return config.shardedMoodRepository(uris(shards), previousCount, 128);
+	}
+
+	private int settledShards() {
+		return mongo.findById(MoodShardLayout.ID, MoodShardLayout.class).getSettledShards();
+	}
+
+	@Test
+	void rebalancesOnceAcrossInstancesAndRestarts() {
+		ShardedMoodRepository initial = start(2, 0);
+		assertEquals(2, settledShards());
+		for (int u = 0; u < 60; u++) {
+			initial.save(new Mood(null, "user-" + u, 5, null, Instant.parse("2025-03-10T12:00:00Z")));
+		}
+
+		ShardedMoodRepository first = start(3, 0);
+		ShardedMoodRepository second = start(3, 0);
+		assertTrue(first.isRebalancing(), "the recorded layout stands in for previous-count");
+		assertTrue(second.isRebalancing());
+
+		configs.get(1).rebalanceShards();
+		assertFalse(first.isRebalancing());
+		assertEquals(3, settledShards());
+		assertEquals(60, first.count());
+
+		configs.get(2).rebalanceShards();
+		assertFalse(second.isRebalancing(), "adopts the rebalance recorded by the other instance");
+		assertFalse(start(3, 2).isRebalancing(), "a restart does not rebalance again");
+	}
+
+	@Test
+	void movesEachUserUnderItsLeaseAndServesOnlyTheNewShardAfterwards() {
+		ShardedMoodRepository initial = start(2, 0);
+		for (int u = 0; u < 60; u++) {
+			for (int i = 0; i < 2; i++) {
+				initial.save(new Mood(null, "user-" + u, i + 1, null, Instant.parse("2025-03-10T12:00:00Z").plusSeconds(i)));
+			}
+		}
+		ShardedMoodRepository first = start(3, 0);
+		MoodShardingConfig impatient = new MoodShardingConfig(mongo, new LeaseService(mongo), 300_000, 30_000, 100);
+		configs.add(impatient);
+		ShardedMoodRepository second = impatient.shardedMoodRepository(uris(3), 0, 128);
+		String user = null;
+		for (int u = 0; u < 60 && user == null; u++) {
+			if (first.shardOf("user-" + u) == 2) user = "user-" + u;
+		}
+		String mover = user;
+
+		// Another instance is moving the user: neither its old nor its new shard is served meanwhile.
+		MongoShardMoves elsewhere = new MongoShardMoves(mongo, new LeaseService(mongo), 3, Duration.ofMinutes(1));
+		assertTrue(elsewhere.acquire(user));
+		assertThrows(TransientDataAccessResourceException.class, () -> second.findByUserId(mover));
+		elsewhere.release(user);
+
+		assertEquals(2, first.findByUserId(user).size());
+		Query moods = Query.query(Criteria.where("userId").is(user));
+		assertEquals(0, new MongoTemplate(client, "shard0").count(moods, Mood.class)
+				+ new MongoTemplate(client, "shard1").count(moods, Mood.class));
+		// The other instance finds the move recorded, so a delete there stays deleted.
+		String id = second.findByUserId(user).get(0).getId();
+		assertTrue(second.deleteIfMatches(id, user, null).isPresent());
+		assertEquals(1, first.findByUserId(user).size());
+		assertEquals(1, second.findByUserId(user).size());
+
+		configs.get(1).rebalanceShards();
+		assertEquals(3, settledShards());
+		assertEquals(119, first.count());
+		assertEquals(0, mongo.count(new Query(), MoodShardMove.class), "move records are dropped once settled");
+	}
+
+	@Test
+	void compactsRollupsPerShardAndMovesThemWithTheirUsers() {
+		ShardedMoodRepository initial = start(2, 0);
+		MoodRollupService rollups = configs.get(0).shardedMoodRollupService(initial, true, 300_000);
+		Instant first = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(Duration.ofDays(20)).plus(Duration.ofHours(12));
+		for (int u = 0; u < 60; u++) {
+			for (int i = 0; i < 3; i++) {
+				initial.save(new Mood(null, "user-" + u, i + 1, null, first.plus(Duration.ofDays(7L * i))));
+			}
+		}
+		assertTrue(rollups.compact() > 0);
+		Instant mark = rollups.highWaterMark();
+		assertTrue(mark.isAfter(first.plus(Duration.ofDays(14))));
+		assertEquals(180, counted(rollups, initial));
+
+		ShardedMoodRepository grown = start(3, 0);
+		MoodRollupService moved = configs.get(1).shardedMoodRollupService(grown, true, 300_000);
+		assertEquals(mark, moved.highWaterMark(), "the appended shard starts at the mark of the others");
+		String user = null;
+		for (int u = 0; u < 60 && user == null; u++) {
+			if (grown.shardOf("user-" + u) == 2) user = "user-" + u;
+		}
+		// Read before the rebalance: the user and its rollups are moved first.
+		assertEquals(3, counted(moved, grown, user));
+		Query rollupsOfUser = Query.query(Criteria.where("userId").is(user));
+		assertEquals(0, new MongoTemplate(client, "shard0").count(rollupsOfUser, MoodRollup.class)
+				+ new MongoTemplate(client, "shard1").count(rollupsOfUser, MoodRollup.class));
+		assertTrue(new MongoTemplate(client, "shard2").count(rollupsOfUser, MoodRollup.class) > 0);
+
+		configs.get(1).rebalanceShards();
+		assertFalse(grown.isRebalancing());
+		assertEquals(180, counted(moved, grown));
+		moved.compact();
+		assertEquals(180, counted(moved, grown));
+		assertEquals(0, new MongoTemplate(client, "shard2").count(new Query(), MoodRollupDirty.class),
+				"the moved days are recomputed");
+	}
+
+	// Moods as analytics count them: buckets, plus the raw moods of dirty days.
+	private static long counted(MoodRollupService rollups, ShardedMoodRepository moods) {
+		long total = 0;
+		for (int u = 0; u < 60; u++) {
+			total += counted(rollups, moods, "user-" + u);
+		}
+		return total;
+	}
+
+	private static long counted(MoodRollupService rollups, ShardedMoodRepository moods, String user) {
+		MoodRollupService.UserRollups view = rollups.userRollups(user, LocalDate.now(ZoneOffset.UTC));
+		long total = 0;
+		for (MoodRollup rollup : view.getWeeks()) total += rollup.getCount();
+		for (MoodRollup rollup : view.getDays()) total += rollup.getCount();
+		for (Mood mood : moods.findByUserId(user)) {
+			if (view.getDirtyDays().contains(MoodRollupService.day(mood.getCreatedAt()))) total++;
+		}
+		return total;
+	}
+
+	@Test
+	void refusesRemovedShards() {
+		start(3, 0);
+		assertThrows(IllegalStateException.class, () -> start(2, 0));
+	}
+}
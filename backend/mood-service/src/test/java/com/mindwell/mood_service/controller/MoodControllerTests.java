@@ -0,0 +1,84 @@
+package com.mindwell.mood_service.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindwell.mood_service.analytics.MoodAnalyticsEngine;
+import com.mindwell.mood_service.dto.MoodPage;
+import com.mindwell.mood_service.repository.InMemoryMoodRepository;
+import com.mindwell.mood_service.rollup.MoodRollupService;
+import com.mindwell.mood_service.service.MoodBatchService;
+import com.mindwell.mood_service.service.MoodExportService;
+import com.mindwell.mood_service.service.MoodService;
+import com.mindwell.mood_service.service.MoodVersions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class MoodControllerTests {
+
+	@Test
+	void matchingIfNoneMatchIsAnsweredWithoutReadingMoods() throws Exception {
+		MoodService moodService = mock(MoodService.class);
+		when(moodService.listPage(any(), any(), any())).thenReturn(new MoodPage(Collections.emptyList(), null));
+		MoodVersions versions = MoodVersions.local();
+		MockMvc mvc = MockMvcBuilders.standaloneSetup(new MoodController(moodService, mock(MoodBatchService.class),
+				mock(MoodExportService.class), versions, new ObjectMapper())).build();
+
+		String etag = mvc.perform(get("/api/mood").header("X-Auth-User-ID", "u1"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("ETag");
+
+		mvc.perform(get("/api/mood").header("X-Auth-User-ID", "u1").header("If-None-Match", etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", etag));
+		verify(moodService, times(1)).listPage(any(), any(), any());
+
+		versions.bump("u1");
+		assertNotEquals(etag, versions.etag("u1"));
+		mvc.perform(get("/api/mood").header("X-Auth-User-ID", "u1").header("If-None-Match", etag))
+				.andExpect(status().isOk());
+		verify(moodService, times(2)).listPage(any(), any(), any());
+	}
+
+	@Test
+	void staleIfMatchIsAnsweredWithPreconditionFailed() throws Exception {
+		MoodService moodService = mock(MoodService.class);
+		when(moodService.delete("u1", "m1", 3L)).thenThrow(new OptimisticLockingFailureException("Mood m1 is at version 4"));
+		MockMvc mvc = MockMvcBuilders.standaloneSetup(new MoodController(moodService, mock(MoodBatchService.class),
+				mock(MoodExportService.class), MoodVersions.local(), new ObjectMapper())).build();
+
+		mvc.perform(delete("/api/mood/m1").header("X-Auth-User-ID", "u1").header("If-Match", "\"3\""))
+				.andExpect(status().isPreconditionFailed());
+		mvc.perform(delete("/api/mood/m1").header("X-Auth-User-ID", "u1"))
+				.andExpect(status().isNotFound());
+		verify(moodService).delete("u1", "m1", null);
+	}
+
+	@Test
+	void malformedCursorIsABadRequest() throws Exception {
+		InMemoryMoodRepository repo = new InMemoryMoodRepository();
+		MoodService moodService = new MoodService(repo, new MoodAnalyticsEngine(repo, MoodRollupService.disabled(),
+				MoodVersions.local(), new SimpleMeterRegistry(), 1000, "aggregate", null), null, null);
+		MockMvc mvc = MockMvcBuilders.standaloneSetup(new MoodController(moodService, mock(MoodBatchService.class),
+				mock(MoodExportService.class), MoodVersions.local(), new ObjectMapper())).build();
+
+		mvc.perform(get("/api/mood").header("X-Auth-User-ID", "u1").param("cursor", "not-a-cursor"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.error").value("Invalid cursor"));
+	}
+}
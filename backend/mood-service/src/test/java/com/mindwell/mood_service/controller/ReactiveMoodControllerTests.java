@@ -0,0 +1,72 @@
+package com.mindwell.mood_service.controller;
+
+import com.mindwell.mood_service.dto.MoodPage;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.service.MoodBatchService;
+import com.mindwell.mood_service.service.MoodVersions;
+import com.mindwell.mood_service.service.ReactiveMoodService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveMoodControllerTests {
+
+	private static final ObjectMapper MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+	private final ReactiveMoodService moodService = mock(ReactiveMoodService.class);
+	private final MoodVersions versions = MoodVersions.local();
+	private final WebTestClient client = WebTestClient
+			.bindToController(new ReactiveMoodController(moodService, mock(MoodBatchService.class), versions, MAPPER))
+			.build();
+
+	@Test
+	void listsWithCursorAndAnswersMatchingEtagWithoutReading() {
+		Mood mood = new Mood("m1", "u1", 7, "ok", Instant.parse("2025-03-10T12:00:00Z"));
+		when(moodService.listPage(any(), any(), any())).thenReturn(Mono.just(new MoodPage(List.of(mood), "next")));
+
+		client.get().uri("/api/mood").header("X-Auth-User-ID", "u1").exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals("X-Next-Cursor", "next")
+				.expectHeader().valueEquals("ETag", versions.etag("u1"))
+				.expectBody().jsonPath("$[0].id").isEqualTo("m1");
+
+		ReactiveMoodService untouched = mock(ReactiveMoodService.class);
+		WebTestClient.bindToController(new ReactiveMoodController(untouched, mock(MoodBatchService.class), versions, MAPPER)).build()
+				.get().uri("/api/mood").header("X-Auth-User-ID", "u1").header("If-None-Match", versions.etag("u1")).exchange()
+				.expectStatus().isNotModified();
+		verify(untouched, never()).listPage(any(), any(), any());
+	}
+
+	@Test
+	void exportsCsvAndNdjsonLines() {
+		Mood mood = new Mood("m1", "u1", 7, "a, b", Instant.parse("2025-03-10T12:00:00Z"));
+		when(moodService.export("u1")).thenAnswer(invocation -> Flux.just(mood, mood));
+
+		client.get().uri("/api/mood/export?format=csv").header("X-Auth-User-ID", "u1").exchange()
+				.expectStatus().isOk()
+				.expectBody(String.class).isEqualTo("id,createdAt,score,emotion,note\n" + "m1,2025-03-10T12:00:00Z,7,,\"a, b\"\n".repeat(2));
+
+		String ndjson = client.get().uri("/api/mood/export").header("X-Auth-User-ID", "u1").exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentType("application/x-ndjson")
+				.expectBody(String.class).returnResult().getResponseBody();
+		String[] lines = ndjson.split("\n");
+		assertEquals(2, lines.length);
+		assertTrue(lines[0].startsWith("{\"id\":\"m1\""), lines[0]);
+
+	}
+}
@@ -0,0 +1,36 @@
+package com.mindwell.mood_service.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoodCursorTests {
+
+	private static String encoded(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void roundTripsCreatedAtAndId() {
+		Instant createdAt = Instant.parse("2025-03-10T12:00:00.123Z");
+		MoodCursor cursor = MoodCursor.decode(new MoodCursor(createdAt, "65f0c0ffee0000000000abcd").encode());
+		assertEquals(createdAt, cursor.getCreatedAt());
+		assertEquals("65f0c0ffee0000000000abcd", cursor.getId());
+
+		MoodCursor colon = MoodCursor.decode(new MoodCursor(createdAt, "legacy:id").encode());
+		assertEquals("legacy:id", colon.getId());
+	}
+
+	@Test
+	void rejectsMalformedCursors() {
+		for (String cursor : new String[] {"not base64!", encoded("no-separator"), encoded("soon:abc"), ""}) {
+			IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> MoodCursor.decode(cursor), cursor);
+			assertEquals("Invalid cursor", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package com.mindwell.mood_service.repository;
+
+import com.mindwell.mood_service.model.Mood;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryMoodRepositoryTests {
+
+	private static final Instant T0 = Instant.parse("2025-03-10T12:00:00Z");
+	private static final PageRequest NEWEST_FIRST = PageRequest.of(0, 2,
+			Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")));
+
+	private static Mood mood(String id, String userId, int minutes) {
+		return new Mood(id, userId, 5, null, T0.plusSeconds(minutes * 60L));
+	}
+
+	private static List<String> ids(List<Mood> moods) {
+		return moods.stream().map(Mood::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	void keepsPerUserIndexInCreatedAtOrder() {
+		InMemoryMoodRepository repo = new InMemoryMoodRepository();
+		repo.save(mood("a", "u1", 0));
+		repo.save(mood("b", "u1", 20));
+		repo.save(mood("c", "u1", 10));
+		repo.save(mood("d", "u1", 10));
+		repo.save(mood("x", "u2", 15));
+
+		assertEquals(List.of("b", "d", "c", "a"), ids(repo.findByUserId("u1")));
+		assertEquals(List.of("b", "d", "c"), ids(repo.findByUserIdAndCreatedAtGreaterThanEqual("u1", T0.plusSeconds(600))));
+		assertEquals(List.of("d", "c", "a"), ids(repo.findCreatedBetween("u1", T0, T0.plusSeconds(1200))));
+
+		assertEquals(List.of("b", "d"), ids(repo.findByUserId("u1", NEWEST_FIRST)));
+		assertEquals(List.of("c", "a"), ids(repo.findPageAfter("u1", T0.plusSeconds(600), "d", NEWEST_FIRST)));
+		assertEquals(List.of("a", "c", "d", "b"),
+				ids(repo.streamByUserIdOrderByCreatedAtAsc("u1").collect(Collectors.toList())));
+	}
+
+	@Test
+	void updateMovesEntryAndDeleteUnindexes() {
+		InMemoryMoodRepository repo = new InMemoryMoodRepository();
+		repo.save(mood("a", "u1", 0));
+		repo.save(mood("b", "u1", 10));
+
+		Mood a = repo.findById("a").orElseThrow();
+		a.setCreatedAt(T0.plusSeconds(3600));
+		assertEquals(List.of("b", "a"), ids(repo.findByUserId("u1")), "results are copies");
+		repo.save(a);
+		assertEquals(List.of("a", "b"), ids(repo.findByUserId("u1")));
+		assertEquals(2, repo.findAll().size());
+
+		repo.deleteById("a");
+		assertEquals(List.of("b"), ids(repo.findByUserId("u1")));
+		assertEquals(List.of("b"), ids(repo.findAll()));
+		assertTrue(repo.findById("a").isEmpty());
+	}
+
+	@Test
+	void conditionalWritesCheckOwnerAndVersion() {
+		InMemoryMoodRepository repo = new InMemoryMoodRepository();
+		repo.save(mood("a", "u1", 0));
+
+		assertTrue(repo.updateIfMatches("a", "u2", null, 7, "n", null).isEmpty(), "other user's mood");
+		assertTrue(repo.updateIfMatches("a", "u1", 1L, 7, "n", null).isEmpty(), "stale version");
+		Mood before = repo.updateIfMatches("a", "u1", 0L, 7, "n", "calm").orElseThrow();
+		assertEquals(5, before.getScore());
+		Mood stored = repo.findById("a").orElseThrow();
+		assertEquals(7, stored.getScore());
+		assertEquals("calm", stored.getEmotion());
+		assertEquals(1, stored.getVersion());
+
+		assertTrue(repo.deleteIfMatches("a", "u1", 0L).isEmpty());
+		assertEquals(1, repo.deleteIfMatches("a", "u1", 1L).orElseThrow().getVersion());
+		assertTrue(repo.findByUserId("u1").isEmpty());
+	}
+
+	@Test
+	void idempotencyKeysAreUniquePerUser() {
+		InMemoryMoodRepository repo = new InMemoryMoodRepository();
+		Mood first = mood(null, "u1", 0);
+		first.setIdempotencyKey("k1");
+		repo.save(first);
+
+		Mood retry = mood(null, "u1", 1);
+		retry.setIdempotencyKey("k1");
+		assertThrows(DuplicateKeyException.class, () -> repo.save(retry));
+		assertEquals(first.getId(), repo.findByUserIdAndIdempotencyKey("u1", "k1").orElseThrow().getId());
+
+		Mood otherUser = mood(null, "u2", 0);
+		otherUser.setIdempotencyKey("k1");
+		Mood again = mood(null, "u1", 2);
+		again.setIdempotencyKey("k1");
+		MoodInsertResult result = repo.insertUnordered(List.of(otherUser, again));
+		assertFalse(result.isDuplicate(0));
+		assertTrue(result.isDuplicate(1));
+		assertEquals(2, repo.count());
+	}
+
+	interface ScoreOnly {
+		int getScore();
+	}
+
+	@Test
+	void queriesByExampleOverTheStoredMoods() {
+		InMemoryMoodRepository repo = new InMemoryMoodRepository();
+		Mood a = mood("a", "u1", 0);
+		a.setNote("Feeling Calm today");
+		a.setEmotion("calm");
+		repo.save(a);
+		Mood b = mood("b", "u1", 10);
+		b.setScore(8);
+		b.setEmotion("calm");
+		repo.save(b);
+		Mood c = mood("c", "u2", 20);
+		c.setEmotion("calm");
+		repo.save(c);
+
+		Mood probe = new Mood();
+		probe.setUserId("u1");
+		probe.setEmotion("calm");
+		ExampleMatcher ignoringPrimitives = ExampleMatcher.matching().withIgnorePaths("score", "version");
+		Example<Mood> calmU1 = Example.of(probe, ignoringPrimitives);
+		assertEquals(List.of("b", "a"), ids(repo.findAll(calmU1)));
+		assertEquals(List.of("a", "b"), ids(repo.findAll(calmU1, Sort.by("createdAt"))));
+		assertEquals(2, repo.count(calmU1));
+		assertEquals("b", repo.findOne(calmU1).orElseThrow().getId());
+
+		Page<Mood> page = repo.findAll(Example.of(new Mood(null, null, 0, null, null),
+				ignoringPrimitives.withIgnorePaths("createdAt")), PageRequest.of(1, 2, Sort.by("id")));
+		assertEquals(List.of("c"), ids(page.getContent()));
+		assertEquals(3, page.getTotalElements());
+
+		Mood noteProbe = new Mood();
+		noteProbe.setNote("calm");
+		Example<Mood> noteContains = Example.of(noteProbe, ignoringPrimitives
+				.withMatcher("note", m -> m.contains().ignoreCase()));
+		assertEquals(List.of("a"), ids(repo.findAll(noteContains)));
+		assertFalse(repo.exists(Example.of(new Mood(null, "u3", 5, null, null), ExampleMatcher.matching().withIgnorePaths("version"))));
+
+		Mood highScore = new Mood(null, null, 8, null, null);
+		List<Integer> scores = repo.findBy(Example.of(highScore, ExampleMatcher.matching().withIgnorePaths("version")),
+				q -> q.as(ScoreOnly.class).all()).stream().map(ScoreOnly::getScore).collect(Collectors.toList());
+		assertEquals(List.of(8), scores);
+
+		repo.findOne(calmU1).orElseThrow().setEmotion("sad");
+		assertEquals(2, repo.count(calmU1), "results are copies");
+	}
+
+	@Test
+	void rangeQueriesForAUserWithoutMoodsAreEmpty() {
+		InMemoryMoodRepository repo = new InMemoryMoodRepository();
+		repo.save(mood("a", "u1", 0));
+
+		assertTrue(repo.findByUserIdAndCreatedAtGreaterThanEqual("u2", T0).isEmpty());
+		assertTrue(repo.findCreatedBetween("u2", T0, T0.plusSeconds(60)).isEmpty());
+		assertTrue(repo.findPageAfter("u2", T0, "a", NEWEST_FIRST).isEmpty());
+	}
+}
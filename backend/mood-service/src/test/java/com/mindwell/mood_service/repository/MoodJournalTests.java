@@ -0,0 +1,118 @@
+package com.mindwell.mood_service.repository;
+
+import com.mindwell.mood_service.model.Mood;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoodJournalTests {
+
+	private static final Instant T0 = Instant.parse("2025-03-10T12:00:00Z");
+
+	@TempDir
+	Path dir;
+
+	private MoodJournal journal() {
+		return new MoodJournal(dir.toString(), 0);
+	}
+
+	private static Mood mood(String id, String userId, int minutes, String idempotencyKey) {
+		Mood m = new Mood(id, userId, 5, "note " + id, T0.plusSeconds(minutes * 60L));
+		m.setIdempotencyKey(idempotencyKey);
+		return m;
+	}
+
+	private static List<String> ids(List<Mood> moods) {
+		return moods.stream().map(Mood::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	void replaysSavesUpdatesAndDeletesAfterRestart() throws Exception {
+		MoodJournal journal = journal();
+		InMemoryMoodRepository repo = new InMemoryMoodRepository(journal);
+		repo.save(mood("a", "u1", 0, "k-a"));
+		repo.save(mood("b", "u1", 10, null));
+		repo.insertUnordered(List.of(mood("c", "u1", 20, "k-c"), mood("d", "u2", 5, "k-a")));
+		repo.updateIfMatches("a", "u1", 0L, 9, "better", "calm");
+		repo.deleteById("b");
+		journal.close();
+
+		InMemoryMoodRepository restored = new InMemoryMoodRepository(journal());
+		assertEquals(List.of("c", "a"), ids(restored.findByUserId("u1")));
+		Mood a = restored.findById("a").orElseThrow();
+		assertEquals(9, a.getScore());
+		assertEquals("calm", a.getEmotion());
+		assertEquals(1L, a.getVersion());
+		assertFalse(restored.existsById("b"));
+		assertEquals("d", restored.findByUserIdAndIdempotencyKey("u2", "k-a").orElseThrow().getId());
+		assertEquals("c", restored.findByUserIdAndIdempotencyKey("u1", "k-c").orElseThrow().getId());
+	}
+
+	@Test
+	void recoversFromSnapshotAndLogTailIgnoringATornRecord() throws Exception {
+		MoodJournal journal = journal();
+		InMemoryMoodRepository repo = new InMemoryMoodRepository(journal);
+		for (int i = 0; i < 100; i++) {
+			repo.save(mood("m" + i, "u" + i % 3, i, null));
+		}
+		journal.checkpoint();
+		repo.deleteById("m0");
+		repo.save(mood("m100", "u1", 100, "late"));
+		journal.close();
+
+		Path tail;
+		try (Stream<Path> files = Files.list(dir)) {
+			tail = files.filter(f -> f.getFileName().toString().endsWith(".log")).max(Path::compareTo).orElseThrow();
+		}
+		Files.write(tail, new byte[] {0, 0, 1, 0, 7, 7}, StandardOpenOption.APPEND);
+
+		InMemoryMoodRepository restored = new InMemoryMoodRepository(journal());
+		assertEquals(100, restored.count());
+		assertFalse(restored.existsById("m0"));
+		assertTrue(restored.findByUserIdAndIdempotencyKey("u1", "late").isPresent());
+		assertEquals(ids(repo.findByUserId("u2")), ids(restored.findByUserId("u2")));
+	}
+
+	@Test
+	void groupCommitsConcurrentWritesAndRefusesThemOnceClosed() throws Exception {
+		MoodJournal journal = new MoodJournal(dir.toString(), 5);
+		InMemoryMoodRepository repo = new InMemoryMoodRepository(journal);
+		ExecutorService writers = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Mood>> saves = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				Mood m = mood("m" + i, "u" + i % 4, i, null);
+				saves.add(writers.submit(() -> repo.save(m)));
+			}
+			for (Future<Mood> save : saves) {
+				save.get();
+			}
+		} finally {
+			writers.shutdown();
+		}
+		assertEquals(200, repo.count(), "every save returned once synced");
+		journal.close();
+		assertThrows(RuntimeException.class, () -> repo.save(mood("late", "u1", 0, null)));
+		assertFalse(repo.existsById("late"), "nothing is applied after close");
+
+		InMemoryMoodRepository restored = new InMemoryMoodRepository(journal());
+		assertEquals(200, restored.count());
+		assertEquals(ids(repo.findByUserId("u3")), ids(restored.findByUserId("u3")));
+	}
+}
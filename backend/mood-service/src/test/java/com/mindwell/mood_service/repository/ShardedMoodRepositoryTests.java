@@ -0,0 +1,132 @@
+package com.mindwell.mood_service.repository;
+
+import com.mindwell.mood_service.model.Mood;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedMoodRepositoryTests {
+
+	private static List<MongoMoodRepository> stores(int count) {
+		List<MongoMoodRepository> stores = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			stores.add(new InMemoryMoodRepository());
+		}
+		return stores;
+	}
+
+	private static void seed(MongoMoodRepository repo, int users) {
+		for (int u = 0; u < users; u++) {
+			for (int i = 0; i < 3; i++) {
+				repo.save(new Mood(null, "user-" + u, i + 1, null, Instant.parse("2025-03-10T12:00:00Z").plusSeconds(u * 10L + i)));
+			}
+		}
+	}
+
+	@Test
+	void routesEachUserToOneShardAndMergesScans() {
+		List<MongoMoodRepository> stores = stores(4);
+		ShardedMoodRepository repo = new ShardedMoodRepository(stores, 0, 128);
+		try {
+			seed(repo, 200);
+			for (MongoMoodRepository store : stores) {
+				long count = store.count();
+				assertTrue(count > 60 && count < 240, "uneven shard: " + count);
+			}
+			for (int u = 0; u < 200; u++) {
+				String user = "user-" + u;
+				assertEquals(3, stores.get(repo.shardOf(user)).findByUserId(user).size());
+			}
+			assertEquals(600, repo.count());
+			Mood any = stores.get(2).findAll().get(0);
+			assertEquals(any.getScore(), repo.findById(any.getId()).orElseThrow().getScore());
+
+			Sort newest = Sort.by(Sort.Direction.DESC, "createdAt");
+			List<Instant> page = repo.findAll(PageRequest.of(1, 10, newest)).getContent().stream()
+					.map(Mood::getCreatedAt).collect(Collectors.toList());
+			List<Instant> expected = repo.findAll(newest).stream().skip(10).limit(10)
+					.map(Mood::getCreatedAt).collect(Collectors.toList());
+			assertEquals(expected, page);
+		} finally {
+			repo.shutdown();
+		}
+	}
+
+	@Test
+	void movesUsersOntoAppendedShardsOnAccessAndByRebalance() {
+		List<MongoMoodRepository> stores = stores(3);
+		ShardedMoodRepository before = new ShardedMoodRepository(stores, 0, 128);
+		seed(before, 300);
+		before.shutdown();
+
+		stores.add(new InMemoryMoodRepository());
+		ShardedMoodRepository after = new ShardedMoodRepository(stores, 3, 128);
+		try {
+			assertTrue(after.isRebalancing());
+			String movedUser = null;
+			for (int u = 0; u < 300 && movedUser == null; u++) {
+				if (after.shardOf("user-" + u) == 3) movedUser = "user-" + u;
+			}
+			// Read before the rebalance: the user is moved first.
+			assertEquals(3, after.findByUserId(movedUser).size());
+			assertEquals(3, stores.get(3).findByUserId(movedUser).size());
+
+			int moved = after.rebalance();
+			assertFalse(after.isRebalancing());
+			assertTrue(moved > 30 && moved < 150, "moved " + moved + " of 300 users");
+			assertEquals(900, after.count());
+			for (int u = 0; u < 300; u++) {
+				String user = "user-" + u;
+				for (int shard = 0; shard < stores.size(); shard++) {
+					int expected = shard == after.shardOf(user) ? 3 : 0;
+					assertEquals(expected, stores.get(shard).findByUserId(user).size(), user + " on shard " + shard);
+				}
+			}
+		} finally {
+			after.shutdown();
+		}
+	}
+
+	@Test
+	void queriesByExampleAcrossShards() {
+		List<MongoMoodRepository> stores = stores(4);
+		ShardedMoodRepository repo = new ShardedMoodRepository(stores, 0, 128);
+		try {
+			seed(repo, 200);
+			ExampleMatcher ignoringVersion = ExampleMatcher.matching().withIgnorePaths("version");
+			Example<Mood> topScore = Example.of(new Mood(null, null, 3, null, null), ignoringVersion);
+			assertEquals(200, repo.count(topScore));
+			assertTrue(repo.exists(topScore));
+
+			Sort newest = Sort.by(Sort.Direction.DESC, "createdAt");
+			Page<Mood> page = repo.findAll(topScore, PageRequest.of(2, 15, newest));
+			assertEquals(200, page.getTotalElements());
+			assertEquals(repo.findAll(topScore, newest).stream().skip(30).limit(15).map(Mood::getId).collect(Collectors.toList()),
+					page.getContent().stream().map(Mood::getId).collect(Collectors.toList()));
+			for (int i = 1; i < page.getContent().size(); i++) {
+				assertTrue(page.getContent().get(i - 1).getCreatedAt().isAfter(page.getContent().get(i).getCreatedAt()));
+			}
+
+			Mood probe = new Mood(null, "user-7", 0, null, null);
+			Example<Mood> oneUser = Example.of(probe, ignoringVersion.withIgnorePaths("score"));
+			assertEquals(3, repo.findAll(oneUser).size());
+			assertEquals(List.of(3, 2, 1), repo.findBy(oneUser, q -> q.sortBy(newest).all()).stream()
+					.map(Mood::getScore).collect(Collectors.toList()));
+			assertFalse(repo.exists(Example.of(new Mood(null, "user-7", 9, null, null), ignoringVersion)));
+		} finally {
+			repo.shutdown();
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package com.mindwell.mood_service.rollup;
+
+import com.mindwell.mood_service.lease.LeaseService;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.model.MoodRollup;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoodRollupServiceTests {
+
+	private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-03-10T12:00:00Z"), ZoneOffset.UTC);
+	private static final LocalDate MAR_7 = LocalDate.of(2025, 3, 7);
+	private static final LocalDate MAR_8 = LocalDate.of(2025, 3, 8);
+
+	private MongoServer server;
+	private MongoClient client;
+	private MongoTemplate mongo;
+
+	@BeforeEach
+	void startMongo() {
+		server = new MongoServer(new MemoryBackend());
+		client = MongoClients.create(server.bindAndGetConnectionString());
+		mongo = new MongoTemplate(client, "moods");
+	}
+
+	@AfterEach
+	void stopMongo() {
+		client.close();
+		server.shutdown();
+	}
+
+	private MoodRollupService service(MongoTemplate template) {
+		return new MoodRollupService(template, new LeaseService(template), true, Duration.ofMinutes(5), CLOCK);
+	}
+
+	private Mood insert(String id, String userId, LocalDate day, int score) {
+		Mood m = new Mood(id, userId, score, null, day.atTime(9, 0).toInstant(ZoneOffset.UTC));
+		m.setEmotion("calm");
+		return mongo.insert(m);
+	}
+
+	private static Map<LocalDate, Long> counts(MoodRollupService.UserRollups rollups) {
+		return rollups.getDays().stream().collect(Collectors.toMap(
+				r -> MoodRollupService.day(r.getPeriodStart()), MoodRollup::getCount));
+	}
+
+	@Test
+	void compactsEndedDaysAndRecomputesChangedBuckets() {
+		insert("a", "u1", MAR_7, 4);
+		insert("b", "u1", MAR_8, 6);
+		insert("c", "u1", MAR_8, 8);
+		insert("d", "u2", MAR_8, 2);
+		insert("e", "u1", LocalDate.of(2025, 3, 10), 5);
+		MoodRollupService service = service(mongo);
+
+		assertEquals(3, service.compact());
+		assertEquals(Instant.parse("2025-03-10T00:00:00Z"), service.highWaterMark());
+		MoodRollupService.UserRollups rollups = service.userRollups("u1");
+		assertEquals(Map.of(MAR_7, 1L, MAR_8, 2L), counts(rollups));
+		assertEquals(14, rollups.getDays().get(1).getSum());
+
+		// An edit and a backdated insert on compacted days: their buckets are read raw until recomputed.
+		Mood before = mongo.findById("c", Mood.class);
+		Mood after = mongo.findById("c", Mood.class);
+		after.setScore(1);
+		mongo.save(after);
+		Mood late = insert("f", "u1", MAR_7, 9);
+		service.touched(before, after, late);
+		rollups = service.userRollups("u1");
+		assertEquals(Set.of(MAR_7, MAR_8), rollups.getDirtyDays());
+		assertTrue(rollups.getDays().isEmpty());
+		assertEquals(Map.of(MAR_8, 1L), counts(service.userRollups("u2")));
+
+		assertEquals(0, service.compact());
+		rollups = service.userRollups("u1");
+		assertTrue(rollups.getDirtyDays().isEmpty());
+		assertEquals(Map.of(MAR_7, 2L, MAR_8, 2L), counts(rollups));
+		assertEquals(13, rollups.getDays().get(0).getSum());
+		assertEquals(7, rollups.getDays().get(1).getSum());
+	}
+
+	@Test
+	void changeLandingWhileItsDayIsRebuiltIsNotLost() {
+		insert("a", "u1", MAR_8, 4);
+		// Stores a mood of the day right after the rebuild has read that day's moods.
+		MongoTemplate racing = new MongoTemplate(client, "moods") {
+			private boolean raced;
+
+			@Override
+			public <O> Stream<O> aggregateStream(Aggregation aggregation, String collectionName, Class<O> outputType) {
+				Stream<O> rows = super.aggregateStream(aggregation, collectionName, outputType);
+				if (!raced && aggregation.toString().contains("2025-03-08")) {
+					raced = true;
+					service(mongo).touched(MoodRollupServiceTests.this.insert("late", "u1", MAR_8, 10));
+				}
+				return rows;
+			}
+		};
+		MoodRollupService service = service(racing);
+
+		service.compact();
+		MoodRollupService.UserRollups rollups = service.userRollups("u1");
+		assertTrue(rollups.getDirtyDays().isEmpty());
+		assertEquals(Map.of(MAR_8, 2L), counts(rollups));
+		assertEquals(14, rollups.getDays().get(0).getSum());
+	}
+
+	@Test
+	void onlyTheLeaseHolderCompacts() {
+		insert("a", "u1", MAR_8, 4);
+		LeaseService otherInstance = new LeaseService(mongo);
+		assertTrue(otherInstance.acquire(MoodRollupService.LEASE, Duration.ofMinutes(5)));
+
+		MoodRollupService service = service(mongo);
+		assertEquals(0, service.compact());
+		assertEquals(Instant.EPOCH, service.highWaterMark());
+
+		otherInstance.release(MoodRollupService.LEASE);
+		assertEquals(2, service.compact());
+		assertFalse(service.userRollups("u1").getDays().isEmpty());
+	}
+
+	@Test
+	void foldsEndedWeeksAndReadsThemBeforeTheDailyRange() {
+		LocalDate feb17 = LocalDate.of(2025, 2, 17);
+		LocalDate feb19 = LocalDate.of(2025, 2, 19);
+		LocalDate mar3 = LocalDate.of(2025, 3, 3);
+		insert("a", "u1", feb17, 4);
+		insert("b", "u1", feb19, 6);
+		insert("c", "u1", LocalDate.of(2025, 2, 26), 8);
+		insert("d", "u1", mar3, 2);
+		insert("e", "u1", MAR_8, 5);
+		MoodRollupService service = service(mongo);
+
+		assertEquals(21, service.compact());
+		MoodRollupService.UserRollups rollups = service.userRollups("u1", mar3);
+		assertEquals(mar3, rollups.getWeeklyBefore());
+		assertEquals(2, rollups.getWeeks().size());
+		MoodRollup first = rollups.getWeeks().get(0);
+		assertEquals(feb17, MoodRollupService.day(first.getPeriodStart()));
+		assertEquals(2, first.getCount());
+		assertEquals(10, first.getSum());
+		assertEquals(List.of(1L, 0L, 1L, 0L, 0L, 0L, 0L), first.getDayCounts());
+		assertEquals(Map.of(mar3, 1L, MAR_8, 1L), counts(rollups));
+		assertEquals(Map.of(feb17, 1L, feb19, 1L, LocalDate.of(2025, 2, 26), 1L, mar3, 1L, MAR_8, 1L),
+				counts(service.userRollups("u1")), "without a split every day comes as a day");
+
+		// A changed day takes its whole week back to days until it is recomputed.
+		Mood before = mongo.findById("b", Mood.class);
+		Mood after = mongo.findById("b", Mood.class);
+		after.setScore(1);
+		mongo.save(after);
+		service.touched(before, after);
+		rollups = service.userRollups("u1", mar3);
+		assertEquals(1, rollups.getWeeks().size());
+		assertEquals(Set.of(feb19), rollups.getDirtyDays());
+		assertEquals(Map.of(feb17, 1L, mar3, 1L, MAR_8, 1L), counts(rollups));
+
+		assertEquals(0, service.compact());
+		rollups = service.userRollups("u1", mar3);
+		assertEquals(2, rollups.getWeeks().size());
+		assertEquals(5, rollups.getWeeks().get(0).getSum());
+		assertTrue(rollups.getDirtyDays().isEmpty());
+	}
+}
@@ -0,0 +1,113 @@
+package com.mindwell.mood_service.service;
+
+import com.mindwell.mood_service.analytics.MoodAnalyticsEngine;
+import com.mindwell.mood_service.dto.CreateMoodRequest;
+import com.mindwell.mood_service.dto.MoodBatchResult;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.repository.InMemoryMoodRepository;
+import com.mindwell.mood_service.rollup.MoodRollupService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoodBatchServiceTests {
+
+	private final InMemoryMoodRepository repo = new InMemoryMoodRepository();
+	private final MoodAnalyticsEngine engine = new MoodAnalyticsEngine(repo, MoodRollupService.disabled(),
+			MoodVersions.local(), new SimpleMeterRegistry(), 1000, "aggregate", null);
+
+	private MoodBatchService service(int chunkSize) {
+		return new MoodBatchService(repo, engine, chunkSize, 20);
+	}
+
+	private static CreateMoodRequest request(int score, String key) {
+		CreateMoodRequest req = new CreateMoodRequest(score, "note");
+		req.setIdempotencyKey(key);
+		return req;
+	}
+
+	private static List<String> statuses(MoodBatchResult result) {
+		List<String> statuses = new ArrayList<>();
+		result.getItems().forEach(item -> statuses.add(item.getStatus()));
+		return statuses;
+	}
+
+	@Test
+	void rejectsInvalidEntriesAndStoresTheRest() {
+		CreateMoodRequest longNote = request(5, null);
+		longNote.setNote("x".repeat(2001));
+		CreateMoodRequest maxNote = request(5, null);
+		maxNote.setNote("x".repeat(2000));
+		CreateMoodRequest future = request(5, null);
+		future.setCreatedAt(Instant.now().plus(Duration.ofMinutes(10)));
+		CreateMoodRequest skewed = request(5, null);
+		skewed.setCreatedAt(Instant.now().plus(Duration.ofMinutes(1)));
+
+		MoodBatchResult result = service(500).createBatch("u1", Arrays.asList(
+				request(0, null), request(11, null), request(1, null), request(10, null),
+				longNote, maxNote, request(5, "k".repeat(129)), request(5, " "), request(5, "k".repeat(128)),
+				future, skewed, null));
+
+		assertEquals(List.of("invalid", "invalid", "created", "created", "invalid", "created",
+				"invalid", "invalid", "created", "invalid", "created", "invalid"), statuses(result));
+		assertEquals(5, result.getCreated());
+		assertEquals(7, result.getInvalid());
+		assertEquals("Score must be between 1 and 10", result.getItems().get(0).getError());
+		assertNull(result.getItems().get(0).getId());
+		assertEquals(5, repo.count());
+		assertEquals(5, engine.analytics("u1", null).getTotalEntries());
+	}
+
+	@Test
+	void writesARepeatedKeyOnceWithinAChunk() {
+		MoodBatchResult result = service(500).createBatch("u1",
+				List.of(request(3, "a"), request(4, "a"), request(5, "b")));
+
+		assertEquals(List.of("created", "duplicate", "created"), statuses(result));
+		assertEquals(result.getItems().get(0).getId(), result.getItems().get(1).getId());
+		assertEquals(2, repo.count());
+		assertEquals(3, repo.findByUserIdAndIdempotencyKey("u1", "a").orElseThrow().getScore());
+	}
+
+	@Test
+	void resolvesKeysStoredEarlierToTheOriginalMoods() {
+		Mood earlier = repo.save(new Mood(null, "u1", 7, "first upload", Instant.now()));
+		earlier.setIdempotencyKey("a");
+		repo.save(earlier);
+		Mood otherUser = new Mood(null, "u2", 2, null, Instant.now());
+		otherUser.setIdempotencyKey("c");
+		repo.save(otherUser);
+
+		// Chunks of two: "b" is stored by the first chunk and repeated by the second.
+		MoodBatchResult result = service(2).createBatch("u1",
+				List.of(request(3, "a"), request(4, "b"), request(5, "b"), request(6, "c")));
+
+		assertEquals(List.of("duplicate", "created", "duplicate", "created"), statuses(result));
+		assertEquals(earlier.getId(), result.getItems().get(0).getId());
+		assertEquals(result.getItems().get(1).getId(), result.getItems().get(2).getId());
+		assertNotNull(result.getItems().get(3).getId());
+		assertEquals(2, result.getDuplicates());
+		assertEquals(4, repo.count());
+		assertEquals(7, repo.findById(earlier.getId()).orElseThrow().getScore());
+	}
+
+	@Test
+	void rejectsOversizedBatches() {
+		List<CreateMoodRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 21; i++) {
+			requests.add(request(5, null));
+		}
+		assertThrows(IllegalArgumentException.class, () -> service(500).createBatch("u1", requests));
+		assertEquals(0, repo.count());
+	}
+}
@@ -0,0 +1,80 @@
+package com.mindwell.mood_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.repository.InMemoryMoodRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MoodExportServiceTests {
+
+	private static final Instant T0 = Instant.parse("2025-03-10T12:00:00Z");
+
+	private final InMemoryMoodRepository repo = new InMemoryMoodRepository();
+	// Configured like Spring Boot's: ISO-8601 instants.
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+			.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+	private final MoodExportService service = new MoodExportService(repo, objectMapper, null);
+
+	private String export(String userId, MoodExportService.Format format) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		service.export(userId, format, out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	private static Mood mood(String id, int minutes, String emotion, String note) {
+		Mood m = new Mood(id, "u1", 5, note, T0.plusSeconds(minutes * 60L));
+		m.setEmotion(emotion);
+		return m;
+	}
+
+	@Test
+	void exportsOneJsonObjectPerLineOldestFirst() throws Exception {
+		repo.save(mood("b", 10, "calm", "line one\nline two"));
+		repo.save(mood("a", 0, null, "ünïcode \"quoted\""));
+		repo.save(new Mood("x", "u2", 1, null, T0));
+
+		String[] lines = export("u1", MoodExportService.Format.NDJSON).split("\n", -1);
+		assertEquals(3, lines.length);
+		assertEquals("", lines[2]);
+		JsonNode first = objectMapper.readTree(lines[0]);
+		assertEquals("a", first.get("id").asText());
+		assertEquals("ünïcode \"quoted\"", first.get("note").asText());
+		JsonNode second = objectMapper.readTree(lines[1]);
+		assertEquals("b", second.get("id").asText());
+		assertEquals("line one\nline two", second.get("note").asText());
+		assertEquals(T0.plusSeconds(600), Instant.parse(second.get("createdAt").asText()));
+	}
+
+	@Test
+	void exportsCsvWithQuotedFields() throws Exception {
+		repo.save(mood("a", 0, "calm", "plain"));
+		repo.save(mood("b", 1, null, "a, b and \"c\""));
+		repo.save(mood("c", 2, "sad", "two\nlines"));
+
+		assertEquals(MoodExportService.CSV_HEADER
+						+ "a,2025-03-10T12:00:00Z,5,calm,plain\n"
+						+ "b,2025-03-10T12:01:00Z,5,,\"a, b and \"\"c\"\"\"\n"
+						+ "c,2025-03-10T12:02:00Z,5,sad,\"two\nlines\"\n",
+				export("u1", MoodExportService.Format.CSV));
+	}
+
+	@Test
+	void keepsFormulaLikeFieldsAsText() {
+		List<String> notes = List.of("=HYPERLINK(\"http://x\")", "+1", "-2", "@SUM(A1)", "\tindented", "fine = yes");
+		List<String> expected = List.of("\"'=HYPERLINK(\"\"http://x\"\")\"", "'+1", "'-2", "'@SUM(A1)", "'\tindented", "fine = yes");
+		for (int i = 0; i < notes.size(); i++) {
+			String row = MoodExportService.csvRow(mood("m", 0, "=calm", notes.get(i)));
+			assertEquals("m,2025-03-10T12:00:00Z,5,'=calm," + expected.get(i) + "\n", row, notes.get(i));
+		}
+	}
+}
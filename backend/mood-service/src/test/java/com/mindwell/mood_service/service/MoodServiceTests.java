@@ -0,0 +1,75 @@
+package com.mindwell.mood_service.service;
+
+import com.mindwell.mood_service.analytics.MoodAnalyticsEngine;
+import com.mindwell.mood_service.dto.MoodPage;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.repository.InMemoryMoodRepository;
+import com.mindwell.mood_service.rollup.MoodRollupService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoodServiceTests {
+
+	private static final Instant T0 = Instant.parse("2025-03-10T12:00:00Z");
+
+	private final InMemoryMoodRepository repo = new InMemoryMoodRepository();
+	private final MoodService service = new MoodService(repo, new MoodAnalyticsEngine(repo, MoodRollupService.disabled(),
+			MoodVersions.local(), new SimpleMeterRegistry(), 1000, "aggregate", null), null, null);
+
+	private static List<String> ids(MoodPage page) {
+		return page.getItems().stream().map(Mood::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	void pagesNewestFirstBreakingCreatedAtTiesById() {
+		// Three moods share a timestamp, so a page boundary falls inside the tie.
+		repo.save(new Mood("a", "u1", 5, null, T0));
+		repo.save(new Mood("c", "u1", 5, null, T0.plusSeconds(60)));
+		repo.save(new Mood("b", "u1", 5, null, T0.plusSeconds(60)));
+		repo.save(new Mood("d", "u1", 5, null, T0.plusSeconds(60)));
+		repo.save(new Mood("e", "u1", 5, null, T0.plusSeconds(120)));
+		repo.save(new Mood("x", "u2", 5, null, T0.plusSeconds(90)));
+
+		List<String> seen = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			MoodPage page = service.listPage("u1", cursor, 2);
+			seen.addAll(ids(page));
+			cursor = page.getNextCursor();
+			pages++;
+		} while (cursor != null);
+		assertEquals(List.of("e", "d", "c", "b", "a"), seen);
+		assertEquals(3, pages);
+
+		MoodPage exact = service.listPage("u1", null, 5);
+		assertEquals(5, exact.getItems().size());
+		assertNull(exact.getNextCursor(), "no cursor when nothing follows");
+	}
+
+	@Test
+	void clampsThePageSize() {
+		for (int i = 0; i < MoodService.MAX_PAGE_SIZE + 10; i++) {
+			repo.save(new Mood(null, "u1", 5, null, T0.plusSeconds(i)));
+		}
+		assertEquals(MoodService.DEFAULT_PAGE_SIZE, service.listPage("u1", null, null).getItems().size());
+		assertEquals(MoodService.MAX_PAGE_SIZE, service.listPage("u1", "", 10_000).getItems().size());
+		assertEquals(1, service.listPage("u1", null, 0).getItems().size());
+		assertEquals(1, service.listPage("u1", null, -5).getItems().size());
+	}
+
+	@Test
+	void rejectsAMalformedCursor() {
+		repo.save(new Mood("a", "u1", 5, null, T0));
+		assertThrows(IllegalArgumentException.class, () -> service.listPage("u1", "%%%", 10));
+	}
+}
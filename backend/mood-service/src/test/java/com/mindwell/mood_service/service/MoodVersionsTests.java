@@ -0,0 +1,153 @@
+package com.mindwell.mood_service.service;
+
+import com.mindwell.mood_service.model.MoodVersion;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class MoodVersionsTests {
+
+	private MongoServer server;
+	private MongoClient client;
+	private MongoTemplate mongo;
+
+	@BeforeEach
+	void startMongo() {
+		server = new MongoServer(new MemoryBackend());
+		client = MongoClients.create(server.bindAndGetConnectionString());
+		mongo = new MongoTemplate(client, "moods");
+	}
+
+	@AfterEach
+	void stopMongo() {
+		client.close();
+		server.shutdown();
+	}
+
+	private MoodVersions shared(Clock clock) {
+		return new MoodVersions(mongo, true, Duration.ofMinutes(1), clock);
+	}
+
+	@Test
+	void aWriteOnOneInstanceChangesTheTagOnAll() {
+		MoodVersions a = shared(Clock.systemUTC());
+		MoodVersions b = shared(Clock.systemUTC());
+		assertEquals(a.etag("u1"), b.etag("u1"));
+
+		String before = b.etag("u1");
+		assertEquals(1L, a.bump("u1"));
+		assertNotEquals(before, a.etag("u1"), "the writing instance sees its write at once");
+		assertEquals(before, b.etag("u1"), "the others once it is synced");
+		a.sync();
+		b.sync();
+		assertNotEquals(before, b.etag("u1"));
+		assertEquals(a.etag("u1"), b.etag("u1"));
+		assertEquals(1L, b.current("u1"));
+		assertEquals(0L, b.current("u2"));
+
+		LocalDate today = LocalDate.of(2025, 3, 10);
+		assertEquals(a.etag("u1", today), b.etag("u1", today));
+		assertNotEquals(b.etag("u1", today), b.etag("u1", today.plusDays(1)));
+	}
+
+	@Test
+	void readsAreCachedAndWritesStoredOncePerUserPerSync() {
+		MoodVersions a = shared(Clock.systemUTC());
+		MoodVersions b = shared(Clock.systemUTC());
+		assertEquals(0L, b.current("u1"));
+		for (int i = 0; i < 5; i++) {
+			a.bump("u1");
+			a.bump("u2");
+		}
+		assertEquals(0L, mongo.count(new Query(), MoodVersion.class), "nothing is written before the sync");
+		assertEquals(-1L, b.bump("u3"), "a user not held here has no version to report");
+		a.sync();
+		assertEquals(5L, mongo.findById("u1", MoodVersion.class).getVersion());
+		assertEquals(0L, b.current("u1"), "served from the cache until the next sync");
+
+		a.bump("u1");
+		b.bump("u1");
+		b.sync();
+		assertEquals(6L, b.current("u1"), "its own write plus the five synced by the other");
+		a.sync();
+		assertEquals(7L, a.current("u1"));
+		b.sync();
+		assertEquals(a.etag("u1"), b.etag("u1"));
+		assertEquals(7L, mongo.findById("u1", MoodVersion.class).getVersion());
+		assertEquals(1L, mongo.findById("u3", MoodVersion.class).getVersion());
+	}
+
+	@Test
+	void forgetsIdleUsersAndReloadsThem() {
+		MutableClock clock = new MutableClock(Instant.parse("2025-03-10T12:00:00Z"));
+		MoodVersions versions = shared(clock);
+		versions.bump("u1");
+		assertEquals(1L, versions.current("u1"), "a queued write counts on a first read");
+		versions.sync();
+		clock.advance(Duration.ofMinutes(2));
+		versions.sync();
+		mongo.updateFirst(Query.query(Criteria.where("_id").is("u1")), new Update().inc("version", 1), MoodVersion.class);
+		assertEquals(2L, versions.current("u1"), "read again after it was forgotten");
+	}
+
+	@Test
+	void countersThatStartOverDoNotRepeatATag() {
+		Instant t0 = Instant.parse("2025-03-10T12:00:00Z");
+		MoodVersions versions = shared(Clock.fixed(t0, ZoneOffset.UTC));
+		versions.bump("u1");
+		versions.sync();
+		String tag = versions.etag("u1");
+
+		mongo.dropCollection(MoodVersion.class);
+		versions = shared(Clock.fixed(t0.plusSeconds(60), ZoneOffset.UTC));
+		versions.bump("u1");
+		versions.sync();
+		assertEquals(1L, versions.current("u1"));
+		assertNotEquals(tag, versions.etag("u1"));
+	}
+
+	private static final class MutableClock extends Clock {
+		private Instant now;
+
+		MutableClock(Instant now) {
+			this.now = now;
+		}
+
+		void advance(Duration d) {
+			now = now.plus(d);
+		}
+
+		@Override
+		public ZoneOffset getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.mindwell.mood_service.service;
+
+import com.mindwell.mood_service.analytics.MoodAnalyticsEngine;
+import com.mindwell.mood_service.model.Mood;
+import com.mindwell.mood_service.repository.InMemoryMoodRepository;
+import com.mindwell.mood_service.repository.MoodInsertResult;
+import com.mindwell.mood_service.rollup.MoodRollupService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoodWriteBufferTests {
+
+	private static Mood mood(String userId, String key) {
+		Mood m = new Mood(null, userId, 5, null, Instant.parse("2025-03-10T12:00:00Z"));
+		m.setIdempotencyKey(key);
+		return m;
+	}
+
+	private static MoodAnalyticsEngine engine(InMemoryMoodRepository repo, MoodVersions versions) {
+		return new MoodAnalyticsEngine(repo, MoodRollupService.disabled(), versions, new SimpleMeterRegistry(), 1000,
+				"aggregate", null);
+	}
+
+	@Test
+	void groupsConcurrentCreatesAndResolvesRetries() throws Exception {
+		InMemoryMoodRepository repo = new InMemoryMoodRepository();
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		MoodVersions versions = MoodVersions.local();
+		MoodWriteBuffer buffer = new MoodWriteBuffer(repo, engine(repo, versions), registry, 1000, 50, 20, 100, "durable");
+		try {
+			List<CompletableFuture<Mood>> stored = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				stored.add(buffer.submit(mood("u" + (i % 7), null)));
+			}
+			CompletableFuture<Mood> first = buffer.submit(mood("u1", "k1"));
+			Mood original = first.get(5, TimeUnit.SECONDS);
+			Mood retried = buffer.submit(mood("u1", "k1")).get(5, TimeUnit.SECONDS);
+
+			CompletableFuture.allOf(stored.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+			assertEquals(201, repo.count());
+			assertEquals(original.getId(), retried.getId());
+			long groups = registry.get("mood.write.group").summary().count();
+			assertTrue(groups < 202, "writes were grouped");
+			assertTrue(versions.current("u1") >= 1 && versions.current("u1") <= groups,
+					"the hooks ran once per user per group, not once per mood");
+		} finally {
+			buffer.shutdown();
+		}
+	}
+
+	@Test
+	void rejectsWhenFullUntilTheGroupIsStored() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		InMemoryMoodRepository slow = new InMemoryMoodRepository() {
+			@Override
+			public MoodInsertResult insertUnordered(List<Mood> moods) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.insertUnordered(moods);
+			}
+		};
+		MoodWriteBuffer buffer = new MoodWriteBuffer(slow, engine(slow, MoodVersions.local()), new SimpleMeterRegistry(), 2, 2, 0, 10, "durable");
+		try {
+			CompletableFuture<Mood> a = buffer.submit(mood("u1", null));
+			CompletableFuture<Mood> b = buffer.submit(mood("u1", null));
+			assertThrows(RejectedExecutionException.class, () -> buffer.submit(mood("u1", null)));
+
+			release.countDown();
+			CompletableFuture.allOf(a, b).get(5, TimeUnit.SECONDS);
+			buffer.submit(mood("u1", null)).get(5, TimeUnit.SECONDS);
+			assertEquals(3, slow.count());
+		} finally {
+			buffer.shutdown();
+		}
+	}
+
+	@Test
+	void failsMoodsStillBufferedWhenShutdownTimesOut() throws Exception {
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		InMemoryMoodRepository stuck = new InMemoryMoodRepository() {
+			@Override
+			public MoodInsertResult insertUnordered(List<Mood> moods) {
+				writing.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.insertUnordered(moods);
+			}
+		};
+		MoodWriteBuffer buffer = new MoodWriteBuffer(stuck, engine(stuck, MoodVersions.local()), new SimpleMeterRegistry(), 10, 1, 0, 10, "durable");
+		CompletableFuture<Mood> inFlight = buffer.submit(mood("u1", null));
+		assertTrue(writing.await(5, TimeUnit.SECONDS));
+		CompletableFuture<Mood> buffered = buffer.submit(mood("u1", null));
+
+		buffer.shutdown(50);
+		ExecutionException failed = assertThrows(ExecutionException.class, () -> buffered.get(5, TimeUnit.SECONDS));
+		assertTrue(failed.getCause() instanceof RejectedExecutionException);
+		assertThrows(RejectedExecutionException.class, () -> buffer.submit(mood("u1", null)));
+
+		release.countDown();
+		inFlight.get(5, TimeUnit.SECONDS);
+		assertEquals(1, stuck.count());
+	}
+}